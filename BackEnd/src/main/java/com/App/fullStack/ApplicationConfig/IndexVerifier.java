@@ -0,0 +1,262 @@
+package com.App.fullStack.ApplicationConfig;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver.IndexDefinitionHolder;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// Compares the indexes declared on the @Document classes (@Indexed, @CompoundIndex) with the live collections on
+// startup and reports repository queries that no declared index can serve. A live index only counts when its keys and
+// its unique, TTL and partial filter options all match the declaration. What happens to missing indexes depends on
+// inventory.indexes.on-missing: "create" builds them (the default, for development), "fail" stops the application
+// (production, where index builds are planned rather than triggered by a deploy) and "warn" only logs them. Unique and
+// TTL indexes are required in every mode: the inserts rely on the unique ones to reject duplicates, so the check runs
+// before the web server starts, "create" builds them in the foreground and startup fails when one is missing or cannot
+// be built. Only the remaining, query-serving indexes are built in the background or merely logged.
+@Component
+public class IndexVerifier implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexVerifier.class);
+
+    // Predicates an index can narrow down; case-insensitive or unanchored regexes still scan every key
+    private static final Set<Part.Type> INDEXABLE = EnumSet.of(Part.Type.SIMPLE_PROPERTY, Part.Type.IN,
+            Part.Type.BETWEEN, Part.Type.GREATER_THAN, Part.Type.GREATER_THAN_EQUAL, Part.Type.LESS_THAN,
+            Part.Type.LESS_THAN_EQUAL, Part.Type.BEFORE, Part.Type.AFTER, Part.Type.STARTING_WITH, Part.Type.TRUE,
+            Part.Type.FALSE, Part.Type.IS_NULL);
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired
+    public ApplicationContext applicationContext;
+
+    @Value("${inventory.indexes.on-missing:create}")
+    private String onMissing = "create";
+
+    // Runs once every singleton exists and before the web server starts taking requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        verifyOnStartup();
+    }
+
+    public void verifyOnStartup() {
+        Repositories repositories = new Repositories(applicationContext);
+        Map<Class<?>, Class<?>> repositoryByDomainType = new LinkedHashMap<>();
+        for (Class<?> domainType : repositories)
+            repositories.getRepositoryInformationFor(domainType)
+                    .ifPresent(information -> repositoryByDomainType.put(domainType, information.getRepositoryInterface()));
+        verify(repositoryByDomainType);
+    }
+
+    // Returns the missing index definitions after acting on them according to onMissing
+    List<IndexDefinitionHolder> verify(Map<Class<?>, Class<?>> repositoryByDomainType) {
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        IndexResolver indexResolver = IndexResolver.create(mappingContext);
+        List<IndexDefinitionHolder> missing = new ArrayList<>();
+
+        repositoryByDomainType.forEach((domainType, repositoryInterface) -> {
+            MongoPersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(domainType);
+            List<IndexInfo> liveIndexes = mongoTemplate.indexOps(entity.getCollection()).getIndexInfo();
+
+            List<List<String>> declaredIndexes = new ArrayList<>();
+            declaredIndexes.add(List.of("_id"));
+            for (IndexDefinition definition : indexResolver.resolveIndexFor(domainType)) {
+                IndexDefinitionHolder holder = definition instanceof IndexDefinitionHolder declared ? declared
+                        : new IndexDefinitionHolder("", definition, entity.getCollection());
+                List<String> keys = new ArrayList<>(holder.getIndexKeys().keySet());
+                declaredIndexes.add(keys);
+                if (liveIndexes.stream().noneMatch(live -> matches(live, holder)))
+                    missing.add(holder);
+            }
+
+            for (String uncovered : uncoveredQueries(repositoryInterface, entity, declaredIndexes))
+                logger.warn("{} is not covered by an index on {}", uncovered, entity.getCollection());
+        });
+
+        if (missing.isEmpty())
+            return missing;
+        List<IndexDefinitionHolder> required = missing.stream().filter(IndexVerifier::isRequired).toList();
+        List<IndexDefinitionHolder> optional = missing.stream().filter(holder -> !isRequired(holder)).toList();
+        switch (onMissing) {
+            case "fail" -> throw new IllegalStateException("Missing MongoDB indexes: " + describe(missing)
+                    + ". Create them before starting the application.");
+            case "warn" -> {
+                if (!required.isEmpty())
+                    throw new IllegalStateException("Missing unique or TTL MongoDB indexes: " + describe(required)
+                            + ". Create them before starting the application.");
+                logger.warn("Missing MongoDB indexes: {}", describe(optional));
+            }
+            default -> {
+                for (IndexDefinitionHolder holder : required) {
+                    try {
+                        create(holder);
+                    } catch (RuntimeException e) {
+                        // e.g. existing duplicates, or a live index on the same keys with other options
+                        throw new IllegalStateException("Could not build MongoDB index " + describe(List.of(holder))
+                                + ": " + e.getMessage(), e);
+                    }
+                }
+                if (!optional.isEmpty()) {
+                    logger.info("Creating missing MongoDB indexes in the background: {}", describe(optional));
+                    CompletableFuture.runAsync(() -> {
+                        for (IndexDefinitionHolder holder : optional) {
+                            try {
+                                create(holder);
+                            } catch (RuntimeException e) {
+                                // the rest of the indexes are still created
+                                logger.error("Could not create index {} on {}", holder.getIndexKeys().toJson(),
+                                        holder.getCollection(), e);
+                            }
+                        }
+                    });
+                }
+            }
+        }
+        return missing;
+    }
+
+    // Query methods declared on the repository (not inherited from MongoRepository, not default methods), each
+    // reported as "Repository.method" when one of its $or branches has no field that leads a declared index
+    static List<String> uncoveredQueries(Class<?> repositoryInterface, MongoPersistentEntity<?> entity,
+                                         List<List<String>> indexes) {
+        Set<String> leadingFields = new HashSet<>();
+        for (List<String> index : indexes)
+            leadingFields.add(index.get(0));
+
+        List<String> uncovered = new ArrayList<>();
+        Method[] methods = repositoryInterface.getDeclaredMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+        for (Method method : methods) {
+            if (method.isDefault() || isInherited(method))
+                continue;
+            List<Set<String>> branches = method.isAnnotationPresent(Query.class)
+                    ? annotatedBranches(method.getAnnotation(Query.class).value())
+                    : derivedBranches(method.getName(), entity);
+            if (branches == null || branches.stream().anyMatch(fields -> Collections.disjoint(fields, leadingFields)))
+                uncovered.add(repositoryInterface.getSimpleName() + "." + method.getName());
+        }
+        return uncovered;
+    }
+
+    private static boolean isInherited(Method method) {
+        try {
+            MongoRepository.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static List<Set<String>> derivedBranches(String methodName, MongoPersistentEntity<?> entity) {
+        List<Set<String>> branches = new ArrayList<>();
+        for (PartTree.OrPart orPart : new PartTree(methodName, entity.getType())) {
+            Set<String> fields = new HashSet<>();
+            for (Part part : orPart) {
+                MongoPersistentProperty property = entity.getPersistentProperty(part.getProperty().getSegment());
+                if (property != null && INDEXABLE.contains(part.getType())
+                        && part.shouldIgnoreCase() != Part.IgnoreCaseType.ALWAYS)
+                    fields.add(property.getFieldName());
+            }
+            branches.add(fields);
+        }
+        return branches;
+    }
+
+    // Top-level fields of each $or branch of a JSON @Query, null when it cannot be parsed. An empty filter ({}) is
+    // a deliberate full read and counts as covered.
+    private static List<Set<String>> annotatedBranches(String query) {
+        Document filter;
+        try {
+            filter = Document.parse(query.replaceAll("\\?\\d+", "0").replaceAll(",\\s*]", "]"));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (filter.isEmpty())
+            return List.of();
+
+        List<Document> documents = new ArrayList<>();
+        if (filter.get("$or") instanceof List<?> or) {
+            for (Object branch : or)
+                if (branch instanceof Document document)
+                    documents.add(document);
+        } else {
+            documents.add(filter);
+        }
+
+        List<Set<String>> branches = new ArrayList<>();
+        for (Document document : documents) {
+            Set<String> fields = new HashSet<>();
+            document.forEach((field, condition) -> {
+                if (!field.startsWith("$") && !isCaseInsensitiveRegex(condition))
+                    fields.add(field);
+            });
+            branches.add(fields);
+        }
+        return branches;
+    }
+
+    private static boolean isCaseInsensitiveRegex(Object condition) {
+        return condition instanceof Document document && document.containsKey("$regex")
+                && String.valueOf(document.get("$options")).contains("i");
+    }
+
+    private void create(IndexDefinitionHolder holder) {
+        mongoTemplate.indexOps(holder.getCollection()).ensureIndex(holder);
+        logger.info("Created index {} on {}", holder.getIndexKeys().toJson(), holder.getCollection());
+    }
+
+    // Indexes whose absence changes behaviour rather than speed
+    static boolean isRequired(IndexDefinitionHolder holder) {
+        Document options = holder.getIndexOptions();
+        return Boolean.TRUE.equals(options.get("unique")) || options.containsKey("expireAfterSeconds");
+    }
+
+    // Same keys in the same order and the same unique, TTL and partial filter options
+    static boolean matches(IndexInfo live, IndexDefinitionHolder declared) {
+        List<String> liveKeys = live.getIndexFields().stream().map(IndexField::getKey).toList();
+        if (!liveKeys.equals(new ArrayList<>(declared.getIndexKeys().keySet())))
+            return false;
+        Document options = declared.getIndexOptions();
+        if (live.isUnique() != Boolean.TRUE.equals(options.get("unique")))
+            return false;
+        Long expireAfterSeconds = options.get("expireAfterSeconds") instanceof Number seconds ? seconds.longValue() : null;
+        if (!Objects.equals(expireAfterSeconds, live.getExpireAfter().map(Duration::getSeconds).orElse(null)))
+            return false;
+        Object partialFilter = options.get("partialFilterExpression");
+        String livePartialFilter = live.getPartialFilterExpression();
+        if (partialFilter == null)
+            return livePartialFilter == null || livePartialFilter.isEmpty();
+        Document declaredFilter = partialFilter instanceof Document document ? document : Document.parse(partialFilter.toString());
+        return livePartialFilter != null && Document.parse(livePartialFilter).equals(declaredFilter);
+    }
+
+    private static String describe(List<IndexDefinitionHolder> missing) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (IndexDefinitionHolder holder : missing)
+            joiner.add(holder.getCollection() + " " + holder.getIndexKeys().toJson());
+        return joiner.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.CursorPage;
 import com.App.fullStack.dto.ThresholdDTO;
 import com.App.fullStack.pojos.AtpThreshold;
 import com.App.fullStack.responseHandler.ApiResponse;
@@ -39,6 +40,35 @@ public class AtpThresholdController {
                 "Threshold Not Found");
     }
 
+    // Item keyword and location keyword together, both optional
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<Page<ThresholdDTO>>> filterThresholdsWithDetails(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "8") int size,
+            @RequestParam(required = false) String itemKeyword,
+            @RequestParam(required = false) String locationKeyword) {
+        Page<ThresholdDTO> thresholdFullDetails = atpThresholdService.filterThresholdsWithDetails(itemKeyword,
+                locationKeyword, page, size);
+        return APIResponseForFoundOrNot.generateResponse(thresholdFullDetails,
+                "Threshold Found",
+                "Threshold Not Found");
+    }
+
+    // Same as above with keyset pagination: pass nextCursor back as cursor, total=exact|estimated adds a count
+    @GetMapping("/all/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ThresholdDTO>>> getThresholdsWithDetailsAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "8") int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String searchBy,
+            @RequestParam(defaultValue = "none") String total) {
+        CursorPage<ThresholdDTO> thresholdFullDetails = atpThresholdService.getThresholdsWithDetailsAfter(cursor, size,
+                search, searchBy, total);
+        return APIResponseForFoundOrNot.generateResponse(thresholdFullDetails,
+                "Threshold Found",
+                "Threshold Not Found");
+    }
+
     @GetMapping("/{thresholdId}")
     public ResponseEntity<ApiResponse<AtpThreshold>> getAtpThresholdById(@PathVariable String thresholdId) {
         AtpThreshold threshold = atpThresholdService.getAtpThresholdById(thresholdId);
@@ -1,13 +1,23 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.AvailabilityBatchLine;
+import com.App.fullStack.dto.AvailabilityRequestLine;
+import com.App.fullStack.dto.LowAvailabilityDTO;
 import com.App.fullStack.dto.ScatterDataDTO;
 import com.App.fullStack.dto.ScatterLocationDataDTO;
+import com.App.fullStack.dto.StockLevelHeatmapDTO;
 import com.App.fullStack.pojos.Location;
+import com.App.fullStack.service.AvailabilityCache;
+import com.App.fullStack.service.AvailabilityReportService;
 import com.App.fullStack.service.AvailabilityService;
+import com.App.fullStack.service.InventorySnapshot;
+import com.App.fullStack.service.InventorySnapshotService;
+import com.App.fullStack.service.StockLevelHeatmapService;
 import com.App.fullStack.dto.AvailabilityResponse;
 import com.App.fullStack.dto.AvailabilityResponseV2V3;
 import com.App.fullStack.responseHandler.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,6 +32,18 @@ public class AvailabilityController {
     @Autowired
     private AvailabilityService availabilityService;
 
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Autowired
+    private StockLevelHeatmapService stockLevelHeatmapService;
+
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Autowired
+    private AvailabilityReportService availabilityReportService;
+
     // Common messages and path versions
     private static final String SUCCESS_MESSAGE = "Available Quantity";
 
@@ -29,9 +51,9 @@ public class AvailabilityController {
     @GetMapping("/v1/{itemId}/{locationId}")
     public ResponseEntity<ApiResponse<AvailabilityResponse>> getV1AvailabilityByLocation(
             @PathVariable String itemId, @PathVariable String locationId) {
-        // Calculate availability and return response
-        int availableQuantity = availabilityService.calculateAvailabilityByLocation(itemId, locationId);
-        AvailabilityResponse response = new AvailabilityResponse(itemId, locationId, availableQuantity);
+        // Calculate availability (or serve it from the cache) and return response
+        AvailabilityResponse response = availabilityCache.get("v1", itemId, locationId, () ->
+                new AvailabilityResponse(itemId, locationId, availabilityService.calculateAvailabilityByLocation(itemId, locationId)));
         return ResponseEntity.ok(new ApiResponse<>(true, SUCCESS_MESSAGE, response));
     }
 
@@ -39,8 +61,8 @@ public class AvailabilityController {
     @GetMapping("/v1/{itemId}")
     public ResponseEntity<ApiResponse<AvailabilityResponse>> getV1AvailabilityByItem(
             @PathVariable String itemId) {
-        int availableQuantity = availabilityService.calculateAvailabilityByItem(itemId);
-        AvailabilityResponse response = new AvailabilityResponse(itemId, "NETWORK", availableQuantity);
+        AvailabilityResponse response = availabilityCache.get("v1", itemId, AvailabilityCache.NETWORK, () ->
+                new AvailabilityResponse(itemId, "NETWORK", availabilityService.calculateAvailabilityByItem(itemId)));
         return ResponseEntity.ok(new ApiResponse<>(true, SUCCESS_MESSAGE, response));
     }
 
@@ -48,14 +70,16 @@ public class AvailabilityController {
     @GetMapping("/v2/{itemId}/{locationId}")
     public ResponseEntity<ApiResponse<AvailabilityResponseV2V3>> getV2AvailabilityByLocation(
             @PathVariable String itemId, @PathVariable String locationId) {
-        AvailabilityResponseV2V3 response = availabilityService.calculateV2AvailabilityByLocation(itemId, locationId);
+        AvailabilityResponseV2V3 response = availabilityCache.get("v2", itemId, locationId,
+                () -> availabilityService.calculateV2AvailabilityByLocation(itemId, locationId));
         return ResponseEntity.ok(new ApiResponse<>(true, SUCCESS_MESSAGE, response));
     }
 
     // API Version 2: Availability by Item (All Locations)
     @GetMapping("/v2/{itemId}")
     public ResponseEntity<ApiResponse<AvailabilityResponseV2V3>> getV2AvailabilityInAllLocation(@PathVariable String itemId) {
-        AvailabilityResponseV2V3 response = availabilityService.calculateV2AvailabilityInAllLocation(itemId);
+        AvailabilityResponseV2V3 response = availabilityCache.get("v2", itemId, AvailabilityCache.NETWORK,
+                () -> availabilityService.calculateV2AvailabilityInAllLocation(itemId));
         return ResponseEntity.ok(new ApiResponse<>(true, SUCCESS_MESSAGE, response));
     }
 
@@ -63,13 +87,63 @@ public class AvailabilityController {
     @GetMapping("/v3/{itemId}/{locationId}")
     public ResponseEntity<ApiResponse<AvailabilityResponseV2V3>> getV3AvailabilityByLocation(
             @PathVariable String itemId, @PathVariable String locationId) {
-        AvailabilityResponseV2V3 response = availabilityService.calculateV3AvailabilityByLocation(itemId, locationId);
+        AvailabilityResponseV2V3 response = availabilityCache.get("v3", itemId, locationId,
+                () -> availabilityService.calculateV3AvailabilityByLocation(itemId, locationId));
+        return ResponseEntity.ok(new ApiResponse<>(true, SUCCESS_MESSAGE, response));
+    }
+
+    // API Version 3: Availability by Item (All Locations)
+    @GetMapping("/v3/{itemId}")
+    public ResponseEntity<ApiResponse<AvailabilityResponseV2V3>> getV3AvailabilityInAllLocation(@PathVariable String itemId) {
+        AvailabilityResponseV2V3 response = availabilityCache.get("v3", itemId, AvailabilityCache.NETWORK,
+                () -> availabilityService.calculateV3AvailabilityInAllLocation(itemId));
+        return ResponseEntity.ok(new ApiResponse<>(true, SUCCESS_MESSAGE, response));
+    }
+
+    // API Version 3: Availability for many item/location pairs, errors are reported per line
+    @PostMapping("/v3/batch")
+    public ResponseEntity<ApiResponse<List<AvailabilityBatchLine>>> getV3AvailabilityBatch(
+            @RequestBody List<AvailabilityRequestLine> lines) {
+        List<AvailabilityBatchLine> response = availabilityService.calculateV3AvailabilityBatch(lines);
         return ResponseEntity.ok(new ApiResponse<>(true, SUCCESS_MESSAGE, response));
     }
 
     @GetMapping("/getAvailabilityScatterData")
-    public ResponseEntity<ApiResponse<ScatterLocationDataDTO>> getAvailabilityScatterData(@RequestParam String locationId) {
-        ScatterLocationDataDTO scatterData = availabilityService.getAvailabilityScatterData(locationId);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Scatter Data Retrieved", scatterData));
+    public ResponseEntity<ApiResponse<ScatterLocationDataDTO>> getAvailabilityScatterData(
+            @RequestParam String locationId,
+            @RequestParam(required = false) Integer maxPoints) {
+        InventorySnapshot snapshot = inventorySnapshotService.current();
+        ScatterLocationDataDTO scatterData = availabilityService.getAvailabilityScatterData(locationId, maxPoints,
+                snapshot);
+        return InventorySnapshotService.withSnapshotHeaders(
+                ResponseEntity.ok(new ApiResponse<>(true, "Scatter Data Retrieved", scatterData)), snapshot);
+    }
+
+    // The limit worst-stocked item-locations of one location, or network-wide without locationId
+    @GetMapping("/report/lowest")
+    public ResponseEntity<ApiResponse<List<LowAvailabilityDTO>>> getLowestAvailabilityReport(
+            @RequestParam(required = false) String locationId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String rankBy) {
+        List<LowAvailabilityDTO> report = availabilityReportService.getLowestAvailability(locationId, limit, rankBy);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Lowest Availability Report Retrieved", report));
+    }
+
+    // Red/Yellow/Green/Unknown item counts for every location
+    @GetMapping("/heatmap")
+    public ResponseEntity<ApiResponse<List<StockLevelHeatmapDTO>>> getStockLevelHeatmap() {
+        List<StockLevelHeatmapDTO> heatmap = stockLevelHeatmapService.getHeatmap();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Stock Level Heatmap Retrieved", heatmap));
+    }
+
+    // Classified items of one location, optionally only one stock level
+    @GetMapping("/heatmap/{locationId}")
+    public ResponseEntity<ApiResponse<Page<AvailabilityResponseV2V3>>> getStockLevelDrillDown(
+            @PathVariable String locationId,
+            @RequestParam(required = false) String stockLevel,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "8") int size) {
+        Page<AvailabilityResponseV2V3> items = stockLevelHeatmapService.getLocationDrillDown(locationId, stockLevel, page, size);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Stock Level Items Retrieved", items));
     }
 }
@@ -1,6 +1,8 @@
 package com.App.fullStack.controller;
 
 import com.App.fullStack.service.DashboardService;
+import com.App.fullStack.service.InventorySnapshot;
+import com.App.fullStack.service.InventorySnapshotService;
 import com.App.fullStack.responseHandler.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -17,9 +19,14 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
     @GetMapping
     public ResponseEntity<ApiResponse<Map<String, Object>>> getDashboardData() {
-        Map<String, Object> dashboardData = dashboardService.getDashboardData();
-        return ResponseEntity.ok(new ApiResponse<>(true, "Dashboard Data Retrieved", dashboardData));
+        InventorySnapshot snapshot = inventorySnapshotService.current();
+        Map<String, Object> dashboardData = dashboardService.getDashboardData(snapshot);
+        return InventorySnapshotService.withSnapshotHeaders(
+                ResponseEntity.ok(new ApiResponse<>(true, "Dashboard Data Retrieved", dashboardData)), snapshot);
     }
 }
@@ -1,19 +1,28 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.BulkImportReport;
+import com.App.fullStack.dto.CursorPage;
 import com.App.fullStack.dto.DemandDTO;
 import com.App.fullStack.dto.DemandDetailsResponse;
 import com.App.fullStack.dto.DemandSummaryResponse;
+import com.App.fullStack.dto.QuantityAdjustment;
+import com.App.fullStack.dto.StockFilter;
 import com.App.fullStack.pojos.Demand;
 import com.App.fullStack.pojos.DemandType;
 import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.BulkImportService;
 import com.App.fullStack.service.DemandService;
 import com.App.fullStack.utility.APIResponseForFoundOrNot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/demand")
 public class DemandController {
@@ -21,11 +30,16 @@ public class DemandController {
     @Autowired
     private DemandService demandService;
 
+    @Autowired
+    private BulkImportService bulkImportService;
+
     // Constants for pagination defaults
     private static final String DEFAULT_PAGE = "0";
     private static final String DEFAULT_SIZE = "8";
     private static final String DEMANDS_FOUND = "Demands Found";
     private static final String DEMANDS_NOT_FOUND = "Demands Not Found";
+    private static final String BULK_IMPORT_COMPLETED = "Bulk Import Completed";
+    private static final String BULK_IMPORT_COMPLETED_WITH_ERRORS = "Bulk Import Completed With Errors";
 
     // Get all demands with pagination
     @GetMapping
@@ -48,6 +62,34 @@ public class DemandController {
         return APIResponseForFoundOrNot.generateResponse(demandDetails, DEMANDS_FOUND, DEMANDS_NOT_FOUND);
     }
 
+    // Same as above with keyset pagination: pass nextCursor back as cursor, total=exact|estimated adds a count
+    @GetMapping("/all/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<DemandDTO>>> getDemandsWithDetailsAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String searchBy,
+            @RequestParam(defaultValue = "none") String total) {
+        CursorPage<DemandDTO> demandDetails = demandService.getDemandsWithDetailsAfter(cursor, size, search, searchBy,
+                total);
+        return APIResponseForFoundOrNot.generateResponse(demandDetails, DEMANDS_FOUND, DEMANDS_NOT_FOUND);
+    }
+
+    // Combined filters, all optional: item keyword, location keyword, demandType and quantity range
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<Page<DemandDTO>>> filterDemandsWithDetails(
+            @RequestParam(defaultValue = DEFAULT_PAGE) int page,
+            @RequestParam(defaultValue = DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String itemKeyword,
+            @RequestParam(required = false) String locationKeyword,
+            @RequestParam(required = false) String demandType,
+            @RequestParam(required = false) Integer minQuantity,
+            @RequestParam(required = false) Integer maxQuantity) {
+        Page<DemandDTO> demandDetails = demandService.filterDemandsWithDetails(
+                new StockFilter(itemKeyword, locationKeyword, demandType, minQuantity, maxQuantity), page, size);
+        return APIResponseForFoundOrNot.generateResponse(demandDetails, DEMANDS_FOUND, DEMANDS_NOT_FOUND);
+    }
+
     // Get demand by ID
     @GetMapping("/{demandId}")
     public ResponseEntity<ApiResponse<Demand>> getDemandById(@PathVariable String demandId) {
@@ -88,6 +130,23 @@ public class DemandController {
         return APIResponseForFoundOrNot.generateResponse(updatedDemand, "Demand Updated", "Demand Not Updated");
     }
 
+    // Atomically add a +/- delta to a demand's quantity; the response carries the new quantity
+    @PostMapping("/{demandId}/adjust")
+    public ResponseEntity<ApiResponse<Demand>> adjustDemand(
+            @PathVariable String demandId, @RequestBody QuantityAdjustment adjustment) {
+        Demand adjustedDemand = demandService.adjustDemand(demandId, adjustment.getDelta());
+        return APIResponseForFoundOrNot.generateResponse(adjustedDemand, "Demand Adjusted", "Demand Not Adjusted");
+    }
+
+    // Same as above, addressing the demand by item ID, location ID and demand type
+    @PostMapping("/adjust/{itemId}/{locationId}/{demandType}")
+    public ResponseEntity<ApiResponse<Demand>> adjustDemandByItemAndLocation(
+            @PathVariable String itemId, @PathVariable String locationId, @PathVariable DemandType demandType,
+            @RequestBody QuantityAdjustment adjustment) {
+        Demand adjustedDemand = demandService.adjustDemand(itemId, locationId, demandType, adjustment.getDelta());
+        return APIResponseForFoundOrNot.generateResponse(adjustedDemand, "Demand Adjusted", "Demand Not Adjusted");
+    }
+
     // Delete a demand
     @DeleteMapping("/{demandId}")
     public ResponseEntity<ApiResponse<String>> deleteDemand(@PathVariable String demandId) {
@@ -95,4 +154,14 @@ public class DemandController {
         return ResponseEntity.status(HttpStatus.OK)
                 .body(new ApiResponse<>(true, "Demand Delete Operation.", result));
     }
+
+    // Bulk upsert of demands keyed by itemId, locationId and demandType, streamed from NDJSON or CSV (with header)
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ApiResponse<BulkImportReport>> bulkImportDemands(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        BulkImportReport report = bulkImportService.importDemands(body, contentType);
+        String message = report.getFailed() == 0 ? BULK_IMPORT_COMPLETED : BULK_IMPORT_COMPLETED_WITH_ERRORS;
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(new ApiResponse<>(report.getFailed() == 0, message, report));
+    }
 }
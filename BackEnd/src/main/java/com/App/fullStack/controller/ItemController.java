@@ -1,6 +1,10 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.dto.ItemSearchCriteria;
+import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.ItemStatus;
 import com.App.fullStack.responseHandler.ApiResponse;
 import com.App.fullStack.service.ItemService;
 import com.App.fullStack.utility.APIResponseForFoundOrNot;
@@ -11,7 +15,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/items")
@@ -45,6 +51,48 @@ public class ItemController {
         return APIResponseForFoundOrNot.generateResponse(items, ITEMS_FOUND, ITEMS_NOT_FOUND);
     }
 
+    // Same as above with keyset pagination: pass nextCursor back as cursor, total=exact|estimated adds a count
+    @GetMapping("/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Item>>> getItemsAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "none") String total) {
+
+        CursorPage<Item> items = itemService.getItemsAfter(cursor, size, search, total);
+        return APIResponseForFoundOrNot.generateResponse(items, ITEMS_FOUND, ITEMS_NOT_FOUND);
+    }
+
+    // Structured search with typed filters, each optional; the keyword only matches text fields
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<Page<Item>>> searchItems(
+            @RequestParam(defaultValue = DEFAULT_PAGE) int page,
+            @RequestParam(defaultValue = DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Boolean pickupAllowed,
+            @RequestParam(required = false) Boolean shippingAllowed,
+            @RequestParam(required = false) Boolean deliveryAllowed) {
+
+        ItemStatus itemStatus = null;
+        if (status != null) {
+            try {
+                itemStatus = ItemStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new FoundException("Invalid status: " + status + ". Expected one of "
+                        + Arrays.toString(ItemStatus.values()) + ".");
+            }
+        }
+        ItemSearchCriteria criteria = new ItemSearchCriteria(keyword, minPrice, maxPrice, itemStatus, category, type,
+                pickupAllowed, shippingAllowed, deliveryAllowed);
+        Page<Item> items = itemService.searchItems(criteria, page, size);
+        return APIResponseForFoundOrNot.generateResponse(items, ITEMS_FOUND, ITEMS_NOT_FOUND);
+    }
+
     // Get an item by ID
     @GetMapping("/{itemId}")
     public ResponseEntity<ApiResponse<Item>> getItemById(@PathVariable String itemId) {
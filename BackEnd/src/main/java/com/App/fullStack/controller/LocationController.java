@@ -1,8 +1,11 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.CursorPage;
 import com.App.fullStack.dto.LocationData;
 import com.App.fullStack.pojos.Location;
 import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.InventorySnapshot;
+import com.App.fullStack.service.InventorySnapshotService;
 import com.App.fullStack.service.LocationService;
 import com.App.fullStack.utility.APIResponseForFoundOrNot;
 
@@ -21,6 +24,9 @@ public class LocationController {
     @Autowired
     private LocationService locationService;
 
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
     // Constants for pagination and messages
     private static final String DEFAULT_PAGE = "0";
     private static final String DEFAULT_SIZE = "8";
@@ -45,6 +51,18 @@ public class LocationController {
         return APIResponseForFoundOrNot.generateResponse(locations, LOCATIONS_FOUND, LOCATIONS_NOT_FOUND);
     }
 
+    // Same as above with keyset pagination: pass nextCursor back as cursor, total=exact|estimated adds a count
+    @GetMapping("/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Location>>> getLocationsAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "none") String total) {
+
+        CursorPage<Location> locations = locationService.getLocationsAfter(cursor, size, search, total);
+        return APIResponseForFoundOrNot.generateResponse(locations, LOCATIONS_FOUND, LOCATIONS_NOT_FOUND);
+    }
+
     // Get a location by ID
     @GetMapping("/{locationId}")
     public ResponseEntity<ApiResponse<Location>> getLocationById(@PathVariable String locationId) {
@@ -88,9 +106,15 @@ public class LocationController {
     }
 
 
+    // All locations by default; page/size bound the payload by locationId, top=N keeps the N busiest locations
     @GetMapping("/stackedBarData")
-    public ResponseEntity<ApiResponse<List<LocationData>>> stackedBarData() {
-        return APIResponseForFoundOrNot.generateResponse(locationService.getStackedBarData(), LOCATIONS_FOUND, LOCATIONS_NOT_FOUND);
+    public ResponseEntity<ApiResponse<List<LocationData>>> stackedBarData(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Integer top) {
+        InventorySnapshot snapshot = inventorySnapshotService.current();
+        return InventorySnapshotService.withSnapshotHeaders(APIResponseForFoundOrNot.generateResponse(
+                locationService.getStackedBarData(page, size, top, snapshot), LOCATIONS_FOUND, LOCATIONS_NOT_FOUND), snapshot);
     }
 
 
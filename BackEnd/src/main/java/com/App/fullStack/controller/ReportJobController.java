@@ -0,0 +1,50 @@
+package com.App.fullStack.controller;
+
+import com.App.fullStack.dto.ReportJobRequest;
+import com.App.fullStack.pojos.ReportJob;
+import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.ReportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/reports/jobs")
+public class ReportJobController {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    // Starts a report in the background, or returns the job already answering the same request
+    @PostMapping
+    public ResponseEntity<ApiResponse<ReportJob>> submitReportJob(@RequestBody ReportJobRequest request) {
+        ReportJob job = reportJobService.submit(request);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Report Job Submitted", job));
+    }
+
+    // Status and progress
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<ReportJob>> getReportJob(@PathVariable String jobId) {
+        ReportJob job = reportJobService.getJob(jobId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Report Job Retrieved", job));
+    }
+
+    // The report itself as a JSON download
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<Resource> downloadReportJobResult(@PathVariable String jobId) {
+        Resource result = reportJobService.getResult(jobId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"report-" + jobId + ".json\"")
+                .body(result);
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<ReportJob>> cancelReportJob(@PathVariable String jobId) {
+        ReportJob job = reportJobService.cancel(jobId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Report Job Cancelled", job));
+    }
+}
@@ -1,20 +1,31 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.BulkImportReport;
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.dto.QuantityAdjustment;
+import com.App.fullStack.dto.StockFilter;
 import com.App.fullStack.dto.SupplyDTO;
 import com.App.fullStack.dto.SupplyDetailsResponse;
 import com.App.fullStack.dto.SupplySummaryResponse;
+import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.Supply;
 import com.App.fullStack.pojos.SupplyType;
 import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.BulkImportService;
 import com.App.fullStack.service.SupplyService;
 import com.App.fullStack.utility.APIResponseForFoundOrNot;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
 
 @RestController
 @RequestMapping("/supply")
@@ -23,6 +34,9 @@ public class SupplyController {
     @Autowired
     private SupplyService supplyService;
 
+    @Autowired
+    private BulkImportService bulkImportService;
+
     // Constants for pagination and messages
     private static final String DEFAULT_PAGE = "0";
     private static final String DEFAULT_SIZE = "8";
@@ -34,7 +48,11 @@ public class SupplyController {
     private static final String SUPPLY_NOT_ADDED = "Supply Not Added";
     private static final String SUPPLY_UPDATED = "Supply Updated";
     private static final String SUPPLY_NOT_UPDATED = "Supply Not Updated";
+    private static final String SUPPLY_ADJUSTED = "Supply Adjusted";
+    private static final String SUPPLY_NOT_ADJUSTED = "Supply Not Adjusted";
     private static final String SUPPLY_DELETE_OPERATION = "Supply Delete Operation.";
+    private static final String BULK_IMPORT_COMPLETED = "Bulk Import Completed";
+    private static final String BULK_IMPORT_COMPLETED_WITH_ERRORS = "Bulk Import Completed With Errors";
 
     // Get all supplies with pagination
     @GetMapping
@@ -57,6 +75,34 @@ public class SupplyController {
         return APIResponseForFoundOrNot.generateResponse(suppliesWithDetails, SUPPLIES_FOUND, SUPPLIES_NOT_FOUND);
     }
 
+    // Same as above with keyset pagination: pass nextCursor back as cursor, total=exact|estimated adds a count
+    @GetMapping("/all/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<SupplyDTO>>> getSuppliesWithDetailsAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String searchBy,
+            @RequestParam(defaultValue = "none") String total) {
+        CursorPage<SupplyDTO> suppliesWithDetails = supplyService.getSuppliesWithDetailsAfter(cursor, size, search,
+                searchBy, total);
+        return APIResponseForFoundOrNot.generateResponse(suppliesWithDetails, SUPPLIES_FOUND, SUPPLIES_NOT_FOUND);
+    }
+
+    // Combined filters, all optional: item keyword, location keyword, supplyType and quantity range
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<Page<SupplyDTO>>> filterSuppliesWithDetails(
+            @RequestParam(defaultValue = DEFAULT_PAGE) int page,
+            @RequestParam(defaultValue = DEFAULT_SIZE) int size,
+            @RequestParam(required = false) String itemKeyword,
+            @RequestParam(required = false) String locationKeyword,
+            @RequestParam(required = false) String supplyType,
+            @RequestParam(required = false) Integer minQuantity,
+            @RequestParam(required = false) Integer maxQuantity) {
+        Page<SupplyDTO> suppliesWithDetails = supplyService.filterSuppliesWithDetails(
+                new StockFilter(itemKeyword, locationKeyword, supplyType, minQuantity, maxQuantity), page, size);
+        return APIResponseForFoundOrNot.generateResponse(suppliesWithDetails, SUPPLIES_FOUND, SUPPLIES_NOT_FOUND);
+    }
+
     // Get a supply by ID
     @GetMapping("/{supplyId}")
     public ResponseEntity<ApiResponse<Supply>> getSupplyById(@PathVariable String supplyId) {
@@ -80,7 +126,13 @@ public class SupplyController {
             @PathVariable String supplyType,
             @PathVariable String locationId) {
 
-        SupplyType type = SupplyType.valueOf(supplyType.toUpperCase());
+        SupplyType type;
+        try {
+            type = SupplyType.valueOf(supplyType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new FoundException("Invalid supplyType: " + supplyType + ". Expected one of "
+                    + Arrays.toString(SupplyType.values()) + ".");
+        }
         SupplySummaryResponse supplies = supplyService.getSuppliesByTypeAndLocationId(type, locationId);
         return APIResponseForFoundOrNot.generateResponse(supplies, SUPPLIES_FOUND, SUPPLIES_NOT_FOUND);
     }
@@ -101,6 +153,32 @@ public class SupplyController {
         return APIResponseForFoundOrNot.generateResponse(updatedSupply, SUPPLY_UPDATED, SUPPLY_NOT_UPDATED);
     }
 
+    // Atomically add a +/- delta to a supply's quantity; the response carries the new quantity
+    @PostMapping("/{supplyId}/adjust")
+    public ResponseEntity<ApiResponse<Supply>> adjustSupply(
+            @PathVariable String supplyId, @RequestBody QuantityAdjustment adjustment) {
+
+        Supply adjustedSupply = supplyService.adjustSupply(supplyId, adjustment.getDelta());
+        return APIResponseForFoundOrNot.generateResponse(adjustedSupply, SUPPLY_ADJUSTED, SUPPLY_NOT_ADJUSTED);
+    }
+
+    // Same as above, addressing the supply by item ID, location ID and supply type
+    @PostMapping("/adjust/{itemId}/{locationId}/{supplyType}")
+    public ResponseEntity<ApiResponse<Supply>> adjustSupplyByItemAndLocation(
+            @PathVariable String itemId, @PathVariable String locationId, @PathVariable String supplyType,
+            @RequestBody QuantityAdjustment adjustment) {
+
+        SupplyType type;
+        try {
+            type = SupplyType.valueOf(supplyType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new FoundException("Invalid supplyType: " + supplyType + ". Expected one of "
+                    + Arrays.toString(SupplyType.values()) + ".");
+        }
+        Supply adjustedSupply = supplyService.adjustSupply(itemId, locationId, type, adjustment.getDelta());
+        return APIResponseForFoundOrNot.generateResponse(adjustedSupply, SUPPLY_ADJUSTED, SUPPLY_NOT_ADJUSTED);
+    }
+
     // Delete a supply by ID
     @DeleteMapping("/{supplyId}")
     public ResponseEntity<ApiResponse<String>> deleteSupply(@PathVariable String supplyId) {
@@ -108,4 +186,14 @@ public class SupplyController {
         return ResponseEntity.status(HttpStatus.OK)
                 .body(new ApiResponse<>(true, SUPPLY_DELETE_OPERATION, result));
     }
+
+    // Bulk upsert of supplies keyed by itemId, locationId and supplyType, streamed from NDJSON or CSV (with header)
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ApiResponse<BulkImportReport>> bulkImportSupplies(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        BulkImportReport report = bulkImportService.importSupplies(body, contentType);
+        String message = report.getFailed() == 0 ? BULK_IMPORT_COMPLETED : BULK_IMPORT_COMPLETED_WITH_ERRORS;
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(new ApiResponse<>(report.getFailed() == 0, message, report));
+    }
 }
@@ -0,0 +1,15 @@
+package com.App.fullStack.dto;
+
+import lombok.*;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityBatchLine {
+    private String itemId;
+    private String locationId;
+    private boolean success;
+    private AvailabilityResponseV2V3 availability; // Present when success is true
+    private String error; // Present when success is false
+}
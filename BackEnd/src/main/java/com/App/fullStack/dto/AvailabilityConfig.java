@@ -1,31 +1,101 @@
 package com.App.fullStack.dto;
 
+import com.App.fullStack.service.AvailabilityCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Configuration
 @PropertySource("classpath:availability.config")
 public class AvailabilityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityConfig.class);
+
+    private static final String SUPPLIES = "availability.supplies";
+    private static final String DEMANDS = "availability.demands";
+    private static final String EXCLUDED_LOCATIONS = "availability.locations.exclude";
+    private static final String DEFAULT_SUPPLIES = "ONHAND,PLANNED,INTRANSIT";
+    private static final String DEFAULT_DEMANDS = "CONFIRMED,HARDPROMISED";
+
     @Autowired
     private Environment env;
 
-    private String[] getPropertyOrDefault(String propertyName, String defaultValue) {
-        String value = env.getProperty(propertyName, defaultValue);
-        return value.split(",");
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    // Compiled on first use from the Environment, then replaced whenever the config file changes on disk.
+    // Readers only ever do a volatile read of the current policy.
+    private final AtomicReference<AvailabilityPolicy> policy = new AtomicReference<>();
+    private volatile long lastModified;
+
+    public AvailabilityPolicy getPolicy() {
+        AvailabilityPolicy current = policy.get();
+        if (current == null) {
+            policy.compareAndSet(null, AvailabilityPolicy.compile(
+                    env.getProperty(SUPPLIES, DEFAULT_SUPPLIES),
+                    env.getProperty(DEMANDS, DEFAULT_DEMANDS),
+                    env.getProperty(EXCLUDED_LOCATIONS, "")));
+            current = policy.get();
+        }
+        return current;
     }
 
     public String[] getSupplies() {
-        return getPropertyOrDefault("availability.supplies", "ONHAND,PLANNED,INTRANSIT");
+        return getPolicy().getSupplies().clone();
     }
 
     public String[] getDemands() {
-        return getPropertyOrDefault("availability.demands", "CONFIRMED,HARDPROMISED");
+        return getPolicy().getDemands().clone();
     }
 
     public String[] getExcludedLocations() {
-        return getPropertyOrDefault("availability.locations.exclude", "");
+        return getPolicy().getExcludedLocations().clone();
+    }
+
+    // Polls the config file and swaps in a freshly compiled policy when it was modified. Only works for a file on
+    // disk (availability.config.location=file:...); a config packed inside the jar never changes.
+    @Scheduled(fixedDelayString = "${availability.config.reload-interval-ms:10000}")
+    public void reloadIfChanged() {
+        String location = env.getProperty("availability.config.location", "classpath:availability.config");
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        try {
+            if (!resource.isFile())
+                return;
+            long modified = resource.lastModified();
+            if (modified == lastModified)
+                return;
+
+            Properties properties = new Properties();
+            try (InputStream in = resource.getInputStream()) {
+                properties.load(in);
+            }
+            boolean firstCheck = lastModified == 0;
+            lastModified = modified;
+            // On the first poll the classpath file is the one the Environment was loaded from; recompiling it would
+            // only drop property overrides
+            if (firstCheck && location.startsWith("classpath:"))
+                return;
+
+            policy.set(AvailabilityPolicy.compile(
+                    properties.getProperty(SUPPLIES, DEFAULT_SUPPLIES),
+                    properties.getProperty(DEMANDS, DEFAULT_DEMANDS),
+                    properties.getProperty(EXCLUDED_LOCATIONS, "")));
+            // Cached responses were computed under the old supply/demand types and exclusions
+            availabilityCache.clear();
+            logger.info("Availability policy reloaded from {}", location);
+        } catch (IOException e) {
+            logger.warn("Could not reload availability policy from {}, keeping the current one", location, e);
+        }
     }
 }
@@ -0,0 +1,59 @@
+package com.App.fullStack.dto;
+
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.SupplyType;
+import lombok.Getter;
+
+import java.util.*;
+
+// The availability.config rules compiled once: the raw values as configured, the enum types they name and a hash
+// set of excluded locations. Immutable, so a reload just publishes a new instance.
+@Getter
+public final class AvailabilityPolicy {
+
+    private final String[] supplies;
+    private final String[] demands;
+    private final String[] excludedLocations;
+
+    // Configured names that are not enum constants can never match a stored document, so they are dropped here
+    private final Set<SupplyType> supplyTypes;
+    private final Set<DemandType> demandTypes;
+    private final List<String> supplyTypeNames;
+    private final List<String> demandTypeNames;
+    private final Set<String> excludedLocationIds;
+
+    private AvailabilityPolicy(String[] supplies, String[] demands, String[] excludedLocations) {
+        this.supplies = supplies;
+        this.demands = demands;
+        this.excludedLocations = excludedLocations;
+
+        EnumSet<SupplyType> supplySet = EnumSet.noneOf(SupplyType.class);
+        List<String> supplyNames = Arrays.asList(supplies);
+        for (SupplyType type : SupplyType.values())
+            if (supplyNames.contains(type.name()))
+                supplySet.add(type);
+        EnumSet<DemandType> demandSet = EnumSet.noneOf(DemandType.class);
+        List<String> demandNames = Arrays.asList(demands);
+        for (DemandType type : DemandType.values())
+            if (demandNames.contains(type.name()))
+                demandSet.add(type);
+
+        this.supplyTypes = Collections.unmodifiableSet(supplySet);
+        this.demandTypes = Collections.unmodifiableSet(demandSet);
+        this.supplyTypeNames = supplySet.stream().map(Enum::name).toList();
+        this.demandTypeNames = demandSet.stream().map(Enum::name).toList();
+        this.excludedLocationIds = Set.copyOf(Arrays.stream(excludedLocations).filter(id -> !id.isEmpty()).toList());
+    }
+
+    public static AvailabilityPolicy compile(String supplies, String demands, String excludedLocations) {
+        return new AvailabilityPolicy(split(supplies), split(demands), split(excludedLocations));
+    }
+
+    public boolean isExcluded(String locationId) {
+        return locationId != null && excludedLocationIds.contains(locationId);
+    }
+
+    private static String[] split(String value) {
+        return value != null ? value.split(",") : new String[]{};
+    }
+}
@@ -0,0 +1,12 @@
+package com.App.fullStack.dto;
+
+import lombok.*;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityRequestLine {
+    private String itemId;
+    private String locationId;
+}
@@ -0,0 +1,21 @@
+package com.App.fullStack.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportReport {
+    private long received; // Non-blank data rows read
+    private long inserted;
+    private long updated;
+    private long unchanged; // Matched a record that already had the same quantity
+    private long superseded; // Repeated the key of a later row in the same batch, so only the later one was written
+    private long failed;
+    private List<BulkRowError> errors = new ArrayList<>(); // Capped; see errorsTruncated
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,14 @@
+package com.App.fullStack.dto;
+
+import lombok.*;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkRowError {
+    private long line; // 1-based line of the upload, the CSV header being line 1
+    private String itemId;
+    private String locationId;
+    private String error;
+}
@@ -0,0 +1,21 @@
+package com.App.fullStack.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor; // Pass back as ?cursor= for the following page; null on the last page
+    private Long total; // Only when requested with ?total=exact or ?total=estimated
+    private boolean totalEstimated; // total is a lower bound or the collection's metadata count, not an exact count
+
+    // Same page position and totals around converted content (e.g. entities enriched into DTOs)
+    public <R> CursorPage<R> withContent(List<R> newContent) {
+        return new CursorPage<>(newContent, nextCursor, total, totalEstimated);
+    }
+}
@@ -0,0 +1,21 @@
+package com.App.fullStack.dto;
+
+import com.App.fullStack.pojos.ItemStatus;
+import lombok.*;
+
+// Typed filters of the structured item search; null fields are not filtered on
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSearchCriteria {
+    private String keyword; // Case-insensitive match on itemId, itemDescription, category, type and status
+    private Double minPrice;
+    private Double maxPrice;
+    private ItemStatus status;
+    private String categoryPrefix; // Case-sensitive, so the category indexes can serve it
+    private String typePrefix;
+    private Boolean pickupAllowed;
+    private Boolean shippingAllowed;
+    private Boolean deliveryAllowed;
+}
@@ -0,0 +1,19 @@
+package com.App.fullStack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LowAvailabilityDTO {
+    private String itemId;
+    private String locationId;
+    private int availableQty;
+    private Integer minThreshold; // null when the item-location has no ATP threshold
+    private Integer shortfall; // minThreshold - availableQty, negative when above the threshold
+    private String stockLevel;
+}
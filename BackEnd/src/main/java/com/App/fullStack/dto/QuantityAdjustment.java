@@ -0,0 +1,11 @@
+package com.App.fullStack.dto;
+
+import lombok.*;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuantityAdjustment {
+    private int delta; // Added to the current quantity; negative to take stock out
+}
@@ -0,0 +1,24 @@
+package com.App.fullStack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobRequest {
+    private String type; // scatter, stackedBar, lowestAvailability or availabilityExport
+    private Map<String, String> parameters;
+    // Oldest finished result to hand back instead of running the report again; defaults to reuse-max-age-seconds
+    private Long maxAgeSeconds;
+    private boolean refresh; // never reuse a finished result
+
+    public ReportJobRequest(String type, Map<String, String> parameters) {
+        this(type, parameters, null, false);
+    }
+}
@@ -0,0 +1,23 @@
+package com.App.fullStack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScatterBinDTO {
+    // Cell edges on the price × available quantity grid
+    private double minPrice;
+    private double maxPrice;
+    private double minAvailableQty;
+    private double maxAvailableQty;
+    private int count;
+    // Item of the cell closest to the cell's mean point
+    private ScatterDataDTO representative;
+}
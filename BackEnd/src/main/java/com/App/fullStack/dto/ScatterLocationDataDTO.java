@@ -13,6 +13,15 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class ScatterLocationDataDTO {
+    // One point per item, or when bucketed the bin representatives followed by the outliers
     private List<ScatterDataDTO> scatterDataDTO ;
     private String locationName;
+    private boolean bucketed;
+    private int totalItems;
+    private List<ScatterBinDTO> bins;
+    private List<ScatterDataDTO> outliers;
+
+    public ScatterLocationDataDTO(List<ScatterDataDTO> scatterDataDTO, String locationName) {
+        this(scatterDataDTO, locationName, false, scatterDataDTO != null ? scatterDataDTO.size() : 0, List.of(), List.of());
+    }
 }
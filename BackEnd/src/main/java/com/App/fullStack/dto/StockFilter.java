@@ -0,0 +1,16 @@
+package com.App.fullStack.dto;
+
+import lombok.*;
+
+// Combined filters of the supply, demand and threshold listings; null fields are not filtered on
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockFilter {
+    private String itemKeyword; // Case-insensitive match on itemId and itemDescription
+    private String locationKeyword; // Case-insensitive match on locationId and locationDesc
+    private String type; // supplyType or demandType, exact (not used for thresholds)
+    private Integer minQuantity;
+    private Integer maxQuantity;
+}
@@ -0,0 +1,21 @@
+package com.App.fullStack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockLevelEvent {
+    private String itemId;
+    private String locationId;
+    private String previousLevel;
+    private String stockLevel;
+    private int availableQty;
+    private Date occurredAt;
+}
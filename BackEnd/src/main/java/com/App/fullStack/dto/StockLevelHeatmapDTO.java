@@ -0,0 +1,22 @@
+package com.App.fullStack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockLevelHeatmapDTO {
+    private String locationId;
+    private long red;
+    private long yellow;
+    private long green;
+    private long unknown;
+
+    public long getTotal() {
+        return red + yellow + green + unknown;
+    }
+}
@@ -2,6 +2,8 @@ package com.App.fullStack.pojos;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Getter
@@ -9,11 +11,13 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "atpThresholds")
+@CompoundIndex(name = "item_location", def = "{'itemId': 1, 'locationId': 1}", unique = true)
 public class AtpThreshold {
 
     @Id
     private String thresholdId; // MongoDB will auto-generate this field
     private String itemId;
+    @Indexed // findByLocationIdIn; itemId-led lookups use the unique item_location index
     private String locationId;
     private int minThreshold;
     private int maxThreshold;
@@ -3,9 +3,16 @@ package com.App.fullStack.pojos;
 import lombok.*;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "demands")
+@CompoundIndexes({
+        @CompoundIndex(name = "item_location_demandType", def = "{'itemId': 1, 'locationId': 1, 'demandType': 1}", unique = true),
+        @CompoundIndex(name = "location_demandType", def = "{'locationId': 1, 'demandType': 1}"),
+        @CompoundIndex(name = "demandType_quantity", def = "{'demandType': 1, 'quantity': 1}")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -5,9 +5,17 @@ import lombok.*;
 import java.io.Serializable;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "items")
+// Structured search (ItemService.searchItems): equality first, then the prefix, then the price range
+@CompoundIndexes({
+        @CompoundIndex(name = "status_category_price", def = "{'status': 1, 'category': 1, 'price': 1}"),
+        @CompoundIndex(name = "category_type_price", def = "{'category': 1, 'type': 1, 'price': 1}")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -16,11 +24,13 @@ public class Item implements Serializable {
 
     @Id
     private String id; // Mandatory field, unique for business logic, not auto-generated by MongoDB
+    @Indexed
     private String itemId; // Mandatory field, unique for business logic, not auto-generated by MongoDB
     private String itemDescription;
     private String category;
     private String type;
     private ItemStatus status;// Available, Out of Stock, Backordered, Discontinued, On Hold, Pre-Order
+    @Indexed
     private double price;
     private boolean pickupAllowed;
     private boolean shippingAllowed;
@@ -2,6 +2,7 @@ package com.App.fullStack.pojos;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "locations")
@@ -13,6 +14,7 @@ public class Location {
 
     @Id
     private String id;
+    @Indexed
     private String locationId; // Mandatory field from the input
     private String locationDesc;
     private LocationType locationType;
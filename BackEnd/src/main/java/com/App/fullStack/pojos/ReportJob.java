@@ -0,0 +1,43 @@
+package com.App.fullStack.pojos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "reportJobs")
+public class ReportJob {
+
+    @Id
+    private String jobId;
+    private String type;
+    private Map<String, String> parameters;
+    @Indexed // finished jobs are reused for identical requests
+    private String parametersKey;
+    private ReportJobStatus status;
+    private int progress; // percent
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+    @JsonIgnore // GridFS id of the report as JSON, downloaded separately
+    private String resultFileId;
+    @Indexed(expireAfterSeconds = 0) // Mongo removes the job once this has passed; pushed forward while it runs
+    private Instant expiresAt;
+
+    // How old the result is, so a client handed an earlier job for its request can tell; null until it succeeded
+    public Long getResultAgeSeconds() {
+        if (status != ReportJobStatus.SUCCEEDED || finishedAt == null)
+            return null;
+        return Duration.between(finishedAt, Instant.now()).getSeconds();
+    }
+}
@@ -0,0 +1,9 @@
+package com.App.fullStack.pojos;
+
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED
+}
@@ -3,9 +3,16 @@ package com.App.fullStack.pojos;
 import lombok.*;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "supplies")
+@CompoundIndexes({
+        @CompoundIndex(name = "item_location_supplyType", def = "{'itemId': 1, 'locationId': 1, 'supplyType': 1}", unique = true),
+        @CompoundIndex(name = "location_supplyType", def = "{'locationId': 1, 'supplyType': 1}"),
+        @CompoundIndex(name = "supplyType_quantity", def = "{'supplyType': 1, 'quantity': 1}")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -1,6 +1,7 @@
 package com.App.fullStack.pojos;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document; 
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -15,7 +16,9 @@ public class User {
 	@Id
 	private String id; 
 	private String fullName; 
+	@Indexed
 	private String email;
+	@Indexed
 	private String verificationToken;
 	private boolean isVerified;
 	@JsonProperty(access = JsonProperty.Access.WRITE_ONLY) 
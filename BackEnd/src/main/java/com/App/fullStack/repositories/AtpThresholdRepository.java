@@ -7,6 +7,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,13 +16,12 @@ public interface AtpThresholdRepository extends MongoRepository<AtpThreshold, St
 
     Optional<AtpThreshold> findByItemIdAndLocationId(String itemId, String locationId);
 
-    boolean existsByItemIdAndLocationId(String itemId, String locationId);
-
     Optional<AtpThreshold> findByThresholdId(String thresholdId);
 
     Page<AtpThreshold> findByItemIdIn(List<String> itemIds, Pageable pageable);
 
     Page<AtpThreshold> findByLocationIdIn(List<String> locationsIds, Pageable pageable);
-}
 
+    List<AtpThreshold> findByItemIdInAndLocationIdIn(Collection<String> itemIds, Collection<String> locationIds);
+}
 
@@ -24,8 +24,6 @@ public interface DemandRepository extends MongoRepository<Demand, String> {
 
     Optional<Demand> findByDemandId(String demandId);
 
-    boolean existsByItemIdAndLocationIdAndDemandType(String itemId, String locationId, DemandType demandType);
-
     List<Demand> findByItemIdAndLocationIdAndDemandType(String itemId, String locationId, String demandType);
 
     List<Demand> findByItemIdAndDemandType(String itemId, String demandType);
@@ -33,15 +31,6 @@ public interface DemandRepository extends MongoRepository<Demand, String> {
     List<Demand> findByItemIdAndLocationIdAndDemandTypeIn(String itemId, String locationId,
                                                           List<String> demandTypes);
 
-
-    @Query(value = "{ 'locationId': ?0, 'demandType': ?1 }", fields = "{ 'quantity': 1 }")
-    List<Demand> findDemandsByLocationIdAndDemandType(String locationId, String demandType);
-
-    default int getTotalDemandByLocationAndType(String locationId, String demandType) {
-        List<Demand> demands = findDemandsByLocationIdAndDemandType(locationId, demandType);
-        return demands.stream().mapToInt(Demand::getQuantity).sum();
-    }
-
     Page<Demand> findByItemIdIn(List<String> itemIds, Pageable pageable);
 
     Page<Demand> findByLocationIdIn(List<String> locationsIds, Pageable pageable);
@@ -8,6 +8,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,8 +28,7 @@ public interface ItemRepository extends MongoRepository<Item, String> {
             "{ 'itemDescription': { $regex: ?0, $options: 'i' } }, " +
             "{ 'category': { $regex: ?0, $options: 'i' } }, " +
             "{ 'type': { $regex: ?0, $options: 'i' } }, " +
-            "{ 'status': { $regex: ?0, $options: 'i' } }, " +
-            "{ $expr: { $regexMatch: { input: { $toString: '$price' }, regex: ?0, options: 'i' } } } "+
+            "{ 'status': { $regex: ?0, $options: 'i' } } " +
             "] }")
     Page<Item> searchItemsByKeyword(String keyword, Pageable pageable);
 
@@ -46,5 +46,8 @@ public interface ItemRepository extends MongoRepository<Item, String> {
             "{ 'itemDescription': { $regex: ?0, $options: 'i' } }, " +
             "] }",  fields = "{ 'itemId' : 1,'_id': 0}")
     List<Item> searchItemIdsByKeywordGetIds(String search);
-}
 
+    // Description lookup for the enrichment of a page of supplies, demands or thresholds
+    @Query(value = "{ 'itemId': { $in: ?0 } }", fields = "{ 'itemId' : 1, 'itemDescription' : 1, '_id': 0}")
+    List<Item> findDescriptionsByItemIdIn(Collection<String> itemIds);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -47,5 +48,7 @@ public interface LocationRepository extends MongoRepository<Location, String> {
             "] }",  fields = "{ 'locationId' : 1, '_id': 0}")
     List<Location> searchLocationIdsByKeywordGetIds(String keyword);
 
-
+    // Description lookup for the enrichment of a page of supplies, demands or thresholds
+    @Query(value = "{ 'locationId': { $in: ?0 } }", fields = "{ 'locationId' : 1, 'locationDesc' : 1, '_id': 0}")
+    List<Location> findDescriptionsByLocationIdIn(Collection<String> locationIds);
 }
@@ -0,0 +1,16 @@
+package com.App.fullStack.repositories;
+
+import com.App.fullStack.pojos.ReportJob;
+import com.App.fullStack.pojos.ReportJobStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface ReportJobRepository extends MongoRepository<ReportJob, String> {
+
+    Optional<ReportJob> findFirstByParametersKeyAndStatusAndFinishedAtAfterAndExpiresAtAfterOrderByFinishedAtDesc(
+            String parametersKey, ReportJobStatus status, Instant finishedAfter, Instant now);
+}
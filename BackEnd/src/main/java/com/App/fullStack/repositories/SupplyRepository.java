@@ -21,8 +21,6 @@ public interface SupplyRepository extends MongoRepository<Supply, String> {
 
     List<Supply> findBySupplyTypeAndLocationId(SupplyType supplyType, String locationId);
 
-    boolean existsByItemIdAndLocationIdAndSupplyType(String itemId, String locationId, SupplyType supplyType);
-
     Optional<Supply> findBySupplyId(String supplyId);
 
     List<Supply> findByItemIdAndLocationIdAndSupplyType(String itemId, String locationId, String supplyType);
@@ -31,13 +29,6 @@ public interface SupplyRepository extends MongoRepository<Supply, String> {
 
     List<Supply> findByItemIdAndLocationIdAndSupplyTypeIn(String itemId, String locationId,
                                                           List<String> supplyTypes);
-    @Query(value = "{ 'locationId': ?0, 'supplyType': ?1 }", fields = "{ 'quantity': 1 }")
-    List<Supply> findSuppliesByLocationIdAndSupplyType(String locationId, String supplyType);
-
-    default int getTotalSupplyByLocationAndType(String locationId, String supplyType) {
-        List<Supply> supplies = findSuppliesByLocationIdAndSupplyType(locationId, supplyType);
-        return supplies.stream().mapToInt(Supply::getQuantity).sum();
-    }
 
     Page<Supply> findByItemIdIn(List<String> itemIds, Pageable pageable);
 
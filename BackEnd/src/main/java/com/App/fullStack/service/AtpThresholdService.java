@@ -1,5 +1,7 @@
 package com.App.fullStack.service;
 
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.dto.StockFilter;
 import com.App.fullStack.dto.ThresholdDTO;
 import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.AtpThreshold;
@@ -8,20 +10,29 @@ import com.App.fullStack.pojos.Location;
 import com.App.fullStack.repositories.AtpThresholdRepository;
 import com.App.fullStack.repositories.ItemRepository;
 import com.App.fullStack.repositories.LocationRepository;
+import com.App.fullStack.utility.CursorPager;
 import com.App.fullStack.utility.ItemAndLocationIDChecker;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class AtpThresholdService {
@@ -42,6 +53,21 @@ public class AtpThresholdService {
     @Autowired
     public LocationRepository locationRepository;
 
+    @Autowired
+    private AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Autowired
+    public CursorPager cursorPager;
+
+    @Autowired
+    public KeywordIdResolver keywordIdResolver;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
     public Page<AtpThreshold> getAllAtpThresholds(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<AtpThreshold> thresholds = atpThresholdRepository.findAll(pageable);
@@ -80,14 +106,19 @@ public class AtpThresholdService {
         if (atpThreshold.getMinThreshold() > atpThreshold.getMaxThreshold())
             throw new FoundException("ATP Threshold Min is greater then Max Threshold.");
 
-        if (atpThresholdRepository.existsByItemIdAndLocationId(atpThreshold.getItemId(),
-                atpThreshold.getLocationId())) {
+        itemAndLocationIDChecker.validateItemAndLocationID(atpThreshold.getItemId(), atpThreshold.getLocationId());
+
+        // The unique (itemId, locationId) index rejects duplicates, concurrent ones included
+        AtpThreshold savedThreshold;
+        try {
+            savedThreshold = atpThresholdRepository.insert(atpThreshold);
+        } catch (DuplicateKeyException e) {
             throw new FoundException("ATP Threshold for Item ID " + atpThreshold.getItemId() +
                     " and Location ID " + atpThreshold.getLocationId() + " already exists.");
         }
-        itemAndLocationIDChecker.validateItemAndLocationID(atpThreshold.getItemId(), atpThreshold.getLocationId());
-
-        return atpThresholdRepository.save(atpThreshold);
+        availabilityProjection.putThreshold(atpThreshold);
+        availabilityCache.invalidate(atpThreshold.getItemId(), atpThreshold.getLocationId());
+        return savedThreshold;
     }
 
     public AtpThreshold updateAtpThresholdById(String thresholdId, AtpThreshold atpThresholdDetails) {
@@ -106,9 +137,11 @@ public class AtpThresholdService {
     }
 
     public String deleteAtpThresholdById(String thresholdId) {
-        Optional<AtpThreshold> existingThreshold = atpThresholdRepository.findByThresholdId(thresholdId);
-        if (existingThreshold.isPresent()) {
-            atpThresholdRepository.delete(existingThreshold.get());
+        AtpThreshold existingThreshold = mongoTemplate.findAndRemove(
+                new Query(Criteria.where("thresholdId").is(thresholdId)), AtpThreshold.class);
+        if (existingThreshold != null) {
+            availabilityProjection.removeThreshold(existingThreshold);
+            availabilityCache.invalidate(existingThreshold.getItemId(), existingThreshold.getLocationId());
             return "Threshold deleted successfully.";
         }
         throw new FoundException("Demand with demandId " + thresholdId + " not found.");
@@ -118,7 +151,10 @@ public class AtpThresholdService {
     private AtpThreshold updateAndSaveThreshold(AtpThreshold existingThreshold, AtpThreshold atpThresholdDetails) {
         existingThreshold.setMinThreshold(atpThresholdDetails.getMinThreshold());
         existingThreshold.setMaxThreshold(atpThresholdDetails.getMaxThreshold());
-        return atpThresholdRepository.save(existingThreshold);
+        AtpThreshold savedThreshold = atpThresholdRepository.save(existingThreshold);
+        availabilityProjection.putThreshold(existingThreshold);
+        availabilityCache.invalidate(existingThreshold.getItemId(), existingThreshold.getLocationId());
+        return savedThreshold;
     }
 
     public Page<ThresholdDTO> getAllDemandWithDetails(int page, int size, String search, String searchBy) {
@@ -169,19 +205,67 @@ public class AtpThresholdService {
         }
     }
 
+    // Keyset variant of the method above for deep paging: follows _id instead of skipping, and only counts when
+    // total is "exact" or "estimated"
+    public CursorPage<ThresholdDTO> getThresholdsWithDetailsAfter(String cursor, int size, String search,
+                                                                  String searchBy, String total) {
+        CursorPage<AtpThreshold> thresholds = cursorPager.page(thresholdSearchCriteria(search, searchBy),
+                AtpThreshold.class, AtpThreshold::getThresholdId, cursor, size, total);
+        if (thresholds.getContent().isEmpty())
+            throw new FoundException("Thresholds not found.");
+        return thresholds.withContent(AddThresholdDetails(thresholds.getContent()));
+    }
+
+    // Item keyword and location keyword together as one query on the item_location index
+    public Page<ThresholdDTO> filterThresholdsWithDetails(String itemKeyword, String locationKeyword, int page,
+                                                          int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        List<Criteria> criteria = keywordIdResolver.filterCriteria(
+                new StockFilter(itemKeyword, locationKeyword, null, null, null));
+        Query query = criteria.isEmpty() ? new Query() : new Query(new Criteria().andOperator(criteria));
+
+        List<AtpThreshold> thresholds = mongoTemplate.find(Query.of(query).with(pageable), AtpThreshold.class);
+        if (thresholds.isEmpty())
+            throw new FoundException("Thresholds not found.");
+        // Counts only when the page does not already tell the total
+        Page<AtpThreshold> thresholdPage = PageableExecutionUtils.getPage(thresholds, pageable,
+                () -> mongoTemplate.count(query, AtpThreshold.class));
+        return new PageImpl<>(AddThresholdDetails(thresholds), pageable, thresholdPage.getTotalElements());
+    }
+
+    // Same search as getAllDemandWithDetails as a filter; null without a search
+    private Criteria thresholdSearchCriteria(String search, String searchBy) {
+        if (search == null || search.trim().isEmpty())
+            return null;
+        if (Objects.equals(searchBy, "item"))
+            return Criteria.where("itemId").in(itemRepository.searchItemIdsByKeywordGetIds(search).stream()
+                    .map(Item::getItemId).toList());
+        if (Objects.equals(searchBy, "location"))
+            return Criteria.where("locationId").in(locationRepository.searchLocationIdsByKeywordGetIds(search).stream()
+                    .map(Location::getLocationId).toList());
+        throw new FoundException("Invalid searchBy: " + searchBy + ". Expected item or location.");
+    }
+
     public List<ThresholdDTO> AddThresholdDetails(List<AtpThreshold> thresholds) {
         // Convert AtpThreshold to ThresholdDTO
         List<ThresholdDTO> thresholdDTOs = new ArrayList<>();
+        // One query per collection for the whole page instead of two per row
+        Set<String> itemIds = new HashSet<>();
+        Set<String> locationIds = new HashSet<>();
         for (AtpThreshold threshold : thresholds) {
-            Item item = itemService.getItemByItemIdWithOutException(threshold.getItemId());
-            Location location = locationService.getLocationByIdWithoutException(threshold.getLocationId());
+            itemIds.add(threshold.getItemId());
+            locationIds.add(threshold.getLocationId());
+        }
+        Map<String, String> itemDescriptions = itemService.getItemDescriptions(itemIds);
+        Map<String, String> locationDescriptions = locationService.getLocationDescriptions(locationIds);
 
+        for (AtpThreshold threshold : thresholds) {
             ThresholdDTO thresholdDTO = new ThresholdDTO(
                     threshold.getThresholdId(),
                     threshold.getItemId(),
-                    item != null ? item.getItemDescription() : null,
+                    itemDescriptions.get(threshold.getItemId()),
                     threshold.getLocationId(),
-                    location != null ? location.getLocationDesc() : null,
+                    locationDescriptions.get(threshold.getLocationId()),
                     threshold.getMinThreshold(),
                     threshold.getMaxThreshold());
 
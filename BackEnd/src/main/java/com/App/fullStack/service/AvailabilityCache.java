@@ -0,0 +1,197 @@
+package com.App.fullStack.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Read-through cache for availability responses keyed by API version + itemId + locationId (NETWORK for the
+// all-locations endpoints). Entries expire after a TTL and the least recently used ones are dropped past maxSize.
+// Hits only touch the concurrent map and the entry's last-used time, so concurrent reads never wait on each other.
+// Supply, demand and threshold writes invalidate the affected pair and the item's network entries, and a reloaded
+// availability policy clears everything, so the TTL only bounds staleness for changes that do not go through those.
+@Service
+public class AvailabilityCache {
+
+    // Not a valid path segment, so it cannot collide with a real locationId called "NETWORK"
+    public static final String NETWORK = "\u0000NETWORK";
+    private static final List<String> VERSIONS = List.of("v1", "v2", "v3");
+    private static final int STRIPES = 64;
+
+    @Autowired(required = false)
+    public MeterRegistry meterRegistry;
+
+    @Value("${inventory.availability-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${inventory.availability-cache.max-size:10000}")
+    private int maxSize = 10000;
+
+    @Value("${inventory.availability-cache.ttl-seconds:30}")
+    private long ttlSeconds = 30;
+
+    private final Map<CacheKey, CacheEntry> entries = new ConcurrentHashMap<>();
+    private final Lock evictionLock = new ReentrantLock();
+
+    // Invalidation stamps striped by itemId, bumped by every invalidation of an item in the stripe. A value loaded
+    // while its stripe was bumped is returned but not stored; loads of items in other stripes are unaffected.
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry == null)
+            return;
+        FunctionCounter.builder("availability.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("availability.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("availability.cache.evictions", sizeEvictions, LongAdder::sum)
+                .tag("cause", "size").register(meterRegistry);
+        FunctionCounter.builder("availability.cache.evictions", expirations, LongAdder::sum)
+                .tag("cause", "expired").register(meterRegistry);
+        FunctionCounter.builder("availability.cache.evictions", invalidations, LongAdder::sum)
+                .tag("cause", "invalidated").register(meterRegistry);
+        Gauge.builder("availability.cache.size", this, AvailabilityCache::size).register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String version, String itemId, String locationId, Supplier<T> loader) {
+        if (!enabled)
+            return loader.get();
+
+        CacheKey key = new CacheKey(version, itemId, locationId);
+        long now = System.nanoTime();
+        CacheEntry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.getExpiresAt() - now > 0) {
+                entry.setLastUsed(now);
+                hits.increment();
+                return (T) entry.getValue();
+            }
+            if (entries.remove(key, entry))
+                expirations.increment();
+        }
+
+        misses.increment();
+        int stripe = stripe(itemId);
+        long startStamp = stamps.get(stripe);
+        T value = loader.get(); // failures (e.g. FoundException for unknown pairs) propagate and are not cached
+        if (value == null)
+            return null;
+
+        // Checked inside compute so an invalidation either sees the new entry and removes it or is seen here
+        long loadedAt = System.nanoTime();
+        CacheEntry loaded = new CacheEntry(value, loadedAt + ttlSeconds * 1_000_000_000L, loadedAt);
+        entries.compute(key, (k, current) -> stamps.get(stripe) == startStamp ? loaded : current);
+        if (entries.size() > maxSize)
+            evictOverflow();
+        return value;
+    }
+
+    // A supply/demand/threshold change at (itemId, locationId) affects that pair and the item's network totals
+    public void invalidate(String itemId, String locationId) {
+        stamps.incrementAndGet(stripe(itemId));
+        for (String version : VERSIONS) {
+            remove(new CacheKey(version, itemId, locationId));
+            remove(new CacheKey(version, itemId, NETWORK));
+        }
+    }
+
+    public void clear() {
+        for (int stripe = 0; stripe < STRIPES; stripe++)
+            stamps.incrementAndGet(stripe);
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private static int stripe(String itemId) {
+        return Math.floorMod(Objects.hashCode(itemId), STRIPES);
+    }
+
+    private void remove(CacheKey key) {
+        if (entries.remove(key) != null)
+            invalidations.increment();
+    }
+
+    // Drops the least recently used entries past maxSize plus 1% of it, so a full cache pays for the scan once every
+    // maxSize / 100 misses rather than on each one. Only one thread evicts at a time; the others carry on meanwhile.
+    private void evictOverflow() {
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            int batch = entries.size() - maxSize + maxSize / 100;
+            if (batch <= 0)
+                return;
+            PriorityQueue<Candidate> eldest = new PriorityQueue<>(batch + 1,
+                    Comparator.comparingLong(Candidate::lastUsed).reversed());
+            entries.forEach((key, entry) -> {
+                eldest.add(new Candidate(key, entry, entry.getLastUsed()));
+                if (eldest.size() > batch)
+                    eldest.poll();
+            });
+            for (Candidate candidate : eldest)
+                if (entries.remove(candidate.key(), candidate.entry()))
+                    sizeEvictions.increment();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private record Candidate(CacheKey key, CacheEntry entry, long lastUsed) {
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class CacheKey {
+        private final String version;
+        private final String itemId;
+        private final String locationId;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private final Object value;
+        private final long expiresAt;
+        @Setter
+        private volatile long lastUsed;
+    }
+}
@@ -0,0 +1,447 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.AtpThreshold;
+import com.App.fullStack.pojos.Demand;
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.Supply;
+import com.App.fullStack.pojos.SupplyType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+// Materialized supply/demand totals per (itemId, locationId) and per itemId, plus the ATP thresholds.
+// Built from Mongo once on startup and then kept current by the Supply/Demand/AtpThreshold service writes,
+// so availability reads never have to touch the database. Until the first build finishes isReady() is false
+// and callers are expected to fall back to the repositories. A build that fails or is not published is retried on a
+// schedule with exponential backoff; readiness and failed builds are exposed as metrics and in the health endpoint.
+@Service
+public class AvailabilityProjection {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityProjection.class);
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+    private static final Set<SupplyType> ONHAND = EnumSet.of(SupplyType.ONHAND);
+    private static final Set<DemandType> HARD_PROMISED = EnumSet.of(DemandType.HARD_PROMISED);
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired(required = false)
+    public StockLevelEventDispatcher stockLevelEventDispatcher;
+
+    @Autowired(required = false)
+    public MeterRegistry meterRegistry;
+
+    @Value("${inventory.projection.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inventory.projection.retry-initial-delay-ms:5000}")
+    private long retryInitialDelayMs = 5000;
+
+    @Value("${inventory.projection.retry-max-delay-ms:300000}")
+    private long retryMaxDelayMs = 300000;
+
+    private volatile Map<ItemLocationKey, StockTotals> byLocation = new ConcurrentHashMap<>();
+    // locationId -> itemIds with an entry in byLocation, so one location can be read without walking the others
+    private volatile Map<String, Set<String>> itemsByLocation = new ConcurrentHashMap<>();
+    private volatile Map<String, StockTotals> byItem = new ConcurrentHashMap<>();
+    private volatile Map<ItemLocationKey, AtpThreshold> thresholds = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Writes share the read lock so they run concurrently; only the map swap at the end of a rebuild is exclusive
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+
+    // Builds that failed or were not published since the last successful one, and when the next retry is due
+    private volatile int failedRebuilds;
+    private volatile Instant nextRebuildAt;
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry == null)
+            return;
+        Gauge.builder("availability.projection.ready", this, projection -> projection.isReady() ? 1 : 0)
+                .register(meterRegistry);
+        Gauge.builder("availability.projection.failed.rebuilds", this, AvailabilityProjection::getFailedRebuilds)
+                .register(meterRegistry);
+        Gauge.builder("availability.projection.item.locations", this, AvailabilityProjection::getItemLocationCount)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled)
+            CompletableFuture.runAsync(this::rebuild);
+    }
+
+    // Starts the retry scheduled by a failed build once it is due. Runs the build off the scheduler thread so a slow
+    // one does not hold up the other scheduled tasks.
+    @Scheduled(fixedDelay = 1000)
+    public void rebuildIfDue() {
+        Instant due = nextRebuildAt;
+        if (due == null || Instant.now().isBefore(due))
+            return;
+        nextRebuildAt = null;
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getFailedRebuilds() {
+        return failedRebuilds;
+    }
+
+    public Instant getNextRebuildAt() {
+        return nextRebuildAt;
+    }
+
+    public int getItemLocationCount() {
+        return byLocation.size();
+    }
+
+    // Increments on every applied write; lets readers detect that something changed
+    public long getVersion() {
+        return version.get();
+    }
+
+    public StockTotals getTotals(String itemId, String locationId) {
+        return byLocation.get(new ItemLocationKey(itemId, locationId));
+    }
+
+    public StockTotals getNetworkTotals(String itemId) {
+        return byItem.get(itemId);
+    }
+
+    public Optional<AtpThreshold> findThreshold(String itemId, String locationId) {
+        return Optional.ofNullable(thresholds.get(new ItemLocationKey(itemId, locationId)));
+    }
+
+    // Visits every item-location with records; a consistent view of each entry, not of the map as a whole
+    public void forEachTotals(BiConsumer<ItemLocationKey, StockTotals> consumer) {
+        byLocation.forEach(consumer);
+    }
+
+    // Visits every ATP threshold, including those of item-locations without records
+    public void forEachThreshold(BiConsumer<ItemLocationKey, AtpThreshold> consumer) {
+        thresholds.forEach(consumer);
+    }
+
+    // Visits the item-locations of one location; like forEachTotals, a consistent view of each entry only
+    public void forEachTotalsAt(String locationId, BiConsumer<ItemLocationKey, StockTotals> consumer) {
+        Set<String> itemIds = itemsByLocation.get(locationId);
+        if (itemIds == null)
+            return;
+        for (String itemId : itemIds) {
+            ItemLocationKey key = new ItemLocationKey(itemId, locationId);
+            StockTotals totals = byLocation.get(key);
+            if (totals != null)
+                consumer.accept(key, totals);
+        }
+    }
+
+    // Copy of the item-location totals taken while writes are held off, so it is a single point in time; version is
+    // the number of writes it includes. The copy is of references only (StockTotals are immutable).
+    public TotalsCut cutTotals() {
+        swapLock.writeLock().lock();
+        try {
+            return new TotalsCut(version.get(), new HashMap<>(byLocation));
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public record TotalsCut(long version, Map<ItemLocationKey, StockTotals> byLocation) {
+    }
+
+    public void applySupply(String itemId, String locationId, SupplyType supplyType, int quantityDelta, int countDelta) {
+        if (supplyType == null)
+            return;
+        ItemLocationKey key = new ItemLocationKey(itemId, locationId);
+        StockTotals[] change = new StockTotals[2];
+        mutate(() -> {
+            byLocation.compute(key, (k, totals) -> {
+                change[0] = orEmpty(totals);
+                change[1] = change[0].withSupply(supplyType, quantityDelta, countDelta);
+                return indexed(k, prune(change[1]));
+            });
+            byItem.compute(itemId,
+                    (k, totals) -> prune(orEmpty(totals).withSupply(supplyType, quantityDelta, countDelta)));
+        });
+        publishLevelChange(key, change[0], change[1], thresholds.get(key), thresholds.get(key));
+    }
+
+    public void applyDemand(String itemId, String locationId, DemandType demandType, int quantityDelta, int countDelta) {
+        if (demandType == null)
+            return;
+        ItemLocationKey key = new ItemLocationKey(itemId, locationId);
+        StockTotals[] change = new StockTotals[2];
+        mutate(() -> {
+            byLocation.compute(key, (k, totals) -> {
+                change[0] = orEmpty(totals);
+                change[1] = change[0].withDemand(demandType, quantityDelta, countDelta);
+                return indexed(k, prune(change[1]));
+            });
+            byItem.compute(itemId,
+                    (k, totals) -> prune(orEmpty(totals).withDemand(demandType, quantityDelta, countDelta)));
+        });
+        publishLevelChange(key, change[0], change[1], thresholds.get(key), thresholds.get(key));
+    }
+
+    public void putThreshold(AtpThreshold threshold) {
+        if (threshold == null || threshold.getItemId() == null || threshold.getLocationId() == null)
+            return;
+        ItemLocationKey key = new ItemLocationKey(threshold.getItemId(), threshold.getLocationId());
+        AtpThreshold[] previous = new AtpThreshold[1];
+        mutate(() -> previous[0] = thresholds.put(key, threshold));
+        StockTotals totals = orEmpty(byLocation.get(key));
+        publishLevelChange(key, totals, totals, previous[0], threshold);
+    }
+
+    public void removeThreshold(AtpThreshold threshold) {
+        if (threshold == null)
+            return;
+        ItemLocationKey key = new ItemLocationKey(threshold.getItemId(), threshold.getLocationId());
+        AtpThreshold[] previous = new AtpThreshold[1];
+        mutate(() -> previous[0] = thresholds.remove(key));
+        StockTotals totals = orEmpty(byLocation.get(key));
+        publishLevelChange(key, totals, totals, previous[0], null);
+    }
+
+    // Recomputes the totals of the given locations of one item from Mongo and replaces what the projection holds for
+    // them. Idempotent, so it is safe to run for changes that were already applied as deltas in-process (e.g. a
+    // change-stream event for a write made by this node). Entries with no records left are dropped.
+    public void refreshItem(String itemId, Collection<String> locationIds) {
+        if (itemId != null)
+            refreshItems(Map.of(itemId, locationIds));
+    }
+
+    // Same as refreshItem for many items with one supplies and one demands query. Only the given item-locations are
+    // reloaded; each item's network totals move by the difference, so the other locations of the item are not read.
+    // As in rebuild(), the reloaded totals are only applied when no delta was applied while Mongo was being read,
+    // otherwise the read is retried and, failing that, a full rebuild is scheduled. Stock level changes found for
+    // them are published like those of the delta writes (none when a delta already applied them).
+    public void refreshItems(Map<String, ? extends Collection<String>> locationsByItem) {
+        if (!ready || locationsByItem.isEmpty())
+            return;
+
+        List<Criteria> pairs = new ArrayList<>();
+        locationsByItem.forEach((itemId, locationIds) -> pairs.add(Criteria.where("itemId").is(itemId)
+                .and("locationId").in(locationIds)));
+
+        for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+            long startVersion = version.get();
+            Map<ItemLocationKey, StockTotals> refreshed = new HashMap<>();
+            loadSupplies(new Query(new Criteria().orOperator(pairs)), refreshed, new HashMap<>());
+            loadDemands(new Query(new Criteria().orOperator(pairs)), refreshed, new HashMap<>());
+
+            Map<ItemLocationKey, StockTotals> previous = new HashMap<>();
+            swapLock.writeLock().lock();
+            try {
+                if (version.get() != startVersion)
+                    continue;
+                version.incrementAndGet();
+                locationsByItem.forEach((itemId, locationIds) -> {
+                    for (String locationId : new HashSet<>(locationIds)) {
+                        if (locationId == null)
+                            continue;
+                        ItemLocationKey key = new ItemLocationKey(itemId, locationId);
+                        StockTotals after = orEmpty(refreshed.get(key));
+                        byLocation.compute(key, (k, totals) -> {
+                            previous.put(k, orEmpty(totals));
+                            return indexed(k, prune(after));
+                        });
+                        StockTotals before = previous.get(key);
+                        byItem.compute(itemId, (k, totals) -> prune(orEmpty(totals).plus(after).minus(before)));
+                    }
+                });
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            previous.forEach((key, before) -> publishLevelChange(key, before, orEmpty(refreshed.get(key)),
+                    thresholds.get(key), thresholds.get(key)));
+            return;
+        }
+        logger.warn("Availability projection refresh of {} items not applied, writes kept arriving during {} attempts;"
+                + " scheduling a rebuild", locationsByItem.size(), MAX_REBUILD_ATTEMPTS);
+        if (nextRebuildAt == null)
+            nextRebuildAt = Instant.now();
+    }
+
+    public void refreshThreshold(String itemId, String locationId) {
+        if (!ready || itemId == null || locationId == null)
+            return;
+        AtpThreshold threshold = mongoTemplate.findOne(
+                new Query(Criteria.where("itemId").is(itemId).and("locationId").is(locationId)), AtpThreshold.class);
+        mutate(() -> {
+            if (threshold != null)
+                thresholds.put(new ItemLocationKey(itemId, locationId), threshold);
+            else
+                thresholds.remove(new ItemLocationKey(itemId, locationId));
+        });
+    }
+
+    // Full reload from Mongo. A write landing while the collections are being scanned may or may not be in the
+    // scan, so the result is only published when no write was applied in between; otherwise the scan is retried.
+    // If it still is not published, another build is scheduled after a backoff that doubles with every failure.
+    public synchronized boolean rebuild() {
+        try {
+            for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+                long startVersion = version.get();
+
+                Map<ItemLocationKey, StockTotals> newByLocation = new ConcurrentHashMap<>();
+                Map<String, StockTotals> newByItem = new ConcurrentHashMap<>();
+                Map<ItemLocationKey, AtpThreshold> newThresholds = new ConcurrentHashMap<>();
+                loadSupplies(new Query(), newByLocation, newByItem);
+                loadDemands(new Query(), newByLocation, newByItem);
+                loadThresholds(newThresholds);
+                Map<String, Set<String>> newItemsByLocation = new ConcurrentHashMap<>();
+                newByLocation.keySet().forEach(key -> newItemsByLocation
+                        .computeIfAbsent(key.getLocationId(), id -> ConcurrentHashMap.newKeySet()).add(key.getItemId()));
+
+                swapLock.writeLock().lock();
+                try {
+                    if (version.get() == startVersion) {
+                        byLocation = newByLocation;
+                        itemsByLocation = newItemsByLocation;
+                        byItem = newByItem;
+                        thresholds = newThresholds;
+                        ready = true;
+                        failedRebuilds = 0;
+                        nextRebuildAt = null;
+                        logger.info("Availability projection built with {} item-locations and {} thresholds",
+                                newByLocation.size(), newThresholds.size());
+                        return true;
+                    }
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+                logger.info("Writes arrived during availability projection build, retrying (attempt {})", attempt);
+            }
+            logger.warn("Availability projection not published, writes kept arriving during {} attempts",
+                    MAX_REBUILD_ATTEMPTS);
+        } catch (RuntimeException e) {
+            logger.error("Availability projection build failed{}", ready ? "" : ", availability will be read from Mongo", e);
+        }
+        scheduleRetry();
+        return false;
+    }
+
+    private void scheduleRetry() {
+        int failures = ++failedRebuilds;
+        long delay = Math.min(retryMaxDelayMs, retryInitialDelayMs << Math.min(failures - 1, 20));
+        nextRebuildAt = Instant.now().plusMillis(delay);
+        logger.info("Availability projection build failed {} time(s) in a row, retrying in {} ms", failures, delay);
+    }
+
+    private void loadSupplies(Query query, Map<ItemLocationKey, StockTotals> newByLocation, Map<String, StockTotals> newByItem) {
+        query.fields().include("itemId", "locationId", "supplyType", "quantity");
+        try (Stream<Supply> supplies = mongoTemplate.stream(query, Supply.class)) {
+            supplies.filter(supply -> supply.getSupplyType() != null).forEach(supply -> {
+                newByLocation.merge(new ItemLocationKey(supply.getItemId(), supply.getLocationId()),
+                        StockTotals.EMPTY.withSupply(supply.getSupplyType(), supply.getQuantity(), 1),
+                        (current, ignored) -> current.withSupply(supply.getSupplyType(), supply.getQuantity(), 1));
+                newByItem.merge(supply.getItemId(),
+                        StockTotals.EMPTY.withSupply(supply.getSupplyType(), supply.getQuantity(), 1),
+                        (current, ignored) -> current.withSupply(supply.getSupplyType(), supply.getQuantity(), 1));
+            });
+        }
+    }
+
+    private void loadDemands(Query query, Map<ItemLocationKey, StockTotals> newByLocation, Map<String, StockTotals> newByItem) {
+        query.fields().include("itemId", "locationId", "demandType", "quantity");
+        try (Stream<Demand> demands = mongoTemplate.stream(query, Demand.class)) {
+            demands.filter(demand -> demand.getDemandType() != null).forEach(demand -> {
+                newByLocation.merge(new ItemLocationKey(demand.getItemId(), demand.getLocationId()),
+                        StockTotals.EMPTY.withDemand(demand.getDemandType(), demand.getQuantity(), 1),
+                        (current, ignored) -> current.withDemand(demand.getDemandType(), demand.getQuantity(), 1));
+                newByItem.merge(demand.getItemId(),
+                        StockTotals.EMPTY.withDemand(demand.getDemandType(), demand.getQuantity(), 1),
+                        (current, ignored) -> current.withDemand(demand.getDemandType(), demand.getQuantity(), 1));
+            });
+        }
+    }
+
+    private void loadThresholds(Map<ItemLocationKey, AtpThreshold> newThresholds) {
+        try (Stream<AtpThreshold> atpThresholds = mongoTemplate.stream(new Query(), AtpThreshold.class)) {
+            atpThresholds.filter(threshold -> threshold.getItemId() != null && threshold.getLocationId() != null)
+                    .forEach(threshold -> newThresholds.put(
+                            new ItemLocationKey(threshold.getItemId(), threshold.getLocationId()), threshold));
+        }
+    }
+
+    // v2 stock level (ONHAND - HARD_PROMISED) before and after a write; only meaningful once the projection is complete
+    private void publishLevelChange(ItemLocationKey key, StockTotals before, StockTotals after,
+                                    AtpThreshold thresholdBefore, AtpThreshold thresholdAfter) {
+        if (!ready || stockLevelEventDispatcher == null || before == null || after == null)
+            return;
+        int availableBefore = before.getAvailableQuantity(ONHAND, HARD_PROMISED);
+        int availableAfter = after.getAvailableQuantity(ONHAND, HARD_PROMISED);
+        stockLevelEventDispatcher.publish(key.getItemId(), key.getLocationId(), StockLevel.of(thresholdBefore, availableBefore),
+                StockLevel.of(thresholdAfter, availableAfter), availableAfter);
+    }
+
+    private void mutate(Runnable change) {
+        swapLock.readLock().lock();
+        try {
+            version.incrementAndGet();
+            change.run();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // Records whether key has an entry in itemsByLocation; called from byLocation.compute so that it runs while the
+    // entry for key is locked. Returns totals, the new value of the entry.
+    private StockTotals indexed(ItemLocationKey key, StockTotals totals) {
+        if (totals != null)
+            itemsByLocation.computeIfAbsent(key.getLocationId(), id -> ConcurrentHashMap.newKeySet()).add(key.getItemId());
+        else
+            itemsByLocation.computeIfPresent(key.getLocationId(),
+                    (id, itemIds) -> itemIds.remove(key.getItemId()) && itemIds.isEmpty() ? null : itemIds);
+        return totals;
+    }
+
+    private static StockTotals orEmpty(StockTotals totals) {
+        return totals != null ? totals : StockTotals.EMPTY;
+    }
+
+    // Drop entries whose last contributing document is gone so deleted pairs report "not found" again
+    private static StockTotals prune(StockTotals totals) {
+        return totals.isEmpty() ? null : totals;
+    }
+}
@@ -0,0 +1,29 @@
+package com.App.fullStack.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// Shows under /actuator/health whether availability is answered from the projection. Until it is built the node
+// still answers from Mongo, so that is reported as UNKNOWN rather than DOWN and does not take the node out of service.
+@Component
+public class AvailabilityProjectionHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    public AvailabilityProjection availabilityProjection;
+
+    @Override
+    public Health health() {
+        if (!availabilityProjection.isEnabled())
+            return Health.up().withDetail("enabled", false).build();
+
+        Health.Builder health = availabilityProjection.isReady() ? Health.up() : Health.unknown();
+        health.withDetail("ready", availabilityProjection.isReady())
+                .withDetail("itemLocations", availabilityProjection.getItemLocationCount())
+                .withDetail("failedRebuilds", availabilityProjection.getFailedRebuilds());
+        if (availabilityProjection.getNextRebuildAt() != null)
+            health.withDetail("nextRebuildAt", availabilityProjection.getNextRebuildAt());
+        return health.build();
+    }
+}
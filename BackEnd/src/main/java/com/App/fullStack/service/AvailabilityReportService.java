@@ -0,0 +1,186 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.AvailabilityConfig;
+import com.App.fullStack.dto.AvailabilityPolicy;
+import com.App.fullStack.dto.LowAvailabilityDTO;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.AtpThreshold;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// The item-locations with the lowest v3 availability (configured supply and demand types), either of one location or
+// of every non-excluded location. Ranked by availableQty, or by how far availability is below the ATP minThreshold
+// (pairs without a threshold are left out). Every item-location is streamed through a heap holding at most limit rows,
+// so memory grows with the limit and not with the catalog: from the projection when it is ready, otherwise from an
+// aggregation cursor that sums supplies and demands and joins the thresholds inside Mongo.
+@Service
+public class AvailabilityReportService {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    static final String RANK_AVAILABLE = "available";
+    static final String RANK_BELOW_THRESHOLD = "belowThreshold";
+
+    @Autowired
+    public AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    public AvailabilityConfig availabilityConfig;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    // locationId null means network-wide; rows are returned worst first
+    public List<LowAvailabilityDTO> getLowestAvailability(String locationId, Integer limit, String rankBy) {
+        int top = limit != null ? limit : DEFAULT_LIMIT;
+        if (top < 1 || top > MAX_LIMIT)
+            throw new FoundException("Invalid limit: " + top + ". Expected a value between 1 and " + MAX_LIMIT + ".");
+        String ranking = rankBy != null ? rankBy : RANK_AVAILABLE;
+        Comparator<LowAvailabilityDTO> worstFirst = switch (ranking) {
+            case RANK_AVAILABLE -> Comparator.comparingInt(LowAvailabilityDTO::getAvailableQty);
+            case RANK_BELOW_THRESHOLD -> Comparator.comparingInt((LowAvailabilityDTO row) -> row.getShortfall()).reversed();
+            default -> throw new FoundException("Invalid rankBy: " + ranking + ". Expected " + RANK_AVAILABLE + " or "
+                    + RANK_BELOW_THRESHOLD + ".");
+        };
+        Comparator<LowAvailabilityDTO> order = worstFirst.thenComparing(LowAvailabilityDTO::getItemId)
+                .thenComparing(LowAvailabilityDTO::getLocationId);
+        boolean thresholdsOnly = RANK_BELOW_THRESHOLD.equals(ranking);
+
+        AvailabilityPolicy policy = availabilityConfig.getPolicy();
+        if (policy.isExcluded(locationId))
+            throw new FoundException("LocationId " + locationId + " is excluded from availability checks.");
+
+        // The head is the best-stocked row kept so far, the one a worse row replaces once the heap is full
+        PriorityQueue<LowAvailabilityDTO> worst = new PriorityQueue<>(top + 1, order.reversed());
+        Consumer<LowAvailabilityDTO> offer = row -> {
+            if (thresholdsOnly && row.getShortfall() == null)
+                return;
+            if (worst.size() < top) {
+                worst.add(row);
+            } else if (order.compare(row, worst.peek()) < 0) {
+                worst.poll();
+                worst.add(row);
+            }
+        };
+
+        forEachAvailability(policy, locationId, offer);
+
+        List<LowAvailabilityDTO> report = new ArrayList<>(worst);
+        report.sort(order);
+        return report;
+    }
+
+    // Every item-location of one location (or of every non-excluded location) with records of the configured types or
+    // a threshold, ordered by itemId and locationId; for exports, so it holds the whole result
+    public List<LowAvailabilityDTO> getAvailabilityExport(String locationId) {
+        AvailabilityPolicy policy = availabilityConfig.getPolicy();
+        if (policy.isExcluded(locationId))
+            throw new FoundException("LocationId " + locationId + " is excluded from availability checks.");
+
+        List<LowAvailabilityDTO> rows = new ArrayList<>();
+        forEachAvailability(policy, locationId, rows::add);
+        rows.sort(Comparator.comparing(LowAvailabilityDTO::getItemId).thenComparing(LowAvailabilityDTO::getLocationId));
+        return rows;
+    }
+
+    // Item-locations with records of the configured types, then those with only a threshold at availableQty 0 (an
+    // item expected at a location but never stocked there is the lowest availability of all)
+    private void forEachAvailability(AvailabilityPolicy policy, String locationId, Consumer<LowAvailabilityDTO> consumer) {
+        if (availabilityProjection.isReady()) {
+            Predicate<ItemLocationKey> inScope = key -> locationId != null ? locationId.equals(key.getLocationId())
+                    : !policy.isExcluded(key.getLocationId());
+            availabilityProjection.forEachTotals((key, totals) -> {
+                if (!inScope.test(key) || !totals.hasRecords(policy.getSupplyTypes(), policy.getDemandTypes()))
+                    return;
+                consumer.accept(row(key.getItemId(), key.getLocationId(),
+                        totals.getAvailableQuantity(policy.getSupplyTypes(), policy.getDemandTypes()),
+                        availabilityProjection.findThreshold(key.getItemId(), key.getLocationId()).orElse(null)));
+            });
+            availabilityProjection.forEachThreshold((key, threshold) -> {
+                if (!inScope.test(key))
+                    return;
+                StockTotals totals = availabilityProjection.getTotals(key.getItemId(), key.getLocationId());
+                if (totals == null || !totals.hasRecords(policy.getSupplyTypes(), policy.getDemandTypes()))
+                    consumer.accept(row(key.getItemId(), key.getLocationId(), 0, threshold));
+            });
+        } else {
+            try (Stream<Document> results = mongoTemplate.aggregateStream(availabilityPipeline(policy, locationId),
+                    "supplies", Document.class)) {
+                results.forEach(result -> {
+                    Document id = result.get("_id", Document.class);
+                    List<Document> thresholds = result.getList("threshold", Document.class);
+                    AtpThreshold threshold = null;
+                    if (thresholds != null && !thresholds.isEmpty())
+                        threshold = new AtpThreshold(null, id.getString("itemId"), id.getString("locationId"),
+                                ((Number) thresholds.get(0).get("minThreshold")).intValue(),
+                                ((Number) thresholds.get(0).get("maxThreshold")).intValue());
+                    consumer.accept(row(id.getString("itemId"), id.getString("locationId"),
+                            ((Number) result.get("availableQty")).intValue(), threshold));
+                });
+            }
+        }
+    }
+
+    private static LowAvailabilityDTO row(String itemId, String locationId, int availableQty, AtpThreshold threshold) {
+        Integer minThreshold = threshold != null ? threshold.getMinThreshold() : null;
+        Integer shortfall = threshold != null ? threshold.getMinThreshold() - availableQty : null;
+        return new LowAvailabilityDTO(itemId, locationId, availableQty, minThreshold, shortfall,
+                StockLevel.of(threshold, availableQty));
+    }
+
+    // supplies ∪ demands (negated) of the configured types ∪ thresholds (as 0) → availableQty per (itemId, locationId)
+    // → its threshold
+    private static Aggregation availabilityPipeline(AvailabilityPolicy policy, String locationId) {
+        Criteria supplyCriteria = Criteria.where("supplyType").in(policy.getSupplyTypeNames());
+        Criteria demandCriteria = Criteria.where("demandType").in(policy.getDemandTypeNames());
+        Criteria thresholdCriteria = new Criteria();
+        if (locationId != null) {
+            supplyCriteria.and("locationId").is(locationId);
+            demandCriteria.and("locationId").is(locationId);
+            thresholdCriteria.and("locationId").is(locationId);
+        } else if (!policy.getExcludedLocationIds().isEmpty()) {
+            supplyCriteria.and("locationId").nin(policy.getExcludedLocationIds());
+            demandCriteria.and("locationId").nin(policy.getExcludedLocationIds());
+            thresholdCriteria.and("locationId").nin(policy.getExcludedLocationIds());
+        }
+
+        AggregationOperation lookupThreshold = context -> new Document("$lookup", new Document("from", "atpThresholds")
+                .append("let", new Document("itemId", "$_id.itemId").append("locationId", "$_id.locationId"))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr", new Document("$and", List.of(
+                                new Document("$eq", List.of("$itemId", "$$itemId")),
+                                new Document("$eq", List.of("$locationId", "$$locationId")))))),
+                        new Document("$project", new Document("_id", 0).append("minThreshold", 1).append("maxThreshold", 1))))
+                .append("as", "threshold"));
+
+        return Aggregation.newAggregation(
+                Aggregation.match(supplyCriteria),
+                Aggregation.project("itemId", "locationId", "quantity"),
+                UnionWithOperation.unionWith("demands").pipeline(
+                        Aggregation.match(demandCriteria),
+                        Aggregation.project("itemId", "locationId").and("quantity").multiply(-1).as("quantity")),
+                UnionWithOperation.unionWith("atpThresholds").pipeline(
+                        Aggregation.match(thresholdCriteria),
+                        context -> new Document("$project", new Document("itemId", 1).append("locationId", 1)
+                                .append("quantity", new Document("$literal", 0)))),
+                Aggregation.group("itemId", "locationId").sum("quantity").as("availableQty"),
+                lookupThreshold
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    }
+}
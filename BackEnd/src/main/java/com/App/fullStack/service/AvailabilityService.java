@@ -1,13 +1,22 @@
 package com.App.fullStack.service;
 
+import com.App.fullStack.dto.AvailabilityBatchLine;
+import com.App.fullStack.dto.AvailabilityRequestLine;
 import com.App.fullStack.dto.ScatterDataDTO;
 import com.App.fullStack.dto.ScatterLocationDataDTO;
 import com.App.fullStack.pojos.*;
 import com.App.fullStack.dto.AvailabilityConfig;
+import com.App.fullStack.dto.AvailabilityPolicy;
 import com.App.fullStack.dto.AvailabilityResponseV2V3;
 import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.repositories.*;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -33,10 +42,28 @@ public class AvailabilityService {
     @Autowired
     public LocationRepository locationRepository;
 
+    @Autowired
+    public AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    static final int MAX_BATCH_LINES = 500;
+
+    // v1/v2 availability is always ONHAND supply minus HARD_PROMISED demand
+    private static final Set<SupplyType> ONHAND = EnumSet.of(SupplyType.ONHAND);
+    private static final Set<DemandType> HARD_PROMISED = EnumSet.of(DemandType.HARD_PROMISED);
 
     // v1 methods
     // There is dependence of this method in v2 method
     public int calculateAvailabilityByLocation(String itemId, String locationId) {
+        if (availabilityProjection.isReady()) {
+            StockTotals totals = availabilityProjection.getTotals(itemId, locationId);
+            if (totals == null || !totals.hasRecords(ONHAND, HARD_PROMISED))
+                throw new FoundException("Records with ItemId: " + itemId + " And LocationId " + locationId + " not found.");
+            return totals.getAvailableQuantity(ONHAND, HARD_PROMISED);
+        }
+
         List<Supply> supplies = supplyRepository.findByItemIdAndLocationIdAndSupplyType(itemId, locationId, "ONHAND");
         List<Demand> demands = demandRepository.findByItemIdAndLocationIdAndDemandType(itemId, locationId,
                 "HARD_PROMISED");
@@ -49,20 +76,25 @@ public class AvailabilityService {
     }
 
     public int calculateAvailabilityByItem(String itemId) {
-        List<Supply> supplies = supplyRepository.findByItemIdAndSupplyType(itemId, "ONHAND");
-        List<Demand> demands = demandRepository.findByItemIdAndDemandType(itemId, "HARD_PROMISED");
+        if (availabilityProjection.isReady()) {
+            StockTotals totals = availabilityProjection.getNetworkTotals(itemId);
+            if (totals == null || !totals.hasRecords(ONHAND, HARD_PROMISED))
+                throw new FoundException("Records with ItemId: " + itemId + " not found.");
+            return totals.getAvailableQuantity(ONHAND, HARD_PROMISED);
+        }
 
-        if (supplies.isEmpty() && demands.isEmpty())
+        // Summed inside Mongo, only the signed total comes back
+        Integer availableQty = networkAvailability(itemId, List.of("ONHAND"), List.of("HARD_PROMISED"), Set.of());
+        if (availableQty == null)
             throw new FoundException("Records with ItemId: " + itemId + " not found.");
 
-        // Calculate total supply and demand
-        return SupplyQTYSum(supplies) - DemandsQTYSum(demands);
+        return availableQty;
     }
 
     // v2 methods
     public AvailabilityResponseV2V3 calculateV2AvailabilityByLocation(String itemId, String locationId) {
         int availableQty = calculateAvailabilityByLocation(itemId, locationId);
-        Optional<AtpThreshold> threshold = atpThresholdRepository.findByItemIdAndLocationId(itemId, locationId);
+        Optional<AtpThreshold> threshold = findThreshold(itemId, locationId);
         String stockLevel = calculateStockLevel(threshold, availableQty);
 
         return new AvailabilityResponseV2V3(itemId, locationId, availableQty, stockLevel);
@@ -81,15 +113,27 @@ public class AvailabilityService {
     // v3 methods
     public AvailabilityResponseV2V3 calculateV3AvailabilityByLocation(String itemId, String locationId) {
 
-        // Get valid supply and demand types from the configuration
-        List<String> validSupplyTypes = Arrays.asList(availabilityConfig.getSupplies() != null ? availabilityConfig.getSupplies() : new String[]{});
-        List<String> validDemandTypes = Arrays.asList(availabilityConfig.getDemands() != null ? availabilityConfig.getDemands() : new String[]{});
+        // Get valid supply and demand types from the compiled policy
+        AvailabilityPolicy policy = availabilityConfig.getPolicy();
+        List<String> validSupplyTypes = policy.getSupplyTypeNames();
+        List<String> validDemandTypes = policy.getDemandTypeNames();
 
         // Check if location is excluded
-        if (availabilityConfig.getExcludedLocations() != null && Arrays.asList(availabilityConfig.getExcludedLocations()).contains(locationId)) {
+        if (policy.isExcluded(locationId)) {
             throw new FoundException("LocationId " + locationId + " is excluded from availability checks.");
         }
 
+        if (availabilityProjection.isReady()) {
+            Set<SupplyType> supplyTypes = policy.getSupplyTypes();
+            Set<DemandType> demandTypes = policy.getDemandTypes();
+            StockTotals totals = availabilityProjection.getTotals(itemId, locationId);
+            if (totals == null || !totals.hasRecords(supplyTypes, demandTypes))
+                throw new FoundException("Records with ItemId: " + itemId + " and LocationId: " + locationId + " not found.");
+
+            int totalQTY = totals.getAvailableQuantity(supplyTypes, demandTypes);
+            return new AvailabilityResponseV2V3(itemId, locationId, totalQTY, calculateStockLevel(findThreshold(itemId, locationId), totalQTY));
+        }
+
         // Fetch supplies and demands based on the criteria
         List<Supply> supplies = supplyRepository.findByItemIdAndLocationIdAndSupplyTypeIn(itemId, locationId, validSupplyTypes);
         List<Demand> demands = demandRepository.findByItemIdAndLocationIdAndDemandTypeIn(itemId, locationId, validDemandTypes);
@@ -103,23 +147,185 @@ public class AvailabilityService {
         int totalQTY = SupplyQTYSum(supplies) - DemandsQTYSum(demands);
 
         // Get thresholds and calculate stock level
-        Optional<AtpThreshold> threshold = atpThresholdRepository.findByItemIdAndLocationId(itemId, locationId);
+        Optional<AtpThreshold> threshold = findThreshold(itemId, locationId);
         String stockLevel = calculateStockLevel(threshold, totalQTY);
 
         return new AvailabilityResponseV2V3(itemId, locationId, totalQTY, stockLevel);
     }
 
-    String calculateStockLevel(Optional<AtpThreshold> thresholdOpt, int availableQty) {
-        if (thresholdOpt.isPresent()) {
-            AtpThreshold threshold = thresholdOpt.get();
-            if (availableQty < threshold.getMinThreshold())
-                return "Red";
-            else if (availableQty > threshold.getMaxThreshold())
-                return "Green";
+    // v3 availability across the network: configured types only, excluded locations left out of the sum
+    public AvailabilityResponseV2V3 calculateV3AvailabilityInAllLocation(String itemId) {
+        AvailabilityPolicy policy = availabilityConfig.getPolicy();
+
+        Integer availableQty;
+        if (availabilityProjection.isReady()) {
+            availableQty = networkAvailabilityFromProjection(itemId, policy.getSupplyTypes(), policy.getDemandTypes(),
+                    policy.getExcludedLocationIds());
+        } else {
+            availableQty = networkAvailability(itemId, policy.getSupplyTypeNames(), policy.getDemandTypeNames(),
+                    policy.getExcludedLocationIds());
+        }
+        if (availableQty == null)
+            throw new FoundException("Records with ItemId: " + itemId + " not found.");
+
+        Optional<AtpThreshold> threshold = atpThresholdRepository.findById(itemId);
+        String stockLevel = calculateStockLevel(threshold, availableQty);
+
+        return new AvailabilityResponseV2V3(itemId, "NETWORK", availableQty, stockLevel);
+    }
+
+    // v3 availability for many item/location pairs. Lines fail individually; the request only fails as a whole
+    // when it is empty or too large. Without the projection every line is resolved from the same three queries.
+    public List<AvailabilityBatchLine> calculateV3AvailabilityBatch(List<AvailabilityRequestLine> lines) {
+        if (lines == null || lines.isEmpty())
+            throw new FoundException("Batch request has no lines.");
+        if (lines.size() > MAX_BATCH_LINES)
+            throw new FoundException("Batch request exceeds the limit of " + MAX_BATCH_LINES + " lines.");
+
+        List<AvailabilityBatchLine> results = new ArrayList<>(lines.size());
+        if (availabilityProjection.isReady()) {
+            for (AvailabilityRequestLine line : lines) {
+                try {
+                    requireItemAndLocation(line);
+                    results.add(successLine(calculateV3AvailabilityByLocation(line.getItemId(), line.getLocationId())));
+                } catch (FoundException e) {
+                    results.add(errorLine(line, e.getMessage()));
+                }
+            }
+            return results;
+        }
+
+        AvailabilityPolicy policy = availabilityConfig.getPolicy();
 
-            return "Yellow";
+        Set<String> itemIds = new HashSet<>();
+        Set<String> locationIds = new HashSet<>();
+        for (AvailabilityRequestLine line : lines) {
+            if (line != null && line.getItemId() != null && line.getLocationId() != null
+                    && !policy.isExcluded(line.getLocationId())) {
+                itemIds.add(line.getItemId());
+                locationIds.add(line.getLocationId());
+            }
+        }
+
+        Map<ItemLocationKey, Integer> supplyTotals = new HashMap<>();
+        Map<ItemLocationKey, Integer> demandTotals = new HashMap<>();
+        Map<ItemLocationKey, AtpThreshold> thresholds = new HashMap<>();
+        if (!itemIds.isEmpty()) {
+            supplyTotals = sumQuantityByItemAndLocation("supplies", "supplyType", policy.getSupplyTypeNames(), itemIds, locationIds);
+            demandTotals = sumQuantityByItemAndLocation("demands", "demandType", policy.getDemandTypeNames(), itemIds, locationIds);
+            for (AtpThreshold threshold : atpThresholdRepository.findByItemIdInAndLocationIdIn(itemIds, locationIds))
+                thresholds.put(new ItemLocationKey(threshold.getItemId(), threshold.getLocationId()), threshold);
         }
-        return "Unknown";
+
+        for (AvailabilityRequestLine line : lines) {
+            try {
+                requireItemAndLocation(line);
+                String itemId = line.getItemId();
+                String locationId = line.getLocationId();
+                if (policy.isExcluded(locationId))
+                    throw new FoundException("LocationId " + locationId + " is excluded from availability checks.");
+
+                ItemLocationKey key = new ItemLocationKey(itemId, locationId);
+                Integer supplyQTY = supplyTotals.get(key);
+                Integer demandQTY = demandTotals.get(key);
+                if (supplyQTY == null && demandQTY == null)
+                    throw new FoundException("Records with ItemId: " + itemId + " and LocationId: " + locationId + " not found.");
+
+                int totalQTY = (supplyQTY != null ? supplyQTY : 0) - (demandQTY != null ? demandQTY : 0);
+                String stockLevel = calculateStockLevel(Optional.ofNullable(thresholds.get(key)), totalQTY);
+                results.add(successLine(new AvailabilityResponseV2V3(itemId, locationId, totalQTY, stockLevel)));
+            } catch (FoundException e) {
+                results.add(errorLine(line, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    // Supplies minus demands for one item over all non-excluded locations as a single $unionWith pipeline.
+    // Returns null when no document of the requested types exists.
+    private Integer networkAvailability(String itemId, List<String> supplyTypes, List<String> demandTypes,
+                                        Set<String> excludedLocations) {
+        Criteria supplyCriteria = Criteria.where("itemId").is(itemId).and("supplyType").in(supplyTypes);
+        Criteria demandCriteria = Criteria.where("itemId").is(itemId).and("demandType").in(demandTypes);
+        if (!excludedLocations.isEmpty()) {
+            supplyCriteria.and("locationId").nin(excludedLocations);
+            demandCriteria.and("locationId").nin(excludedLocations);
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(supplyCriteria),
+                Aggregation.project("quantity"),
+                UnionWithOperation.unionWith("demands").pipeline(
+                        Aggregation.match(demandCriteria),
+                        Aggregation.project().and("quantity").multiply(-1).as("quantity")),
+                Aggregation.group().sum("quantity").as("availableQty")
+        );
+
+        Document result = mongoTemplate.aggregate(aggregation, "supplies", Document.class).getUniqueMappedResult();
+        return result != null ? ((Number) result.get("availableQty")).intValue() : null;
+    }
+
+    private Integer networkAvailabilityFromProjection(String itemId, Set<SupplyType> supplyTypes, Set<DemandType> demandTypes,
+                                                      Set<String> excludedLocations) {
+        StockTotals network = availabilityProjection.getNetworkTotals(itemId);
+        if (network == null)
+            return null;
+
+        int availableQty = network.getAvailableQuantity(supplyTypes, demandTypes);
+        int records = network.getRecordCount(supplyTypes, demandTypes);
+        // Take the excluded locations back out of the network totals
+        for (String excludedLocation : excludedLocations) {
+            StockTotals excluded = availabilityProjection.getTotals(itemId, excludedLocation);
+            if (excluded != null) {
+                availableQty -= excluded.getAvailableQuantity(supplyTypes, demandTypes);
+                records -= excluded.getRecordCount(supplyTypes, demandTypes);
+            }
+        }
+        return records > 0 ? availableQty : null;
+    }
+
+    // Sum of quantity per (itemId, locationId) for the given types, limited to the cross product of the ids.
+    // Pairs outside the requested lines are simply never looked up.
+    private Map<ItemLocationKey, Integer> sumQuantityByItemAndLocation(String collection, String typeField, List<String> types,
+                                                                      Collection<String> itemIds, Collection<String> locationIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("itemId").in(itemIds)
+                        .and("locationId").in(locationIds)
+                        .and(typeField).in(types)),
+                Aggregation.group("itemId", "locationId").sum("quantity").as("quantity")
+        );
+
+        Map<ItemLocationKey, Integer> totals = new HashMap<>();
+        for (Document result : mongoTemplate.aggregate(aggregation, collection, Document.class).getMappedResults()) {
+            Document id = result.get("_id", Document.class);
+            totals.put(new ItemLocationKey(id.getString("itemId"), id.getString("locationId")),
+                    ((Number) result.get("quantity")).intValue());
+        }
+        return totals;
+    }
+
+    private void requireItemAndLocation(AvailabilityRequestLine line) {
+        if (line == null || line.getItemId() == null || line.getLocationId() == null)
+            throw new FoundException("ItemId and LocationId are required.");
+    }
+
+    private AvailabilityBatchLine successLine(AvailabilityResponseV2V3 availability) {
+        return new AvailabilityBatchLine(availability.getItemId(), availability.getLocationId(), true, availability, null);
+    }
+
+    private AvailabilityBatchLine errorLine(AvailabilityRequestLine line, String error) {
+        return new AvailabilityBatchLine(line != null ? line.getItemId() : null, line != null ? line.getLocationId() : null,
+                false, null, error);
+    }
+
+    String calculateStockLevel(Optional<AtpThreshold> thresholdOpt, int availableQty) {
+        return StockLevel.of(thresholdOpt.orElse(null), availableQty);
+    }
+
+    private Optional<AtpThreshold> findThreshold(String itemId, String locationId) {
+        if (availabilityProjection.isReady())
+            return availabilityProjection.findThreshold(itemId, locationId);
+        return atpThresholdRepository.findByItemIdAndLocationId(itemId, locationId);
     }
 
     private int SupplyQTYSum(List<Supply> supplies) {
@@ -135,10 +341,24 @@ public class AvailabilityService {
     }
 
 
+    // Scatter data used to run two repository queries per item; it is now one items scan with a field projection
+    // and two $group aggregations (ONHAND supply, HARD_PROMISED demand per itemId) hash-joined here on itemId.
     public ScatterLocationDataDTO getAvailabilityScatterData(String locationId) {
-        List<Item> items = itemRepository.findAll();
-        // Initialize a list to store the scatter data
-        List<ScatterDataDTO> scatterData = new ArrayList<>();
+        return getAvailabilityScatterData(locationId, null);
+    }
+
+    public ScatterLocationDataDTO getAvailabilityScatterData(String locationId, Integer maxPoints) {
+        return getAvailabilityScatterData(locationId, maxPoints, null);
+    }
+
+    // With maxPoints set, catalogs larger than the budget are binned into a price × availability grid. With a snapshot
+    // the items, location and totals all come from it and nothing is read from Mongo.
+    public ScatterLocationDataDTO getAvailabilityScatterData(String locationId, Integer maxPoints,
+                                                             InventorySnapshot snapshot) {
+        if (maxPoints != null && maxPoints < 1)
+            throw new FoundException("maxPoints must be greater than 0.");
+        if (snapshot != null)
+            return scatterDataFromSnapshot(locationId, maxPoints, snapshot);
 
         String locationName;
         Optional<Location> location = locationRepository.findByLocationId(locationId);
@@ -146,30 +366,81 @@ public class AvailabilityService {
             locationName = location.get().getLocationDesc();
         else
             locationName = "NETWORK";
-        // Calculate availability for each item
-        for (Item item : items) {
-            String itemId = item.getItemId();
-            int supplyQuantity, demandQuantity;
-            List<Supply> supplies;
-            List<Demand> demands;
-            if (Objects.equals(locationName, "NETWORK")) {
-
-                supplies = supplyRepository.findByItemIdAndSupplyType(itemId, "ONHAND");
-                demands = demandRepository.findByItemIdAndDemandType(itemId, "HARD_PROMISED");
-            } else {
-                supplies = supplyRepository.findByItemIdAndLocationIdAndSupplyType(itemId, locationId, "ONHAND");
-                demands = demandRepository.findByItemIdAndLocationIdAndDemandType(itemId, locationId, "HARD_PROMISED");
+        String matchLocation = Objects.equals(locationName, "NETWORK") ? null : locationId;
+
+        Query itemQuery = new Query();
+        itemQuery.fields().include("itemId", "itemDescription", "price");
+        List<Item> items = mongoTemplate.find(itemQuery, Item.class);
+
+        Map<String, Integer> supplyByItem;
+        Map<String, Integer> demandByItem;
+        if (availabilityProjection.isReady()) {
+            supplyByItem = new HashMap<>();
+            demandByItem = new HashMap<>();
+            for (Item item : items) {
+                StockTotals totals = matchLocation == null
+                        ? availabilityProjection.getNetworkTotals(item.getItemId())
+                        : availabilityProjection.getTotals(item.getItemId(), matchLocation);
+                if (totals != null) {
+                    supplyByItem.put(item.getItemId(), totals.getSupplyQuantity(ONHAND));
+                    demandByItem.put(item.getItemId(), totals.getDemandQuantity(HARD_PROMISED));
+                }
             }
-            supplyQuantity = SupplyQTYSum(supplies);
-            demandQuantity = DemandsQTYSum(demands);
+        } else {
+            supplyByItem = sumQuantityByItem("supplies", "supplyType", SupplyType.ONHAND.name(), matchLocation);
+            demandByItem = sumQuantityByItem("demands", "demandType", DemandType.HARD_PROMISED.name(), matchLocation);
+        }
 
+        List<ScatterDataDTO> scatterData = new ArrayList<>(items.size());
+        for (Item item : items) {
             scatterData.add(new ScatterDataDTO(
-                    item.getPrice(), // Assuming price is stored as String
-                    supplyQuantity,
-                    demandQuantity,
+                    item.getPrice(),
+                    supplyByItem.getOrDefault(item.getItemId(), 0),
+                    demandByItem.getOrDefault(item.getItemId(), 0),
                     item.getItemDescription()
             ));
         }
+        if (maxPoints != null)
+            return ScatterBucketer.bucket(scatterData, locationName, maxPoints);
         return new ScatterLocationDataDTO(scatterData, locationName);
     }
+
+    private static ScatterLocationDataDTO scatterDataFromSnapshot(String locationId, Integer maxPoints,
+                                                                  InventorySnapshot snapshot) {
+        String locationDesc = snapshot.getLocations().get(locationId);
+        String locationName = snapshot.getLocations().containsKey(locationId) ? locationDesc : "NETWORK";
+        String matchLocation = Objects.equals(locationName, "NETWORK") ? null : locationId;
+
+        List<ScatterDataDTO> scatterData = new ArrayList<>(snapshot.getItems().size());
+        for (Item item : snapshot.getItems().values()) {
+            StockTotals totals = matchLocation == null
+                    ? snapshot.getItemTotals(item.getItemId())
+                    : snapshot.getTotals(item.getItemId(), matchLocation);
+            scatterData.add(new ScatterDataDTO(
+                    item.getPrice(),
+                    totals != null ? totals.getSupplyQuantity(ONHAND) : 0,
+                    totals != null ? totals.getDemandQuantity(HARD_PROMISED) : 0,
+                    item.getItemDescription()
+            ));
+        }
+        if (maxPoints != null)
+            return ScatterBucketer.bucket(scatterData, locationName, maxPoints);
+        return new ScatterLocationDataDTO(scatterData, locationName);
+    }
+
+    // Sum of quantity per itemId for one type, optionally restricted to a single location
+    private Map<String, Integer> sumQuantityByItem(String collection, String typeField, String type, String locationId) {
+        Criteria criteria = Criteria.where(typeField).is(type);
+        if (locationId != null)
+            criteria.and("locationId").is(locationId);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.group("itemId").sum("quantity").as("quantity")
+        );
+
+        Map<String, Integer> totals = new HashMap<>();
+        for (Document result : mongoTemplate.aggregate(aggregation, collection, Document.class).getMappedResults())
+            totals.put(result.getString("_id"), ((Number) result.get("quantity")).intValue());
+        return totals;
+    }
 }
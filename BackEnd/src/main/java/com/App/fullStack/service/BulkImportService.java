@@ -0,0 +1,308 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.BulkImportReport;
+import com.App.fullStack.dto.BulkRowError;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.Demand;
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import com.App.fullStack.pojos.Supply;
+import com.App.fullStack.pojos.SupplyType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Streams supply or demand rows from an upload (NDJSON, one object per line, or CSV with a header row, one record per
+// line) and upserts them keyed by itemId + locationId + type, setting the quantity. Rows are read one at a time and
+// written in batches: each batch checks its itemIds and locationIds with one query each and goes to Mongo as a single
+// unordered bulk write, so memory stays bounded by the batch size and the capped error list whatever the upload size.
+// Rows that fail validation or the write are reported by line and do not stop the import.
+@Service
+public class BulkImportService {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired
+    public AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    public AvailabilityCache availabilityCache;
+
+    @Autowired
+    public DashboardService dashboardService;
+
+    @Value("${inventory.bulk-import.batch-size:1000}")
+    private int batchSize = 1000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public BulkImportReport importSupplies(InputStream body, String contentType) throws IOException {
+        return importRows(body, contentType, RecordKind.SUPPLY);
+    }
+
+    public BulkImportReport importDemands(InputStream body, String contentType) throws IOException {
+        return importRows(body, contentType, RecordKind.DEMAND);
+    }
+
+    private BulkImportReport importRows(InputStream body, String contentType, RecordKind kind) throws IOException {
+        boolean csv = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv");
+        BulkImportReport report = new BulkImportReport();
+        List<BulkRow> batch = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Map<String, Integer> columns = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank())
+                continue;
+            if (csv && columns == null) {
+                columns = csvHeader(line, kind);
+                continue;
+            }
+
+            report.setReceived(report.getReceived() + 1);
+            BulkRow row = new BulkRow(lineNumber);
+            String error = csv ? readCsv(line, columns, kind, row) : readJson(line, kind, row);
+            if (error == null)
+                error = validate(row, kind);
+            if (error != null) {
+                fail(report, row, error);
+                continue;
+            }
+
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                writeBatch(batch, kind, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            writeBatch(batch, kind, report);
+        return report;
+    }
+
+    private void writeBatch(List<BulkRow> batch, RecordKind kind, BulkImportReport report) {
+        Set<String> itemIds = new HashSet<>();
+        Set<String> locationIds = new HashSet<>();
+        for (BulkRow row : batch) {
+            itemIds.add(row.itemId);
+            locationIds.add(row.locationId);
+        }
+        Set<String> knownItems = new HashSet<>(mongoTemplate.findDistinct(
+                new Query(Criteria.where("itemId").in(itemIds)), "itemId", Item.class, String.class));
+        Set<String> knownLocations = new HashSet<>(mongoTemplate.findDistinct(
+                new Query(Criteria.where("locationId").in(locationIds)), "locationId", Location.class, String.class));
+
+        // Unordered writes may apply in any order, so only the last row per key in a batch is sent
+        Map<String, BulkRow> latest = new LinkedHashMap<>();
+        for (BulkRow row : batch) {
+            if (!knownItems.contains(row.itemId))
+                fail(report, row, "Item with ItemId: " + row.itemId + " not found.");
+            else if (!knownLocations.contains(row.locationId))
+                fail(report, row, "Location with LocationId: " + row.locationId + " not found.");
+            else if (latest.put(row.itemId + '\u0000' + row.locationId + '\u0000' + row.type, row) != null)
+                report.setSuperseded(report.getSuperseded() + 1);
+        }
+        if (latest.isEmpty())
+            return;
+
+        List<BulkRow> rows = new ArrayList<>(latest.values());
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, kind.entityClass);
+        for (BulkRow row : rows)
+            operations.upsert(new Query(Criteria.where("itemId").is(row.itemId).and("locationId").is(row.locationId)
+                    .and(kind.typeField).is(row.type)), new Update().set("quantity", row.quantity));
+
+        BulkWriteResult result;
+        Set<Integer> failedIndexes = new HashSet<>();
+        try {
+            result = operations.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                failedIndexes.add(error.getIndex());
+                fail(report, rows.get(error.getIndex()), error.getMessage());
+            }
+        }
+        report.setInserted(report.getInserted() + result.getUpserts().size());
+        dashboardService.adjustCount(kind == RecordKind.SUPPLY ? "supplies" : "demands", result.getUpserts().size());
+        report.setUpdated(report.getUpdated() + result.getModifiedCount());
+        report.setUnchanged(report.getUnchanged() + result.getMatchedCount() - result.getModifiedCount());
+
+        Map<String, Set<String>> written = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++)
+            if (!failedIndexes.contains(i))
+                written.computeIfAbsent(rows.get(i).itemId, id -> new HashSet<>()).add(rows.get(i).locationId);
+        availabilityProjection.refreshItems(written);
+        written.forEach((itemId, locations) -> locations.forEach(locationId -> availabilityCache.invalidate(itemId, locationId)));
+    }
+
+    private Map<String, Integer> csvHeader(String line, RecordKind kind) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(line);
+        if (names == null)
+            throw new FoundException("CSV header has an unterminated quoted value.");
+        for (int i = 0; i < names.size(); i++)
+            columns.put(names.get(i).toLowerCase(Locale.ROOT), i);
+        for (String required : List.of("itemId", "locationId", kind.typeField, "quantity"))
+            if (!columns.containsKey(required.toLowerCase(Locale.ROOT)))
+                throw new FoundException("CSV header must contain itemId, locationId, " + kind.typeField + " and quantity.");
+        return columns;
+    }
+
+    private String readCsv(String line, Map<String, Integer> columns, RecordKind kind, BulkRow row) {
+        List<String> values = splitCsv(line);
+        if (values == null)
+            return "Unterminated quoted value.";
+        row.itemId = csvValue(values, columns, "itemid");
+        row.locationId = csvValue(values, columns, "locationid");
+        row.type = csvValue(values, columns, kind.typeField.toLowerCase(Locale.ROOT));
+        return parseQuantity(csvValue(values, columns, "quantity"), row);
+    }
+
+    private String readJson(String line, RecordKind kind, BulkRow row) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            return "Malformed JSON.";
+        }
+        if (!node.isObject())
+            return "Expected a JSON object.";
+        row.itemId = text(node, "itemId");
+        row.locationId = text(node, "locationId");
+        row.type = text(node, kind.typeField);
+        return parseQuantity(text(node, "quantity"), row);
+    }
+
+    private String validate(BulkRow row, RecordKind kind) {
+        if (row.itemId == null || row.locationId == null)
+            return "itemId and locationId are required.";
+        if (row.type == null || !kind.typeNames.contains(row.type.toUpperCase(Locale.ROOT)))
+            return "Invalid " + kind.typeField + ": " + row.type + ". Expected one of " + kind.typeNames + ".";
+        row.type = row.type.toUpperCase(Locale.ROOT);
+        if (row.quantity < 0) // 0 is a valid snapshot (nothing left), unlike the single-record update
+            return "Invalid quantity";
+        return null;
+    }
+
+    private String parseQuantity(String value, BulkRow row) {
+        if (value == null)
+            return "quantity is required.";
+        try {
+            row.quantity = Integer.parseInt(value);
+            return null;
+        } catch (NumberFormatException e) {
+            return "Invalid quantity";
+        }
+    }
+
+    private void fail(BulkImportReport report, BulkRow row, String error) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS)
+            report.getErrors().add(new BulkRowError(row.line, row.itemId, row.locationId, error));
+        else
+            report.setErrorsTruncated(true);
+    }
+
+    private static String csvValue(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size())
+            return null;
+        String value = values.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 fields: a quoted value may contain commas and doubled quotes. Records are read one line at a time, so a
+    // quoted value cannot span lines; null when a quote is left open.
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"')
+                    value.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"')
+                    value.append(line.charAt(++i));
+                else
+                    quoted = false;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else if (c == '"' && value.toString().isBlank()) {
+                quoted = true;
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted)
+            return null;
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private enum RecordKind {
+        SUPPLY(Supply.class, "supplyType", names(SupplyType.values())),
+        DEMAND(Demand.class, "demandType", names(DemandType.values()));
+
+        private final Class<?> entityClass;
+        private final String typeField;
+        private final Set<String> typeNames;
+
+        RecordKind(Class<?> entityClass, String typeField, Set<String> typeNames) {
+            this.entityClass = entityClass;
+            this.typeField = typeField;
+            this.typeNames = typeNames;
+        }
+
+        private static Set<String> names(Enum<?>[] values) {
+            Set<String> names = new LinkedHashSet<>();
+            for (Enum<?> value : values)
+                names.add(value.name());
+            return names;
+        }
+    }
+
+    private static class BulkRow {
+        private final long line;
+        private String itemId;
+        private String locationId;
+        private String type;
+        private int quantity;
+
+        private BulkRow(long line) {
+            this.line = line;
+        }
+    }
+}
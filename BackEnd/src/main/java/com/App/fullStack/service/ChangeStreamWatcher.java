@@ -0,0 +1,248 @@
+package com.App.fullStack.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.CollectionOptions.CollectionChangeStreamOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Follows the inventory collections through a Mongo change stream so writes made by other nodes or by batch jobs
+// writing straight to Mongo reach this node's projection and availability cache. Every change triggers an idempotent
+// refresh from Mongo rather than a delta, so replaying an event after a crash is harmless. The resume token is stored
+// after each handled event and the stream resumes from it on restart.
+// Change streams need a replica set (a single-node one is enough). Deletes carry the removed document only when
+// pre-images are enabled on the collection (changeStreamPreAndPostImages), which the watcher turns on for supplies,
+// demands and atpThresholds when it starts (MongoDB 6.0+, needs the collMod privilege). Where that is not possible, or
+// a pre-image has already expired, the affected item is unknown and the projection is rebuilt instead.
+@Service
+public class ChangeStreamWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+
+    static final String TOKEN_COLLECTION = "changeStreamTokens";
+    static final String TOKEN_ID = "inventory";
+    static final List<String> WATCHED_COLLECTIONS = List.of("supplies", "demands", "atpThresholds", "items", "locations");
+    // Collections whose deletes must be traced back to an item-location
+    static final List<String> PRE_IMAGE_COLLECTIONS = List.of("supplies", "demands", "atpThresholds");
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired
+    public AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    public AvailabilityCache availabilityCache;
+
+    @Autowired
+    public ApplicationEventPublisher eventPublisher;
+
+    @Value("${inventory.change-streams.enabled:false}")
+    private boolean enabled;
+
+    @Value("${inventory.change-streams.enable-pre-images:true}")
+    private boolean enablePreImages = true;
+
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running)
+            return;
+        running = true;
+        Thread thread = new Thread(this::watch, "inventory-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null)
+            current.close();
+    }
+
+    private void watch() {
+        if (enablePreImages)
+            enablePreImages();
+        while (running) {
+            BsonDocument resumeToken = loadResumeToken();
+            ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                    .watch(List.of(Aggregates.match(Filters.in("ns.coll", WATCHED_COLLECTIONS))))
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE);
+            if (resumeToken != null)
+                stream = stream.resumeAfter(resumeToken);
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> changes = stream.cursor()) {
+                cursor = changes;
+                logger.info("Watching inventory collections for changes{}", resumeToken != null ? " from stored resume token" : "");
+                while (running && changes.hasNext()) {
+                    ChangeStreamDocument<Document> change = changes.next();
+                    handle(change.getNamespace() != null ? change.getNamespace().getCollectionName() : null,
+                            change.getOperationType(), change.getFullDocumentBeforeChange(), change.getFullDocument(),
+                            change.getResumeToken());
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    // The oplog no longer reaches back to our token: start over from now and rebuild what we missed
+                    logger.warn("Stored resume token is no longer in the oplog, rebuilding availability state");
+                    mongoTemplate.remove(new Query(Criteria.where("_id").is(TOKEN_ID)), TOKEN_COLLECTION);
+                    scheduleRebuild();
+                } else if (running) {
+                    logger.error("Inventory change stream failed, retrying", e);
+                    pause();
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    logger.error("Inventory change stream failed, retrying", e);
+                    pause();
+                }
+            } finally {
+                cursor = null;
+            }
+        }
+    }
+
+    // Without this a delete on these collections carries only the _id and costs a full rebuild
+    void enablePreImages() {
+        for (String collection : PRE_IMAGE_COLLECTIONS) {
+            try {
+                if (mongoTemplate.collectionExists(collection))
+                    mongoTemplate.getDb().runCommand(new Document("collMod", collection)
+                            .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+                else
+                    mongoTemplate.createCollection(collection, CollectionOptions.empty()
+                            .changeStream(CollectionChangeStreamOptions.preAndPostImages(true)));
+            } catch (RuntimeException e) {
+                logger.warn("Could not enable change stream pre-images on {}, deletes there will rebuild the projection: {}",
+                        collection, e.getMessage());
+            }
+        }
+    }
+
+    // One change: refresh or invalidate whatever it touches, tell listeners, then record that it was handled.
+    // before is the pre-image (when available) and after the current document (none for deletes).
+    void handle(String collection, OperationType operationType, Document before, Document after,
+                BsonDocument resumeToken) {
+        if (collection != null && operationType != null) {
+            Document document = after != null ? after : before;
+            switch (operationType) {
+                case INSERT, UPDATE, REPLACE, DELETE -> apply(collection, operationType, before, after);
+                case DROP, RENAME, DROP_DATABASE -> scheduleRebuild();
+                default -> {
+                }
+            }
+            eventPublisher.publishEvent(new InventoryChangeEvent(collection, operationType.getValue(), document));
+        }
+        saveResumeToken(resumeToken);
+    }
+
+    // An update or replace that moves a record to another item or location changes both the item-location it left
+    // (known from the pre-image) and the one it moved to, so both are refreshed
+    private void apply(String collection, OperationType operationType, Document before, Document after) {
+        boolean stock = collection.equals("supplies") || collection.equals("demands");
+        boolean threshold = collection.equals("atpThresholds");
+        if (!stock && !threshold)
+            return;
+
+        Set<ItemLocationKey> keys = new LinkedHashSet<>();
+        addKey(keys, before);
+        addKey(keys, after);
+        if (keys.isEmpty()) {
+            // Typically a delete without a pre-image: we cannot tell which item it belonged to
+            logger.debug("{} on {} without the affected item, scheduling a rebuild", operationType.getValue(), collection);
+            scheduleRebuild();
+            return;
+        }
+
+        if (stock) {
+            Map<String, Set<String>> locationsByItem = new HashMap<>();
+            keys.forEach(key -> locationsByItem.computeIfAbsent(key.getItemId(), id -> new HashSet<>())
+                    .add(key.getLocationId()));
+            availabilityProjection.refreshItems(locationsByItem);
+        } else {
+            keys.forEach(key -> availabilityProjection.refreshThreshold(key.getItemId(), key.getLocationId()));
+        }
+        keys.forEach(key -> availabilityCache.invalidate(key.getItemId(), key.getLocationId()));
+    }
+
+    private static void addKey(Set<ItemLocationKey> keys, Document document) {
+        String itemId = document != null ? document.getString("itemId") : null;
+        String locationId = document != null ? document.getString("locationId") : null;
+        if (itemId != null && locationId != null)
+            keys.add(new ItemLocationKey(itemId, locationId));
+    }
+
+    // Coalesces bursts of unidentifiable changes into one rebuild
+    private void scheduleRebuild() {
+        if (!rebuildPending.compareAndSet(false, true))
+            return;
+        CompletableFuture.runAsync(() -> {
+            rebuildPending.set(false);
+            if (availabilityProjection.isReady())
+                availabilityProjection.rebuild();
+            availabilityCache.clear();
+        });
+    }
+
+    private BsonDocument loadResumeToken() {
+        Document stored = mongoTemplate.findById(TOKEN_ID, Document.class, TOKEN_COLLECTION);
+        String data = stored != null ? stored.getString("token") : null;
+        return data != null ? new BsonDocument("_data", new BsonString(data)) : null;
+    }
+
+    private void saveResumeToken(BsonDocument resumeToken) {
+        if (resumeToken == null || !resumeToken.containsKey("_data"))
+            return;
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(TOKEN_ID)),
+                new Update().set("token", resumeToken.getString("_data").getValue()).set("updatedAt", new Date()),
+                TOKEN_COLLECTION);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RETRY_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -1,40 +1,130 @@
 package com.App.fullStack.service;
 
+import com.App.fullStack.exception.FoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
 
+// The dashboard totals come from one of four sources (inventory.dashboard.counts):
+// - snapshot (default): the current InventorySnapshot epoch, so they agree with the stacked bar and scatter data read
+//   from the same epoch; counters while there is none.
+// - counters: in-memory counts adjusted by the add/delete paths of the item, location, supply and demand
+//   services and by bulk imports, and reconciled against an exact count on a schedule, which also picks up writes
+//   made by other nodes or directly against Mongo. Until the first reconcile the estimated counts are served.
+// - estimated: the collection metadata count (estimatedDocumentCount), no scan but approximate after unclean shutdowns
+//   and on sharded clusters.
+// - aggregate: the original $group count over each collection.
+// countsMode and countsAsOf in the response say which source answered and how fresh it is.
 @Service
 public class DashboardService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+    // Collection -> key in the dashboard response
+    private static final Map<String, String> TOTALS = new LinkedHashMap<>();
+
+    static {
+        TOTALS.put("items", "totalItems");
+        TOTALS.put("locations", "totalLocations");
+        TOTALS.put("supplies", "totalSupplies");
+        TOTALS.put("demands", "totalDemands");
+    }
+
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Value("${inventory.dashboard.counts:snapshot}")
+    private String countsMode = "snapshot";
+
+    private final Map<String, AtomicLong> counters = new HashMap<>();
+    private volatile Instant reconciledAt;
+
+    public DashboardService() {
+        for (String collectionName : TOTALS.keySet())
+            counters.put(collectionName, new AtomicLong());
+    }
+
     public Map<String, Object> getDashboardData() {
-        Map<String, Object> dashboardData = new HashMap<>();
+        return getDashboardData(null);
+    }
 
-        // Fetch counts for each collection using aggregation
-        long totalItems = getCount("items");
-        long totalLocations = getCount("locations");
-        long totalSupplies = getCount("supplies");
-        long totalDemands = getCount("demands");
+    public Map<String, Object> getDashboardData(InventorySnapshot snapshot) {
+        Map<String, Object> dashboardData = new HashMap<>();
+        String mode = countsMode;
+        if ("snapshot".equals(mode)) {
+            if (snapshot != null) {
+                dashboardData.put("totalItems", (long) snapshot.getItems().size());
+                dashboardData.put("totalLocations", (long) snapshot.getLocations().size());
+                dashboardData.put("totalSupplies", snapshot.getSupplyRecords());
+                dashboardData.put("totalDemands", snapshot.getDemandRecords());
+                dashboardData.put("countsMode", mode);
+                dashboardData.put("countsAsOf", snapshot.getBuiltAt().toString());
+                return dashboardData;
+            }
+            mode = "counters";
+        }
+        Instant asOf = reconciledAt;
+        if ("counters".equals(mode) && asOf == null)
+            mode = "estimated";
+        if (!"counters".equals(mode))
+            asOf = Instant.now();
 
-        // Add counts to the map
-        dashboardData.put("totalItems", totalItems);
-        dashboardData.put("totalLocations", totalLocations);
-        dashboardData.put("totalSupplies", totalSupplies);
-        dashboardData.put("totalDemands", totalDemands);
+        for (Map.Entry<String, String> total : TOTALS.entrySet()) {
+            long count = switch (mode) {
+                case "counters" -> counters.get(total.getKey()).get();
+                case "estimated" -> mongoTemplate.estimatedCount(total.getKey());
+                case "aggregate" -> getCount(total.getKey());
+                default -> throw new FoundException("Invalid dashboard counts mode: " + mode
+                        + ". Expected snapshot, counters, estimated or aggregate.");
+            };
+            dashboardData.put(total.getValue(), count);
+        }
+        dashboardData.put("countsMode", mode);
+        dashboardData.put("countsAsOf", asOf.toString());
 
         return dashboardData;
     }
 
+    // Called after a service-layer insert (positive delta) or delete (negative delta) on one of the counted collections
+    public void adjustCount(String collectionName, long delta) {
+        AtomicLong counter = counters.get(collectionName);
+        if (counter != null)
+            counter.addAndGet(delta);
+    }
+
+    // Replaces each counter with an exact count. Adjustments made while a count runs are kept on top of it, so a write
+    // that the count already saw is counted twice until the next reconcile
+    @Scheduled(fixedDelayString = "${inventory.dashboard.reconcile-interval-ms:300000}")
+    public void reconcileCounters() {
+        if (!"counters".equals(countsMode) && !"snapshot".equals(countsMode))
+            return;
+        try {
+            for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+                long before = counter.getValue().get();
+                long exact = mongoTemplate.count(new Query(), counter.getKey());
+                counter.getValue().addAndGet(exact - before);
+            }
+            reconciledAt = Instant.now();
+        } catch (RuntimeException e) {
+            logger.error("Dashboard counter reconcile failed, keeping the previous counts", e);
+        }
+    }
+
     long getCount(String collectionName) {
         // Aggregation pipeline to count documents in the collection
         Aggregation aggregation = Aggregation.newAggregation(
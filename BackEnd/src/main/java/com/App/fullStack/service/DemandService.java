@@ -4,18 +4,28 @@ import com.App.fullStack.dto.DemandDetailsResponse;
 import com.App.fullStack.dto.DemandSummaryResponse;
 import com.App.fullStack.dto.DemandDTO;
 import com.App.fullStack.dto.SupplyDTO;
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.dto.StockFilter;
 import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.*;
 import com.App.fullStack.repositories.DemandRepository;
 import com.App.fullStack.repositories.ItemRepository;
 import com.App.fullStack.repositories.LocationRepository;
+import com.App.fullStack.utility.CursorPager;
 import com.App.fullStack.utility.ItemAndLocationIDChecker;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -36,6 +46,23 @@ public class DemandService {
     private ItemService itemService;
     @Autowired
     private LocationService locationService;
+    @Autowired
+    private AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired
+    public CursorPager cursorPager;
+
+    @Autowired
+    public KeywordIdResolver keywordIdResolver;
+
+    @Autowired
+    public DashboardService dashboardService;
 
     public Page<Demand> getAllDemands(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
@@ -84,32 +111,86 @@ public class DemandService {
 
     public Demand addDemand(Demand demand) {
 
-        if (demandRepository.existsByItemIdAndLocationIdAndDemandType(demand.getItemId(), demand.getLocationId(),
-                demand.getDemandType()))
+        itemAndLocationIDChecker.validateItemAndLocationID(demand.getItemId(), demand.getLocationId());
+
+        // The unique (itemId, locationId, demandType) index rejects duplicates, concurrent ones included
+        Demand savedDemand;
+        try {
+            savedDemand = demandRepository.insert(demand);
+        } catch (DuplicateKeyException e) {
             throw new FoundException("Demands with itemId: " + demand.getItemId() + ", locationId: "
                     + demand.getLocationId() + " and demandType: " + demand.getDemandType() + " already exists.");
+        }
+        availabilityProjection.applyDemand(demand.getItemId(), demand.getLocationId(), demand.getDemandType(),
+                demand.getQuantity(), 1);
+        availabilityCache.invalidate(demand.getItemId(), demand.getLocationId());
+        dashboardService.adjustCount("demands", 1);
+        return savedDemand;
+    }
 
-        itemAndLocationIDChecker.validateItemAndLocationID(demand.getItemId(), demand.getLocationId());
+    // Sets the quantity in one findAndModify that returns the replaced document, so the projection delta is taken from
+    // the quantity the $set actually overwrote, even when an adjustment lands concurrently
+    public Demand updateDemand(String demandId, Demand demandDetails) {
+        Demand previous = mongoTemplate.findAndModify(new Query(Criteria.where("demandId").is(demandId)),
+                new Update().set("quantity", demandDetails.getQuantity()),
+                FindAndModifyOptions.options().returnNew(false), Demand.class);
+        if (previous == null)
+            throw new FoundException("Demand with demandId " + demandId + " not found.");
+
+        availabilityProjection.applyDemand(previous.getItemId(), previous.getLocationId(), previous.getDemandType(),
+                demandDetails.getQuantity() - previous.getQuantity(), 0);
+        availabilityCache.invalidate(previous.getItemId(), previous.getLocationId());
+        previous.setQuantity(demandDetails.getQuantity());
+        return previous;
+    }
 
-        return demandRepository.save(demand);
+    // Adds delta to the quantity in one findAndModify, so concurrent adjustments of the same demand never overwrite
+    // each other. A decrement that would take the quantity below zero matches nothing and is rejected.
+    public Demand adjustDemand(String demandId, int delta) {
+        return adjustQuantity(Criteria.where("demandId").is(demandId), delta,
+                "Demand with demandId " + demandId + " not found.");
     }
 
-    public Demand updateDemand(String demandId, Demand demandDetails) {
-        Optional<Demand> existingDemand = demandRepository.findByDemandId(demandId);
-        if (existingDemand.isPresent()) {
-            Demand demand = existingDemand.get();
-            demand.setQuantity(demandDetails.getQuantity());
-            return demandRepository.save(demand);
+    public Demand adjustDemand(String itemId, String locationId, DemandType demandType, int delta) {
+        return adjustQuantity(Criteria.where("itemId").is(itemId).and("locationId").is(locationId)
+                        .and("demandType").is(demandType), delta,
+                "Demands with itemId: " + itemId + ", locationId: " + locationId + " and demandType: " + demandType
+                        + " not found.");
+    }
+
+    private Demand adjustQuantity(Criteria target, int delta, String notFoundMessage) {
+        if (delta == 0)
+            throw new FoundException("Invalid quantity adjustment");
+
+        Query guarded = new Query(target);
+        if (delta < 0)
+            guarded.addCriteria(Criteria.where("quantity").gte(-delta));
+        Demand adjusted = mongoTemplate.findAndModify(guarded, new Update().inc("quantity", delta),
+                FindAndModifyOptions.options().returnNew(true), Demand.class);
+
+        if (adjusted == null) {
+            // Only the failure path pays for a second read, to tell a missing record from the guard
+            if (delta < 0 && mongoTemplate.exists(new Query(target), Demand.class))
+                throw new FoundException("Insufficient quantity: cannot remove " + -delta + ".");
+            throw new FoundException(notFoundMessage);
         }
-        throw new FoundException("Demand with demandId " + demandId + " not found.");
+
+        availabilityProjection.applyDemand(adjusted.getItemId(), adjusted.getLocationId(), adjusted.getDemandType(),
+                delta, 0);
+        availabilityCache.invalidate(adjusted.getItemId(), adjusted.getLocationId());
+        return adjusted;
     }
 
     public String deleteDemand(String demandId) {
 
-        Optional<Demand> demand = demandRepository.findByDemandId(demandId);
+        // Removing and reading in one call means two concurrent deletes can't both subtract the quantity.
+        Demand demand = mongoTemplate.findAndRemove(new Query(Criteria.where("demandId").is(demandId)), Demand.class);
 
-        if (demand.isPresent()) {
-            demandRepository.delete(demand.get());
+        if (demand != null) {
+            availabilityProjection.applyDemand(demand.getItemId(), demand.getLocationId(),
+                    demand.getDemandType(), -demand.getQuantity(), -1);
+            availabilityCache.invalidate(demand.getItemId(), demand.getLocationId());
+            dashboardService.adjustCount("demands", -1);
             return "Demand deleted successfully";
         }
         throw new FoundException("Demand with demandId " + demandId + " not found.");
@@ -173,19 +254,75 @@ public class DemandService {
         }
     }
 
+    // Keyset variant of the method above for deep paging: follows _id instead of skipping, and only counts when
+    // total is "exact" or "estimated"
+    public CursorPage<DemandDTO> getDemandsWithDetailsAfter(String cursor, int size, String search, String searchBy,
+                                                              String total) {
+        CursorPage<Demand> demands = cursorPager.page(demandSearchCriteria(search, searchBy), Demand.class,
+                Demand::getDemandId, cursor, size, total);
+        if (demands.getContent().isEmpty())
+            throw new FoundException("Demands not found.");
+        return demands.withContent(addAlldemandDetails(demands.getContent()));
+    }
+
+    // Any combination of item keyword, location keyword, demandType and quantity range as one query, which the
+    // item_location_demandType, location_demandType and demandType_quantity indexes serve
+    public Page<DemandDTO> filterDemandsWithDetails(StockFilter filter, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        List<Criteria> criteria = keywordIdResolver.filterCriteria(filter);
+        if (filter.getType() != null && !filter.getType().isBlank()) {
+            try {
+                criteria.add(Criteria.where("demandType").is(DemandType.valueOf(filter.getType().trim().toUpperCase())));
+            } catch (IllegalArgumentException e) {
+                throw new FoundException("Invalid demandType: " + filter.getType() + ".");
+            }
+        }
+        Query query = criteria.isEmpty() ? new Query() : new Query(new Criteria().andOperator(criteria));
+
+        List<Demand> demands = mongoTemplate.find(Query.of(query).with(pageable), Demand.class);
+        if (demands.isEmpty())
+            throw new FoundException("Demands not found.");
+        // Counts only when the page does not already tell the total
+        Page<Demand> demandPage = PageableExecutionUtils.getPage(demands, pageable,
+                () -> mongoTemplate.count(query, Demand.class));
+        return new PageImpl<>(addAlldemandDetails(demands), pageable, demandPage.getTotalElements());
+    }
+
+    // Same search as getAllDemandWithDetails as a filter; null without a search
+    private Criteria demandSearchCriteria(String search, String searchBy) {
+        if (search == null || search.trim().isEmpty())
+            return null;
+        if (Objects.equals(searchBy, "item"))
+            return Criteria.where("itemId").in(itemRepository.searchItemIdsByKeywordGetIds(search).stream()
+                    .map(Item::getItemId).toList());
+        if (Objects.equals(searchBy, "location"))
+            return Criteria.where("locationId").in(locationRepository.searchLocationIdsByKeywordGetIds(search).stream()
+                    .map(Location::getLocationId).toList());
+        if (Objects.equals(searchBy, "demandType"))
+            return Criteria.where("demandType").regex(search, "i");
+        throw new FoundException("Invalid searchBy: " + searchBy + ". Expected item, location or demandType.");
+    }
+
     public List<DemandDTO> addAlldemandDetails(List<Demand> demands) {
         // Convert Demand to DemandDTO
         List<DemandDTO> demandDTOs = new ArrayList<>();
+        // One query per collection for the whole page instead of two per row
+        Set<String> itemIds = new HashSet<>();
+        Set<String> locationIds = new HashSet<>();
         for (Demand demand : demands) {
-            Item item = itemService.getItemByItemIdWithOutException(demand.getItemId());
-            Location location = locationService.getLocationByIdWithoutException(demand.getLocationId());
+            itemIds.add(demand.getItemId());
+            locationIds.add(demand.getLocationId());
+        }
+        Map<String, String> itemDescriptions = itemService.getItemDescriptions(itemIds);
+        Map<String, String> locationDescriptions = locationService.getLocationDescriptions(locationIds);
 
+        for (Demand demand : demands) {
             DemandDTO demandDTO = new DemandDTO(
                     demand.getDemandId(),
                     demand.getItemId(),
-                    item != null ? item.getItemDescription() : null,
+                    itemDescriptions.get(demand.getItemId()),
                     demand.getLocationId(),
-                    location != null ? location.getLocationDesc() : null,
+                    locationDescriptions.get(demand.getLocationId()),
                     demand.getDemandType(),
                     demand.getQuantity()
             );
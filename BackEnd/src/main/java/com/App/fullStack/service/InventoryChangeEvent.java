@@ -0,0 +1,16 @@
+package com.App.fullStack.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bson.Document;
+
+// A change observed on one of the inventory collections by the ChangeStreamWatcher, published so any in-memory
+// state can react to writes made by other nodes or directly against Mongo.
+@Getter
+@AllArgsConstructor
+public class InventoryChangeEvent {
+    private final String collection;
+    private final String operationType;
+    // Document after the change, or before it for deletes; null when Mongo could not provide either
+    private final Document document;
+}
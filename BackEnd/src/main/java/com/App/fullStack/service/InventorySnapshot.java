@@ -0,0 +1,112 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.SupplyType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+// One epoch of the analytics data: supply/demand totals per item-location, rolled up per item and per location, with
+// the item and location catalogs read right after. Never modified once built, so readers share it without locking and
+// every figure they take from one instance agrees with the others.
+public final class InventorySnapshot {
+
+    private static final Set<SupplyType> ALL_SUPPLY = EnumSet.allOf(SupplyType.class);
+    private static final Set<DemandType> ALL_DEMAND = EnumSet.allOf(DemandType.class);
+
+    private final long epoch;
+    private final Instant builtAt;
+    private final long projectionVersion;
+    private final Map<ItemLocationKey, StockTotals> byItemAndLocation;
+    private final Map<String, StockTotals> byItem;
+    private final Map<String, StockTotals> byLocation;
+    private final Map<String, Item> items;
+    private final NavigableMap<String, String> locations;
+    private final long supplyRecords;
+    private final long demandRecords;
+
+    // locations maps locationId to locationDesc, sorted by locationId; the maps are not copied and must not be
+    // modified afterwards
+    public InventorySnapshot(long epoch, Instant builtAt, long projectionVersion,
+                      Map<ItemLocationKey, StockTotals> byItemAndLocation, Map<String, Item> items,
+                      NavigableMap<String, String> locations) {
+        this.epoch = epoch;
+        this.builtAt = builtAt;
+        this.projectionVersion = projectionVersion;
+        this.byItemAndLocation = Collections.unmodifiableMap(byItemAndLocation);
+        this.items = Collections.unmodifiableMap(items);
+        this.locations = Collections.unmodifiableNavigableMap(locations);
+
+        Map<String, StockTotals> itemTotals = new HashMap<>();
+        Map<String, StockTotals> locationTotals = new HashMap<>();
+        long supplies = 0;
+        long demands = 0;
+        for (Map.Entry<ItemLocationKey, StockTotals> entry : byItemAndLocation.entrySet()) {
+            itemTotals.merge(entry.getKey().getItemId(), entry.getValue(), StockTotals::plus);
+            locationTotals.merge(entry.getKey().getLocationId(), entry.getValue(), StockTotals::plus);
+            supplies += entry.getValue().getRecordCount(ALL_SUPPLY, Set.of());
+            demands += entry.getValue().getRecordCount(Set.of(), ALL_DEMAND);
+        }
+        this.byItem = Collections.unmodifiableMap(itemTotals);
+        this.byLocation = Collections.unmodifiableMap(locationTotals);
+        this.supplyRecords = supplies;
+        this.demandRecords = demands;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public long getAgeMillis() {
+        return Duration.between(builtAt, Instant.now()).toMillis();
+    }
+
+    // AvailabilityProjection.getVersion() at the moment the totals were cut
+    public long getProjectionVersion() {
+        return projectionVersion;
+    }
+
+    public StockTotals getTotals(String itemId, String locationId) {
+        return byItemAndLocation.get(new ItemLocationKey(itemId, locationId));
+    }
+
+    public StockTotals getItemTotals(String itemId) {
+        return byItem.get(itemId);
+    }
+
+    public StockTotals getLocationTotals(String locationId) {
+        return byLocation.get(locationId);
+    }
+
+    public Map<String, StockTotals> getLocationTotals() {
+        return byLocation;
+    }
+
+    // itemId -> item with itemId, itemDescription and price only
+    public Map<String, Item> getItems() {
+        return items;
+    }
+
+    public NavigableMap<String, String> getLocations() {
+        return locations;
+    }
+
+    public long getSupplyRecords() {
+        return supplyRecords;
+    }
+
+    public long getDemandRecords() {
+        return demandRecords;
+    }
+}
@@ -0,0 +1,111 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Builds the InventorySnapshot the analytics endpoints (dashboard totals, stacked bar and scatter data) read, so one
+// page load sees a single epoch instead of three independent live reads, and the heavy work is done once per epoch
+// instead of once per request. The totals are cut from the AvailabilityProjection with writes held off for the copy;
+// the item and location catalogs are read from Mongo right after. A new epoch is built in the background when the
+// current one is older than max-age-ms or when change-threshold writes have been applied since it was cut. Readers
+// take current() once per request (a volatile read) and report its epoch and age with the response; until the
+// projection is ready there is no snapshot and the endpoints read Mongo as before.
+@Service
+public class InventorySnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySnapshotService.class);
+
+    public static final String EPOCH_HEADER = "X-Snapshot-Epoch";
+    public static final String AGE_HEADER = "X-Snapshot-Age-Ms";
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired
+    public AvailabilityProjection availabilityProjection;
+
+    @Value("${inventory.snapshot.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${inventory.snapshot.max-age-ms:60000}")
+    private long maxAgeMs = 60000;
+
+    @Value("${inventory.snapshot.change-threshold:500}")
+    private long changeThreshold = 500;
+
+    private final AtomicLong epochs = new AtomicLong();
+    private volatile InventorySnapshot current;
+
+    // The latest epoch, or null when the endpoints have to read live data
+    public InventorySnapshot current() {
+        return enabled ? current : null;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.snapshot.check-interval-ms:1000}")
+    public void refreshIfStale() {
+        if (!enabled || !availabilityProjection.isReady())
+            return;
+        InventorySnapshot snapshot = current;
+        if (snapshot == null || snapshot.getAgeMillis() >= maxAgeMs
+                || availabilityProjection.getVersion() - snapshot.getProjectionVersion() >= changeThreshold) {
+            try {
+                build();
+            } catch (RuntimeException e) {
+                logger.error("Inventory snapshot build failed, keeping epoch {}",
+                        snapshot != null ? snapshot.getEpoch() : "none", e);
+            }
+        }
+    }
+
+    public synchronized InventorySnapshot build() {
+        AvailabilityProjection.TotalsCut cut = availabilityProjection.cutTotals();
+
+        Map<String, Item> items = new HashMap<>();
+        Query itemQuery = new Query();
+        itemQuery.fields().include("itemId", "itemDescription", "price");
+        try (Stream<Item> stream = mongoTemplate.stream(itemQuery, Item.class)) {
+            stream.filter(item -> item.getItemId() != null).forEach(item -> items.put(item.getItemId(), item));
+        }
+        TreeMap<String, String> locations = new TreeMap<>();
+        Query locationQuery = new Query();
+        locationQuery.fields().include("locationId", "locationDesc");
+        try (Stream<Location> stream = mongoTemplate.stream(locationQuery, Location.class)) {
+            stream.filter(location -> location.getLocationId() != null)
+                    .forEach(location -> locations.put(location.getLocationId(), location.getLocationDesc()));
+        }
+
+        InventorySnapshot snapshot = new InventorySnapshot(epochs.incrementAndGet(), Instant.now(), cut.version(),
+                cut.byLocation(), items, locations);
+        current = snapshot;
+        logger.debug("Inventory snapshot epoch {} built with {} item-locations, {} items and {} locations",
+                snapshot.getEpoch(), cut.byLocation().size(), items.size(), locations.size());
+        return snapshot;
+    }
+
+    // Adds the epoch and age of the snapshot a response was computed from; unchanged for live responses
+    public static <T> ResponseEntity<T> withSnapshotHeaders(ResponseEntity<T> response, InventorySnapshot snapshot) {
+        if (snapshot == null)
+            return response;
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(EPOCH_HEADER, String.valueOf(snapshot.getEpoch()))
+                .header(AGE_HEADER, String.valueOf(snapshot.getAgeMillis()))
+                .body(response.getBody());
+    }
+}
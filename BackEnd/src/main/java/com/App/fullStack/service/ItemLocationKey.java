@@ -0,0 +1,10 @@
+package com.App.fullStack.service;
+
+import lombok.Value;
+
+// Map key for anything tracked per item-location pair
+@Value
+public class ItemLocationKey {
+    String itemId;
+    String locationId;
+}
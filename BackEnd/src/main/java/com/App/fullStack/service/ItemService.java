@@ -1,17 +1,27 @@
 package com.App.fullStack.service;
 
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.dto.ItemSearchCriteria;
 import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.Item;
 import com.App.fullStack.repositories.DemandRepository;
 import com.App.fullStack.repositories.ItemRepository;
 import com.App.fullStack.repositories.SupplyRepository;
+import com.App.fullStack.utility.CursorPager;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.List;
 
@@ -28,6 +38,21 @@ public class ItemService {
     @Autowired
     public DemandRepository demandRepository;
 
+    @Autowired
+    public CursorPager cursorPager;
+
+    @Autowired
+    public TypeaheadIndex typeaheadIndex;
+
+    @Autowired
+    public KeywordIdResolver keywordIdResolver;
+
+    @Autowired
+    public DashboardService dashboardService;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
     public Page<Item> getAllItems(int page, int size, String keyword) {
         Pageable pageable = PageRequest.of(page, size);
 
@@ -38,6 +63,66 @@ public class ItemService {
         }
     }
 
+    // Keyset variant of getAllItems: follows _id instead of skipping, and only counts when total is "exact" or
+    // "estimated"
+    public CursorPage<Item> getItemsAfter(String cursor, int size, String keyword, String total) {
+        Criteria filter = keyword != null && !keyword.isEmpty() ? keywordCriteria(keyword) : null;
+        return cursorPager.page(filter, Item.class, Item::getId, cursor, size, total);
+    }
+
+    // Structured search: each typed filter becomes a criterion the item indexes can serve (equality on status and the
+    // fulfillment flags, an anchored case-sensitive prefix on category and type, a range on price). The keyword only
+    // matches text fields. The count runs only when the page is full or not the first one.
+    public Page<Item> searchItems(ItemSearchCriteria criteria, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        Query query = new Query().with(pageable);
+
+        if (criteria.getStatus() != null)
+            query.addCriteria(Criteria.where("status").is(criteria.getStatus()));
+        if (criteria.getCategoryPrefix() != null && !criteria.getCategoryPrefix().isEmpty())
+            query.addCriteria(Criteria.where("category").regex("^" + escapeRegex(criteria.getCategoryPrefix())));
+        if (criteria.getTypePrefix() != null && !criteria.getTypePrefix().isEmpty())
+            query.addCriteria(Criteria.where("type").regex("^" + escapeRegex(criteria.getTypePrefix())));
+        if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+            if (criteria.getMinPrice() != null && criteria.getMaxPrice() != null
+                    && criteria.getMinPrice() > criteria.getMaxPrice())
+                throw new FoundException("Invalid price range: minPrice is greater than maxPrice.");
+            Criteria price = Criteria.where("price");
+            if (criteria.getMinPrice() != null)
+                price.gte(criteria.getMinPrice());
+            if (criteria.getMaxPrice() != null)
+                price.lte(criteria.getMaxPrice());
+            query.addCriteria(price);
+        }
+        if (criteria.getPickupAllowed() != null)
+            query.addCriteria(Criteria.where("pickupAllowed").is(criteria.getPickupAllowed()));
+        if (criteria.getShippingAllowed() != null)
+            query.addCriteria(Criteria.where("shippingAllowed").is(criteria.getShippingAllowed()));
+        if (criteria.getDeliveryAllowed() != null)
+            query.addCriteria(Criteria.where("deliveryAllowed").is(criteria.getDeliveryAllowed()));
+        if (criteria.getKeyword() != null && !criteria.getKeyword().isEmpty())
+            query.addCriteria(keywordCriteria(criteria.getKeyword()));
+
+        List<Item> items = mongoTemplate.find(query, Item.class);
+        return PageableExecutionUtils.getPage(items, pageable,
+                () -> mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Item.class));
+    }
+
+    // Same text fields as ItemRepository.searchItemsByKeyword
+    private static Criteria keywordCriteria(String keyword) {
+        return new Criteria().orOperator(
+                Criteria.where("itemId").regex(keyword, "i"),
+                Criteria.where("itemDescription").regex(keyword, "i"),
+                Criteria.where("category").regex(keyword, "i"),
+                Criteria.where("type").regex(keyword, "i"),
+                Criteria.where("status").regex(keyword, "i"));
+    }
+
+    // A literal prefix, so "^" + prefix stays a simple index range for Mongo
+    private static String escapeRegex(String value) {
+        return value.replaceAll("[\\\\^$.|?*+()\\[\\]{}]", "\\\\$0");
+    }
+
     public Item getItemByItemId(String itemId) {
         Optional<Item> existingItem = itemRepository.findByItemId(itemId);
 
@@ -55,7 +140,11 @@ public class ItemService {
             throw new FoundException("Item with itemId " + item.getItemId() + " already exists.");
 
         // If the itemId does not exist, save the new item
-        return itemRepository.save(item);
+        Item savedItem = itemRepository.save(item);
+        typeaheadIndex.putItem(savedItem);
+        keywordIdResolver.invalidateItems();
+        dashboardService.adjustCount("items", 1);
+        return savedItem;
     }
 
     public Item updateItem(String itemId, Item itemDetails) {
@@ -83,7 +172,10 @@ public class ItemService {
             item.setPickupAllowed(itemDetails.isPickupAllowed());
             item.setShippingAllowed(itemDetails.isShippingAllowed());
             item.setDeliveryAllowed(itemDetails.isDeliveryAllowed());
-            return itemRepository.save(item);
+            Item savedItem = itemRepository.save(item);
+            typeaheadIndex.putItem(savedItem);
+            keywordIdResolver.invalidateItems();
+            return savedItem;
         }
 
         throw new FoundException("Item with itemId " + itemId + " not exist.");
@@ -98,6 +190,9 @@ public class ItemService {
         if (itemRepository.existsByItemId(itemId)) {
             // If no supply or demand exists, delete the item
             itemRepository.deleteByItemId(itemId);
+            typeaheadIndex.removeItem(itemId);
+            keywordIdResolver.invalidateItems();
+            dashboardService.adjustCount("items", -1);
             return "Item deleted successfully.";
         }
 
@@ -109,7 +204,9 @@ public class ItemService {
         Pageable pageable = PageRequest.of(page, size);
 
         if (search != null && !search.isEmpty()) {
-            return itemRepository.searchItemIdsByKeyword(search, pageable);
+            // Prefix suggestions from memory once loaded; Mongo's regex scan otherwise
+            return typeaheadIndex.suggestItems(search, page, size)
+                    .orElseGet(() -> itemRepository.searchItemIdsByKeyword(search, pageable));
         } else {
             return itemRepository.findDistinctItemIds(pageable);
         }
@@ -123,4 +220,14 @@ public class ItemService {
         else
             return null;
     }
+
+    // itemId -> itemDescription for all the given IDs in one query; unknown IDs are absent from the map
+    public Map<String, String> getItemDescriptions(Collection<String> itemIds) {
+        Map<String, String> descriptions = new HashMap<>();
+        if (itemIds.isEmpty())
+            return descriptions;
+        for (Item item : itemRepository.findDescriptionsByItemIdIn(itemIds))
+            descriptions.put(item.getItemId(), item.getItemDescription());
+        return descriptions;
+    }
 }
@@ -0,0 +1,154 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockFilter;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Turns the item and location keywords of the supply, demand and threshold filters into the ids they match (same
+// matching as searchItemIdsByKeywordGetIds / searchLocationIdsByKeywordGetIds), so the listing itself is a single
+// indexed query on itemId / locationId. A keyword matching more than max-ids ids is rejected instead of producing a
+// huge $in. Results are cached per keyword (LRU, with a TTL); item and location writes through the services or seen
+// by the change stream clear the affected side.
+@Service
+public class KeywordIdResolver {
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Value("${inventory.keyword-filter.max-ids:1000}")
+    private int maxIds = 1000;
+
+    @Value("${inventory.keyword-filter.cache-size:500}")
+    private int cacheSize = 500;
+
+    @Value("${inventory.keyword-filter.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    private final Map<String, CachedIds> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Bumped by every invalidation; ids loaded while one happened are returned but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public List<String> itemIds(String keyword) {
+        return resolve(Kind.ITEM, keyword);
+    }
+
+    public List<String> locationIds(String keyword) {
+        return resolve(Kind.LOCATION, keyword);
+    }
+
+    // itemId / locationId / quantity conditions of a filter, to be combined with the collection's own; a keyword that
+    // matches nothing gives an empty $in, which the index answers without reading a document
+    public List<Criteria> filterCriteria(StockFilter filter) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (filter.getItemKeyword() != null && !filter.getItemKeyword().isBlank())
+            criteria.add(Criteria.where("itemId").in(itemIds(filter.getItemKeyword().trim())));
+        if (filter.getLocationKeyword() != null && !filter.getLocationKeyword().isBlank())
+            criteria.add(Criteria.where("locationId").in(locationIds(filter.getLocationKeyword().trim())));
+        if (filter.getMinQuantity() != null && filter.getMaxQuantity() != null
+                && filter.getMinQuantity() > filter.getMaxQuantity())
+            throw new FoundException("Invalid quantity range: minQuantity is greater than maxQuantity.");
+        if (filter.getMinQuantity() != null || filter.getMaxQuantity() != null) {
+            Criteria quantity = Criteria.where("quantity");
+            if (filter.getMinQuantity() != null)
+                quantity.gte(filter.getMinQuantity());
+            if (filter.getMaxQuantity() != null)
+                quantity.lte(filter.getMaxQuantity());
+            criteria.add(quantity);
+        }
+        return criteria;
+    }
+
+    public void invalidateItems() {
+        invalidate(Kind.ITEM);
+    }
+
+    public void invalidateLocations() {
+        invalidate(Kind.LOCATION);
+    }
+
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent event) {
+        if ("items".equals(event.getCollection()))
+            invalidateItems();
+        else if ("locations".equals(event.getCollection()))
+            invalidateLocations();
+    }
+
+    private List<String> resolve(Kind kind, String keyword) {
+        String key = kind.name() + '\u0000' + keyword;
+        long now = System.nanoTime();
+        synchronized (cache) {
+            CachedIds cached = cache.get(key);
+            if (cached != null && cached.expiresAt - now > 0)
+                return cached.ids;
+        }
+
+        long startGeneration = generation.get();
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where(kind.idField).regex(keyword, "i"),
+                Criteria.where(kind.descriptionField).regex(keyword, "i"))).limit(maxIds + 1);
+        query.fields().include(kind.idField).exclude("_id");
+        List<String> ids = new ArrayList<>();
+        for (Object entity : mongoTemplate.find(query, kind.entityClass))
+            ids.add(kind == Kind.ITEM ? ((Item) entity).getItemId() : ((Location) entity).getLocationId());
+        if (ids.size() > maxIds)
+            throw new FoundException((kind == Kind.ITEM ? "Item" : "Location") + " keyword " + keyword
+                    + " matches more than " + maxIds + " records, please refine it.");
+
+        List<String> result = List.copyOf(ids);
+        synchronized (cache) {
+            if (generation.get() == startGeneration) {
+                cache.put(key, new CachedIds(result, now + ttlSeconds * 1_000_000_000L));
+                if (cache.size() > cacheSize)
+                    cache.remove(cache.keySet().iterator().next());
+            }
+        }
+        return result;
+    }
+
+    private void invalidate(Kind kind) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.keySet().removeIf(key -> key.startsWith(kind.name() + '\u0000'));
+        }
+    }
+
+    int cachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private enum Kind {
+        ITEM(Item.class, "itemId", "itemDescription"),
+        LOCATION(Location.class, "locationId", "locationDesc");
+
+        private final Class<?> entityClass;
+        private final String idField;
+        private final String descriptionField;
+
+        Kind(Class<?> entityClass, String idField, String descriptionField) {
+            this.entityClass = entityClass;
+            this.idField = idField;
+            this.descriptionField = descriptionField;
+        }
+    }
+
+    private record CachedIds(List<String> ids, long expiresAt) {
+    }
+}
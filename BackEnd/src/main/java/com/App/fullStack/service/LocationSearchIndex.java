@@ -0,0 +1,259 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.Location;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// In-memory keyword search over the searchable Location fields, replacing the ten unanchored case-insensitive
+// $regex clauses of LocationRepository.searchLocationsByKeyword, which no Mongo index can serve. Field values are
+// lower-cased and every distinct trigram of them is posted to the locations containing it: a keyword of three or
+// more characters is looked up as the intersection of its trigrams' postings and then confirmed with a substring
+// check, shorter keywords scan the (in-memory) field values. Matches are the same as the regex for plain keywords,
+// ranked by field (locationId and description first) and by how well the field matches (whole value, start of a
+// word, anywhere). Keywords with regex syntax, and any search before the startup load finished, go to Mongo.
+@Service
+public class LocationSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationSearchIndex.class);
+    private static final int GRAM = 3;
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+    private static final Pattern REGEX_SYNTAX = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+    // Ranking weight per searched field, in the order of LocationRepository.searchLocationsByKeyword: locationId,
+    // locationDesc, locationType, addressLine1-3, city, state, country, pinCode
+    private static final int[] WEIGHTS = {10, 8, 3, 2, 2, 2, 5, 4, 4, 3};
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Value("${inventory.location-search.enabled:true}")
+    private boolean enabled = true;
+
+    private Map<String, IndexedLocation> locations = new HashMap<>();
+    private Map<String, Set<String>> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    // Location writes are rare next to searches, so writers simply take the lock exclusively
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled)
+            CompletableFuture.runAsync(this::rebuild);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Ranked page of matching locations, or empty when the search has to go to Mongo instead
+    public Optional<Page<Location>> search(String keyword, int page, int size) {
+        if (!ready || REGEX_SYNTAX.matcher(keyword).find())
+            return Optional.empty();
+        String normalized = keyword.toLowerCase(Locale.ROOT);
+
+        List<ScoredLocation> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (IndexedLocation candidate : candidates(normalized)) {
+                int score = candidate.score(normalized);
+                if (score > 0)
+                    matches.add(new ScoredLocation(candidate.location, score));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(ScoredLocation::score).reversed()
+                .thenComparing(match -> match.location().getLocationId(), Comparator.nullsLast(Comparator.naturalOrder())));
+
+        PageRequest pageable = PageRequest.of(page, size);
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + size, matches.size());
+        List<Location> content = matches.subList(from, to).stream().map(ScoredLocation::location).toList();
+        return Optional.of(new PageImpl<>(content, pageable, matches.size()));
+    }
+
+    // Called by LocationService after each write
+    public void put(Location location) {
+        if (location == null || location.getLocationId() == null)
+            return;
+        lock.writeLock().lock();
+        try {
+            version.incrementAndGet();
+            unpost(locations.remove(location.getLocationId()), postings);
+            IndexedLocation indexed = new IndexedLocation(location);
+            locations.put(location.getLocationId(), indexed);
+            post(indexed, postings);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String locationId) {
+        lock.writeLock().lock();
+        try {
+            version.incrementAndGet();
+            unpost(locations.remove(locationId), postings);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Keeps the index in step with writes made by other nodes or directly against Mongo
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent event) {
+        if (!enabled || !"locations".equals(event.getCollection()))
+            return;
+        Document document = event.getDocument();
+        if (document == null) {
+            // A delete without a pre-image: the removed location is unknown
+            CompletableFuture.runAsync(this::rebuild);
+        } else if ("delete".equals(event.getOperationType())) {
+            remove(document.getString("locationId"));
+        } else {
+            put(mongoTemplate.getConverter().read(Location.class, document));
+        }
+    }
+
+    // Full load from Mongo, retried when a write was applied while the collection was being read (it may or may not
+    // be part of what was read)
+    public synchronized void rebuild() {
+        try {
+            for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+                long startVersion = version.get();
+                Map<String, IndexedLocation> newLocations = new HashMap<>();
+                Map<String, Set<String>> newPostings = new HashMap<>();
+                try (Stream<Location> stream = mongoTemplate.stream(new Query(), Location.class)) {
+                    stream.filter(location -> location.getLocationId() != null).forEach(location -> {
+                        IndexedLocation indexed = new IndexedLocation(location);
+                        newLocations.put(location.getLocationId(), indexed);
+                        post(indexed, newPostings);
+                    });
+                }
+
+                lock.writeLock().lock();
+                try {
+                    if (version.get() == startVersion) {
+                        locations = newLocations;
+                        postings = newPostings;
+                        ready = true;
+                        logger.info("Location search index built with {} locations and {} trigrams",
+                                newLocations.size(), newPostings.size());
+                        return;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                logger.info("Location writes arrived during search index build, retrying (attempt {})", attempt);
+            }
+            logger.warn("Location search index not published, writes kept arriving during {} attempts",
+                    MAX_REBUILD_ATTEMPTS);
+        } catch (RuntimeException e) {
+            logger.error("Location search index build failed, location search will use Mongo", e);
+        }
+    }
+
+    private Collection<IndexedLocation> candidates(String keyword) {
+        if (keyword.length() < GRAM)
+            return locations.values();
+        // Start from the rarest trigram so the intersection stays small
+        List<Set<String>> lists = new ArrayList<>();
+        for (String gram : grams(keyword)) {
+            Set<String> posting = postings.get(gram);
+            if (posting == null)
+                return List.of();
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<IndexedLocation> candidates = new ArrayList<>();
+        for (String locationId : lists.get(0))
+            if (lists.stream().allMatch(posting -> posting.contains(locationId)))
+                candidates.add(locations.get(locationId));
+        return candidates;
+    }
+
+    private static void post(IndexedLocation indexed, Map<String, Set<String>> postings) {
+        for (String gram : indexed.grams())
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(indexed.location.getLocationId());
+    }
+
+    private static void unpost(IndexedLocation indexed, Map<String, Set<String>> postings) {
+        if (indexed == null)
+            return;
+        for (String gram : indexed.grams()) {
+            Set<String> posting = postings.get(gram);
+            if (posting != null && posting.remove(indexed.location.getLocationId()) && posting.isEmpty())
+                postings.remove(gram);
+        }
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++)
+            grams.add(value.substring(i, i + GRAM));
+        return grams;
+    }
+
+    private record ScoredLocation(Location location, int score) {
+    }
+
+    // A location with its searchable fields lower-cased, in WEIGHTS order (null where the field is empty)
+    private static class IndexedLocation {
+        private final Location location;
+        private final String[] values;
+
+        private IndexedLocation(Location location) {
+            this.location = location;
+            Object[] raw = {location.getLocationId(), location.getLocationDesc(), location.getLocationType(),
+                    location.getAddressLine1(), location.getAddressLine2(), location.getAddressLine3(),
+                    location.getCity(), location.getState(), location.getCountry(), location.getPinCode()};
+            values = new String[raw.length];
+            for (int i = 0; i < raw.length; i++)
+                values[i] = raw[i] == null ? null : raw[i].toString().toLowerCase(Locale.ROOT);
+        }
+
+        private Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            for (String value : values)
+                if (value != null)
+                    grams.addAll(LocationSearchIndex.grams(value));
+            return grams;
+        }
+
+        // 0 when no field contains the keyword; otherwise the weighted sum over the fields that do
+        private int score(String keyword) {
+            int score = 0;
+            for (int i = 0; i < values.length; i++) {
+                String value = values[i];
+                if (value == null)
+                    continue;
+                int at = value.indexOf(keyword);
+                if (at < 0)
+                    continue;
+                int quality = value.equals(keyword) ? 3
+                        : at == 0 || !Character.isLetterOrDigit(value.charAt(at - 1)) ? 2 : 1;
+                score += WEIGHTS[i] * quality;
+            }
+            return score;
+        }
+    }
+}
@@ -1,27 +1,46 @@
 package com.App.fullStack.service;
 
+import com.App.fullStack.dto.CursorPage;
 import com.App.fullStack.dto.LocationData;
 import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.DemandType;
 import com.App.fullStack.pojos.Location;
+import com.App.fullStack.pojos.SupplyType;
 import com.App.fullStack.repositories.LocationRepository;
+import com.App.fullStack.utility.CursorPager;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import com.App.fullStack.repositories.DemandRepository;
 import com.App.fullStack.repositories.SupplyRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class LocationService {
 
+    private static final List<String> STACKED_SUPPLY_TYPES = List.of("ONHAND", "INTRANSIT");
+    private static final List<String> STACKED_DEMAND_TYPES = List.of("HARD_PROMISED", "PLANNED");
+    private static final int DEFAULT_STACKED_BAR_SIZE = 50;
+
     @Autowired
     public LocationRepository locationRepository;
 
@@ -31,16 +50,48 @@ public class LocationService {
     @Autowired
     public DemandRepository demandRepository;
 
+    @Autowired
+    public CursorPager cursorPager;
+
+    @Autowired
+    public LocationSearchIndex locationSearchIndex;
+
+    @Autowired
+    public TypeaheadIndex typeaheadIndex;
+
+    @Autowired
+    public KeywordIdResolver keywordIdResolver;
+
+    @Autowired
+    public DashboardService dashboardService;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
     public Page<Location> getAllLocations(int page, int size, String keyword) {
         Pageable pageable = PageRequest.of(page, size);
 
         if (keyword != null && !keyword.isEmpty()) {
-            return locationRepository.searchLocationsByKeyword(keyword, pageable);
+            // Ranked from memory once the index is loaded; Mongo's regex scan otherwise
+            return locationSearchIndex.search(keyword, page, size)
+                    .orElseGet(() -> locationRepository.searchLocationsByKeyword(keyword, pageable));
         } else {
             return locationRepository.findAll(pageable);
         }
     }
 
+    // Keyset variant of getAllLocations: follows _id instead of skipping, and only counts when total is "exact" or
+    // "estimated"
+    public CursorPage<Location> getLocationsAfter(String cursor, int size, String keyword, String total) {
+        Criteria filter = null;
+        if (keyword != null && !keyword.isEmpty())
+            // Same fields as LocationRepository.searchLocationsByKeyword
+            filter = new Criteria().orOperator(Stream.of("locationId", "locationDesc", "locationType", "addressLine1",
+                            "addressLine2", "addressLine3", "city", "state", "country", "pinCode")
+                    .map(field -> Criteria.where(field).regex(keyword, "i")).toList());
+        return cursorPager.page(filter, Location.class, Location::getId, cursor, size, total);
+    }
+
     public Location getLocationById(String locationId) {
         Optional<Location> existingLocation = locationRepository.findByLocationId(locationId);
 
@@ -60,7 +111,12 @@ public class LocationService {
         if (existingLocation.isPresent())
             throw new FoundException("Location with locationId " + location.getLocationId() + " already exists.");
 
-        return locationRepository.save(location);
+        Location savedLocation = locationRepository.save(location);
+        locationSearchIndex.put(savedLocation);
+        typeaheadIndex.putLocation(savedLocation);
+        keywordIdResolver.invalidateLocations();
+        dashboardService.adjustCount("locations", 1);
+        return savedLocation;
     }
 
     public Location updateLocation(String locationId, Location locationDetails) {
@@ -104,7 +160,11 @@ public class LocationService {
             location.setDeliveryAllowed(locationDetails.isDeliveryAllowed());
 
             // Save the updated location object to the database
-            return locationRepository.save(location);
+            Location savedLocation = locationRepository.save(location);
+            locationSearchIndex.put(savedLocation);
+            typeaheadIndex.putLocation(savedLocation);
+            keywordIdResolver.invalidateLocations();
+            return savedLocation;
         }
 
         throw new FoundException("Location with locationId " + locationId + " not exist.");
@@ -127,6 +187,10 @@ public class LocationService {
         Optional<Location> location = locationRepository.findByLocationId(locationId);
         if (location.isPresent()) {
             locationRepository.delete(location.get());
+            locationSearchIndex.remove(locationId);
+            typeaheadIndex.removeLocation(locationId);
+            keywordIdResolver.invalidateLocations();
+            dashboardService.adjustCount("locations", -1);
             return "Location deleted successfully";
         }
         throw new FoundException("Location with locationId " + locationId + " not exist.");
@@ -136,7 +200,9 @@ public class LocationService {
         Pageable pageable = PageRequest.of(page, size);
 
         if (search != null && !search.isEmpty()) {
-            return locationRepository.searchLocationIdsByKeyword(search, pageable);
+            // Prefix suggestions from memory once loaded; Mongo's regex scan otherwise
+            return typeaheadIndex.suggestLocations(search, page, size)
+                    .orElseGet(() -> locationRepository.searchLocationIdsByKeyword(search, pageable));
         } else {
             return locationRepository.findDistinctLocationIds(pageable);
         }
@@ -154,31 +220,153 @@ public class LocationService {
     }
 
     public List<LocationData> getStackedBarData() {
-        // Fetch all locations
-        List<Location> locations = locationRepository.findAll();
+        return getStackedBarData(null, null, null);
+    }
+
+    public List<LocationData> getStackedBarData(Integer page, Integer size, Integer top) {
+        return getStackedBarData(page, size, top, null);
+    }
 
-        // Map each location to LocationData DTO
-        return locations.stream().map(location -> {
-            // Fetch supply and demand data for each location
+    // ONHAND / INTRANSIT supply and HARD_PROMISED / PLANNED demand per location, from the snapshot when there is one,
+    // otherwise from one $group by (locationId, type) over each collection. All locations by default; page and size
+    // page through the locations by locationId, top keeps the N locations with the largest supply plus demand
+    // (largest first).
+    public List<LocationData> getStackedBarData(Integer page, Integer size, Integer top, InventorySnapshot snapshot) {
+        if (top != null && top <= 0)
+            throw new FoundException("Invalid top: " + top + ".");
+        if (snapshot != null)
+            return stackedBarDataFromSnapshot(page, size, top, snapshot);
+        if (top != null) {
+            Map<String, Map<String, Integer>> supplies = sumQuantityByLocationAndType("supplies", "supplyType",
+                    STACKED_SUPPLY_TYPES, null);
+            Map<String, Map<String, Integer>> demands = sumQuantityByLocationAndType("demands", "demandType",
+                    STACKED_DEMAND_TYPES, null);
+            Set<String> locationIds = new HashSet<>(supplies.keySet());
+            locationIds.addAll(demands.keySet());
+            List<String> ranked = locationIds.stream()
+                    .sorted(Comparator.comparingLong((String locationId) ->
+                                    volume(supplies.get(locationId)) + volume(demands.get(locationId))).reversed()
+                            .thenComparing(Comparator.naturalOrder()))
+                    .toList();
+            // Records of a deleted location have no description and are left out, as without top, before the limit:
+            // descriptions are looked up top ranks at a time until top existing locations are found
+            List<LocationData> result = new ArrayList<>();
+            for (int from = 0; from < ranked.size() && result.size() < top; from += top) {
+                List<String> chunk = ranked.subList(from, Math.min(from + top, ranked.size()));
+                Map<String, String> descriptions = getLocationDescriptions(chunk);
+                for (String locationId : chunk)
+                    if (descriptions.containsKey(locationId) && result.size() < top)
+                        result.add(locationData(locationId, descriptions.get(locationId), supplies, demands));
+            }
+            return result;
+        }
+
+        List<Location> locations;
+        List<String> locationIds = null;
+        if (page != null || size != null) {
+            locations = locationRepository.findAll(PageRequest.of(page != null ? page : 0,
+                    size != null ? size : DEFAULT_STACKED_BAR_SIZE, Sort.by("locationId"))).getContent();
+            locationIds = locations.stream().map(Location::getLocationId).toList();
+        } else {
+            locations = locationRepository.findAll();
+        }
+        if (locations.isEmpty())
+            return new ArrayList<>();
+
+        Map<String, Map<String, Integer>> supplies = sumQuantityByLocationAndType("supplies", "supplyType",
+                STACKED_SUPPLY_TYPES, locationIds);
+        Map<String, Map<String, Integer>> demands = sumQuantityByLocationAndType("demands", "demandType",
+                STACKED_DEMAND_TYPES, locationIds);
+        return locations.stream()
+                .map(location -> locationData(location.getLocationId(), location.getLocationDesc(), supplies, demands))
+                .collect(Collectors.toList());
+    }
+
+    private static List<LocationData> stackedBarDataFromSnapshot(Integer page, Integer size, Integer top,
+                                                                 InventorySnapshot snapshot) {
+        Stream<String> locationIds;
+        if (top != null) {
+            locationIds = snapshot.getLocationTotals().entrySet().stream()
+                    .filter(entry -> snapshot.getLocations().containsKey(entry.getKey()))
+                    .sorted(Comparator.comparingLong((Map.Entry<String, StockTotals> entry) -> volume(entry.getValue()))
+                            .reversed().thenComparing(Map.Entry::getKey))
+                    .limit(top)
+                    .map(Map.Entry::getKey);
+        } else if (page != null || size != null) {
+            PageRequest pageable = PageRequest.of(page != null ? page : 0, size != null ? size : DEFAULT_STACKED_BAR_SIZE);
+            locationIds = snapshot.getLocations().keySet().stream().skip(pageable.getOffset()).limit(pageable.getPageSize());
+        } else {
+            locationIds = snapshot.getLocations().keySet().stream();
+        }
+        return locationIds.map(locationId -> {
+            StockTotals totals = snapshot.getLocationTotals(locationId);
             Map<String, Integer> supplyDetails = new HashMap<>();
             Map<String, Integer> demandDetails = new HashMap<>();
+            for (String type : STACKED_SUPPLY_TYPES)
+                supplyDetails.put(type, totals != null ? totals.getSupplyQuantity(SupplyType.valueOf(type)) : 0);
+            for (String type : STACKED_DEMAND_TYPES)
+                demandDetails.put(type, totals != null ? totals.getDemandQuantity(DemandType.valueOf(type)) : 0);
+            return new LocationData(locationId, snapshot.getLocations().get(locationId), supplyDetails, demandDetails);
+        }).collect(Collectors.toList());
+    }
 
-            // Supply: Assuming supplyRepository provides methods to get supply counts by type
-            int onHand = supplyRepository.getTotalSupplyByLocationAndType(location.getLocationId(), "ONHAND");
-            int inTransit = supplyRepository.getTotalSupplyByLocationAndType(location.getLocationId(), "INTRANSIT");
+    private static long volume(StockTotals totals) {
+        long volume = 0;
+        for (String type : STACKED_SUPPLY_TYPES)
+            volume += totals.getSupplyQuantity(SupplyType.valueOf(type));
+        for (String type : STACKED_DEMAND_TYPES)
+            volume += totals.getDemandQuantity(DemandType.valueOf(type));
+        return volume;
+    }
 
-            supplyDetails.put("ONHAND", onHand);
-            supplyDetails.put("INTRANSIT", inTransit);
+    // locationId -> type -> summed quantity, restricted to locationIds unless it is null
+    private Map<String, Map<String, Integer>> sumQuantityByLocationAndType(String collection, String typeField,
+                                                                          List<String> types,
+                                                                          Collection<String> locationIds) {
+        Criteria match = Criteria.where(typeField).in(types);
+        if (locationIds != null)
+            match.and("locationId").in(locationIds);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(match),
+                Aggregation.group("locationId", typeField).sum("quantity").as("quantity")
+        );
+
+        Map<String, Map<String, Integer>> totals = new HashMap<>();
+        for (Document result : mongoTemplate.aggregate(aggregation, collection, Document.class).getMappedResults()) {
+            Document id = result.get("_id", Document.class);
+            totals.computeIfAbsent(id.getString("locationId"), locationId -> new HashMap<>())
+                    .put(id.getString(typeField), ((Number) result.get("quantity")).intValue());
+        }
+        return totals;
+    }
 
-            // Demand: Assuming demandRepository provides methods to get demand counts by type
-            int hardPromised = demandRepository.getTotalDemandByLocationAndType(location.getLocationId(), "HARD_PROMISED");
-            int planned = demandRepository.getTotalDemandByLocationAndType(location.getLocationId(), "PLANNED");
+    private static LocationData locationData(String locationId, String locationDesc,
+                                             Map<String, Map<String, Integer>> supplies,
+                                             Map<String, Map<String, Integer>> demands) {
+        return new LocationData(locationId, locationDesc,
+                withZeros(STACKED_SUPPLY_TYPES, supplies.get(locationId)),
+                withZeros(STACKED_DEMAND_TYPES, demands.get(locationId)));
+    }
 
-            demandDetails.put("HARD_PROMISED", hardPromised);
-            demandDetails.put("PLANNED", planned);
+    // Every type present, 0 where the location has no record of it
+    private static Map<String, Integer> withZeros(List<String> types, Map<String, Integer> totals) {
+        Map<String, Integer> details = new HashMap<>();
+        for (String type : types)
+            details.put(type, totals != null ? totals.getOrDefault(type, 0) : 0);
+        return details;
+    }
 
-            // Create and return the LocationData object
-            return new LocationData(location.getLocationId(), location.getLocationDesc(), supplyDetails, demandDetails);
-        }).collect(Collectors.toList());
+    private static long volume(Map<String, Integer> totals) {
+        return totals == null ? 0 : totals.values().stream().mapToLong(Integer::longValue).sum();
+    }
+
+    // locationId -> locationDesc for all the given IDs in one query; unknown IDs are absent from the map
+    public Map<String, String> getLocationDescriptions(Collection<String> locationIds) {
+        Map<String, String> descriptions = new HashMap<>();
+        if (locationIds.isEmpty())
+            return descriptions;
+        for (Location location : locationRepository.findDescriptionsByLocationIdIn(locationIds))
+            descriptions.put(location.getLocationId(), location.getLocationDesc());
+        return descriptions;
     }
 }
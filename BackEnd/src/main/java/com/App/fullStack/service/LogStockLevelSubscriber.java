@@ -0,0 +1,21 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockLevelEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class LogStockLevelSubscriber implements StockLevelSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogStockLevelSubscriber.class);
+
+    @Override
+    public void onEvents(List<StockLevelEvent> events) {
+        for (StockLevelEvent event : events)
+            logger.info("Stock level of item {} at location {} changed from {} to {} (available {})", event.getItemId(),
+                    event.getLocationId(), event.getPreviousLevel(), event.getStockLevel(), event.getAvailableQty());
+    }
+}
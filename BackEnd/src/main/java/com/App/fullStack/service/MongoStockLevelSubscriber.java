@@ -0,0 +1,37 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockLevelEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Keeps the most recent stock level changes in a capped collection, oldest overwritten first
+@Service
+@ConditionalOnProperty(name = "inventory.stock-events.mongo.enabled", havingValue = "true")
+public class MongoStockLevelSubscriber implements StockLevelSubscriber {
+
+    static final String COLLECTION = "stockLevelEvents";
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Value("${inventory.stock-events.mongo.max-bytes:10485760}")
+    private long maxBytes;
+
+    @PostConstruct
+    public void createCollection() {
+        if (!mongoTemplate.collectionExists(COLLECTION))
+            mongoTemplate.createCollection(COLLECTION, CollectionOptions.empty().capped().size(maxBytes));
+    }
+
+    @Override
+    public void onEvents(List<StockLevelEvent> events) {
+        mongoTemplate.insert(events, COLLECTION);
+    }
+}
@@ -0,0 +1,313 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.ReportJobRequest;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.ReportJob;
+import com.App.fullStack.pojos.ReportJobStatus;
+import com.App.fullStack.repositories.ReportJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs the network-wide analytics (scatter data, stacked bar data, the lowest-availability report and the full
+// availability export) as background jobs, so a request returns a job id at once instead of holding a Tomcat thread.
+// Jobs are kept in the reportJobs collection and results in GridFS, which is what the status and result endpoints read,
+// so any node can answer them and a result is not bound by the document size limit. The TTL index on expiresAt removes
+// a job result-ttl-minutes after it finished; while a job is queued or running its node keeps pushing expiresAt
+// forward, so only the jobs of a node that went away expire unfinished. Results past their job's expiry are deleted by
+// the same periodic task. A fixed pool of workers takes jobs from a bounded queue and a full queue rejects the submission.
+// Submitting the parameters of a job this node is still running, or of a job that succeeded less than
+// reuse-max-age-seconds ago (the request's maxAgeSeconds when given, never with refresh), returns that job instead of
+// starting another one; its resultAgeSeconds tells the client how old the result is. Cancelling marks the job CANCELLED and interrupts its worker; a report
+// already computing runs to the end but its result is discarded. Progress is reported at stage boundaries only.
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    // Report type -> the parameters it accepts
+    static final Map<String, List<String>> REPORT_TYPES = new LinkedHashMap<>();
+
+    static {
+        REPORT_TYPES.put("scatter", List.of("locationId", "maxPoints"));
+        REPORT_TYPES.put("stackedBar", List.of("page", "size", "top"));
+        REPORT_TYPES.put("lowestAvailability", List.of("locationId", "limit", "rankBy"));
+        REPORT_TYPES.put("availabilityExport", List.of("locationId"));
+    }
+
+    private static final int PROGRESS_COMPUTED = 80;
+
+    @Autowired
+    public ReportJobRepository reportJobRepository;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired
+    public GridFsOperations gridFsOperations;
+
+    @Autowired
+    public ObjectMapper objectMapper;
+
+    @Autowired
+    public AvailabilityService availabilityService;
+
+    @Autowired
+    public LocationService locationService;
+
+    @Autowired
+    public AvailabilityReportService availabilityReportService;
+
+    @Autowired
+    public InventorySnapshotService inventorySnapshotService;
+
+    @Value("${inventory.reports.workers:2}")
+    private int workerCount = 2;
+
+    @Value("${inventory.reports.queue-capacity:20}")
+    private int queueCapacity = 20;
+
+    @Value("${inventory.reports.result-ttl-minutes:60}")
+    private long resultTtlMinutes = 60;
+
+    @Value("${inventory.reports.reuse-max-age-seconds:60}")
+    private long reuseMaxAgeSeconds = 60;
+
+    private ThreadPoolExecutor workers;
+
+    // Jobs queued or running on this node: jobId -> task, and parametersKey -> jobId for deduplication
+    private final Map<String, FutureTask<Void>> active = new ConcurrentHashMap<>();
+    private final Map<String, String> activeByKey = new HashMap<>();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threads = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "report-job-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (workers != null)
+            workers.shutdownNow();
+    }
+
+    public ReportJob submit(ReportJobRequest request) {
+        String type = request.getType();
+        if (type == null || !REPORT_TYPES.containsKey(type))
+            throw new FoundException("Invalid report type: " + type + ". Expected one of " + REPORT_TYPES.keySet() + ".");
+
+        Map<String, String> parameters = new TreeMap<>();
+        if (request.getParameters() != null) {
+            request.getParameters().forEach((name, value) -> {
+                if (!REPORT_TYPES.get(type).contains(name))
+                    throw new FoundException("Unknown parameter " + name + " for report type " + type + ".");
+                if (value != null && !value.isBlank())
+                    parameters.put(name, value.trim());
+            });
+        }
+        Callable<Object> report = report(type, parameters);
+        String parametersKey = type + parameters;
+        long maxAgeSeconds = request.getMaxAgeSeconds() != null ? request.getMaxAgeSeconds() : reuseMaxAgeSeconds;
+        if (maxAgeSeconds < 0)
+            throw new FoundException("Invalid value for maxAgeSeconds: " + maxAgeSeconds + ".");
+
+        synchronized (activeByKey) {
+            String runningJobId = activeByKey.get(parametersKey);
+            if (runningJobId != null) {
+                Optional<ReportJob> running = reportJobRepository.findById(runningJobId);
+                if (running.isPresent())
+                    return running.get();
+            }
+            Instant now = Instant.now();
+            if (!request.isRefresh() && maxAgeSeconds > 0) {
+                Optional<ReportJob> finished = reportJobRepository
+                        .findFirstByParametersKeyAndStatusAndFinishedAtAfterAndExpiresAtAfterOrderByFinishedAtDesc(
+                                parametersKey, ReportJobStatus.SUCCEEDED, now.minusSeconds(maxAgeSeconds), now);
+                if (finished.isPresent())
+                    return finished.get();
+            }
+
+            ReportJob job = new ReportJob(UUID.randomUUID().toString(), type, parameters, parametersKey,
+                    ReportJobStatus.QUEUED, 0, now, null, null, null, null, expiresAt(now));
+            reportJobRepository.save(job);
+
+            FutureTask<Void> task = new FutureTask<>(() -> run(job.getJobId(), parametersKey, report), null);
+            active.put(job.getJobId(), task);
+            activeByKey.put(parametersKey, job.getJobId());
+            try {
+                workers.execute(task);
+            } catch (RejectedExecutionException e) {
+                forget(job.getJobId(), parametersKey);
+                reportJobRepository.deleteById(job.getJobId());
+                throw new FoundException("Report queue is full, please retry later.");
+            }
+            return job;
+        }
+    }
+
+    public ReportJob getJob(String jobId) {
+        return reportJobRepository.findById(jobId)
+                .orElseThrow(() -> new FoundException("Report job " + jobId + " not found."));
+    }
+
+    // The report as JSON, streamed from GridFS once the job has succeeded
+    public GridFsResource getResult(String jobId) {
+        ReportJob job = getJob(jobId);
+        if (job.getStatus() != ReportJobStatus.SUCCEEDED)
+            throw new FoundException("Report job " + jobId + " is " + job.getStatus() + ", no result to download.");
+        GridFSFile file = gridFsOperations.findOne(new Query(Criteria.where("_id").is(new ObjectId(job.getResultFileId()))));
+        if (file == null)
+            throw new FoundException("Result of report job " + jobId + " has expired.");
+        return gridFsOperations.getResource(file);
+    }
+
+    public ReportJob cancel(String jobId) {
+        ReportJob job = getJob(jobId);
+        if (job.getStatus() != ReportJobStatus.QUEUED && job.getStatus() != ReportJobStatus.RUNNING)
+            throw new FoundException("Report job " + jobId + " is already " + job.getStatus() + ".");
+
+        Instant now = Instant.now();
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(jobId)
+                        .and("status").in(ReportJobStatus.QUEUED, ReportJobStatus.RUNNING)),
+                new Update().set("status", ReportJobStatus.CANCELLED).set("finishedAt", now)
+                        .set("expiresAt", expiresAt(now)), ReportJob.class);
+        FutureTask<Void> task = active.get(jobId);
+        if (task != null) {
+            task.cancel(true);
+            workers.remove(task);
+            // A task cancelled before it started never runs, so nothing else would release it
+            synchronized (activeByKey) {
+                forget(jobId, job.getParametersKey());
+            }
+        }
+        return getJob(jobId);
+    }
+
+    private void run(String jobId, String parametersKey, Callable<Object> report) {
+        try {
+            if (!transition(jobId, ReportJobStatus.QUEUED, new Update().set("status", ReportJobStatus.RUNNING)
+                    .set("startedAt", Instant.now())))
+                return;
+            Object result = report.call();
+            if (Thread.currentThread().isInterrupted())
+                return;
+            if (!transition(jobId, ReportJobStatus.RUNNING, new Update().set("progress", PROGRESS_COMPUTED)))
+                return;
+            byte[] json = objectMapper.writeValueAsBytes(result);
+
+            Instant now = Instant.now();
+            ObjectId fileId = gridFsOperations.store(new ByteArrayInputStream(json), "report-" + jobId + ".json",
+                    "application/json", new Document("jobId", jobId).append("expiresAt", expiresAt(now)));
+            if (!transition(jobId, ReportJobStatus.RUNNING, new Update().set("status", ReportJobStatus.SUCCEEDED)
+                    .set("progress", 100).set("resultFileId", fileId.toHexString()).set("finishedAt", now)
+                    .set("expiresAt", expiresAt(now))))
+                // Cancelled while the result was being written
+                gridFsOperations.delete(new Query(Criteria.where("_id").is(fileId)));
+        } catch (Exception e) {
+            logger.error("Report job {} failed", jobId, e);
+            Instant now = Instant.now();
+            transition(jobId, ReportJobStatus.RUNNING, new Update().set("status", ReportJobStatus.FAILED)
+                    .set("error", e.getMessage()).set("finishedAt", now).set("expiresAt", expiresAt(now)));
+        } finally {
+            synchronized (activeByKey) {
+                forget(jobId, parametersKey);
+            }
+        }
+    }
+
+    // Keeps the jobs this node is still working on from expiring, and deletes results whose job has expired. Runs far
+    // more often than result-ttl-minutes, so a live job's expiresAt is always well ahead.
+    @Scheduled(fixedDelayString = "${inventory.reports.maintenance-interval-ms:60000}")
+    public void maintain() {
+        Instant now = Instant.now();
+        if (!active.isEmpty())
+            mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(active.keySet())
+                            .and("status").in(ReportJobStatus.QUEUED, ReportJobStatus.RUNNING)),
+                    new Update().set("expiresAt", expiresAt(now)), ReportJob.class);
+        gridFsOperations.delete(new Query(Criteria.where("metadata.expiresAt").lt(now)));
+    }
+
+    // Applies the update only while the job is still in the expected status, so a cancelled job stays cancelled
+    private boolean transition(String jobId, ReportJobStatus expected, Update update) {
+        return mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(jobId).and("status").is(expected)),
+                update, ReportJob.class).getModifiedCount() > 0;
+    }
+
+    // The computation for a validated request; parameters are parsed here so a bad request fails on submit. Each run
+    // reads the inventory snapshot current when it starts.
+    private Callable<Object> report(String type, Map<String, String> parameters) {
+        return switch (type) {
+            case "scatter" -> {
+                String locationId = parameters.get("locationId");
+                if (locationId == null)
+                    throw new FoundException("Report type scatter requires a locationId.");
+                Integer maxPoints = intParameter(parameters, "maxPoints");
+                yield () -> availabilityService.getAvailabilityScatterData(locationId, maxPoints,
+                        inventorySnapshotService.current());
+            }
+            case "stackedBar" -> {
+                Integer page = intParameter(parameters, "page");
+                Integer size = intParameter(parameters, "size");
+                Integer top = intParameter(parameters, "top");
+                yield () -> locationService.getStackedBarData(page, size, top, inventorySnapshotService.current());
+            }
+            case "lowestAvailability" -> {
+                Integer limit = intParameter(parameters, "limit");
+                yield () -> availabilityReportService.getLowestAvailability(parameters.get("locationId"), limit,
+                        parameters.get("rankBy"));
+            }
+            default -> () -> availabilityReportService.getAvailabilityExport(parameters.get("locationId"));
+        };
+    }
+
+    private static Integer intParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null)
+            return null;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new FoundException("Invalid value for " + name + ": " + value + ".");
+        }
+    }
+
+    private void forget(String jobId, String parametersKey) {
+        active.remove(jobId);
+        activeByKey.remove(parametersKey, jobId);
+    }
+
+    private Instant expiresAt(Instant from) {
+        return from.plus(Duration.ofMinutes(resultTtlMinutes));
+    }
+
+    int activeCount() {
+        return active.size();
+    }
+}
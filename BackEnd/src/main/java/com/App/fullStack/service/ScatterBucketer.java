@@ -0,0 +1,148 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.ScatterBinDTO;
+import com.App.fullStack.dto.ScatterDataDTO;
+import com.App.fullStack.dto.ScatterLocationDataDTO;
+
+import java.util.*;
+
+// Reduces a scatter plot to at most maxPoints points by binning items on a price × available quantity grid.
+// Points far outside the bulk of the data (beyond 3 × IQR on either axis) are kept as-is, up to a tenth of the
+// budget, so the chart still shows them; every other item is folded into a grid cell that reports its count and
+// one representative item.
+final class ScatterBucketer {
+
+    private static final double OUTLIER_FENCE = 3.0;
+    private static final int OUTLIER_SHARE = 10;
+
+    private ScatterBucketer() {
+    }
+
+    static ScatterLocationDataDTO bucket(List<ScatterDataDTO> points, String locationName, int maxPoints) {
+        int total = points.size();
+        if (total <= maxPoints)
+            return new ScatterLocationDataDTO(points, locationName);
+
+        double[] prices = new double[total];
+        double[] available = new double[total];
+        for (int i = 0; i < total; i++) {
+            prices[i] = points.get(i).getItemPrice();
+            available[i] = availableQty(points.get(i));
+        }
+
+        double[] priceFence = fences(prices);
+        double[] availableFence = fences(available);
+
+        // Keep the most extreme outliers within budget; the rest are binned like any other point
+        List<Integer> candidates = new ArrayList<>();
+        double[] outlierScore = new double[total];
+        for (int i = 0; i < total; i++) {
+            outlierScore[i] = Math.max(beyond(prices[i], priceFence), beyond(available[i], availableFence));
+            if (outlierScore[i] > 0)
+                candidates.add(i);
+        }
+        candidates.sort((a, b) -> Double.compare(outlierScore[b], outlierScore[a]));
+        int outlierBudget = maxPoints / OUTLIER_SHARE;
+        Set<Integer> keptOutliers = new HashSet<>(candidates.subList(0, Math.min(outlierBudget, candidates.size())));
+
+        // Grid bounds ignore the kept outliers so a single extreme point cannot squash every other cell together
+        double minPrice = Double.MAX_VALUE, maxPrice = -Double.MAX_VALUE;
+        double minAvailable = Double.MAX_VALUE, maxAvailable = -Double.MAX_VALUE;
+        for (int i = 0; i < total; i++) {
+            if (keptOutliers.contains(i))
+                continue;
+            minPrice = Math.min(minPrice, prices[i]);
+            maxPrice = Math.max(maxPrice, prices[i]);
+            minAvailable = Math.min(minAvailable, available[i]);
+            maxAvailable = Math.max(maxAvailable, available[i]);
+        }
+
+        int side = Math.max(1, (int) Math.sqrt(maxPoints - keptOutliers.size()));
+        int[] cellOf = new int[total];
+        int[] counts = new int[side * side];
+        double[] sumPrice = new double[side * side];
+        double[] sumAvailable = new double[side * side];
+        for (int i = 0; i < total; i++) {
+            if (keptOutliers.contains(i))
+                continue;
+            int cell = cell(prices[i], minPrice, maxPrice, side) * side + cell(available[i], minAvailable, maxAvailable, side);
+            cellOf[i] = cell;
+            counts[cell]++;
+            sumPrice[cell] += prices[i];
+            sumAvailable[cell] += available[i];
+        }
+
+        // Representative: the item nearest the cell's mean, distances scaled by the grid so both axes weigh the same
+        double priceScale = Math.max(maxPrice - minPrice, 1e-9);
+        double availableScale = Math.max(maxAvailable - minAvailable, 1e-9);
+        int[] representative = new int[side * side];
+        double[] bestDistance = new double[side * side];
+        Arrays.fill(representative, -1);
+        for (int i = 0; i < total; i++) {
+            if (keptOutliers.contains(i))
+                continue;
+            int cell = cellOf[i];
+            double dp = (prices[i] - sumPrice[cell] / counts[cell]) / priceScale;
+            double da = (available[i] - sumAvailable[cell] / counts[cell]) / availableScale;
+            double distance = dp * dp + da * da;
+            if (representative[cell] < 0 || distance < bestDistance[cell]) {
+                representative[cell] = i;
+                bestDistance[cell] = distance;
+            }
+        }
+
+        double priceStep = (maxPrice - minPrice) / side;
+        double availableStep = (maxAvailable - minAvailable) / side;
+        List<ScatterBinDTO> bins = new ArrayList<>();
+        List<ScatterDataDTO> scatterData = new ArrayList<>();
+        for (int cell = 0; cell < counts.length; cell++) {
+            if (counts[cell] == 0)
+                continue;
+            int row = cell / side, column = cell % side;
+            ScatterDataDTO point = points.get(representative[cell]);
+            bins.add(new ScatterBinDTO(
+                    minPrice + row * priceStep, minPrice + (row + 1) * priceStep,
+                    minAvailable + column * availableStep, minAvailable + (column + 1) * availableStep,
+                    counts[cell], point));
+            scatterData.add(point);
+        }
+
+        List<ScatterDataDTO> outliers = new ArrayList<>();
+        for (int i = 0; i < total; i++)
+            if (keptOutliers.contains(i))
+                outliers.add(points.get(i));
+        scatterData.addAll(outliers);
+
+        return new ScatterLocationDataDTO(scatterData, locationName, true, total, bins, outliers);
+    }
+
+    private static double availableQty(ScatterDataDTO point) {
+        return point.getSupplyQuantity() - point.getDemandQuantity();
+    }
+
+    // Lower and upper Tukey fences
+    private static double[] fences(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double q1 = sorted[(int) ((sorted.length - 1) * 0.25)];
+        double q3 = sorted[(int) ((sorted.length - 1) * 0.75)];
+        double iqr = q3 - q1;
+        return new double[]{q1 - OUTLIER_FENCE * iqr, q3 + OUTLIER_FENCE * iqr};
+    }
+
+    // How far outside the fences a value lies, relative to the fence width; 0 when inside
+    private static double beyond(double value, double[] fence) {
+        double width = Math.max(fence[1] - fence[0], 1e-9);
+        if (value < fence[0])
+            return (fence[0] - value) / width;
+        if (value > fence[1])
+            return (value - fence[1]) / width;
+        return 0;
+    }
+
+    private static int cell(double value, double min, double max, int side) {
+        if (max <= min)
+            return 0;
+        return Math.min(side - 1, (int) ((value - min) / (max - min) * side));
+    }
+}
@@ -0,0 +1,27 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.AtpThreshold;
+
+// The stock level colour rules shared by the availability endpoints, the heatmap and the threshold-crossing events
+final class StockLevel {
+
+    static final String RED = "Red";
+    static final String YELLOW = "Yellow";
+    static final String GREEN = "Green";
+    static final String UNKNOWN = "Unknown";
+
+    private StockLevel() {
+    }
+
+    static String of(AtpThreshold threshold, int availableQty) {
+        if (threshold != null) {
+            if (availableQty < threshold.getMinThreshold())
+                return RED;
+            else if (availableQty > threshold.getMaxThreshold())
+                return GREEN;
+
+            return YELLOW;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,121 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockLevelEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Collects stock level changes from the write path and hands them to the subscribers in batches on a single
+// background thread. Pending changes are keyed by item-location: a second change before the next flush replaces the
+// first (keeping the original previous level), and a pair that flips back to where it started is dropped, so
+// subscribers see at most one event per pair per batch. The pending set is bounded; past the limit new pairs are
+// dropped and counted rather than slowing down writes.
+@Service
+public class StockLevelEventDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLevelEventDispatcher.class);
+
+    @Autowired(required = false)
+    public List<StockLevelSubscriber> subscribers = new ArrayList<>();
+
+    @Value("${inventory.stock-events.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${inventory.stock-events.max-pending:10000}")
+    private int maxPending = 10000;
+
+    @Value("${inventory.stock-events.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${inventory.stock-events.flush-interval-ms:1000}")
+    private long flushIntervalMs = 1000;
+
+    private final Map<ItemLocationKey, StockLevelEvent> pending = new LinkedHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private ScheduledExecutorService worker;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-level-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker == null)
+            return;
+        worker.shutdown();
+        flush();
+    }
+
+    // Called on the write path: only records the change, the subscribers run later on the worker
+    public void publish(String itemId, String locationId, String previousLevel, String stockLevel, int availableQty) {
+        if (!enabled || Objects.equals(previousLevel, stockLevel))
+            return;
+        ItemLocationKey key = new ItemLocationKey(itemId, locationId);
+        synchronized (pending) {
+            StockLevelEvent earlier = pending.get(key);
+            String originalLevel = earlier != null ? earlier.getPreviousLevel() : previousLevel;
+            if (Objects.equals(originalLevel, stockLevel)) {
+                pending.remove(key);
+                return;
+            }
+            if (earlier == null && pending.size() >= maxPending) {
+                if (dropped.incrementAndGet() % 1000 == 1)
+                    logger.warn("Stock level event queue full, {} events dropped so far", dropped.get());
+                return;
+            }
+            pending.put(key, new StockLevelEvent(itemId, locationId, originalLevel, stockLevel, availableQty, new Date()));
+        }
+    }
+
+    // Drains everything pending, batchSize events per subscriber call
+    void flush() {
+        while (true) {
+            List<StockLevelEvent> batch = new ArrayList<>();
+            synchronized (pending) {
+                Iterator<StockLevelEvent> events = pending.values().iterator();
+                while (events.hasNext() && batch.size() < batchSize) {
+                    batch.add(events.next());
+                    events.remove();
+                }
+            }
+            if (batch.isEmpty())
+                return;
+            for (StockLevelSubscriber subscriber : subscribers) {
+                try {
+                    subscriber.onEvents(batch);
+                } catch (RuntimeException e) {
+                    logger.error("Stock level subscriber {} failed for {} events", subscriber.getClass().getSimpleName(),
+                            batch.size(), e);
+                }
+            }
+        }
+    }
+
+    int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,177 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.AvailabilityResponseV2V3;
+import com.App.fullStack.dto.StockLevelHeatmapDTO;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.SupplyType;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+// Red/Yellow/Green/Unknown counts per location using the v2 rules (ONHAND supply minus HARD_PROMISED demand,
+// classified against the item-location ATP threshold), plus the classified items of one location for drill-down.
+// Served from the availability projection when it is ready; otherwise one aggregation joins supplies, demands and
+// atpThresholds and classifies inside Mongo, so nothing is fetched per item-location.
+@Service
+public class StockLevelHeatmapService {
+
+    static final List<String> STOCK_LEVELS = List.of("Red", "Yellow", "Green", "Unknown");
+
+    private static final Set<SupplyType> ONHAND = EnumSet.of(SupplyType.ONHAND);
+    private static final Set<DemandType> HARD_PROMISED = EnumSet.of(DemandType.HARD_PROMISED);
+
+    @Autowired
+    public AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    public AvailabilityService availabilityService;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    public List<StockLevelHeatmapDTO> getHeatmap() {
+        Map<String, StockLevelHeatmapDTO> byLocation = new TreeMap<>();
+        if (availabilityProjection.isReady()) {
+            availabilityProjection.forEachTotals((key, totals) -> {
+                if (!totals.hasRecords(ONHAND, HARD_PROMISED))
+                    return;
+                String stockLevel = classify(key, totals.getAvailableQuantity(ONHAND, HARD_PROMISED));
+                count(byLocation.computeIfAbsent(key.getLocationId(), id -> new StockLevelHeatmapDTO(id, 0, 0, 0, 0)), stockLevel);
+            });
+            return new ArrayList<>(byLocation.values());
+        }
+
+        List<AggregationOperation> stages = new ArrayList<>(classifiedPipeline(null));
+        stages.add(Aggregation.group("_id.locationId")
+                .sum(levelIs("Red")).as("red")
+                .sum(levelIs("Yellow")).as("yellow")
+                .sum(levelIs("Green")).as("green")
+                .sum(levelIs("Unknown")).as("unknown"));
+        stages.add(Aggregation.sort(Sort.Direction.ASC, "_id"));
+
+        List<StockLevelHeatmapDTO> heatmap = new ArrayList<>();
+        for (Document result : mongoTemplate.aggregate(withDiskUse(stages), "supplies", Document.class).getMappedResults())
+            heatmap.add(new StockLevelHeatmapDTO(result.getString("_id"), longValue(result, "red"), longValue(result, "yellow"),
+                    longValue(result, "green"), longValue(result, "unknown")));
+        return heatmap;
+    }
+
+    // Items of one location, optionally limited to one stock level, ordered by itemId
+    public Page<AvailabilityResponseV2V3> getLocationDrillDown(String locationId, String stockLevel, int page, int size) {
+        if (stockLevel != null && !STOCK_LEVELS.contains(stockLevel))
+            throw new FoundException("Invalid stock level: " + stockLevel + ". Expected one of " + STOCK_LEVELS + ".");
+
+        List<AvailabilityResponseV2V3> rows = new ArrayList<>();
+        if (availabilityProjection.isReady()) {
+            availabilityProjection.forEachTotalsAt(locationId, (key, totals) -> {
+                if (!totals.hasRecords(ONHAND, HARD_PROMISED))
+                    return;
+                int availableQty = totals.getAvailableQuantity(ONHAND, HARD_PROMISED);
+                String level = classify(key, availableQty);
+                if (stockLevel == null || stockLevel.equals(level))
+                    rows.add(new AvailabilityResponseV2V3(key.getItemId(), locationId, availableQty, level));
+            });
+            rows.sort(Comparator.comparing(AvailabilityResponseV2V3::getItemId));
+        } else {
+            List<AggregationOperation> stages = new ArrayList<>(classifiedPipeline(locationId));
+            if (stockLevel != null)
+                stages.add(Aggregation.match(Criteria.where("stockLevel").is(stockLevel)));
+            stages.add(Aggregation.sort(Sort.Direction.ASC, "_id.itemId"));
+            for (Document result : mongoTemplate.aggregate(withDiskUse(stages), "supplies", Document.class).getMappedResults()) {
+                Document id = result.get("_id", Document.class);
+                rows.add(new AvailabilityResponseV2V3(id.getString("itemId"), id.getString("locationId"),
+                        ((Number) result.get("availableQty")).intValue(), result.getString("stockLevel")));
+            }
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        int from = (int) Math.min(pageable.getOffset(), rows.size());
+        int to = Math.min(from + size, rows.size());
+        return new PageImpl<>(rows.subList(from, to), pageable, rows.size());
+    }
+
+    private String classify(ItemLocationKey key, int availableQty) {
+        return availabilityService.calculateStockLevel(
+                availabilityProjection.findThreshold(key.getItemId(), key.getLocationId()), availableQty);
+    }
+
+    private void count(StockLevelHeatmapDTO row, String stockLevel) {
+        switch (stockLevel) {
+            case "Red" -> row.setRed(row.getRed() + 1);
+            case "Yellow" -> row.setYellow(row.getYellow() + 1);
+            case "Green" -> row.setGreen(row.getGreen() + 1);
+            default -> row.setUnknown(row.getUnknown() + 1);
+        }
+    }
+
+    // supplies(ONHAND) ∪ demands(HARD_PROMISED, negated) → availableQty per (itemId, locationId) → threshold lookup →
+    // stockLevel with the same rules as AvailabilityService.calculateStockLevel
+    private List<AggregationOperation> classifiedPipeline(String locationId) {
+        Criteria supplyCriteria = Criteria.where("supplyType").is(SupplyType.ONHAND.name());
+        Criteria demandCriteria = Criteria.where("demandType").is(DemandType.HARD_PROMISED.name());
+        if (locationId != null) {
+            supplyCriteria.and("locationId").is(locationId);
+            demandCriteria.and("locationId").is(locationId);
+        }
+
+        AggregationOperation lookupThreshold = context -> new Document("$lookup", new Document("from", "atpThresholds")
+                .append("let", new Document("itemId", "$_id.itemId").append("locationId", "$_id.locationId"))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr", new Document("$and", List.of(
+                                new Document("$eq", List.of("$itemId", "$$itemId")),
+                                new Document("$eq", List.of("$locationId", "$$locationId")))))),
+                        new Document("$project", new Document("_id", 0).append("minThreshold", 1).append("maxThreshold", 1))))
+                .append("as", "threshold"));
+
+        Document minThreshold = new Document("$arrayElemAt", List.of("$threshold.minThreshold", 0));
+        Document maxThreshold = new Document("$arrayElemAt", List.of("$threshold.maxThreshold", 0));
+        AggregationOperation classify = context -> new Document("$project", new Document("availableQty", 1)
+                .append("stockLevel", new Document("$switch", new Document("branches", List.of(
+                        branch(new Document("$eq", List.of(new Document("$size", "$threshold"), 0)), "Unknown"),
+                        branch(new Document("$lt", List.of("$availableQty", minThreshold)), "Red"),
+                        branch(new Document("$gt", List.of("$availableQty", maxThreshold)), "Green")))
+                        .append("default", "Yellow"))));
+
+        return List.of(
+                Aggregation.match(supplyCriteria),
+                Aggregation.project("itemId", "locationId", "quantity"),
+                UnionWithOperation.unionWith("demands").pipeline(
+                        Aggregation.match(demandCriteria),
+                        Aggregation.project("itemId", "locationId").and("quantity").multiply(-1).as("quantity")),
+                Aggregation.group("itemId", "locationId").sum("quantity").as("availableQty"),
+                lookupThreshold,
+                classify);
+    }
+
+    private static Document branch(Document condition, String stockLevel) {
+        return new Document("case", condition).append("then", stockLevel);
+    }
+
+    private static AggregationExpression levelIs(String stockLevel) {
+        return context -> new Document("$cond", List.of(new Document("$eq", List.of("$stockLevel", stockLevel)), 1, 0));
+    }
+
+    private static Aggregation withDiskUse(List<AggregationOperation> stages) {
+        return Aggregation.newAggregation(stages).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    }
+
+    private static long longValue(Document document, String field) {
+        Object value = document.get(field);
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+}
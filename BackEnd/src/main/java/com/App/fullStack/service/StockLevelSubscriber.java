@@ -0,0 +1,11 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockLevelEvent;
+
+import java.util.List;
+
+// Receives batches of stock level changes on the dispatcher thread, never on a request thread
+public interface StockLevelSubscriber {
+
+    void onEvents(List<StockLevelEvent> events);
+}
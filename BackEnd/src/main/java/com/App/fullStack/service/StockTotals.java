@@ -0,0 +1,135 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.SupplyType;
+
+import java.util.Set;
+
+// Immutable per-type quantities for one item-location (or one item across the network).
+// Record counts are kept next to the sums so "no records" can be told apart from "sums to zero".
+public final class StockTotals {
+
+    private static final int SUPPLY_TYPES = SupplyType.values().length;
+    private static final int DEMAND_TYPES = DemandType.values().length;
+
+    public static final StockTotals EMPTY = new StockTotals(new int[SUPPLY_TYPES], new int[SUPPLY_TYPES],
+            new int[DEMAND_TYPES], new int[DEMAND_TYPES]);
+
+    private final int[] supplyQty;
+    private final int[] supplyCount;
+    private final int[] demandQty;
+    private final int[] demandCount;
+
+    private StockTotals(int[] supplyQty, int[] supplyCount, int[] demandQty, int[] demandCount) {
+        this.supplyQty = supplyQty;
+        this.supplyCount = supplyCount;
+        this.demandQty = demandQty;
+        this.demandCount = demandCount;
+    }
+
+    public StockTotals withSupply(SupplyType type, int quantityDelta, int countDelta) {
+        int[] qty = supplyQty.clone();
+        int[] count = supplyCount.clone();
+        qty[type.ordinal()] += quantityDelta;
+        count[type.ordinal()] += countDelta;
+        return new StockTotals(qty, count, demandQty, demandCount);
+    }
+
+    public StockTotals withDemand(DemandType type, int quantityDelta, int countDelta) {
+        int[] qty = demandQty.clone();
+        int[] count = demandCount.clone();
+        qty[type.ordinal()] += quantityDelta;
+        count[type.ordinal()] += countDelta;
+        return new StockTotals(supplyQty, supplyCount, qty, count);
+    }
+
+    // Type-by-type sum, used to roll item-locations up to items or locations
+    public StockTotals plus(StockTotals other) {
+        int[] qty = supplyQty.clone();
+        int[] count = supplyCount.clone();
+        int[] dQty = demandQty.clone();
+        int[] dCount = demandCount.clone();
+        for (int i = 0; i < SUPPLY_TYPES; i++) {
+            qty[i] += other.supplyQty[i];
+            count[i] += other.supplyCount[i];
+        }
+        for (int i = 0; i < DEMAND_TYPES; i++) {
+            dQty[i] += other.demandQty[i];
+            dCount[i] += other.demandCount[i];
+        }
+        return new StockTotals(qty, count, dQty, dCount);
+    }
+
+    // Type-by-type difference, used to take an item-location back out of its item's totals
+    public StockTotals minus(StockTotals other) {
+        int[] qty = supplyQty.clone();
+        int[] count = supplyCount.clone();
+        int[] dQty = demandQty.clone();
+        int[] dCount = demandCount.clone();
+        for (int i = 0; i < SUPPLY_TYPES; i++) {
+            qty[i] -= other.supplyQty[i];
+            count[i] -= other.supplyCount[i];
+        }
+        for (int i = 0; i < DEMAND_TYPES; i++) {
+            dQty[i] -= other.demandQty[i];
+            dCount[i] -= other.demandCount[i];
+        }
+        return new StockTotals(qty, count, dQty, dCount);
+    }
+
+    public int getSupplyQuantity(SupplyType type) {
+        return supplyQty[type.ordinal()];
+    }
+
+    public int getDemandQuantity(DemandType type) {
+        return demandQty[type.ordinal()];
+    }
+
+    public int getSupplyQuantity(Set<SupplyType> types) {
+        int sum = 0;
+        for (SupplyType type : types)
+            sum += supplyQty[type.ordinal()];
+        return sum;
+    }
+
+    public int getDemandQuantity(Set<DemandType> types) {
+        int sum = 0;
+        for (DemandType type : types)
+            sum += demandQty[type.ordinal()];
+        return sum;
+    }
+
+    public int getAvailableQuantity(Set<SupplyType> supplyTypes, Set<DemandType> demandTypes) {
+        return getSupplyQuantity(supplyTypes) - getDemandQuantity(demandTypes);
+    }
+
+    public int getRecordCount(Set<SupplyType> supplyTypes, Set<DemandType> demandTypes) {
+        int records = 0;
+        for (SupplyType type : supplyTypes)
+            records += supplyCount[type.ordinal()];
+        for (DemandType type : demandTypes)
+            records += demandCount[type.ordinal()];
+        return records;
+    }
+
+    // Same rule as the repository path: at least one supply or demand document of the requested types
+    public boolean hasRecords(Set<SupplyType> supplyTypes, Set<DemandType> demandTypes) {
+        for (SupplyType type : supplyTypes)
+            if (supplyCount[type.ordinal()] > 0)
+                return true;
+        for (DemandType type : demandTypes)
+            if (demandCount[type.ordinal()] > 0)
+                return true;
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (int count : supplyCount)
+            if (count != 0)
+                return false;
+        for (int count : demandCount)
+            if (count != 0)
+                return false;
+        return true;
+    }
+}
@@ -2,6 +2,8 @@ package com.App.fullStack.service;
 
 import com.App.fullStack.dto.SupplyDetailsResponse;
 import com.App.fullStack.dto.SupplySummaryResponse;
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.dto.StockFilter;
 import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.Item;
 import com.App.fullStack.pojos.Location;
@@ -12,12 +14,20 @@ import com.App.fullStack.repositories.LocationRepository;
 import com.App.fullStack.repositories.SupplyRepository;
 import com.App.fullStack.dto.SupplyDTO;
 
+import com.App.fullStack.utility.CursorPager;
 import com.App.fullStack.utility.ItemAndLocationIDChecker;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -43,6 +53,24 @@ public class SupplyService {
     @Autowired
     private LocationService locationService;
 
+    @Autowired
+    private AvailabilityProjection availabilityProjection;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired
+    public CursorPager cursorPager;
+
+    @Autowired
+    public KeywordIdResolver keywordIdResolver;
+
+    @Autowired
+    public DashboardService dashboardService;
+
     public Page<Supply> getAllSupplies(int page, int size) {
 
         Pageable pageable = PageRequest.of(page, size);
@@ -99,38 +127,91 @@ public class SupplyService {
     }
 
     public Supply addSupply(Supply supply) {
-        if (supplyRepository.existsByItemIdAndLocationIdAndSupplyType(supply.getItemId(), supply.getLocationId(),
-                supply.getSupplyType()))
-            throw new FoundException("Supplies with itemId: " + supply.getItemId() + ", locationId: "
-                    + supply.getLocationId() + " and supplyType: " + supply.getSupplyType() + " already exists.");
-
         itemAndLocationIDChecker.validateItemAndLocationID(supply.getItemId(), supply.getLocationId());
 
-        return supplyRepository.save(supply);
+        // The unique (itemId, locationId, supplyType) index rejects duplicates, concurrent ones included
+        Supply savedSupply;
+        try {
+            savedSupply = supplyRepository.insert(supply);
+        } catch (DuplicateKeyException e) {
+            throw new FoundException("Supplies with itemId: " + supply.getItemId() + ", locationId: "
+                    + supply.getLocationId() + " and supplyType: " + supply.getSupplyType() + " already exists.");
+        }
+        availabilityProjection.applySupply(supply.getItemId(), supply.getLocationId(), supply.getSupplyType(),
+                supply.getQuantity(), 1);
+        availabilityCache.invalidate(supply.getItemId(), supply.getLocationId());
+        dashboardService.adjustCount("supplies", 1);
+        return savedSupply;
 
     }
 
+    // Sets the quantity in one findAndModify that returns the replaced document, so the projection delta is taken from
+    // the quantity the $set actually overwrote, even when an adjustment lands concurrently
     public Supply updateSupply(String supplyId, Supply supplyDetails) {
 
-        Optional<Supply> existingSupply = supplyRepository.findBySupplyId(supplyId);
-
         if(supplyDetails.getQuantity()<=0)
             throw new FoundException("Invalid quantity");
-        if (existingSupply.isPresent()) {
-            Supply supply = existingSupply.get();
-            supply.setQuantity(supplyDetails.getQuantity());
-            return supplyRepository.save(supply);
+
+        Supply previous = mongoTemplate.findAndModify(new Query(Criteria.where("supplyId").is(supplyId)),
+                new Update().set("quantity", supplyDetails.getQuantity()),
+                FindAndModifyOptions.options().returnNew(false), Supply.class);
+        if (previous == null)
+            throw new FoundException("Supply with supplyId " + supplyId + " not found.");
+
+        availabilityProjection.applySupply(previous.getItemId(), previous.getLocationId(), previous.getSupplyType(),
+                supplyDetails.getQuantity() - previous.getQuantity(), 0);
+        availabilityCache.invalidate(previous.getItemId(), previous.getLocationId());
+        previous.setQuantity(supplyDetails.getQuantity());
+        return previous;
+    }
+
+    // Adds delta to the quantity in one findAndModify, so concurrent adjustments of the same supply never overwrite
+    // each other. A decrement that would take the quantity below zero matches nothing and is rejected.
+    public Supply adjustSupply(String supplyId, int delta) {
+        return adjustQuantity(Criteria.where("supplyId").is(supplyId), delta,
+                "Supply with supplyId " + supplyId + " not found.");
+    }
+
+    public Supply adjustSupply(String itemId, String locationId, SupplyType supplyType, int delta) {
+        return adjustQuantity(Criteria.where("itemId").is(itemId).and("locationId").is(locationId)
+                        .and("supplyType").is(supplyType), delta,
+                "Supplies with itemId: " + itemId + ", locationId: " + locationId + " and supplyType: " + supplyType
+                        + " not found.");
+    }
+
+    private Supply adjustQuantity(Criteria target, int delta, String notFoundMessage) {
+        if (delta == 0)
+            throw new FoundException("Invalid quantity adjustment");
+
+        Query guarded = new Query(target);
+        if (delta < 0)
+            guarded.addCriteria(Criteria.where("quantity").gte(-delta));
+        Supply adjusted = mongoTemplate.findAndModify(guarded, new Update().inc("quantity", delta),
+                FindAndModifyOptions.options().returnNew(true), Supply.class);
+
+        if (adjusted == null) {
+            // Only the failure path pays for a second read, to tell a missing record from the guard
+            if (delta < 0 && mongoTemplate.exists(new Query(target), Supply.class))
+                throw new FoundException("Insufficient quantity: cannot remove " + -delta + ".");
+            throw new FoundException(notFoundMessage);
         }
 
-        throw new FoundException("Supply with supplyId " + supplyId + " not found.");
+        availabilityProjection.applySupply(adjusted.getItemId(), adjusted.getLocationId(), adjusted.getSupplyType(),
+                delta, 0);
+        availabilityCache.invalidate(adjusted.getItemId(), adjusted.getLocationId());
+        return adjusted;
     }
 
     public String deleteSupply(String supplyId) {
 
-        Optional<Supply> supply = supplyRepository.findBySupplyId(supplyId);
+        // Removing and reading in one call means two concurrent deletes can't both subtract the quantity.
+        Supply supply = mongoTemplate.findAndRemove(new Query(Criteria.where("supplyId").is(supplyId)), Supply.class);
 
-        if (supply.isPresent()) {
-            supplyRepository.delete(supply.get());
+        if (supply != null) {
+            availabilityProjection.applySupply(supply.getItemId(), supply.getLocationId(),
+                    supply.getSupplyType(), -supply.getQuantity(), -1);
+            availabilityCache.invalidate(supply.getItemId(), supply.getLocationId());
+            dashboardService.adjustCount("supplies", -1);
             return "Supply deleted successfully";
         }
 
@@ -198,19 +279,75 @@ public class SupplyService {
         }
     }
 
+    // Keyset variant of the method above for deep paging: follows _id instead of skipping, and only counts when
+    // total is "exact" or "estimated"
+    public CursorPage<SupplyDTO> getSuppliesWithDetailsAfter(String cursor, int size, String search, String searchBy,
+                                                              String total) {
+        CursorPage<Supply> supplies = cursorPager.page(supplySearchCriteria(search, searchBy), Supply.class,
+                Supply::getSupplyId, cursor, size, total);
+        if (supplies.getContent().isEmpty())
+            throw new FoundException("Supplies not found.");
+        return supplies.withContent(addAllSuppliesWithDetails(supplies.getContent()));
+    }
+
+    // Any combination of item keyword, location keyword, supplyType and quantity range as one query, which the
+    // item_location_supplyType, location_supplyType and supplyType_quantity indexes serve
+    public Page<SupplyDTO> filterSuppliesWithDetails(StockFilter filter, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        List<Criteria> criteria = keywordIdResolver.filterCriteria(filter);
+        if (filter.getType() != null && !filter.getType().isBlank()) {
+            try {
+                criteria.add(Criteria.where("supplyType").is(SupplyType.valueOf(filter.getType().trim().toUpperCase())));
+            } catch (IllegalArgumentException e) {
+                throw new FoundException("Invalid supplyType: " + filter.getType() + ".");
+            }
+        }
+        Query query = criteria.isEmpty() ? new Query() : new Query(new Criteria().andOperator(criteria));
+
+        List<Supply> supplies = mongoTemplate.find(Query.of(query).with(pageable), Supply.class);
+        if (supplies.isEmpty())
+            throw new FoundException("Supplies not found.");
+        // Counts only when the page does not already tell the total
+        Page<Supply> supplyPage = PageableExecutionUtils.getPage(supplies, pageable,
+                () -> mongoTemplate.count(query, Supply.class));
+        return new PageImpl<>(addAllSuppliesWithDetails(supplies), pageable, supplyPage.getTotalElements());
+    }
+
+    // Same search as getAllSuppliesWithDetails as a filter; null without a search
+    private Criteria supplySearchCriteria(String search, String searchBy) {
+        if (search == null || search.trim().isEmpty())
+            return null;
+        if (Objects.equals(searchBy, "item"))
+            return Criteria.where("itemId").in(itemRepository.searchItemIdsByKeywordGetIds(search).stream()
+                    .map(Item::getItemId).toList());
+        if (Objects.equals(searchBy, "location"))
+            return Criteria.where("locationId").in(locationRepository.searchLocationIdsByKeywordGetIds(search).stream()
+                    .map(Location::getLocationId).toList());
+        if (Objects.equals(searchBy, "supplyType"))
+            return Criteria.where("supplyType").regex(search, "i");
+        throw new FoundException("Invalid searchBy: " + searchBy + ". Expected item, location or supplyType.");
+    }
+
     public List<SupplyDTO> addAllSuppliesWithDetails(List<Supply> supplies) {
         // Convert Supply to SupplyDTO
         List<SupplyDTO> supplyDTOs = new ArrayList<>();
+        // One query per collection for the whole page instead of two per row
+        Set<String> itemIds = new HashSet<>();
+        Set<String> locationIds = new HashSet<>();
         for (Supply supply : supplies) {
-            Item item = itemService.getItemByItemIdWithOutException(supply.getItemId());
-            Location location = locationService.getLocationByIdWithoutException(supply.getLocationId());
+            itemIds.add(supply.getItemId());
+            locationIds.add(supply.getLocationId());
+        }
+        Map<String, String> itemDescriptions = itemService.getItemDescriptions(itemIds);
+        Map<String, String> locationDescriptions = locationService.getLocationDescriptions(locationIds);
 
+        for (Supply supply : supplies) {
             SupplyDTO supplyDTO = new SupplyDTO(
                     supply.getSupplyId(),
                     supply.getItemId(),
-                    item != null ? item.getItemDescription() : null,
+                    itemDescriptions.get(supply.getItemId()),
                     supply.getLocationId(),
-                    location != null ? location.getLocationDesc() : null,
+                    locationDescriptions.get(supply.getLocationId()),
                     supply.getSupplyType(),
                     supply.getQuantity()
             );
@@ -0,0 +1,368 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Typeahead suggestions for the item and location dropdowns (/items/ids and /locations/ids with a search), served
+// from memory instead of an unanchored regex scan per keystroke. Each side keeps two sorted maps from lower-cased keys
+// to ids: the whole id, and every word of the id and the description (plus the whole description, so multi-word
+// prefixes work). A prefix is a range of those maps, so the first K suggestions cost a tree descent plus K steps,
+// whatever the number of entries; only when the matches run past the page is the rest of the range walked to count
+// them for the page total. Suggestions whose id starts with the prefix come first, then those with a word
+// starting with it. Writes through ItemService and LocationService update the maps in place, writes made elsewhere
+// arrive as InventoryChangeEvents; until the startup load finishes the callers query Mongo as before.
+// typeahead.entries and typeahead.memory.bytes (an estimate kept up to date by every write, so a scrape is a field
+// read) are published per index for the actuator.
+@Service
+public class TypeaheadIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TypeaheadIndex.class);
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Autowired(required = false)
+    public MeterRegistry meterRegistry;
+
+    @Value("${inventory.typeahead.enabled:true}")
+    private boolean enabled = true;
+
+    private final Suggestions items = new Suggestions("itemId", "itemDescription");
+    private final Suggestions locations = new Suggestions("locationId", "locationDesc");
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry == null)
+            return;
+        for (Map.Entry<String, Suggestions> index : Map.of("items", items, "locations", locations).entrySet()) {
+            Gauge.builder("typeahead.entries", index.getValue(), Suggestions::size)
+                    .tag("index", index.getKey()).register(meterRegistry);
+            Gauge.builder("typeahead.memory.bytes", index.getValue(), Suggestions::estimatedBytes)
+                    .tag("index", index.getKey()).baseUnit("bytes")
+                    .description("Estimated heap held by the typeahead maps; divide by typeahead.entries for the cost per entry")
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled)
+            CompletableFuture.runAsync(() -> {
+                rebuildItems();
+                rebuildLocations();
+            });
+    }
+
+    // Same element format as ItemRepository.searchItemIdsByKeyword; empty when the caller has to query Mongo
+    public Optional<Page<String>> suggestItems(String prefix, int page, int size) {
+        return items.suggest(prefix, page, size);
+    }
+
+    public Optional<Page<String>> suggestLocations(String prefix, int page, int size) {
+        return locations.suggest(prefix, page, size);
+    }
+
+    public void putItem(Item item) {
+        if (item != null)
+            items.put(item.getItemId(), item.getItemDescription());
+    }
+
+    public void removeItem(String itemId) {
+        items.remove(itemId);
+    }
+
+    public void putLocation(Location location) {
+        if (location != null)
+            locations.put(location.getLocationId(), location.getLocationDesc());
+    }
+
+    public void removeLocation(String locationId) {
+        locations.remove(locationId);
+    }
+
+    // Keeps both indexes in step with writes made by other nodes or directly against Mongo
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent event) {
+        if (!enabled)
+            return;
+        boolean item = "items".equals(event.getCollection());
+        if (!item && !"locations".equals(event.getCollection()))
+            return;
+        Document document = event.getDocument();
+        if (document == null) {
+            // A delete without a pre-image: the removed entry is unknown
+            CompletableFuture.runAsync(item ? this::rebuildItems : this::rebuildLocations);
+        } else if ("delete".equals(event.getOperationType())) {
+            (item ? items : locations).remove(document.getString(item ? "itemId" : "locationId"));
+        } else if (item) {
+            putItem(mongoTemplate.getConverter().read(Item.class, document));
+        } else {
+            putLocation(mongoTemplate.getConverter().read(Location.class, document));
+        }
+    }
+
+    public void rebuildItems() {
+        rebuild(items, Item.class, Item::getItemId, Item::getItemDescription);
+    }
+
+    public void rebuildLocations() {
+        rebuild(locations, Location.class, Location::getLocationId, Location::getLocationDesc);
+    }
+
+    // Full load from Mongo, retried when a write was applied while the collection was being read (it may or may not
+    // be part of what was read)
+    private <T> void rebuild(Suggestions suggestions, Class<T> entityClass, Function<T, String> idOf,
+                             Function<T, String> descriptionOf) {
+        synchronized (suggestions) {
+            try {
+                for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+                    long startVersion = suggestions.version.get();
+                    Suggestions loaded = new Suggestions(suggestions.idField, suggestions.descriptionField);
+                    try (Stream<T> stream = mongoTemplate.stream(new Query(), entityClass)) {
+                        stream.forEach(entity -> loaded.add(idOf.apply(entity), descriptionOf.apply(entity)));
+                    }
+                    if (suggestions.replaceWith(loaded, startVersion)) {
+                        logger.info("Typeahead index for {} built with {} entries", entityClass.getSimpleName(),
+                                loaded.size());
+                        return;
+                    }
+                    logger.info("Writes arrived during typeahead index build, retrying (attempt {})", attempt);
+                }
+                logger.warn("Typeahead index for {} not published, writes kept arriving during {} attempts",
+                        entityClass.getSimpleName(), MAX_REBUILD_ATTEMPTS);
+            } catch (RuntimeException e) {
+                logger.error("Typeahead index build for {} failed, suggestions will use Mongo",
+                        entityClass.getSimpleName(), e);
+            }
+        }
+    }
+
+    static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    // One index: id -> description, plus the two prefix maps of lower-cased keys to the ids they belong to
+    static class Suggestions {
+        // Rough per-object heap costs (64-bit JVM, compressed oops) used for the memory estimate
+        private static final int TREE_ENTRY_BYTES = 40;
+        private static final int HASH_ENTRY_BYTES = 48;
+        private static final int TREE_SET_BYTES = 64;
+        private static final int STRING_BYTES = 40;
+
+        private final String idField;
+        private final String descriptionField;
+        private Map<String, String> descriptions = new HashMap<>();
+        private NavigableMap<String, SortedSet<String>> byId = new TreeMap<>();
+        private NavigableMap<String, SortedSet<String>> byWord = new TreeMap<>();
+        private volatile boolean ready;
+        private volatile long bytes;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final AtomicLong version = new AtomicLong();
+
+        Suggestions(String idField, String descriptionField) {
+            this.idField = idField;
+            this.descriptionField = descriptionField;
+        }
+
+        Optional<Page<String>> suggest(String prefix, int page, int size) {
+            if (!ready)
+                return Optional.empty();
+            String key = normalize(prefix);
+            PageRequest pageable = PageRequest.of(page, size);
+            // One more than the page needs tells whether another page follows
+            int wanted = (int) pageable.getOffset() + size + 1;
+
+            Set<String> ids = new LinkedHashSet<>();
+            List<String> content = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                collect(byId, key, ids, wanted);
+                collect(byWord, key, ids, wanted);
+                Iterator<String> iterator = ids.stream().skip(pageable.getOffset()).limit(size).iterator();
+                while (iterator.hasNext()) {
+                    String id = iterator.next();
+                    Document suggestion = new Document(idField, id);
+                    if (descriptions.get(id) != null)
+                        suggestion.append(descriptionField, descriptions.get(id));
+                    content.add(suggestion.toJson());
+                }
+                // Fewer matches than the page plus one means the walk already saw all of them
+                long total = ids.size() < wanted ? ids.size() : countMatches(key);
+                return Optional.of(new PageImpl<>(content, pageable, total));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Distinct ids in both prefix ranges; an id can be reached through several of its words
+        private long countMatches(String prefix) {
+            Set<String> ids = new HashSet<>();
+            for (NavigableMap<String, SortedSet<String>> map : List.of(byId, byWord))
+                for (SortedSet<String> matches : prefixRange(map, prefix).values())
+                    ids.addAll(matches);
+            return ids.size();
+        }
+
+        private static NavigableMap<String, SortedSet<String>> prefixRange(NavigableMap<String, SortedSet<String>> map,
+                                                                         String prefix) {
+            return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+
+        private static void collect(NavigableMap<String, SortedSet<String>> map, String prefix, Set<String> ids,
+                                    int wanted) {
+            for (SortedSet<String> matches : prefixRange(map, prefix).values())
+                for (String id : matches) {
+                    if (ids.size() >= wanted)
+                        return;
+                    ids.add(id);
+                }
+        }
+
+        void put(String id, String description) {
+            if (id == null)
+                return;
+            lock.writeLock().lock();
+            try {
+                version.incrementAndGet();
+                add(id, description);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String id) {
+            if (id == null)
+                return;
+            lock.writeLock().lock();
+            try {
+                version.incrementAndGet();
+                removeEntry(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Unlocked: used on a private instance while loading, and under the write lock by put. Replaces an entry
+        // already there, so the memory estimate stays exact.
+        private void add(String id, String description) {
+            if (id == null)
+                return;
+            removeEntry(id);
+            descriptions.put(id, description);
+            bytes += HASH_ENTRY_BYTES + stringBytes(id) + stringBytes(description);
+            link(byId, normalize(id), id);
+            for (String word : words(id, description))
+                link(byWord, word, id);
+        }
+
+        private void removeEntry(String id) {
+            if (!descriptions.containsKey(id))
+                return;
+            String description = descriptions.remove(id);
+            bytes -= HASH_ENTRY_BYTES + stringBytes(id) + stringBytes(description);
+            unlink(byId, normalize(id), id);
+            for (String word : words(id, description))
+                unlink(byWord, word, id);
+        }
+
+        private void link(Map<String, SortedSet<String>> map, String key, String id) {
+            SortedSet<String> ids = map.get(key);
+            if (ids == null) {
+                ids = new TreeSet<>();
+                map.put(key, ids);
+                bytes += TREE_ENTRY_BYTES + stringBytes(key) + TREE_SET_BYTES;
+            }
+            if (ids.add(id))
+                bytes += TREE_ENTRY_BYTES;
+        }
+
+        private void unlink(Map<String, SortedSet<String>> map, String key, String id) {
+            SortedSet<String> ids = map.get(key);
+            if (ids == null || !ids.remove(id))
+                return;
+            bytes -= TREE_ENTRY_BYTES;
+            if (ids.isEmpty()) {
+                map.remove(key);
+                bytes -= TREE_ENTRY_BYTES + stringBytes(key) + TREE_SET_BYTES;
+            }
+        }
+
+        private static Set<String> words(String id, String description) {
+            Set<String> words = new HashSet<>();
+            for (String value : new String[]{id, description}) {
+                if (value == null)
+                    continue;
+                for (String word : normalize(value).split("[^\\p{L}\\p{N}]+"))
+                    if (!word.isEmpty())
+                        words.add(word);
+            }
+            if (description != null && !description.isBlank())
+                words.add(normalize(description));
+            return words;
+        }
+
+        // Publishes a freshly loaded instance's maps unless a write was applied since startVersion
+        boolean replaceWith(Suggestions loaded, long startVersion) {
+            lock.writeLock().lock();
+            try {
+                if (version.get() != startVersion)
+                    return false;
+                descriptions = loaded.descriptions;
+                byId = loaded.byId;
+                byWord = loaded.byWord;
+                bytes = loaded.bytes;
+                ready = true;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        boolean isReady() {
+            return ready;
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return descriptions.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long estimatedBytes() {
+            return bytes;
+        }
+
+        private static long stringBytes(String value) {
+            return value == null ? 0 : STRING_BYTES + value.length();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockLevelEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+// Posts each batch as a JSON array to inventory.stock-events.webhook-url. Failures are logged and the batch is not
+// retried; the capped collection is the place to look for changes a receiver missed.
+@Service
+@ConditionalOnProperty(name = "inventory.stock-events.webhook-url")
+public class WebhookStockLevelSubscriber implements StockLevelSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookStockLevelSubscriber.class);
+
+    @Autowired
+    public ObjectMapper objectMapper;
+
+    @Value("${inventory.stock-events.webhook-url}")
+    private String webhookUrl;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Override
+    public void onEvents(List<StockLevelEvent> events) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(webhookUrl))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(events)))
+                    .build();
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 300)
+                logger.warn("Stock level webhook answered {} for {} events", response.statusCode(), events.size());
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize {} stock level events", events.size(), e);
+        } catch (IOException e) {
+            logger.warn("Stock level webhook {} unreachable, {} events not delivered", webhookUrl, events.size(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
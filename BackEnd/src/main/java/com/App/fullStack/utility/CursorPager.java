@@ -0,0 +1,97 @@
+package com.App.fullStack.utility;
+
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.exception.FoundException;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Keyset pagination on _id: each page is "_id > last _id of the previous page" sorted by _id, which the default _id
+// index serves directly, so page 1000 costs the same as page 1 (skip/limit walks past every earlier document). The
+// cursor is the last _id, base64url encoded so clients treat it as opaque. Totals are skipped unless asked for:
+// "exact" counts the filter, "estimated" reads the collection metadata when unfiltered and otherwise counts up to
+// inventory.pagination.estimate-cap matches.
+@Service
+public class CursorPager {
+
+    @Autowired
+    public MongoTemplate mongoTemplate;
+
+    @Value("${inventory.pagination.max-size:500}")
+    private int maxSize = 500;
+
+    @Value("${inventory.pagination.estimate-cap:10000}")
+    private long estimateCap = 10000;
+
+    // filter may be null to page through the whole collection; idOf reads the @Id of a returned document
+    public <T> CursorPage<T> page(Criteria filter, Class<T> entityClass, Function<T, String> idOf, String cursor,
+                                  int size, String total) {
+        if (size <= 0)
+            throw new FoundException("Invalid page size");
+        int pageSize = Math.min(size, maxSize);
+
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).limit(pageSize + 1);
+        if (filter != null)
+            query.addCriteria(filter);
+        if (cursor != null && !cursor.isEmpty())
+            query.addCriteria(Criteria.where("_id").gt(decode(cursor)));
+
+        // One extra document tells whether there is a next page without a count
+        List<T> content = new ArrayList<>(mongoTemplate.find(query, entityClass));
+        String nextCursor = null;
+        if (content.size() > pageSize) {
+            content = content.subList(0, pageSize);
+            nextCursor = encode(idOf.apply(content.get(pageSize - 1)));
+        }
+
+        CursorPage<T> page = new CursorPage<>(content, nextCursor, null, false);
+        countTotal(page, filter, entityClass, total);
+        return page;
+    }
+
+    private void countTotal(CursorPage<?> page, Criteria filter, Class<?> entityClass, String total) {
+        if (total == null || total.isEmpty() || total.equalsIgnoreCase("none"))
+            return;
+        Query countQuery = filter == null ? new Query() : new Query(filter);
+        if (total.equalsIgnoreCase("exact")) {
+            page.setTotal(mongoTemplate.count(countQuery, entityClass));
+        } else if (total.equalsIgnoreCase("estimated")) {
+            if (filter == null) {
+                page.setTotal(mongoTemplate.estimatedCount(entityClass));
+                page.setTotalEstimated(true);
+            } else {
+                long counted = mongoTemplate.count(countQuery.limit((int) estimateCap), entityClass);
+                page.setTotal(counted);
+                page.setTotalEstimated(counted >= estimateCap);
+            }
+        } else {
+            throw new FoundException("Invalid total: " + total + ". Expected none, exact or estimated.");
+        }
+    }
+
+    static String encode(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Generated ids are stored as ObjectIds, so the comparison has to be against an ObjectId to follow their order
+    static Object decode(String cursor) {
+        String id;
+        try {
+            id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new FoundException("Invalid cursor.");
+        }
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
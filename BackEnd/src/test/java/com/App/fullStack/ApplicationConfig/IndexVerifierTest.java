@@ -0,0 +1,167 @@
+package com.App.fullStack.ApplicationConfig;
+
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Supply;
+import com.App.fullStack.pojos.User;
+import com.App.fullStack.repositories.ItemRepository;
+import com.App.fullStack.repositories.SupplyRepository;
+import com.App.fullStack.repositories.UserRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver.IndexDefinitionHolder;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class IndexVerifierTest {
+
+    @InjectMocks
+    private IndexVerifier indexVerifier;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoConverter converter;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    private final MongoMappingContext mappingContext = new MongoMappingContext();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        doReturn(mappingContext).when(converter).getMappingContext();
+        when(mongoTemplate.indexOps(anyString())).thenReturn(indexOperations);
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id")));
+    }
+
+    @Test
+    void uncoveredQueries_ShouldOnlyReportCaseInsensitiveRegexQueries() {
+        assertEquals(List.of("SupplyRepository.findBySupplyType"),
+                IndexVerifier.uncoveredQueries(SupplyRepository.class, mappingContext.getRequiredPersistentEntity(Supply.class),
+                        declared(Supply.class)));
+        assertEquals(List.of(), IndexVerifier.uncoveredQueries(UserRepository.class,
+                mappingContext.getRequiredPersistentEntity(User.class), declared(User.class)));
+    }
+
+    @Test
+    void uncoveredQueries_ShouldReportQueriesWithoutLeadingIndexField() {
+        List<String> uncovered = IndexVerifier.uncoveredQueries(ItemRepository.class,
+                mappingContext.getRequiredPersistentEntity(Item.class), List.of(List.of("_id")));
+
+        assertTrue(uncovered.contains("ItemRepository.findByItemId"));
+        assertTrue(uncovered.contains("ItemRepository.searchItemsByKeyword"));
+        assertFalse(uncovered.contains("ItemRepository.findDistinctItemIds")); // {} reads everything on purpose
+        assertFalse(uncovered.contains("ItemRepository.count")); // inherited from MongoRepository
+    }
+
+    @Test
+    void verify_ShouldFailFastWhenConfigured() {
+        ReflectionTestUtils.setField(indexVerifier, "onMissing", "fail");
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> indexVerifier.verify(Map.of(Supply.class, SupplyRepository.class)));
+
+        assertTrue(exception.getMessage().contains("supplies {\"itemId\": 1, \"locationId\": 1, \"supplyType\": 1}"));
+        verify(indexOperations, never()).ensureIndex(any());
+    }
+
+    @Test
+    void verify_ShouldOnlyReportMissingIndexesThatAreNotLive() {
+        ReflectionTestUtils.setField(indexVerifier, "onMissing", "warn");
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id"),
+                unique("itemId", "locationId", "supplyType"), index("supplyType", "quantity")));
+
+        List<IndexDefinitionHolder> missing = indexVerifier.verify(Map.of(Supply.class, SupplyRepository.class));
+
+        assertEquals(1, missing.size());
+        assertEquals(List.of("locationId", "supplyType"), new ArrayList<>(missing.get(0).getIndexKeys().keySet()));
+        verify(indexOperations, never()).ensureIndex(any());
+    }
+
+    @Test
+    void verify_ShouldTreatANonUniqueLiveIndexAsMissingAndFailEvenWhenWarning() {
+        ReflectionTestUtils.setField(indexVerifier, "onMissing", "warn");
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id"), index("itemId", "locationId", "supplyType"),
+                index("locationId", "supplyType"), index("supplyType", "quantity")));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> indexVerifier.verify(Map.of(Supply.class, SupplyRepository.class)));
+
+        assertTrue(exception.getMessage().startsWith("Missing unique or TTL MongoDB indexes"));
+    }
+
+    @Test
+    void verify_ShouldBuildUniqueIndexesInTheForegroundAndFailWhenTheBuildFails() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id"), index("locationId", "supplyType"),
+                index("supplyType", "quantity")));
+
+        indexVerifier.verify(Map.of(Supply.class, SupplyRepository.class));
+        verify(indexOperations).ensureIndex(argThat(definition ->
+                Boolean.TRUE.equals(definition.getIndexOptions().get("unique"))));
+
+        when(indexOperations.ensureIndex(any())).thenThrow(new RuntimeException("E11000 duplicate key error"));
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> indexVerifier.verify(Map.of(Supply.class, SupplyRepository.class)));
+        assertTrue(exception.getMessage().contains("E11000"));
+    }
+
+    @Test
+    void matches_ShouldCompareTtlOptions() {
+        IndexDefinitionHolder ttl = new IndexDefinitionHolder("expiresAt",
+                new Index("expiresAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO), "reportJobs");
+
+        assertTrue(IndexVerifier.isRequired(ttl));
+        assertFalse(IndexVerifier.matches(index("expiresAt"), ttl));
+        assertTrue(IndexVerifier.matches(IndexInfo.indexInfoOf(new Document("key", new Document("expiresAt", 1))
+                .append("name", "expiresAt").append("expireAfterSeconds", 0L)), ttl));
+    }
+
+    private List<List<String>> declared(Class<?> domainType) {
+        List<List<String>> indexes = new ArrayList<>();
+        indexes.add(List.of("_id"));
+        for (IndexDefinition definition : IndexResolver.create(mappingContext).resolveIndexFor(domainType))
+            indexes.add(new ArrayList<>(definition.getIndexKeys().keySet()));
+        return indexes;
+    }
+
+    private static IndexInfo index(String... keys) {
+        List<IndexField> fields = new ArrayList<>();
+        for (String key : keys)
+            fields.add(IndexField.create(key, Sort.Direction.ASC));
+        return new IndexInfo(fields, String.join("_", keys), false, false, "");
+    }
+
+    private static IndexInfo unique(String... keys) {
+        List<IndexField> fields = new ArrayList<>();
+        for (String key : keys)
+            fields.add(IndexField.create(key, Sort.Direction.ASC));
+        return new IndexInfo(fields, String.join("_", keys), true, false, "");
+    }
+}
@@ -1,16 +1,27 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.AvailabilityBatchLine;
+import com.App.fullStack.dto.AvailabilityRequestLine;
 import com.App.fullStack.dto.AvailabilityResponse;
 import com.App.fullStack.dto.AvailabilityResponseV2V3;
+import com.App.fullStack.dto.LowAvailabilityDTO;
 import com.App.fullStack.dto.ScatterDataDTO;
 import com.App.fullStack.dto.ScatterLocationDataDTO;
+import com.App.fullStack.dto.StockLevelHeatmapDTO;
 import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.AvailabilityCache;
+import com.App.fullStack.service.AvailabilityReportService;
 import com.App.fullStack.service.AvailabilityService;
+import com.App.fullStack.service.InventorySnapshotService;
+import com.App.fullStack.service.StockLevelHeatmapService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.http.ResponseEntity;
 
 import java.util.List;
@@ -24,6 +35,18 @@ class AvailabilityControllerTest {
     @Mock
     private AvailabilityService availabilityService;
 
+    @Mock
+    private StockLevelHeatmapService stockLevelHeatmapService;
+
+    @Mock
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Mock
+    private AvailabilityReportService availabilityReportService;
+
+    @Spy
+    private AvailabilityCache availabilityCache = new AvailabilityCache();
+
     @InjectMocks
     private AvailabilityController availabilityController;
 
@@ -211,29 +234,135 @@ class AvailabilityControllerTest {
         String locationId = "location456";
         ScatterLocationDataDTO mockResponse = new ScatterLocationDataDTO( List.of(new ScatterDataDTO(2009, 100, 90, "name")), locationId);
 
-        when(availabilityService.getAvailabilityScatterData(locationId)).thenReturn(mockResponse);
+        when(availabilityService.getAvailabilityScatterData(locationId, null, null)).thenReturn(mockResponse);
 
-        ResponseEntity<ApiResponse<ScatterLocationDataDTO>> response = availabilityController.getAvailabilityScatterData(locationId);
+        ResponseEntity<ApiResponse<ScatterLocationDataDTO>> response = availabilityController.getAvailabilityScatterData(locationId, null);
 
         assertEquals(200, response.getStatusCode().value());
         assertTrue(Objects.requireNonNull(response.getBody()).isSuccess());
         assertEquals("Scatter Data Retrieved", response.getBody().getMessage());
         assertEquals(mockResponse, response.getBody().getPayload());
 
-        verify(availabilityService, times(1)).getAvailabilityScatterData(locationId);
+        verify(availabilityService, times(1)).getAvailabilityScatterData(locationId, null, null);
     }
 
     @Test
     void getAvailabilityScatterData_Failure() {
         String locationId = "location456";
 
-        when(availabilityService.getAvailabilityScatterData(locationId)).thenReturn(null);
+        when(availabilityService.getAvailabilityScatterData(locationId, null, null)).thenReturn(null);
 
-        ResponseEntity<ApiResponse<ScatterLocationDataDTO>> response = availabilityController.getAvailabilityScatterData(locationId);
+        ResponseEntity<ApiResponse<ScatterLocationDataDTO>> response = availabilityController.getAvailabilityScatterData(locationId, null);
 
         assertEquals(200, response.getStatusCode().value());
         assertNull(Objects.requireNonNull(response.getBody()).getPayload());
 
-        verify(availabilityService, times(1)).getAvailabilityScatterData(locationId);
+        verify(availabilityService, times(1)).getAvailabilityScatterData(locationId, null, null);
+    }
+
+    @Test
+    void getAvailabilityScatterData_Bucketed() {
+        String locationId = "location456";
+        ScatterLocationDataDTO mockResponse = new ScatterLocationDataDTO(List.of(new ScatterDataDTO(2009, 100, 90, "name")),
+                locationId, true, 5000, List.of(), List.of());
+
+        when(availabilityService.getAvailabilityScatterData(locationId, 100, null)).thenReturn(mockResponse);
+
+        ResponseEntity<ApiResponse<ScatterLocationDataDTO>> response = availabilityController.getAvailabilityScatterData(locationId, 100);
+
+        assertTrue(Objects.requireNonNull(response.getBody()).getPayload().isBucketed());
+        assertEquals(5000, response.getBody().getPayload().getTotalItems());
+        verify(availabilityService, times(1)).getAvailabilityScatterData(locationId, 100, null);
+    }
+
+    // Repeated reads of the same pair are served from the cache until a write invalidates it
+    @Test
+    void getV3AvailabilityByLocation_ServedFromCache() {
+        String itemId = "item123";
+        String locationId = "location456";
+        when(availabilityService.calculateV3AvailabilityByLocation(itemId, locationId))
+                .thenReturn(new AvailabilityResponseV2V3(itemId, locationId, 10, "Green"));
+
+        availabilityController.getV3AvailabilityByLocation(itemId, locationId);
+        ResponseEntity<ApiResponse<AvailabilityResponseV2V3>> response = availabilityController.getV3AvailabilityByLocation(itemId, locationId);
+
+        assertEquals(10, Objects.requireNonNull(response.getBody()).getPayload().getAvailableQty());
+        verify(availabilityService, times(1)).calculateV3AvailabilityByLocation(itemId, locationId);
+
+        availabilityCache.invalidate(itemId, locationId);
+        availabilityController.getV3AvailabilityByLocation(itemId, locationId);
+
+        verify(availabilityService, times(2)).calculateV3AvailabilityByLocation(itemId, locationId);
+    }
+
+    // Test for API v3: batch availability
+    @Test
+    void getV3AvailabilityBatch_Success() {
+        List<AvailabilityRequestLine> lines = List.of(new AvailabilityRequestLine("item123", "location456"));
+        List<AvailabilityBatchLine> mockResponse = List.of(new AvailabilityBatchLine("item123", "location456", true,
+                new AvailabilityResponseV2V3("item123", "location456", 10, "Green"), null));
+
+        when(availabilityService.calculateV3AvailabilityBatch(lines)).thenReturn(mockResponse);
+
+        ResponseEntity<ApiResponse<List<AvailabilityBatchLine>>> response = availabilityController.getV3AvailabilityBatch(lines);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertTrue(Objects.requireNonNull(response.getBody()).isSuccess());
+        assertEquals(mockResponse, response.getBody().getPayload());
+
+        verify(availabilityService, times(1)).calculateV3AvailabilityBatch(lines);
+    }
+
+    // Test for API v3: availability across all locations
+    @Test
+    void getV3AvailabilityInAllLocation_Success() {
+        String itemId = "item123";
+        AvailabilityResponseV2V3 mockResponse = new AvailabilityResponseV2V3(itemId, "NETWORK", 300, "Green");
+
+        when(availabilityService.calculateV3AvailabilityInAllLocation(itemId)).thenReturn(mockResponse);
+
+        ResponseEntity<ApiResponse<AvailabilityResponseV2V3>> response = availabilityController.getV3AvailabilityInAllLocation(itemId);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("NETWORK", Objects.requireNonNull(response.getBody()).getPayload().getLocationId());
+        assertEquals(300, response.getBody().getPayload().getAvailableQty());
+
+        verify(availabilityService, times(1)).calculateV3AvailabilityInAllLocation(itemId);
+    }
+
+    @Test
+    void getStockLevelHeatmap_Success() {
+        List<StockLevelHeatmapDTO> heatmap = List.of(new StockLevelHeatmapDTO("location456", 1, 2, 3, 4));
+        when(stockLevelHeatmapService.getHeatmap()).thenReturn(heatmap);
+
+        ResponseEntity<ApiResponse<List<StockLevelHeatmapDTO>>> response = availabilityController.getStockLevelHeatmap();
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(10, Objects.requireNonNull(response.getBody()).getPayload().get(0).getTotal());
+    }
+
+    @Test
+    void getStockLevelDrillDown_Success() {
+        Page<AvailabilityResponseV2V3> items = new PageImpl<>(List.of(new AvailabilityResponseV2V3("item123", "location456", 1, "Red")));
+        when(stockLevelHeatmapService.getLocationDrillDown("location456", "Red", 0, 8)).thenReturn(items);
+
+        ResponseEntity<ApiResponse<Page<AvailabilityResponseV2V3>>> response =
+                availabilityController.getStockLevelDrillDown("location456", "Red", 0, 8);
+
+        assertEquals("Red", Objects.requireNonNull(response.getBody()).getPayload().getContent().get(0).getStockLevel());
+        verify(stockLevelHeatmapService).getLocationDrillDown("location456", "Red", 0, 8);
+    }
+
+    @Test
+    void getLowestAvailabilityReport_Success() {
+        List<LowAvailabilityDTO> report = List.of(new LowAvailabilityDTO("item123", "location456", -4, 10, 14, "Red"));
+        when(availabilityReportService.getLowestAvailability("location456", 100, "belowThreshold")).thenReturn(report);
+
+        ResponseEntity<ApiResponse<List<LowAvailabilityDTO>>> response =
+                availabilityController.getLowestAvailabilityReport("location456", 100, "belowThreshold");
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(14, Objects.requireNonNull(response.getBody()).getPayload().get(0).getShortfall());
+        verify(availabilityReportService).getLowestAvailability("location456", 100, "belowThreshold");
     }
 }
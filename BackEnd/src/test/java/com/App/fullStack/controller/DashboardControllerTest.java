@@ -2,6 +2,8 @@ package com.App.fullStack.controller;
 
 import com.App.fullStack.responseHandler.ApiResponse;
 import com.App.fullStack.service.DashboardService;
+import com.App.fullStack.service.InventorySnapshot;
+import com.App.fullStack.service.InventorySnapshotService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -9,9 +11,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,6 +25,9 @@ class DashboardControllerTest {
     @Mock
     private DashboardService dashboardService;
 
+    @Mock
+    private InventorySnapshotService inventorySnapshotService;
+
     @InjectMocks
     private DashboardController dashboardController;
 
@@ -39,7 +46,7 @@ class DashboardControllerTest {
         mockDashboardData.put("totalDemands", 12);
 
         // Mock the service method call
-        when(dashboardService.getDashboardData()).thenReturn(mockDashboardData);
+        when(dashboardService.getDashboardData(null)).thenReturn(mockDashboardData);
 
         // Call the controller method
         ResponseEntity<ApiResponse<Map<String, Object>>> response = dashboardController.getDashboardData();
@@ -51,7 +58,7 @@ class DashboardControllerTest {
         assertEquals(mockDashboardData, response.getBody().getPayload());
 
         // Verify that the service method was called once
-        verify(dashboardService, times(1)).getDashboardData();
+        verify(dashboardService, times(1)).getDashboardData(null);
     }
 
     @Test
@@ -60,7 +67,7 @@ class DashboardControllerTest {
         Map<String, Object> mockDashboardData = new HashMap<>();
 
         // Mock the service method call
-        when(dashboardService.getDashboardData()).thenReturn(mockDashboardData);
+        when(dashboardService.getDashboardData(null)).thenReturn(mockDashboardData);
 
         // Call the controller method
         ResponseEntity<ApiResponse<Map<String, Object>>> response = dashboardController.getDashboardData();
@@ -72,6 +79,20 @@ class DashboardControllerTest {
         assertTrue(response.getBody().getPayload().isEmpty());
 
         // Verify that the service method was called once
-        verify(dashboardService, times(1)).getDashboardData();
+        verify(dashboardService, times(1)).getDashboardData(null);
+    }
+
+    @Test
+    void getDashboardData_ShouldReportTheSnapshotEpochItWasReadFrom() {
+        InventorySnapshot snapshot = new InventorySnapshot(7, Instant.now().minusSeconds(60), 0, Map.of(), Map.of(),
+                new TreeMap<>());
+        when(inventorySnapshotService.current()).thenReturn(snapshot);
+        when(dashboardService.getDashboardData(snapshot)).thenReturn(Map.of("totalItems", 3L));
+
+        ResponseEntity<ApiResponse<Map<String, Object>>> response = dashboardController.getDashboardData();
+
+        assertEquals(Map.of("totalItems", 3L), Objects.requireNonNull(response.getBody()).getPayload());
+        assertEquals("7", response.getHeaders().getFirst(InventorySnapshotService.EPOCH_HEADER));
+        assertTrue(Long.parseLong(response.getHeaders().getFirst(InventorySnapshotService.AGE_HEADER)) >= 60000);
     }
 }
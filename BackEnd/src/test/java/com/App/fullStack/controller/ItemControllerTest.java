@@ -1,10 +1,14 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.ItemSearchCriteria;
+import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.ItemStatus;
 import com.App.fullStack.responseHandler.ApiResponse;
 import com.App.fullStack.service.ItemService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -12,6 +16,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.util.Objects;
@@ -56,6 +63,35 @@ class ItemControllerTest {
         assertNotNull(result.getBody());
     }
 
+    // Test case for the structured search: typed request parameters become one criteria object
+    @Test
+    void searchItems_Success() {
+        Page<Item> mockPage = mock(Page.class);
+        when(itemService.searchItems(any(ItemSearchCriteria.class), eq(0), eq(8))).thenReturn(mockPage);
+
+        ResponseEntity<ApiResponse<Page<Item>>> result = itemController.searchItems(0, 8, null, 5.0, null, "active",
+                "Apparel", null, null, true, null);
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        ArgumentCaptor<ItemSearchCriteria> criteria = ArgumentCaptor.forClass(ItemSearchCriteria.class);
+        verify(itemService).searchItems(criteria.capture(), eq(0), eq(8));
+        assertEquals(ItemStatus.ACTIVE, criteria.getValue().getStatus());
+        assertEquals("Apparel", criteria.getValue().getCategoryPrefix());
+        assertEquals(5.0, criteria.getValue().getMinPrice());
+        assertEquals(true, criteria.getValue().getShippingAllowed());
+    }
+
+    // Test case for an unknown status: a client error listing the allowed values, and no search
+    @Test
+    void searchItems_RejectsUnknownStatus() {
+        Exception exception = assertThrows(FoundException.class, () -> itemController.searchItems(0, 8, null, null,
+                null, "archived", null, null, null, null, null));
+
+        assertEquals("Invalid status: archived. Expected one of [ACTIVE, INACTIVE, DISCONTINUED].",
+                exception.getMessage());
+        verify(itemService, never()).searchItems(any(ItemSearchCriteria.class), anyInt(), anyInt());
+    }
+
     // Test case for getting an item by its ID successfully
     @Test
     void getItemById_Success() {
@@ -3,6 +3,7 @@ package com.App.fullStack.controller;
 import com.App.fullStack.dto.LocationData;
 import com.App.fullStack.pojos.Location;
 import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.InventorySnapshotService;
 import com.App.fullStack.service.LocationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,6 +25,9 @@ class LocationControllerTest {
     @Mock
     private LocationService locationService;
 
+    @Mock
+    private InventorySnapshotService inventorySnapshotService;
+
     @InjectMocks
     private LocationController locationController;
 
@@ -211,28 +215,28 @@ class LocationControllerTest {
     @Test
     void stackedBarData_Success() {
         List<LocationData> mockData = mock(List.class);
-        when(locationService.getStackedBarData()).thenReturn(mockData);
+        when(locationService.getStackedBarData(null, null, 5, null)).thenReturn(mockData);
 
-        ResponseEntity<ApiResponse<List<LocationData>>> result = locationController.stackedBarData();
+        ResponseEntity<ApiResponse<List<LocationData>>> result = locationController.stackedBarData(null, null, 5);
 
         assertEquals(HttpStatus.OK, result.getStatusCode());
         assertTrue(Objects.requireNonNull(result.getBody()).isSuccess());
         assertEquals(mockData, result.getBody().getPayload());
 
-        verify(locationService, times(1)).getStackedBarData();
+        verify(locationService, times(1)).getStackedBarData(null, null, 5, null);
     }
 
     // Test case for fetching stacked bar data when no data is found
     @Test
     void stackedBarData_NotFound() {
-        when(locationService.getStackedBarData()).thenReturn(null);
+        when(locationService.getStackedBarData(null, null, 5, null)).thenReturn(null);
 
-        ResponseEntity<ApiResponse<List<LocationData>>> result = locationController.stackedBarData();
+        ResponseEntity<ApiResponse<List<LocationData>>> result = locationController.stackedBarData(null, null, 5);
 
         assertEquals(HttpStatus.NOT_FOUND, result.getStatusCode());
         assertFalse(Objects.requireNonNull(result.getBody()).isSuccess());
         assertNull(result.getBody().getPayload());
 
-        verify(locationService, times(1)).getStackedBarData();
+        verify(locationService, times(1)).getStackedBarData(null, null, 5, null);
     }
 }
@@ -0,0 +1,90 @@
+package com.App.fullStack.controller;
+
+import com.App.fullStack.dto.ReportJobRequest;
+import com.App.fullStack.pojos.ReportJob;
+import com.App.fullStack.pojos.ReportJobStatus;
+import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.ReportJobService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.BsonObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReportJobControllerTest {
+
+    @Mock
+    private ReportJobService reportJobService;
+
+    @InjectMocks
+    private ReportJobController reportJobController;
+
+    private ReportJob job;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        job = new ReportJob("job1", "stackedBar", Map.of(), "stackedBar{}", ReportJobStatus.QUEUED, 0, Instant.now(),
+                null, null, null, null, Instant.now());
+    }
+
+    @Test
+    void submitReportJob_Success() {
+        ReportJobRequest request = new ReportJobRequest("stackedBar", Map.of());
+        when(reportJobService.submit(request)).thenReturn(job);
+
+        ResponseEntity<ApiResponse<ReportJob>> response = reportJobController.submitReportJob(request);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("job1", Objects.requireNonNull(response.getBody()).getPayload().getJobId());
+    }
+
+    @Test
+    void getReportJob_Success() {
+        when(reportJobService.getJob("job1")).thenReturn(job);
+
+        ResponseEntity<ApiResponse<ReportJob>> response = reportJobController.getReportJob("job1");
+
+        assertEquals(ReportJobStatus.QUEUED, Objects.requireNonNull(response.getBody()).getPayload().getStatus());
+    }
+
+    @Test
+    void downloadReportJobResult_ShouldReturnTheJsonAsAnAttachment() {
+        GridFsResource result = new GridFsResource(new GridFSFile(new BsonObjectId(), "report-job1.json", 2, 255,
+                new Date(), null), new ByteArrayInputStream("[]".getBytes()));
+        when(reportJobService.getResult("job1")).thenReturn(result);
+
+        ResponseEntity<Resource> response = reportJobController.downloadReportJobResult("job1");
+
+        assertSame(result, response.getBody());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("report-job1.json"));
+    }
+
+    @Test
+    void cancelReportJob_Success() {
+        job.setStatus(ReportJobStatus.CANCELLED);
+        when(reportJobService.cancel("job1")).thenReturn(job);
+
+        ResponseEntity<ApiResponse<ReportJob>> response = reportJobController.cancelReportJob("job1");
+
+        assertEquals(ReportJobStatus.CANCELLED, Objects.requireNonNull(response.getBody()).getPayload().getStatus());
+        verify(reportJobService).cancel("job1");
+    }
+}
@@ -1,11 +1,15 @@
 package com.App.fullStack.controller;
 
+import com.App.fullStack.dto.BulkImportReport;
+import com.App.fullStack.dto.QuantityAdjustment;
 import com.App.fullStack.dto.SupplyDTO;
 import com.App.fullStack.dto.SupplyDetailsResponse;
 import com.App.fullStack.dto.SupplySummaryResponse;
+import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.Supply;
 import com.App.fullStack.pojos.SupplyType;
 import com.App.fullStack.responseHandler.ApiResponse;
+import com.App.fullStack.service.BulkImportService;
 import com.App.fullStack.service.SupplyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +20,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +32,9 @@ class SupplyControllerTest {
     @Mock
     private SupplyService supplyService;
 
+    @Mock
+    private BulkImportService bulkImportService;
+
     @InjectMocks
     private SupplyController supplyController;
 
@@ -252,4 +261,44 @@ class SupplyControllerTest {
 
         verify(supplyService, times(1)).deleteSupply("supply123");
     }
+
+    // Test case for a bulk import where some rows failed
+    @Test
+    void bulkImportSupplies_WithErrors() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        BulkImportReport report = new BulkImportReport();
+        report.setReceived(3);
+        report.setFailed(1);
+        when(bulkImportService.importSupplies(body, "text/csv")).thenReturn(report);
+
+        ResponseEntity<ApiResponse<BulkImportReport>> result = supplyController.bulkImportSupplies("text/csv", body);
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertFalse(Objects.requireNonNull(result.getBody()).isSuccess());
+        assertEquals("Bulk Import Completed With Errors", result.getBody().getMessage());
+        assertEquals(report, result.getBody().getPayload());
+    }
+
+    // Test case for adjusting a supply by item, location and type
+    @Test
+    void adjustSupplyByItemAndLocation_Success() {
+        Supply adjusted = new Supply("1", "item1", "loc1", SupplyType.ONHAND, 15);
+        when(supplyService.adjustSupply("item1", "loc1", SupplyType.ONHAND, 5)).thenReturn(adjusted);
+
+        ResponseEntity<ApiResponse<Supply>> result = supplyController.adjustSupplyByItemAndLocation(
+                "item1", "loc1", "onhand", new QuantityAdjustment(5));
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals("Supply Adjusted.", Objects.requireNonNull(result.getBody()).getMessage());
+        assertEquals(15, result.getBody().getPayload().getQuantity());
+    }
+
+    @Test
+    void adjustSupplyByItemAndLocation_RejectsUnknownSupplyType() {
+        FoundException exception = assertThrows(FoundException.class, () -> supplyController.adjustSupplyByItemAndLocation(
+                "item1", "loc1", "stolen", new QuantityAdjustment(5)));
+
+        assertEquals("Invalid supplyType: stolen. Expected one of [ONHAND, INTRANSIT, DAMAGED].", exception.getMessage());
+        verifyNoInteractions(supplyService);
+    }
 }
@@ -7,8 +7,20 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.core.env.Environment;
 
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
-import static org.mockito.Mockito.when;
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.SupplyType;
+import com.App.fullStack.service.AvailabilityCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 public class AvailabilityConfigTest {
 
@@ -18,6 +30,9 @@ public class AvailabilityConfigTest {
     @Mock
     private Environment env;
 
+    @Mock
+    private AvailabilityCache availabilityCache;
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -60,4 +75,49 @@ public class AvailabilityConfigTest {
         // Assert
         assertArrayEquals(new String[]{"LOCATION1", "LOCATION2"}, excludedLocations);
     }
+
+    @Test
+    public void testGetPolicy_CompilesTypesAndExclusions() {
+        when(env.getProperty("availability.supplies", "ONHAND,PLANNED,INTRANSIT")).thenReturn("ONHAND,PLANNED,INTRANSIT");
+        when(env.getProperty("availability.demands", "CONFIRMED,HARDPROMISED")).thenReturn("HARD_PROMISED,CONFIRMED");
+        when(env.getProperty("availability.locations.exclude", "")).thenReturn("LOCATION1,LOCATION2");
+
+        AvailabilityPolicy policy = availabilityConfig.getPolicy();
+
+        assertEquals(EnumSet.of(SupplyType.ONHAND, SupplyType.INTRANSIT), policy.getSupplyTypes());
+        assertEquals(Set.of(DemandType.HARD_PROMISED), policy.getDemandTypes());
+        assertEquals(List.of("ONHAND", "INTRANSIT"), policy.getSupplyTypeNames());
+        assertTrue(policy.isExcluded("LOCATION2"));
+        assertFalse(policy.isExcluded("LOCATION3"));
+        assertSame(policy, availabilityConfig.getPolicy()); // compiled once
+    }
+
+    @Test
+    public void testReloadIfChanged_SwapsPolicyWhenFileChanges() throws IOException {
+        Path file = Files.createTempFile("availability", ".config");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, "availability.supplies=ONHAND\navailability.demands=HARD_PROMISED\n");
+        when(env.getProperty("availability.config.location", "classpath:availability.config")).thenReturn("file:" + file);
+
+        availabilityConfig.reloadIfChanged();
+        AvailabilityPolicy first = availabilityConfig.getPolicy();
+        assertEquals(Set.of(SupplyType.ONHAND), first.getSupplyTypes());
+        assertTrue(first.getExcludedLocationIds().isEmpty());
+
+        verify(availabilityCache).clear();
+
+        availabilityConfig.reloadIfChanged();
+        assertSame(first, availabilityConfig.getPolicy()); // unchanged file, nothing recompiled
+        verify(availabilityCache).clear();
+
+        Files.writeString(file, "availability.supplies=ONHAND,DAMAGED\navailability.locations.exclude=18100\n");
+        File changed = file.toFile();
+        assertTrue(changed.setLastModified(changed.lastModified() + 2000));
+        availabilityConfig.reloadIfChanged();
+
+        AvailabilityPolicy reloaded = availabilityConfig.getPolicy();
+        assertEquals(EnumSet.of(SupplyType.ONHAND, SupplyType.DAMAGED), reloaded.getSupplyTypes());
+        assertTrue(reloaded.isExcluded("18100"));
+        verify(availabilityCache, times(2)).clear();
+    }
 }
@@ -16,15 +16,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -53,6 +58,15 @@ public class AtpThresholdServiceTest {
     @Mock
     private LocationRepository locationRepository;
 
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private AvailabilityCache availabilityCache;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     private AtpThreshold atpThreshold;
 
     @BeforeEach
@@ -183,7 +197,7 @@ public class AtpThresholdServiceTest {
 
     @Test
     void addAtpThreshold_ShouldThrowException_WhenThresholdAlreadyExists() {
-        when(atpThresholdRepository.existsByItemIdAndLocationId("itemId", "locationId")).thenReturn(true);
+        when(atpThresholdRepository.insert(atpThreshold)).thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
 
         Exception exception = assertThrows(FoundException.class, () -> {
             atpThresholdService.AddAtpThreshold(atpThreshold);
@@ -228,17 +242,19 @@ public class AtpThresholdServiceTest {
     // Test deleteAtpThresholdById method
     @Test
     void deleteAtpThresholdById_ShouldDeleteThreshold_WhenExists() {
-        when(atpThresholdRepository.findByThresholdId("thresholdId")).thenReturn(Optional.of(atpThreshold));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(AtpThreshold.class))).thenReturn(atpThreshold);
 
         String result = atpThresholdService.deleteAtpThresholdById("thresholdId");
 
         assertEquals("Threshold deleted successfully.", result);
-        verify(atpThresholdRepository).delete(atpThreshold);
+        verify(atpThresholdRepository, never()).delete(any());
+        verify(availabilityProjection).removeThreshold(atpThreshold);
+        verify(availabilityCache).invalidate(atpThreshold.getItemId(), atpThreshold.getLocationId());
     }
 
     @Test
     void deleteAtpThresholdById_ShouldThrowException_WhenNotFound() {
-        when(atpThresholdRepository.findByThresholdId("invalidId")).thenReturn(Optional.empty());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(AtpThreshold.class))).thenReturn(null);
 
         Exception exception = assertThrows(FoundException.class, () -> {
             atpThresholdService.deleteAtpThresholdById("invalidId");
@@ -284,8 +300,8 @@ public class AtpThresholdServiceTest {
     @Test
     void addThresholdDetails_ShouldReturnThresholdDTOs_WhenThresholdsExist() {
         List<AtpThreshold> thresholds = Collections.singletonList(atpThreshold);
-        when(itemService.getItemByItemIdWithOutException("itemId")).thenReturn(new Item("itemId", "Item1","Item name","Item cat", null, null, 0.0, true, true, true));
-        when(locationService.getLocationByIdWithoutException("locationId")).thenReturn(new Location("www", "loc1", "Location 1", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345"));
+        when(itemService.getItemDescriptions(Set.of("itemId"))).thenReturn(Map.of("itemId", "Item name"));
+        when(locationService.getLocationDescriptions(Set.of("locationId"))).thenReturn(Map.of("locationId", "Location 1"));
 
         List<ThresholdDTO> result = atpThresholdService.AddThresholdDetails(thresholds);
 
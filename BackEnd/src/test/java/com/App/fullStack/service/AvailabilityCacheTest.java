@@ -0,0 +1,108 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.AvailabilityResponseV2V3;
+import com.App.fullStack.exception.FoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityCacheTest {
+
+    private AvailabilityCache availabilityCache;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        availabilityCache = new AvailabilityCache();
+        meterRegistry = new SimpleMeterRegistry();
+        availabilityCache.meterRegistry = meterRegistry;
+        availabilityCache.registerMetrics();
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndCountHitsAndMisses() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++)
+            availabilityCache.get("v3", "item1", "loc1", () -> {
+                loads.incrementAndGet();
+                return new AvailabilityResponseV2V3("item1", "loc1", 10, "Green");
+            });
+
+        assertEquals(1, loads.get());
+        assertEquals(2, meterRegistry.get("availability.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("availability.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1, meterRegistry.get("availability.cache.size").gauge().value());
+    }
+
+    @Test
+    void invalidate_ShouldDropPairAndNetworkEntriesForEveryVersion() {
+        availabilityCache.get("v1", "item1", "loc1", () -> "v1-loc1");
+        availabilityCache.get("v3", "item1", "loc1", () -> "v3-loc1");
+        availabilityCache.get("v2", "item1", AvailabilityCache.NETWORK, () -> "v2-network");
+        availabilityCache.get("v3", "item1", "loc2", () -> "v3-loc2");
+        availabilityCache.get("v3", "item2", "loc1", () -> "other-item");
+
+        availabilityCache.invalidate("item1", "loc1");
+
+        assertEquals(2, availabilityCache.size()); // only item1/loc2 and item2/loc1 survive
+        assertEquals(3, meterRegistry.get("availability.cache.evictions").tag("cause", "invalidated").functionCounter().count());
+        assertEquals("v3-loc2", availabilityCache.get("v3", "item1", "loc2", () -> "reloaded"));
+    }
+
+    @Test
+    void get_ShouldOnlyDropLoadsRacedByAnInvalidationOfTheSameItem() {
+        availabilityCache.get("v3", "item1", "loc1", () -> {
+            availabilityCache.invalidate("item1", "loc1");
+            return "stale";
+        });
+        availabilityCache.get("v3", "item2", "loc1", () -> {
+            availabilityCache.invalidate("item1", "loc1");
+            return "current";
+        });
+
+        assertEquals(1, availabilityCache.size());
+        assertEquals("reloaded", availabilityCache.get("v3", "item1", "loc1", () -> "reloaded"));
+        assertEquals("current", availabilityCache.get("v3", "item2", "loc1", () -> "unused"));
+    }
+
+    @Test
+    void get_ShouldEvictLeastRecentlyUsedPastMaxSize() {
+        ReflectionTestUtils.setField(availabilityCache, "maxSize", 2);
+
+        availabilityCache.get("v3", "item1", "loc1", () -> "a");
+        availabilityCache.get("v3", "item2", "loc1", () -> "b");
+        availabilityCache.get("v3", "item1", "loc1", () -> "unused"); // touch item1 so item2 is the eldest
+        availabilityCache.get("v3", "item3", "loc1", () -> "c");
+
+        assertEquals(2, availabilityCache.size());
+        assertEquals("a", availabilityCache.get("v3", "item1", "loc1", () -> "reloaded"));
+        assertEquals("b2", availabilityCache.get("v3", "item2", "loc1", () -> "b2"));
+        assertTrue(meterRegistry.get("availability.cache.evictions").tag("cause", "size").functionCounter().count() >= 1);
+    }
+
+    @Test
+    void get_ShouldExpireEntriesAfterTtl() {
+        ReflectionTestUtils.setField(availabilityCache, "ttlSeconds", 0L);
+
+        availabilityCache.get("v3", "item1", "loc1", () -> "first");
+
+        assertEquals("second", availabilityCache.get("v3", "item1", "loc1", () -> "second"));
+        assertEquals(1, meterRegistry.get("availability.cache.evictions").tag("cause", "expired").functionCounter().count());
+    }
+
+    @Test
+    void get_ShouldNotCacheFailures() {
+        assertThrows(FoundException.class, () -> availabilityCache.get("v3", "item1", "loc1", () -> {
+            throw new FoundException("Records with ItemId: item1 and LocationId: loc1 not found.");
+        }));
+
+        assertEquals(0, availabilityCache.size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.App.fullStack.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class AvailabilityProjectionHealthIndicatorTest {
+
+    @InjectMocks
+    private AvailabilityProjectionHealthIndicator healthIndicator;
+
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(availabilityProjection.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void health_ShouldBeUpOnceTheProjectionIsReady() {
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.getItemLocationCount()).thenReturn(42);
+
+        Health health = healthIndicator.health();
+
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(42, health.getDetails().get("itemLocations"));
+        assertFalse(health.getDetails().containsKey("nextRebuildAt"));
+    }
+
+    @Test
+    void health_ShouldReportTheScheduledRetryWhileNotReady() {
+        Instant retry = Instant.now().plusSeconds(10);
+        when(availabilityProjection.getFailedRebuilds()).thenReturn(2);
+        when(availabilityProjection.getNextRebuildAt()).thenReturn(retry);
+
+        Health health = healthIndicator.health();
+
+        assertEquals(Status.UNKNOWN, health.getStatus());
+        assertEquals(false, health.getDetails().get("ready"));
+        assertEquals(2, health.getDetails().get("failedRebuilds"));
+        assertEquals(retry, health.getDetails().get("nextRebuildAt"));
+    }
+
+    @Test
+    void health_ShouldBeUpWhenTheProjectionIsDisabled() {
+        when(availabilityProjection.isEnabled()).thenReturn(false);
+
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+    }
+}
@@ -0,0 +1,251 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AvailabilityProjectionTest {
+
+    @InjectMocks
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private StockLevelEventDispatcher stockLevelEventDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void rebuild_ShouldScheduleRetriesWithBackoffUntilItSucceeds() throws InterruptedException {
+        when(mongoTemplate.stream(any(Query.class), eq(Supply.class))).thenThrow(new IllegalStateException("no primary"));
+
+        assertFalse(availabilityProjection.rebuild());
+        Instant firstRetry = availabilityProjection.getNextRebuildAt();
+        assertEquals(1, availabilityProjection.getFailedRebuilds());
+        assertFalse(availabilityProjection.rebuild());
+        Duration secondDelay = Duration.between(Instant.now(), availabilityProjection.getNextRebuildAt());
+
+        assertFalse(availabilityProjection.isReady());
+        assertEquals(2, availabilityProjection.getFailedRebuilds());
+        assertTrue(Duration.between(Instant.now(), firstRetry).toMillis() <= 5000);
+        assertTrue(secondDelay.toMillis() > 5000 && secondDelay.toMillis() <= 10000);
+
+        // Not due yet, nothing runs
+        availabilityProjection.rebuildIfDue();
+        verify(mongoTemplate, times(2)).stream(any(Query.class), eq(Supply.class));
+
+        reset(mongoTemplate);
+        when(mongoTemplate.stream(any(Query.class), any())).thenAnswer(invocation -> Stream.empty());
+        ReflectionTestUtils.setField(availabilityProjection, "nextRebuildAt", Instant.now().minusMillis(1));
+        availabilityProjection.rebuildIfDue();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!availabilityProjection.isReady() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertTrue(availabilityProjection.isReady());
+        assertEquals(0, availabilityProjection.getFailedRebuilds());
+        assertNull(availabilityProjection.getNextRebuildAt());
+    }
+
+    @Test
+    void rebuild_ShouldLoadTotalsAndThresholds() {
+        when(mongoTemplate.stream(any(Query.class), eq(Supply.class))).thenAnswer(invocation -> Stream.of(
+                new Supply("s1", "item1", "loc1", SupplyType.ONHAND, 40),
+                new Supply("s2", "item1", "loc2", SupplyType.ONHAND, 10),
+                new Supply("s3", "item1", "loc1", SupplyType.DAMAGED, 5)));
+        when(mongoTemplate.stream(any(Query.class), eq(Demand.class))).thenAnswer(invocation -> Stream.of(
+                new Demand("d1", DemandType.HARD_PROMISED, 15, "item1", "loc1")));
+        when(mongoTemplate.stream(any(Query.class), eq(AtpThreshold.class))).thenAnswer(invocation -> Stream.of(
+                new AtpThreshold("t1", "item1", "loc1", 5, 50)));
+
+        assertFalse(availabilityProjection.isReady());
+        availabilityProjection.rebuild();
+
+        assertTrue(availabilityProjection.isReady());
+        StockTotals loc1 = availabilityProjection.getTotals("item1", "loc1");
+        assertEquals(40, loc1.getSupplyQuantity(SupplyType.ONHAND));
+        assertEquals(5, loc1.getSupplyQuantity(SupplyType.DAMAGED));
+        assertEquals(15, loc1.getDemandQuantity(DemandType.HARD_PROMISED));
+        assertEquals(50, availabilityProjection.getNetworkTotals("item1").getSupplyQuantity(SupplyType.ONHAND));
+        assertTrue(availabilityProjection.findThreshold("item1", "loc1").isPresent());
+    }
+
+    @Test
+    void applySupply_ShouldTrackDeltasAndDropEmptyEntries() {
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, 20, 1);
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, 5, 0);
+
+        assertEquals(25, availabilityProjection.getTotals("item1", "loc1").getSupplyQuantity(SupplyType.ONHAND));
+        assertEquals(25, availabilityProjection.getNetworkTotals("item1").getSupplyQuantity(SupplyType.ONHAND));
+
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, -25, -1);
+
+        assertNull(availabilityProjection.getTotals("item1", "loc1"));
+        assertNull(availabilityProjection.getNetworkTotals("item1"));
+    }
+
+    @Test
+    void forEachTotalsAt_ShouldVisitOnlyTheLocationsCurrentItems() {
+        when(mongoTemplate.stream(any(Query.class), eq(Supply.class))).thenAnswer(invocation -> Stream.of(
+                new Supply("s1", "item1", "loc1", SupplyType.ONHAND, 40),
+                new Supply("s2", "item1", "loc2", SupplyType.ONHAND, 10)));
+        when(mongoTemplate.stream(any(Query.class), eq(Demand.class))).thenAnswer(invocation -> Stream.empty());
+        when(mongoTemplate.stream(any(Query.class), eq(AtpThreshold.class))).thenAnswer(invocation -> Stream.empty());
+        availabilityProjection.rebuild();
+        availabilityProjection.applyDemand("item2", "loc1", DemandType.HARD_PROMISED, 3, 1);
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, -40, -1);
+
+        Map<String, Integer> visited = new HashMap<>();
+        availabilityProjection.forEachTotalsAt("loc1", (key, totals) ->
+                visited.put(key.getItemId(), totals.getDemandQuantity(DemandType.HARD_PROMISED)));
+
+        assertEquals(Map.of("item2", 3), visited);
+        availabilityProjection.forEachTotalsAt("missing", (key, totals) -> fail("no items at this location"));
+    }
+
+    @Test
+    void applyDemand_ShouldIgnoreMissingType() {
+        long version = availabilityProjection.getVersion();
+
+        availabilityProjection.applyDemand("item1", "loc1", null, 10, 1);
+
+        assertNull(availabilityProjection.getTotals("item1", "loc1"));
+        assertEquals(version, availabilityProjection.getVersion());
+    }
+
+    @Test
+    void thresholds_ShouldBePutAndRemoved() {
+        AtpThreshold threshold = new AtpThreshold("t1", "item1", "loc1", 5, 50);
+
+        availabilityProjection.putThreshold(threshold);
+        assertEquals(50, availabilityProjection.findThreshold("item1", "loc1").orElseThrow().getMaxThreshold());
+
+        availabilityProjection.removeThreshold(threshold);
+        assertTrue(availabilityProjection.findThreshold("item1", "loc1").isEmpty());
+    }
+
+    @Test
+    void refreshItem_ShouldReplaceItemTotalsFromMongo() {
+        when(mongoTemplate.stream(any(Query.class), eq(Supply.class))).thenAnswer(invocation -> Stream.empty()).thenAnswer(invocation -> Stream.of(
+                new Supply("s1", "item1", "loc1", SupplyType.ONHAND, 70)));
+        when(mongoTemplate.stream(any(Query.class), eq(Demand.class))).thenAnswer(invocation -> Stream.empty()).thenAnswer(invocation -> Stream.empty());
+        when(mongoTemplate.stream(any(Query.class), eq(AtpThreshold.class))).thenAnswer(invocation -> Stream.empty());
+        availabilityProjection.rebuild();
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, 20, 1);
+        availabilityProjection.applySupply("item1", "loc2", SupplyType.ONHAND, 5, 1);
+        availabilityProjection.applySupply("item1", "loc3", SupplyType.ONHAND, 10, 1);
+
+        // loc2's record was deleted directly in Mongo, loc1 was changed to 70; loc3 is neither read nor touched
+        availabilityProjection.refreshItem("item1", List.of("loc1", "loc2"));
+
+        assertEquals(70, availabilityProjection.getTotals("item1", "loc1").getSupplyQuantity(SupplyType.ONHAND));
+        assertNull(availabilityProjection.getTotals("item1", "loc2"));
+        assertEquals(10, availabilityProjection.getTotals("item1", "loc3").getSupplyQuantity(SupplyType.ONHAND));
+        assertEquals(80, availabilityProjection.getNetworkTotals("item1").getSupplyQuantity(SupplyType.ONHAND));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).stream(query.capture(), eq(Supply.class));
+        String refreshQuery = query.getValue().getQueryObject().toJson();
+        assertTrue(refreshQuery.contains("loc1") && refreshQuery.contains("loc2") && !refreshQuery.contains("loc3"));
+    }
+
+    @Test
+    void refreshItems_ShouldReloadManyItemsAndPublishLevelChanges() {
+        when(mongoTemplate.stream(any(Query.class), eq(Supply.class))).thenAnswer(invocation -> Stream.empty()).thenAnswer(invocation -> Stream.of(
+                new Supply("s1", "item1", "loc1", SupplyType.ONHAND, 3),
+                new Supply("s2", "item2", "loc1", SupplyType.ONHAND, 8)));
+        when(mongoTemplate.stream(any(Query.class), eq(Demand.class))).thenAnswer(invocation -> Stream.empty()).thenAnswer(invocation -> Stream.empty());
+        when(mongoTemplate.stream(any(Query.class), eq(AtpThreshold.class))).thenAnswer(invocation -> Stream.empty());
+        availabilityProjection.rebuild();
+        availabilityProjection.putThreshold(new AtpThreshold("t1", "item1", "loc1", 5, 50));
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, 20, 1);
+        clearInvocations(stockLevelEventDispatcher);
+
+        availabilityProjection.refreshItems(Map.of("item1", Set.of("loc1"), "item2", Set.of("loc1")));
+
+        assertEquals(3, availabilityProjection.getTotals("item1", "loc1").getSupplyQuantity(SupplyType.ONHAND));
+        assertEquals(8, availabilityProjection.getNetworkTotals("item2").getSupplyQuantity(SupplyType.ONHAND));
+        verify(stockLevelEventDispatcher).publish("item1", "loc1", "Yellow", "Red", 3);
+        verify(mongoTemplate, times(2)).stream(any(Query.class), eq(Supply.class)); // rebuild + one for both items
+    }
+
+    @Test
+    void refreshItem_ShouldRetryWhenADeltaLandsDuringTheRead() {
+        int[] supplyReads = new int[1];
+        when(mongoTemplate.stream(any(Query.class), eq(Supply.class))).thenAnswer(invocation -> {
+            switch (++supplyReads[0]) {
+                case 1:
+                    return Stream.empty();
+                case 2:
+                    // a write committed after this read applies its delta before the refresh does
+                    availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, 5, 1);
+                    return Stream.of(new Supply("s1", "item1", "loc1", SupplyType.ONHAND, 70));
+                default:
+                    return Stream.of(new Supply("s1", "item1", "loc1", SupplyType.ONHAND, 70),
+                            new Supply("s2", "item1", "loc1", SupplyType.ONHAND, 5));
+            }
+        });
+        when(mongoTemplate.stream(any(Query.class), eq(Demand.class))).thenAnswer(invocation -> Stream.empty());
+        when(mongoTemplate.stream(any(Query.class), eq(AtpThreshold.class))).thenAnswer(invocation -> Stream.empty());
+        availabilityProjection.rebuild();
+
+        availabilityProjection.refreshItem("item1", List.of("loc1"));
+
+        assertEquals(75, availabilityProjection.getTotals("item1", "loc1").getSupplyQuantity(SupplyType.ONHAND));
+        assertEquals(75, availabilityProjection.getNetworkTotals("item1").getSupplyQuantity(SupplyType.ONHAND));
+        assertEquals(3, supplyReads[0]);
+    }
+
+    @Test
+    void refreshThreshold_ShouldDropThresholdMissingFromMongo() {
+        when(mongoTemplate.stream(any(Query.class), any())).thenAnswer(invocation -> Stream.empty());
+        availabilityProjection.rebuild();
+        availabilityProjection.putThreshold(new AtpThreshold("t1", "item1", "loc1", 5, 50));
+
+        availabilityProjection.refreshThreshold("item1", "loc1");
+
+        assertTrue(availabilityProjection.findThreshold("item1", "loc1").isEmpty());
+    }
+
+    @Test
+    void applyDemand_ShouldPublishStockLevelOnceReady() {
+        when(mongoTemplate.stream(any(Query.class), any())).thenAnswer(invocation -> Stream.empty());
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, 30, 1); // not ready yet: no event
+        verifyNoInteractions(stockLevelEventDispatcher);
+
+        availabilityProjection.rebuild();
+        availabilityProjection.putThreshold(new AtpThreshold("t1", "item1", "loc1", 10, 50));
+        verify(stockLevelEventDispatcher).publish("item1", "loc1", "Unknown", "Red", 0);
+
+        availabilityProjection.applySupply("item1", "loc1", SupplyType.ONHAND, 30, 1);
+        availabilityProjection.applyDemand("item1", "loc1", DemandType.HARD_PROMISED, 25, 1);
+
+        verify(stockLevelEventDispatcher).publish("item1", "loc1", "Red", "Yellow", 30);
+        verify(stockLevelEventDispatcher).publish("item1", "loc1", "Yellow", "Red", 5);
+    }
+}
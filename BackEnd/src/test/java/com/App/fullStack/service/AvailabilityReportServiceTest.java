@@ -0,0 +1,194 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.AvailabilityConfig;
+import com.App.fullStack.dto.AvailabilityPolicy;
+import com.App.fullStack.dto.LowAvailabilityDTO;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.AtpThreshold;
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.SupplyType;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AvailabilityReportServiceTest {
+
+    @InjectMocks
+    private AvailabilityReportService availabilityReportService;
+
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private AvailabilityConfig availabilityConfig;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", "excluded"));
+        when(availabilityProjection.findThreshold(anyString(), anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void getLowestAvailability_ShouldKeepOnlyTheWorstRowsNetworkWide() {
+        Map<ItemLocationKey, StockTotals> totals = new LinkedHashMap<>();
+        totals.put(new ItemLocationKey("item1", "loc1"), stock(50, 0));
+        totals.put(new ItemLocationKey("item2", "loc1"), stock(5, 10));
+        totals.put(new ItemLocationKey("item3", "loc2"), stock(1, 0));
+        totals.put(new ItemLocationKey("item4", "loc2"), stock(20, 0));
+        totals.put(new ItemLocationKey("item5", "excluded"), stock(0, 100));
+        totals.put(new ItemLocationKey("item6", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.INTRANSIT, 1, 1));
+        mockProjection(totals);
+
+        List<LowAvailabilityDTO> report = availabilityReportService.getLowestAvailability(null, 2, null);
+
+        assertEquals(List.of("item2", "item3"), report.stream().map(LowAvailabilityDTO::getItemId).toList());
+        assertEquals(-5, report.getFirst().getAvailableQty());
+        assertEquals("Unknown", report.getFirst().getStockLevel());
+        assertNull(report.getFirst().getShortfall());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void getLowestAvailability_ShouldRankOneLocationByDistanceBelowMinThreshold() {
+        Map<ItemLocationKey, StockTotals> totals = new LinkedHashMap<>();
+        totals.put(new ItemLocationKey("item1", "loc1"), stock(50, 0));
+        totals.put(new ItemLocationKey("item2", "loc1"), stock(5, 0));
+        totals.put(new ItemLocationKey("item3", "loc1"), stock(1, 0));
+        totals.put(new ItemLocationKey("item1", "loc2"), stock(0, 0));
+        mockProjection(totals);
+        when(availabilityProjection.findThreshold("item1", "loc1"))
+                .thenReturn(Optional.of(new AtpThreshold("t1", "item1", "loc1", 100, 200)));
+        when(availabilityProjection.findThreshold("item2", "loc1"))
+                .thenReturn(Optional.of(new AtpThreshold("t2", "item2", "loc1", 10, 20)));
+
+        List<LowAvailabilityDTO> report = availabilityReportService.getLowestAvailability("loc1", 10, "belowThreshold");
+
+        // item3 has the lowest availability but no threshold to be below
+        assertEquals(List.of("item1", "item2"), report.stream().map(LowAvailabilityDTO::getItemId).toList());
+        assertEquals(50, report.getFirst().getShortfall());
+        assertEquals(100, report.getFirst().getMinThreshold());
+        assertEquals("Red", report.getFirst().getStockLevel());
+    }
+
+    @Test
+    void getLowestAvailability_ShouldStreamTheAggregationWithoutTheProjection() {
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq("supplies"), eq(Document.class)))
+                .thenAnswer(invocation -> Stream.of(
+                        result("item1", 7, List.of(new Document("minThreshold", 10).append("maxThreshold", 20))),
+                        result("item2", 3, List.of()),
+                        result("item3", 30, List.of())));
+
+        List<LowAvailabilityDTO> report = availabilityReportService.getLowestAvailability("loc1", 2, "available");
+
+        assertEquals(List.of("item2", "item1"), report.stream().map(LowAvailabilityDTO::getItemId).toList());
+        assertEquals("Red", report.get(1).getStockLevel());
+        assertEquals(3, report.get(1).getShortfall());
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregateStream(aggregation.capture(), eq("supplies"), eq(Document.class));
+        assertTrue(aggregation.getValue().toString().contains("loc1"));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertTrue(pipeline.stream().anyMatch(stage -> stage.containsKey("$unionWith")
+                && "atpThresholds".equals(stage.get("$unionWith", Document.class).get("coll"))));
+    }
+
+    @Test
+    void getAvailabilityExport_ShouldIncludeItemLocationsWithOnlyAThreshold() {
+        Map<ItemLocationKey, StockTotals> totals = new LinkedHashMap<>();
+        totals.put(new ItemLocationKey("item1", "loc1"), stock(7, 0));
+        totals.put(new ItemLocationKey("item3", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.INTRANSIT, 4, 1));
+        mockProjection(totals);
+        totals.forEach((key, stock) -> when(availabilityProjection.getTotals(key.getItemId(), key.getLocationId()))
+                .thenReturn(stock));
+        Map<ItemLocationKey, AtpThreshold> thresholds = new LinkedHashMap<>();
+        thresholds.put(new ItemLocationKey("item1", "loc1"), new AtpThreshold("t1", "item1", "loc1", 10, 20));
+        thresholds.put(new ItemLocationKey("item2", "loc1"), new AtpThreshold("t2", "item2", "loc1", 5, 10));
+        thresholds.put(new ItemLocationKey("item3", "loc1"), new AtpThreshold("t3", "item3", "loc1", 5, 10));
+        thresholds.put(new ItemLocationKey("item4", "excluded"), new AtpThreshold("t4", "item4", "excluded", 5, 10));
+        mockThresholds(thresholds);
+
+        List<LowAvailabilityDTO> export = availabilityReportService.getAvailabilityExport(null);
+
+        // item3 only has in-transit records, which the policy does not count
+        assertEquals(List.of("item1/loc1/7", "item2/loc1/0", "item3/loc1/0"), export.stream()
+                .map(row -> row.getItemId() + "/" + row.getLocationId() + "/" + row.getAvailableQty()).toList());
+        assertEquals(5, export.get(1).getShortfall());
+        assertEquals("Red", export.get(1).getStockLevel());
+    }
+
+    @Test
+    void getAvailabilityExport_ShouldReturnEveryRowOrderedByItem() {
+        Map<ItemLocationKey, StockTotals> totals = new LinkedHashMap<>();
+        totals.put(new ItemLocationKey("item2", "loc1"), stock(5, 0));
+        totals.put(new ItemLocationKey("item1", "loc2"), stock(1, 0));
+        totals.put(new ItemLocationKey("item1", "loc1"), stock(7, 2));
+        totals.put(new ItemLocationKey("item3", "excluded"), stock(1, 0));
+        mockProjection(totals);
+
+        List<LowAvailabilityDTO> export = availabilityReportService.getAvailabilityExport(null);
+
+        assertEquals(List.of("item1/loc1", "item1/loc2", "item2/loc1"),
+                export.stream().map(row -> row.getItemId() + "/" + row.getLocationId()).toList());
+        assertEquals(5, export.getFirst().getAvailableQty());
+    }
+
+    @Test
+    void getLowestAvailability_ShouldRejectInvalidArguments() {
+        assertThrows(FoundException.class, () -> availabilityReportService.getLowestAvailability(null, 0, null));
+        assertThrows(FoundException.class, () -> availabilityReportService.getLowestAvailability(null, 1001, null));
+        Exception exception = assertThrows(FoundException.class,
+                () -> availabilityReportService.getLowestAvailability(null, null, "price"));
+        assertEquals("Invalid rankBy: price. Expected available or belowThreshold.", exception.getMessage());
+        assertThrows(FoundException.class, () -> availabilityReportService.getLowestAvailability("excluded", null, null));
+    }
+
+    private static StockTotals stock(int onhand, int hardPromised) {
+        return StockTotals.EMPTY.withSupply(SupplyType.ONHAND, onhand, 1)
+                .withDemand(DemandType.HARD_PROMISED, hardPromised, 1);
+    }
+
+    private static Document result(String itemId, int availableQty, List<Document> threshold) {
+        return new Document("_id", new Document("itemId", itemId).append("locationId", "loc1"))
+                .append("availableQty", availableQty)
+                .append("threshold", threshold);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockProjection(Map<ItemLocationKey, StockTotals> totals) {
+        when(availabilityProjection.isReady()).thenReturn(true);
+        doAnswer(invocation -> {
+            totals.forEach((BiConsumer<ItemLocationKey, StockTotals>) invocation.getArgument(0));
+            return null;
+        }).when(availabilityProjection).forEachTotals(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockThresholds(Map<ItemLocationKey, AtpThreshold> thresholds) {
+        doAnswer(invocation -> {
+            thresholds.forEach((BiConsumer<ItemLocationKey, AtpThreshold>) invocation.getArgument(0));
+            return null;
+        }).when(availabilityProjection).forEachThreshold(any());
+    }
+}
@@ -7,11 +7,16 @@ import com.App.fullStack.dto.*;
 import com.App.fullStack.pojos.*;
 import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.repositories.*;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
 
 import java.util.*;
 
@@ -38,6 +43,12 @@ public class AvailabilityServiceTest {
     @Mock
     private LocationRepository locationRepository;
 
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     private Supply supply;
     private Demand demand;
     private AtpThreshold atpThreshold;
@@ -100,9 +111,7 @@ public class AvailabilityServiceTest {
     @Test
     public void testCalculateV3AvailabilityByLocation_Success() {
         // Mock configuration
-        when(availabilityConfig.getSupplies()).thenReturn(new String[]{"ONHAND"});
-        when(availabilityConfig.getDemands()).thenReturn(new String[]{"HARD_PROMISED"});
-        when(availabilityConfig.getExcludedLocations()).thenReturn(null);
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", null));
 
         when(supplyRepository.findByItemIdAndLocationIdAndSupplyTypeIn("item1", "location1", Collections.singletonList("ONHAND")))
                 .thenReturn(Collections.singletonList(supply));
@@ -122,9 +131,7 @@ public class AvailabilityServiceTest {
     // Testing V3 Method: calculateV3AvailabilityByLocation for excluded location
     @Test
     public void testCalculateV3AvailabilityByLocation_ExcludedLocation() {
-        when(availabilityConfig.getSupplies()).thenReturn(new String[]{"ONHAND"});
-        when(availabilityConfig.getDemands()).thenReturn(new String[]{"HARD_PROMISED"});
-        when(availabilityConfig.getExcludedLocations()).thenReturn(new String[]{"location1"});
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", "location1"));
 
         Exception exception = assertThrows(FoundException.class, () -> availabilityService.calculateV3AvailabilityByLocation("item1", "location1"));
         assertEquals("LocationId location1 is excluded from availability checks.", exception.getMessage());
@@ -133,12 +140,9 @@ public class AvailabilityServiceTest {
     // Testing getAvailabilityScatterData
     @Test
     public void testGetAvailabilityScatterData_Success() {
-        when(itemRepository.findAll()).thenReturn(Collections.singletonList(item));
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(Collections.singletonList(item));
         when(locationRepository.findByLocationId("location1")).thenReturn(Optional.of(location));
-        when(supplyRepository.findByItemIdAndLocationIdAndSupplyType("item1", "location1", "ONHAND"))
-                .thenReturn(Collections.singletonList(supply));
-        when(demandRepository.findByItemIdAndLocationIdAndDemandType("item1", "location1", "HARD_PROMISED"))
-                .thenReturn(Collections.singletonList(demand));
+        mockScatterTotals(Map.of("item1", 100), Map.of("item1", 50));
 
         ScatterLocationDataDTO result = availabilityService.getAvailabilityScatterData("location1");
 
@@ -149,16 +153,14 @@ public class AvailabilityServiceTest {
         assertEquals(200.0, scatterData.getItemPrice());
         assertEquals(100, scatterData.getSupplyQuantity());
         assertEquals(50, scatterData.getDemandQuantity());
+        verifyNoInteractions(supplyRepository, demandRepository, itemRepository);
     }
 
     @Test
     public void testGetAvailabilityScatterData_NetworkLocation() {
-        when(itemRepository.findAll()).thenReturn(Collections.singletonList(item));
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(Collections.singletonList(item));
         when(locationRepository.findByLocationId("location1")).thenReturn(Optional.empty());
-        when(supplyRepository.findByItemIdAndSupplyType("item1", "ONHAND"))
-                .thenReturn(Collections.singletonList(supply));
-        when(demandRepository.findByItemIdAndDemandType("item1", "HARD_PROMISED"))
-                .thenReturn(Collections.singletonList(demand));
+        mockScatterTotals(Map.of("item1", 100), Map.of("item1", 50));
 
         ScatterLocationDataDTO result = availabilityService.getAvailabilityScatterData("location1");
 
@@ -171,6 +173,23 @@ public class AvailabilityServiceTest {
         assertEquals(50, scatterData.getDemandQuantity());
     }
 
+    @Test
+    public void testGetAvailabilityScatterData_FromProjection() {
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(Collections.singletonList(item));
+        when(locationRepository.findByLocationId("location1")).thenReturn(Optional.of(location));
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.getTotals("item1", "location1")).thenReturn(StockTotals.EMPTY
+                .withSupply(SupplyType.ONHAND, 100, 1)
+                .withSupply(SupplyType.DAMAGED, 7, 1)
+                .withDemand(DemandType.HARD_PROMISED, 50, 1));
+
+        ScatterLocationDataDTO result = availabilityService.getAvailabilityScatterData("location1");
+
+        assertEquals(100, result.getScatterDataDTO().getFirst().getSupplyQuantity());
+        assertEquals(50, result.getScatterDataDTO().getFirst().getDemandQuantity());
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), anyString(), eq(Document.class));
+    }
+
     @Test
     void testCalculateAvailabilityByLocationWhenNoRecordsFound() {
         String itemId = "item1";
@@ -247,7 +266,7 @@ public class AvailabilityServiceTest {
         String itemId = "item1";
         String locationId = "excludedLocation";
 
-        when(availabilityConfig.getExcludedLocations()).thenReturn(new String[]{"excludedLocation"});
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", "excludedLocation"));
 
         assertThrows(FoundException.class, () -> availabilityService.calculateV3AvailabilityByLocation(itemId, locationId));
     }
@@ -257,8 +276,7 @@ public class AvailabilityServiceTest {
         String itemId = "item1";
         String locationId = "loc1";
 
-        when(availabilityConfig.getSupplies()).thenReturn(new String[]{"ONHAND"});
-        when(availabilityConfig.getDemands()).thenReturn(new String[]{"HARD_PROMISED"});
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", null));
         when(supplyRepository.findByItemIdAndLocationIdAndSupplyTypeIn(itemId, locationId, List.of("ONHAND")))
                 .thenReturn(Collections.emptyList());
         when(demandRepository.findByItemIdAndLocationIdAndDemandTypeIn(itemId, locationId, List.of("HARD_PROMISED")))
@@ -279,12 +297,8 @@ public class AvailabilityServiceTest {
         items.add(item1);
 
         when(locationRepository.findByLocationId(locationId)).thenReturn(Optional.of(new Location()));
-        when(itemRepository.findAll()).thenReturn(items);
-
-        when(supplyRepository.findByItemIdAndLocationIdAndSupplyType("item1", locationId, "ONHAND"))
-                .thenReturn(Collections.singletonList(new Supply("sId","itemid","locId",SupplyType.ONHAND,15))); // Assume Supply constructor sets quantity
-        when(demandRepository.findByItemIdAndLocationIdAndDemandType("item1", locationId, "HARD_PROMISED"))
-                .thenReturn(Collections.singletonList(new Demand("sId",DemandType.HARD_PROMISED,5,"itemid","locId"))); // Assume Demand constructor sets quantity
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(items);
+        mockScatterTotals(Map.of("item1", 15), Map.of("item1", 5));
 
         ScatterLocationDataDTO scatterData = availabilityService.getAvailabilityScatterData(locationId);
 
@@ -299,6 +313,7 @@ public class AvailabilityServiceTest {
         String locationId = "invalidLoc";
 
         when(locationRepository.findByLocationId(locationId)).thenReturn(Optional.empty());
+        mockScatterTotals(Map.of(), Map.of());
 
         ScatterLocationDataDTO scatterData = availabilityService.getAvailabilityScatterData(locationId);
 
@@ -306,15 +321,40 @@ public class AvailabilityServiceTest {
         assertEquals("NETWORK", scatterData.getLocationName());
     }
 
+    @Test
+    void testGetAvailabilityScatterDataWithMaxPoints() {
+        List<Item> items = new ArrayList<>();
+        Map<String, Integer> supplies = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            Item catalogItem = new Item();
+            catalogItem.setItemId("item" + i);
+            catalogItem.setPrice(i % 40);
+            items.add(catalogItem);
+            supplies.put("item" + i, i % 25);
+        }
+        when(locationRepository.findByLocationId("loc1")).thenReturn(Optional.empty());
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(items);
+        mockScatterTotals(supplies, Map.of());
+
+        ScatterLocationDataDTO scatterData = availabilityService.getAvailabilityScatterData("loc1", 64);
+
+        assertTrue(scatterData.isBucketed());
+        assertEquals(500, scatterData.getTotalItems());
+        assertTrue(scatterData.getScatterDataDTO().size() <= 64);
+    }
+
+    @Test
+    void testGetAvailabilityScatterDataWithInvalidMaxPoints() {
+        Exception exception = assertThrows(FoundException.class, () -> availabilityService.getAvailabilityScatterData("loc1", 0));
+        assertEquals("maxPoints must be greater than 0.", exception.getMessage());
+    }
+
     // Test: Calculate availability by item when no records found
     @Test
     void testCalculateAvailabilityByItemWhenNoRecordsFound() {
         String itemId = "item1";
 
-        when(supplyRepository.findByItemIdAndSupplyType(itemId, "ONHAND"))
-                .thenReturn(Collections.emptyList());
-        when(demandRepository.findByItemIdAndDemandType(itemId, "HARD_PROMISED"))
-                .thenReturn(Collections.emptyList());
+        mockNetworkAvailability(null);
 
         assertThrows(FoundException.class, () -> availabilityService.calculateAvailabilityByItem(itemId));
     }
@@ -323,19 +363,13 @@ public class AvailabilityServiceTest {
     @Test
     void testCalculateAvailabilityByItemWithValidData() {
         String itemId = "item1";
-        Supply supply = new Supply();
-        supply.setQuantity(40);
-        Demand demand = new Demand();
-        demand.setQuantity(20);
 
-        when(supplyRepository.findByItemIdAndSupplyType(itemId, "ONHAND"))
-                .thenReturn(Collections.singletonList(supply));
-        when(demandRepository.findByItemIdAndDemandType(itemId, "HARD_PROMISED"))
-                .thenReturn(Collections.singletonList(demand));
+        mockNetworkAvailability(20); // 40 (supply) - 20 (demand), summed by the pipeline
 
         int availability = availabilityService.calculateAvailabilityByItem(itemId);
 
-        assertEquals(20, availability); // 40 (supply) - 20 (demand)
+        assertEquals(20, availability);
+        verifyNoInteractions(supplyRepository, demandRepository);
     }
 
     // Test: Calculate V2 availability across all locations when no records found
@@ -343,10 +377,7 @@ public class AvailabilityServiceTest {
     void testCalculateV2AvailabilityInAllLocationWhenNoRecordsFound() {
         String itemId = "item1";
 
-        when(supplyRepository.findByItemIdAndSupplyType(itemId, "ONHAND"))
-                .thenReturn(Collections.emptyList());
-        when(demandRepository.findByItemIdAndDemandType(itemId, "HARD_PROMISED"))
-                .thenReturn(Collections.emptyList());
+        mockNetworkAvailability(null);
         when(atpThresholdRepository.findById(itemId)).thenReturn(Optional.empty());
 
         assertThrows(FoundException.class, () -> availabilityService.calculateV2AvailabilityInAllLocation(itemId));
@@ -356,18 +387,11 @@ public class AvailabilityServiceTest {
     @Test
     void testCalculateV2AvailabilityInAllLocationWithValidData() {
         String itemId = "item1";
-        Supply supply = new Supply();
-        supply.setQuantity(100);
-        Demand demand = new Demand();
-        demand.setQuantity(50);
         AtpThreshold threshold = new AtpThreshold();
         threshold.setMinThreshold(20);
         threshold.setMaxThreshold(45);
 
-        when(supplyRepository.findByItemIdAndSupplyType(itemId, "ONHAND"))
-                .thenReturn(Collections.singletonList(supply));
-        when(demandRepository.findByItemIdAndDemandType(itemId, "HARD_PROMISED"))
-                .thenReturn(Collections.singletonList(demand));
+        mockNetworkAvailability(50); // 100 (supply) - 50 (demand)
         when(atpThresholdRepository.findById(itemId)).thenReturn(Optional.of(threshold));
 
         AvailabilityResponseV2V3 response = availabilityService.calculateV2AvailabilityInAllLocation(itemId);
@@ -377,6 +401,59 @@ public class AvailabilityServiceTest {
         assertEquals("Green", response.getStockLevel()); // Available quantity exceeds max threshold
     }
 
+    // Test: V3 network availability honours configured types and excluded locations in the projection
+    @Test
+    void testCalculateV3AvailabilityInAllLocationFromProjection() {
+        StockTotals network = StockTotals.EMPTY
+                .withSupply(SupplyType.ONHAND, 100, 2)
+                .withSupply(SupplyType.DAMAGED, 30, 1)
+                .withDemand(DemandType.HARD_PROMISED, 40, 2);
+        StockTotals excluded = StockTotals.EMPTY
+                .withSupply(SupplyType.ONHAND, 60, 1)
+                .withDemand(DemandType.HARD_PROMISED, 10, 1);
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", "excluded"));
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.getNetworkTotals("item1")).thenReturn(network);
+        when(availabilityProjection.getTotals("item1", "excluded")).thenReturn(excluded);
+
+        AvailabilityResponseV2V3 response = availabilityService.calculateV3AvailabilityInAllLocation("item1");
+
+        assertEquals("NETWORK", response.getLocationId());
+        assertEquals(10, response.getAvailableQty()); // (100 - 40) - (60 - 10)
+        assertEquals("Unknown", response.getStockLevel());
+    }
+
+    @Test
+    void testCalculateV3AvailabilityInAllLocationOnlyExcludedRecords() {
+        StockTotals totals = StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 60, 1);
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", "excluded"));
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.getNetworkTotals("item1")).thenReturn(totals);
+        when(availabilityProjection.getTotals("item1", "excluded")).thenReturn(totals);
+
+        Exception exception = assertThrows(FoundException.class, () -> availabilityService.calculateV3AvailabilityInAllLocation("item1"));
+        assertEquals("Records with ItemId: item1 not found.", exception.getMessage());
+    }
+
+    @Test
+    void testCalculateV3AvailabilityInAllLocationFromPipeline() {
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND,INTRANSIT", "HARD_PROMISED", null));
+        mockNetworkAvailability(75);
+
+        AvailabilityResponseV2V3 response = availabilityService.calculateV3AvailabilityInAllLocation("item1");
+
+        assertEquals(75, response.getAvailableQty());
+        verify(mongoTemplate).aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class));
+    }
+
+    private void mockNetworkAvailability(Integer availableQty) {
+        List<Document> results = availableQty != null
+                ? List.of(new Document("_id", null).append("availableQty", availableQty))
+                : List.of();
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(results, new Document()));
+    }
+
     // Test: Calculate V3 availability when all records are valid
     @Test
     void testCalculateV3AvailabilityByLocationWithValidData() {
@@ -390,8 +467,7 @@ public class AvailabilityServiceTest {
         threshold.setMinThreshold(15);
         threshold.setMaxThreshold(60);
 
-        when(availabilityConfig.getSupplies()).thenReturn(new String[]{"ONHAND"});
-        when(availabilityConfig.getDemands()).thenReturn(new String[]{"HARD_PROMISED"});
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", null));
         when(supplyRepository.findByItemIdAndLocationIdAndSupplyTypeIn(itemId, locationId, List.of("ONHAND")))
                 .thenReturn(Collections.singletonList(supply));
         when(demandRepository.findByItemIdAndLocationIdAndDemandTypeIn(itemId, locationId, List.of("HARD_PROMISED")))
@@ -438,7 +514,8 @@ public class AvailabilityServiceTest {
         String locationId = "loc1";
 
         when(locationRepository.findByLocationId(locationId)).thenReturn(Optional.of(new Location()));
-        when(itemRepository.findAll()).thenReturn(Collections.emptyList());
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(Collections.emptyList());
+        mockScatterTotals(Map.of(), Map.of());
 
         ScatterLocationDataDTO scatterData = availabilityService.getAvailabilityScatterData(locationId);
 
@@ -461,26 +538,127 @@ public class AvailabilityServiceTest {
         item2.setItemDescription("Item 2");
         item2.setPrice(15L);
 
+        Item item3 = new Item();
+        item3.setItemId("item3");
+        item3.setItemDescription("Item 3");
+        item3.setPrice(20L);
+
         items.add(item1);
         items.add(item2);
+        items.add(item3);
 
         when(locationRepository.findByLocationId(locationId)).thenReturn(Optional.of(new Location()));
-        when(itemRepository.findAll()).thenReturn(items);
-        when(supplyRepository.findByItemIdAndLocationIdAndSupplyType(item1.getItemId(), locationId, "ONHAND"))
-                .thenReturn(Collections.singletonList(new Supply("sId","itemid","locId",SupplyType.ONHAND,20)));
-        when(demandRepository.findByItemIdAndLocationIdAndDemandType(item1.getItemId(), locationId, "HARD_PROMISED"))
-                .thenReturn(Collections.singletonList(new Demand("sId",DemandType.HARD_PROMISED,5,"itemid","locId")));
-        when(supplyRepository.findByItemIdAndLocationIdAndSupplyType(item2.getItemId(), locationId, "ONHAND"))
-                .thenReturn(Collections.singletonList(new Supply("sId","itemid","locId",SupplyType.ONHAND,15)));
-        when(demandRepository.findByItemIdAndLocationIdAndDemandType(item2.getItemId(), locationId, "HARD_PROMISED"))
-                .thenReturn(Collections.singletonList(new Demand("sId",DemandType.HARD_PROMISED,10,"itemid","locId")));
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(items);
+        mockScatterTotals(Map.of("item1", 20, "item2", 15), Map.of("item1", 5, "item2", 10));
 
         ScatterLocationDataDTO scatterData = availabilityService.getAvailabilityScatterData(locationId);
 
         assertNotNull(scatterData);
-        assertEquals(2, scatterData.getScatterDataDTO().size()); // 2 items processed
+        assertEquals(3, scatterData.getScatterDataDTO().size()); // every item is plotted, in catalog order
         assertEquals(15, scatterData.getScatterDataDTO().get(1).getSupplyQuantity());
         assertEquals(10, scatterData.getScatterDataDTO().get(1).getDemandQuantity());
+        assertEquals(0, scatterData.getScatterDataDTO().get(2).getSupplyQuantity()); // no records for item3
+        assertEquals(0, scatterData.getScatterDataDTO().get(2).getDemandQuantity());
+    }
+
+    // Test: projection answers v1 without touching the repositories once it is ready
+    @Test
+    void testCalculateAvailabilityByLocationFromProjection() {
+        StockTotals totals = StockTotals.EMPTY
+                .withSupply(SupplyType.ONHAND, 100, 1)
+                .withSupply(SupplyType.DAMAGED, 7, 1)
+                .withDemand(DemandType.HARD_PROMISED, 30, 1);
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.getTotals("item1", "location1")).thenReturn(totals);
+
+        int availability = availabilityService.calculateAvailabilityByLocation("item1", "location1");
+
+        assertEquals(70, availability);
+        verifyNoInteractions(supplyRepository, demandRepository);
+    }
+
+    @Test
+    void testCalculateAvailabilityByLocationFromProjectionNotFound() {
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.getTotals("item1", "location1")).thenReturn(null);
+
+        Exception exception = assertThrows(FoundException.class, () -> availabilityService.calculateAvailabilityByLocation("item1", "location1"));
+        assertEquals("Records with ItemId: item1 And LocationId location1 not found.", exception.getMessage());
+    }
+
+    @Test
+    void testCalculateV3AvailabilityByLocationFromProjection() {
+        StockTotals totals = StockTotals.EMPTY
+                .withSupply(SupplyType.ONHAND, 70, 1)
+                .withSupply(SupplyType.INTRANSIT, 10, 1)
+                .withDemand(DemandType.HARD_PROMISED, 30, 1)
+                .withDemand(DemandType.PLANNED, 5, 1);
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND,INTRANSIT", "HARD_PROMISED", null));
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.getTotals("item1", "location1")).thenReturn(totals);
+        when(availabilityProjection.findThreshold("item1", "location1")).thenReturn(Optional.of(atpThreshold));
+
+        AvailabilityResponseV2V3 response = availabilityService.calculateV3AvailabilityByLocation("item1", "location1");
+
+        assertEquals(50, response.getAvailableQty()); // 70 + 10 - 30
+        assertEquals("Yellow", response.getStockLevel());
+        verifyNoInteractions(supplyRepository, demandRepository, atpThresholdRepository);
+    }
+
+    // Test: batch resolves every line from one aggregation per collection and reports failures per line
+    @Test
+    void testCalculateV3AvailabilityBatch() {
+        when(availabilityConfig.getPolicy()).thenReturn(AvailabilityPolicy.compile("ONHAND", "HARD_PROMISED", "excluded"));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(groupedQuantity("item1", "location1", 100)), new Document()));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("demands"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(groupedQuantity("item1", "location1", 50)), new Document()));
+        when(atpThresholdRepository.findByItemIdInAndLocationIdIn(any(), any())).thenReturn(List.of(atpThreshold));
+
+        List<AvailabilityBatchLine> result = availabilityService.calculateV3AvailabilityBatch(List.of(
+                new AvailabilityRequestLine("item1", "location1"),
+                new AvailabilityRequestLine("item2", "location1"),
+                new AvailabilityRequestLine("item1", "excluded"),
+                new AvailabilityRequestLine(null, "location1")));
+
+        assertEquals(4, result.size());
+        assertTrue(result.get(0).isSuccess());
+        assertEquals(50, result.get(0).getAvailability().getAvailableQty());
+        assertEquals("Yellow", result.get(0).getAvailability().getStockLevel());
+        assertFalse(result.get(1).isSuccess());
+        assertEquals("Records with ItemId: item2 and LocationId: location1 not found.", result.get(1).getError());
+        assertEquals("LocationId excluded is excluded from availability checks.", result.get(2).getError());
+        assertEquals("ItemId and LocationId are required.", result.get(3).getError());
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), anyString(), eq(Document.class));
+    }
+
+    @Test
+    void testCalculateV3AvailabilityBatchTooLarge() {
+        List<AvailabilityRequestLine> lines = new ArrayList<>();
+        for (int i = 0; i <= AvailabilityService.MAX_BATCH_LINES; i++)
+            lines.add(new AvailabilityRequestLine("item" + i, "location1"));
+
+        Exception exception = assertThrows(FoundException.class, () -> availabilityService.calculateV3AvailabilityBatch(lines));
+        assertEquals("Batch request exceeds the limit of 500 lines.", exception.getMessage());
+    }
+
+    // Stubs the per-item $group results of the supplies and demands scatter aggregations
+    private void mockScatterTotals(Map<String, Integer> supplies, Map<String, Integer> demands) {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(groupedByItem(supplies), new Document()));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("demands"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(groupedByItem(demands), new Document()));
+    }
+
+    private List<Document> groupedByItem(Map<String, Integer> quantities) {
+        List<Document> results = new ArrayList<>();
+        quantities.forEach((itemId, quantity) -> results.add(new Document("_id", itemId).append("quantity", quantity)));
+        return results;
+    }
+
+    private Document groupedQuantity(String itemId, String locationId, int quantity) {
+        return new Document("_id", new Document("itemId", itemId).append("locationId", locationId))
+                .append("quantity", quantity);
     }
 
 }
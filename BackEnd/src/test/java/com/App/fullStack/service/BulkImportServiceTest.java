@@ -0,0 +1,190 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.BulkImportReport;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.Demand;
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import com.App.fullStack.pojos.Supply;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BulkImportServiceTest {
+
+    @InjectMocks
+    private BulkImportService bulkImportService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private AvailabilityCache availabilityCache;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.findDistinct(any(Query.class), eq("itemId"), eq(Item.class), eq(String.class)))
+                .thenReturn(List.of("item1", "item2"));
+        when(mongoTemplate.findDistinct(any(Query.class), eq("locationId"), eq(Location.class), eq(String.class)))
+                .thenReturn(List.of("loc1"));
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class))).thenReturn(bulkOperations);
+    }
+
+    @Test
+    void importSupplies_ShouldUpsertValidNdjsonRowsAndReportTheRest() throws Exception {
+        when(bulkOperations.execute()).thenReturn(result(1, 1, 1));
+        String body = """
+                {"itemId":"item1","locationId":"loc1","supplyType":"ONHAND","quantity":40}
+                {"itemId":"item2","locationId":"loc1","supplyType":"intransit","quantity":"5"}
+
+                {"itemId":"item1","locationId":"loc1","supplyType":"BROKEN","quantity":1}
+                {"itemId":"item3","locationId":"loc1","supplyType":"ONHAND","quantity":1}
+                {"itemId":"item1","locationId":"loc1","supplyType":"DAMAGED","quantity":-2}
+                not json
+                """;
+
+        BulkImportReport report = bulkImportService.importSupplies(stream(body), "application/x-ndjson");
+
+        assertEquals(6, report.getReceived());
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getUpdated());
+        assertEquals(4, report.getFailed());
+        assertEquals(List.of(4L, 6L, 7L, 5L), report.getErrors().stream().map(error -> error.getLine()).toList());
+        assertEquals("Item with ItemId: item3 not found.", report.getErrors().get(3).getError());
+        verify(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, Supply.class);
+        verify(bulkOperations, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(availabilityProjection).refreshItems(Map.of("item1", Set.of("loc1"), "item2", Set.of("loc1")));
+        verify(availabilityCache).invalidate("item1", "loc1");
+        verify(availabilityCache).invalidate("item2", "loc1");
+        verify(dashboardService).adjustCount("supplies", 1);
+    }
+
+    @Test
+    void importDemands_ShouldReadCsvInBatchesAndKeepLastRowPerKey() throws Exception {
+        ReflectionTestUtils.setField(bulkImportService, "batchSize", 2);
+        when(bulkOperations.execute()).thenReturn(result(0, 1, 1), result(1, 0, 0));
+        String body = """
+                quantity,"itemId",locationId,demandType
+                5,item1,loc1,PLANNED
+                7,item1,loc1,PLANNED
+                3,item2,loc1,HARD_PROMISED
+                """;
+
+        BulkImportReport report = bulkImportService.importDemands(stream(body), "text/csv");
+
+        assertEquals(3, report.getReceived());
+        assertEquals(1, report.getSuperseded());
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getUpdated());
+        assertEquals(0, report.getFailed());
+        verify(mongoTemplate, times(2)).bulkOps(BulkOperations.BulkMode.UNORDERED, Demand.class);
+        verify(bulkOperations).upsert(any(Query.class), eq(new Update().set("quantity", 7)));
+        verify(bulkOperations, never()).upsert(any(Query.class), eq(new Update().set("quantity", 5)));
+    }
+
+    @Test
+    void importSupplies_ShouldReadQuotedCsvValuesContainingCommas() throws Exception {
+        when(bulkOperations.execute()).thenReturn(result(1, 0, 0));
+        String body = "itemId,note,locationId,supplyType,quantity\n"
+                + "item1,\"damaged box, \"\"returned\"\"\",loc1,ONHAND,4\n"
+                + "item2,\"never closed,loc1,ONHAND,6\n";
+
+        BulkImportReport report = bulkImportService.importSupplies(stream(body), "text/csv");
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertEquals("Unterminated quoted value.", report.getErrors().get(0).getError());
+        verify(bulkOperations).upsert(any(Query.class), eq(new Update().set("quantity", 4)));
+        assertEquals(List.of("a", "b, \"c\"", ""), BulkImportService.splitCsv(" a ,\"b, \"\"c\"\"\","));
+    }
+
+    @Test
+    void importSupplies_ShouldRejectCsvWithoutRequiredColumns() {
+        assertThrows(FoundException.class,
+                () -> bulkImportService.importSupplies(stream("itemId,locationId,quantity\nitem1,loc1,4\n"), "text/csv"));
+        verifyNoInteractions(bulkOperations);
+    }
+
+    @Test
+    void importSupplies_ShouldReportRowsRejectedByTheBulkWrite() throws Exception {
+        BulkWriteError writeError = new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1);
+        BulkWriteResult partial = result(1, 0, 0);
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("failed",
+                new MongoBulkWriteException(partial, List.of(writeError), null, new ServerAddress(), Set.of())));
+        String body = """
+                {"itemId":"item1","locationId":"loc1","supplyType":"ONHAND","quantity":4}
+                {"itemId":"item2","locationId":"loc1","supplyType":"ONHAND","quantity":6}
+                """;
+
+        BulkImportReport report = bulkImportService.importSupplies(stream(body), "application/x-ndjson");
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        verify(availabilityProjection).refreshItems(Map.of("item1", Set.of("loc1")));
+        verify(availabilityCache, never()).invalidate("item2", "loc1");
+    }
+
+    @Test
+    void importSupplies_ShouldCapReportedErrors() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < BulkImportService.MAX_REPORTED_ERRORS + 5; i++)
+            body.append("{}\n");
+
+        BulkImportReport report = bulkImportService.importSupplies(stream(body.toString()), "application/x-ndjson");
+
+        assertEquals(BulkImportService.MAX_REPORTED_ERRORS + 5, report.getFailed());
+        assertEquals(BulkImportService.MAX_REPORTED_ERRORS, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BulkWriteResult result(int inserted, int matched, int modified) {
+        List<BulkWriteUpsert> upserts = new ArrayList<>();
+        for (int i = 0; i < inserted; i++)
+            upserts.add(new BulkWriteUpsert(i, new BsonObjectId()));
+        return BulkWriteResult.acknowledged(0, matched, 0, modified, upserts, List.<BulkWriteInsert>of());
+    }
+}
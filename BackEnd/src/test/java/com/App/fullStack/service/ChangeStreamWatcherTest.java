@@ -0,0 +1,150 @@
+package com.App.fullStack.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChangeStreamWatcherTest {
+
+    @InjectMocks
+    private ChangeStreamWatcher changeStreamWatcher;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private AvailabilityCache availabilityCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final BsonDocument resumeToken = new BsonDocument("_data", new BsonString("8263A1"));
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void handle_SupplyUpdateShouldRefreshItemAndInvalidateCache() {
+        Document supply = new Document("itemId", "item1").append("locationId", "loc1").append("quantity", 40);
+
+        changeStreamWatcher.handle("supplies", OperationType.UPDATE, supply, supply, resumeToken);
+
+        verify(availabilityProjection).refreshItems(Map.of("item1", Set.of("loc1")));
+        verify(availabilityCache).invalidate("item1", "loc1");
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(ChangeStreamWatcher.TOKEN_COLLECTION));
+    }
+
+    @Test
+    void handle_SupplyMovedToAnotherLocationShouldRefreshBothLocations() {
+        Document before = new Document("itemId", "item1").append("locationId", "loc1").append("quantity", 40);
+        Document after = new Document("itemId", "item1").append("locationId", "loc2").append("quantity", 40);
+
+        changeStreamWatcher.handle("supplies", OperationType.UPDATE, before, after, resumeToken);
+
+        verify(availabilityProjection).refreshItems(Map.of("item1", Set.of("loc1", "loc2")));
+        verify(availabilityCache).invalidate("item1", "loc1");
+        verify(availabilityCache).invalidate("item1", "loc2");
+    }
+
+    @Test
+    void handle_ThresholdReplacedForAnotherItemShouldRefreshBothThresholds() {
+        Document before = new Document("itemId", "item1").append("locationId", "loc1");
+        Document after = new Document("itemId", "item2").append("locationId", "loc1");
+
+        changeStreamWatcher.handle("atpThresholds", OperationType.REPLACE, before, after, resumeToken);
+
+        verify(availabilityProjection).refreshThreshold("item1", "loc1");
+        verify(availabilityProjection).refreshThreshold("item2", "loc1");
+        verify(availabilityCache).invalidate("item1", "loc1");
+        verify(availabilityCache).invalidate("item2", "loc1");
+    }
+
+    @Test
+    void handle_ThresholdDeleteWithPreImageShouldRefreshThreshold() {
+        Document threshold = new Document("itemId", "item1").append("locationId", "loc1");
+
+        changeStreamWatcher.handle("atpThresholds", OperationType.DELETE, threshold, null, resumeToken);
+
+        verify(availabilityProjection).refreshThreshold("item1", "loc1");
+        verify(availabilityCache).invalidate("item1", "loc1");
+    }
+
+    @Test
+    void enablePreImages_ShouldTurnThemOnForStockAndThresholdCollections() {
+        MongoDatabase db = mock(MongoDatabase.class);
+        when(mongoTemplate.getDb()).thenReturn(db);
+        when(mongoTemplate.collectionExists(anyString())).thenReturn(true);
+        when(mongoTemplate.collectionExists("atpThresholds")).thenReturn(false);
+        when(db.runCommand(new Document("collMod", "demands")
+                .append("changeStreamPreAndPostImages", new Document("enabled", true))))
+                .thenThrow(new MongoCommandException(new BsonDocument(), new ServerAddress()));
+
+        changeStreamWatcher.enablePreImages();
+
+        verify(db).runCommand(new Document("collMod", "supplies")
+                .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+        ArgumentCaptor<CollectionOptions> options = ArgumentCaptor.forClass(CollectionOptions.class);
+        verify(mongoTemplate).createCollection(eq("atpThresholds"), options.capture());
+        assertTrue(options.getValue().getChangeStreamOptions().orElseThrow().getPreAndPostImages());
+    }
+
+    @Test
+    void handle_ItemChangeShouldOnlyBePublished() {
+        Document item = new Document("itemId", "item1").append("itemDescription", "Chair");
+
+        changeStreamWatcher.handle("items", OperationType.INSERT, null, item, resumeToken);
+
+        ArgumentCaptor<InventoryChangeEvent> event = ArgumentCaptor.forClass(InventoryChangeEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("items", event.getValue().getCollection());
+        assertEquals("insert", event.getValue().getOperationType());
+        verifyNoInteractions(availabilityProjection, availabilityCache);
+    }
+
+    @Test
+    void handle_DeleteWithoutPreImageShouldFallBackToRebuild() {
+        when(availabilityProjection.isReady()).thenReturn(true);
+
+        changeStreamWatcher.handle("demands", OperationType.DELETE, null, null, resumeToken);
+
+        verify(availabilityProjection, timeout(1000)).rebuild();
+        verify(availabilityCache, timeout(1000)).clear();
+        verify(availabilityProjection, never()).refreshItems(any());
+    }
+
+    @Test
+    void handle_ShouldNotStoreMissingResumeToken() {
+        changeStreamWatcher.handle("supplies", OperationType.INVALIDATE, null, null, null);
+
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), anyString());
+    }
+}
@@ -1,5 +1,9 @@
 package com.App.fullStack.service;
 
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.SupplyType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -8,12 +12,16 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.HashMap;
+import java.time.Instant;
 import java.util.Map;
+import java.util.TreeMap;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class DashboardServiceTest {
@@ -35,6 +43,7 @@ class DashboardServiceTest {
     @Test
     void getDashboardData_ShouldReturnCorrectCounts() {
         // Arrange
+        ReflectionTestUtils.setField(dashboardService, "countsMode", "aggregate");
         when(mongoTemplate.aggregate(any(Aggregation.class), eq("items"), eq(Map.class)))
                 .thenReturn(aggregationResults);
         when(mongoTemplate.aggregate(any(Aggregation.class), eq("locations"), eq(Map.class)))
@@ -55,6 +64,66 @@ class DashboardServiceTest {
         assertEquals(10L, result.get("totalLocations"));
         assertEquals(10L, result.get("totalSupplies"));
         assertEquals(10L, result.get("totalDemands"));
+        assertEquals("aggregate", result.get("countsMode"));
+    }
+
+    @Test
+    void getDashboardData_ShouldServeEstimatedCountsUntilCountersAreReconciled() {
+        when(mongoTemplate.estimatedCount(anyString())).thenReturn(7L);
+
+        Map<String, Object> result = dashboardService.getDashboardData();
+
+        assertEquals(7L, result.get("totalSupplies"));
+        assertEquals("estimated", result.get("countsMode"));
+        assertNotNull(Instant.parse((String) result.get("countsAsOf")));
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), anyString(), eq(Map.class));
+    }
+
+    @Test
+    void getDashboardData_ShouldServeCountersFromMemoryAfterReconcile() {
+        when(mongoTemplate.count(any(Query.class), anyString())).thenReturn(4L);
+        when(mongoTemplate.count(any(Query.class), eq("items"))).thenReturn(20L);
+        dashboardService.adjustCount("items", 1); // made before the reconcile, replaced by the exact count
+        dashboardService.reconcileCounters();
+
+        dashboardService.adjustCount("items", 1);
+        dashboardService.adjustCount("demands", -1);
+        dashboardService.adjustCount("atpThresholds", 1); // not counted
+        Map<String, Object> result = dashboardService.getDashboardData();
+
+        assertEquals(21L, result.get("totalItems"));
+        assertEquals(4L, result.get("totalLocations"));
+        assertEquals(3L, result.get("totalDemands"));
+        assertEquals("counters", result.get("countsMode"));
+        verify(mongoTemplate, times(4)).count(any(Query.class), anyString());
+        verify(mongoTemplate, never()).estimatedCount(anyString());
+    }
+
+    @Test
+    void getDashboardData_ShouldReadTheSnapshotEpochWhenThereIsOne() {
+        Map<ItemLocationKey, StockTotals> totals = Map.of(
+                new ItemLocationKey("item1", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 5, 2)
+                        .withDemand(DemandType.PLANNED, 1, 1));
+        Instant builtAt = Instant.parse("2026-01-01T00:00:00Z");
+        InventorySnapshot snapshot = new InventorySnapshot(3, builtAt, 0, totals,
+                Map.of("item1", new Item()), new TreeMap<>(Map.of("loc1", "Location 1", "loc2", "Location 2")));
+
+        Map<String, Object> result = dashboardService.getDashboardData(snapshot);
+
+        assertEquals(1L, result.get("totalItems"));
+        assertEquals(2L, result.get("totalLocations"));
+        assertEquals(2L, result.get("totalSupplies"));
+        assertEquals(1L, result.get("totalDemands"));
+        assertEquals("snapshot", result.get("countsMode"));
+        assertEquals(builtAt.toString(), result.get("countsAsOf"));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void getDashboardData_ShouldRejectUnknownMode() {
+        ReflectionTestUtils.setField(dashboardService, "countsMode", "exact");
+
+        assertThrows(FoundException.class, () -> dashboardService.getDashboardData());
     }
 
     @Test
@@ -14,14 +14,21 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class DemandServiceTest {
@@ -44,6 +51,18 @@ public class DemandServiceTest {
     @Mock
     private LocationRepository locationRepository;
 
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private AvailabilityCache availabilityCache;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private DemandService demandService;
 
@@ -149,14 +168,12 @@ public class DemandServiceTest {
     void testAddDemandSuccess() {
         Demand newDemand = new Demand("d1", DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        // Mock behavior for demandRepository
-        when(demandRepository.existsByItemIdAndLocationIdAndDemandType("item1", "loc1", DemandType.HARD_PROMISED)).thenReturn(false);
 
         // Ensure itemAndLocationIDChecker does nothing on validation
         doNothing().when(itemAndLocationIDChecker).validateItemAndLocationID("item1", "loc1");
 
-        // Mock save behavior
-        when(demandRepository.save(newDemand)).thenReturn(newDemand);
+        // Mock insert behavior
+        when(demandRepository.insert(newDemand)).thenReturn(newDemand);
 
         // Act
         Demand result = demandService.addDemand(newDemand);
@@ -174,7 +191,7 @@ public class DemandServiceTest {
     public void testAddDemandAlreadyExists() {
         Demand newDemand = new Demand("d1", DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        when(demandRepository.existsByItemIdAndLocationIdAndDemandType("item1", "loc1", DemandType.HARD_PROMISED)).thenReturn(true);
+        when(demandRepository.insert(newDemand)).thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
 
         Exception exception = assertThrows(FoundException.class, () -> demandService.addDemand(newDemand));
         assertEquals("Demands with itemId: item1, locationId: loc1 and demandType: HARD_PROMISED already exists.", exception.getMessage());
@@ -186,12 +203,17 @@ public class DemandServiceTest {
         Demand existingDemand = new Demand(demandId, DemandType.HARD_PROMISED, 10, "item1", "loc1");
         Demand updatedDemandDetails = new Demand(demandId, DemandType.HARD_PROMISED, 20, "item1", "loc1");
 
-        when(demandRepository.findByDemandId(demandId)).thenReturn(Optional.of(existingDemand));
-        when(demandRepository.save(existingDemand)).thenReturn(updatedDemandDetails);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Demand.class))).thenReturn(existingDemand);
 
         Demand result = demandService.updateDemand(demandId, updatedDemandDetails);
         assertNotNull(result);
         assertEquals(20, result.getQuantity());
+        verify(availabilityProjection).applyDemand("item1", "loc1", DemandType.HARD_PROMISED, 10, 0);
+        verify(availabilityCache).invalidate("item1", "loc1");
+        verify(mongoTemplate).findAndModify(any(Query.class), eq(new Update().set("quantity", 20)),
+                argThat((FindAndModifyOptions options) -> !options.isReturnNew()), eq(Demand.class));
+        verify(demandRepository, never()).save(any());
     }
 
     @Test
@@ -210,18 +232,21 @@ public class DemandServiceTest {
         String demandId = "d1";
         Demand demand = new Demand(demandId, DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        when(demandRepository.findByDemandId(demandId)).thenReturn(Optional.of(demand));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Demand.class))).thenReturn(demand);
 
         String result = demandService.deleteDemand(demandId);
         assertEquals("Demand deleted successfully", result);
-        verify(demandRepository, times(1)).delete(demand);
+        verify(demandRepository, never()).delete(any());
+        verify(availabilityProjection).applyDemand("item1", "loc1", DemandType.HARD_PROMISED, -10, -1);
+        verify(availabilityCache).invalidate("item1", "loc1");
+        verify(dashboardService).adjustCount("demands", -1);
     }
 
     @Test
     public void testDeleteDemandNotFound() {
         String demandId = "d1";
 
-        when(demandRepository.findByDemandId(demandId)).thenReturn(Optional.empty());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Demand.class))).thenReturn(null);
 
         Exception exception = assertThrows(FoundException.class, () -> demandService.deleteDemand(demandId));
         assertEquals("Demand with demandId " + demandId + " not found.", exception.getMessage());
@@ -249,8 +274,8 @@ public class DemandServiceTest {
         Page<Demand> demandPage = new PageImpl<>(demands, pageable, demands.size());
 
         when(demandRepository.findAll(pageable)).thenReturn(demandPage);
-        when(itemService.getItemByItemIdWithOutException(demand.getItemId())).thenReturn(new Item("id","item1", "Item Description","Item cat", null, null, 0.0, true, true, true));
-        when(locationService.getLocationByIdWithoutException(demand.getLocationId())).thenReturn(new Location("id","loc1", "Location Description", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345"));
+        when(itemService.getItemDescriptions(Set.of("item1"))).thenReturn(Map.of("item1", "Item Description"));
+        when(locationService.getLocationDescriptions(Set.of("loc1"))).thenReturn(Map.of("loc1", "Location Description"));
 
         Page<DemandDTO> result = demandService.getAllDemandWithDetails(page, size, null, null);
 
@@ -270,8 +295,8 @@ public class DemandServiceTest {
         Page<Demand> demandPage = new PageImpl<>(demands, pageable, demands.size());
 
         when(demandRepository.findAll(pageable)).thenReturn(demandPage);
-        when(itemService.getItemByItemIdWithOutException(demand.getItemId())).thenReturn(new Item("id","item1", "Item Description","Item cat", null, null, 0.0, true, true, true));
-        when(locationService.getLocationByIdWithoutException(demand.getLocationId())).thenReturn(new Location("id","loc1", "Location Description", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345"));
+        when(itemService.getItemDescriptions(Set.of("item1"))).thenReturn(Map.of("item1", "Item Description"));
+        when(locationService.getLocationDescriptions(Set.of("loc1"))).thenReturn(Map.of("loc1", "Location Description"));
 
         Page<DemandDTO> result = demandService.getAllDemandWithDetails(page, size, "", null);
 
@@ -328,8 +353,8 @@ public class DemandServiceTest {
     public void testAddDemandWithExistingDemand() {
         Demand newDemand = new Demand("d1", DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        // Mock behavior for existing demand
-        when(demandRepository.existsByItemIdAndLocationIdAndDemandType("item1", "loc1", DemandType.HARD_PROMISED)).thenReturn(true);
+        // The unique index rejects the existing demand
+        when(demandRepository.insert(newDemand)).thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
 
         Exception exception = assertThrows(FoundException.class, () -> demandService.addDemand(newDemand));
         assertEquals("Demands with itemId: item1, locationId: loc1 and demandType: HARD_PROMISED already exists.", exception.getMessage());
@@ -350,7 +375,7 @@ public class DemandServiceTest {
     public void testDeleteDemandWithInvalidDemandId() {
         String demandId = "invalidDemandId";
 
-        when(demandRepository.findByDemandId(demandId)).thenReturn(Optional.empty());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Demand.class))).thenReturn(null);
 
         Exception exception = assertThrows(FoundException.class, () -> demandService.deleteDemand(demandId));
         assertEquals("Demand with demandId " + demandId + " not found.", exception.getMessage());
@@ -361,10 +386,8 @@ public class DemandServiceTest {
     public void testAddDemandWithValidDemand() {
         Demand newDemand = new Demand("d1", DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        // Mock behavior to ensure demand doesn't exist
-        when(demandRepository.existsByItemIdAndLocationIdAndDemandType("item1", "loc1", DemandType.HARD_PROMISED)).thenReturn(false);
         doNothing().when(itemAndLocationIDChecker).validateItemAndLocationID(anyString(), anyString());
-        when(demandRepository.save(newDemand)).thenReturn(newDemand);
+        when(demandRepository.insert(newDemand)).thenReturn(newDemand);
 
         Demand result = demandService.addDemand(newDemand);
 
@@ -383,10 +406,10 @@ public class DemandServiceTest {
         Page<Demand> demandPage = new PageImpl<>(demands, pageable, demands.size());
 
         when(demandRepository.findAll(pageable)).thenReturn(demandPage);
-        when(itemService.getItemByItemIdWithOutException(demand1.getItemId())).thenReturn(new Item("id","item1", "Item Description 1","Item cat", null, null, 0.0, true, true, true));
-        when(locationService.getLocationByIdWithoutException(demand1.getLocationId())).thenReturn(new Location("id","loc1", "Location Description 1", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345"));
-        when(itemService.getItemByItemIdWithOutException(demand2.getItemId())).thenReturn(new Item("id","item2", "Item Description 2","Item cat", null, null, 0.0, true, true, true));
-        when(locationService.getLocationByIdWithoutException(demand2.getLocationId())).thenReturn(new Location("id","loc2", "Location Description 2", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345"));
+        when(itemService.getItemDescriptions(Set.of("item1", "item2")))
+                .thenReturn(Map.of("item1", "Item Description 1", "item2", "Item Description 2"));
+        when(locationService.getLocationDescriptions(Set.of("loc1", "loc2")))
+                .thenReturn(Map.of("loc1", "Location Description 1", "loc2", "Location Description 2"));
 
         Page<DemandDTO> result = demandService.getAllDemandWithDetails(page, size, null, null);
 
@@ -403,8 +426,8 @@ public class DemandServiceTest {
         Demand existingDemand = new Demand(demandId, DemandType.HARD_PROMISED, 10, "item1", "loc1");
         Demand updatedDemand = new Demand(demandId, DemandType.HARD_PROMISED, 15, "item1", "loc1");
 
-        when(demandRepository.findByDemandId(demandId)).thenReturn(Optional.of(existingDemand));
-        when(demandRepository.save(existingDemand)).thenReturn(existingDemand);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Demand.class))).thenReturn(existingDemand);
 
         Demand result = demandService.updateDemand(demandId, updatedDemand);
 
@@ -417,20 +440,18 @@ public class DemandServiceTest {
         String demandId = "d1";
         Demand existingDemand = new Demand(demandId, DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        when(demandRepository.findByDemandId(demandId)).thenReturn(Optional.of(existingDemand));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Demand.class))).thenReturn(existingDemand);
 
         String resultMessage = demandService.deleteDemand(demandId);
 
         assertEquals("Demand deleted successfully", resultMessage);
-        verify(demandRepository, times(1)).delete(existingDemand);
+        verify(availabilityProjection).applyDemand("item1", "loc1", DemandType.HARD_PROMISED, -10, -1);
     }
 
     @Test
     public void testAddDemandWithInvalidItemAndLocationID() {
         Demand newDemand = new Demand("d1", DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        // Mock behavior to ensure demand doesn't exist
-        when(demandRepository.existsByItemIdAndLocationIdAndDemandType("item1", "loc1", DemandType.HARD_PROMISED)).thenReturn(false);
 
         // Use doThrow for the void method
         doThrow(new IllegalArgumentException("Invalid Item or Location ID"))
@@ -457,10 +478,7 @@ public class DemandServiceTest {
     public void testConcurrentAddDemand() throws InterruptedException {
         Demand newDemand = new Demand("d1", DemandType.HARD_PROMISED, 10, "item1", "loc1");
 
-        // Simulate concurrent save calls
-        when(demandRepository.existsByItemIdAndLocationIdAndDemandType(anyString(), anyString(), any(DemandType.class)))
-                .thenReturn(false);
-
+        // Simulate concurrent insert calls; duplicates are left to the unique index
         // Create two threads to simulate concurrency
         Thread thread1 = new Thread(() -> demandService.addDemand(newDemand));
         Thread thread2 = new Thread(() -> demandService.addDemand(newDemand));
@@ -471,7 +489,7 @@ public class DemandServiceTest {
         thread1.join();
         thread2.join();
 
-        verify(demandRepository, times(2)).save(any(Demand.class));
+        verify(demandRepository, times(2)).insert(any(Demand.class));
     }
 
     @Test
@@ -480,8 +498,8 @@ public class DemandServiceTest {
         Demand existingDemand = new Demand(demandId, DemandType.HARD_PROMISED, 10, "item1", "loc1");
         Demand partialUpdate = new Demand(demandId, null, 15, null, null); // Only update quantity
 
-        when(demandRepository.findByDemandId(demandId)).thenReturn(Optional.of(existingDemand));
-        when(demandRepository.save(any(Demand.class))).thenReturn(existingDemand);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Demand.class))).thenReturn(existingDemand);
 
         Demand result = demandService.updateDemand(demandId, partialUpdate);
 
@@ -492,6 +510,27 @@ public class DemandServiceTest {
         assertEquals("loc1", result.getLocationId()); // Not changed
     }
 
+    @Test
+    public void testAdjustDemandByItemAndLocation() {
+        Demand adjusted = new Demand("d1", DemandType.HARD_PROMISED, 12, "item1", "loc1");
+        when(mongoTemplate.findAndModify(any(Query.class), eq(new Update().inc("quantity", 2)),
+                any(FindAndModifyOptions.class), eq(Demand.class))).thenReturn(adjusted);
 
+        Demand result = demandService.adjustDemand("item1", "loc1", DemandType.HARD_PROMISED, 2);
+
+        assertEquals(12, result.getQuantity());
+        verify(availabilityProjection).applyDemand("item1", "loc1", DemandType.HARD_PROMISED, 2, 0);
+        verify(availabilityCache).invalidate("item1", "loc1");
+    }
 
+    @Test
+    public void testAdjustDemand_NotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Demand.class))).thenReturn(null);
+        when(mongoTemplate.exists(any(Query.class), eq(Demand.class))).thenReturn(false);
+
+        FoundException exception = assertThrows(FoundException.class, () -> demandService.adjustDemand("d9", -1));
+
+        assertEquals("Demand with demandId d9 not found.", exception.getMessage());
+    }
 }
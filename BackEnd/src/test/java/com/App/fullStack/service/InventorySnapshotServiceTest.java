@@ -0,0 +1,121 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import com.App.fullStack.pojos.SupplyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class InventorySnapshotServiceTest {
+
+    @InjectMocks
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        Map<ItemLocationKey, StockTotals> totals = new HashMap<>();
+        totals.put(new ItemLocationKey("item1", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 10, 1)
+                .withDemand(DemandType.HARD_PROMISED, 4, 1));
+        totals.put(new ItemLocationKey("item1", "loc2"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 5, 1)
+                .withSupply(SupplyType.INTRANSIT, 2, 1));
+        totals.put(new ItemLocationKey("item2", "loc1"), StockTotals.EMPTY.withDemand(DemandType.PLANNED, 3, 1));
+        when(availabilityProjection.isReady()).thenReturn(true);
+        when(availabilityProjection.cutTotals()).thenReturn(new AvailabilityProjection.TotalsCut(42, totals));
+        when(mongoTemplate.stream(any(Query.class), eq(Item.class))).thenAnswer(invocation -> Stream.of(
+                new Item(null, "item1", "Shirt", null, null, null, 9.5, true, true, true),
+                new Item(null, "item2", "Scarf", null, null, null, 4.0, true, true, true)));
+        when(mongoTemplate.stream(any(Query.class), eq(Location.class))).thenAnswer(invocation -> Stream.of(
+                location("loc2", "Store"), location("loc1", "Warehouse")));
+    }
+
+    @Test
+    void build_ShouldRollTheCutUpPerItemAndLocation() {
+        InventorySnapshot snapshot = inventorySnapshotService.build();
+
+        assertEquals(1, snapshot.getEpoch());
+        assertEquals(42, snapshot.getProjectionVersion());
+        assertEquals(15, snapshot.getItemTotals("item1").getSupplyQuantity(SupplyType.ONHAND));
+        assertEquals(4, snapshot.getLocationTotals("loc1").getDemandQuantity(DemandType.HARD_PROMISED));
+        assertEquals(3, snapshot.getLocationTotals("loc1").getDemandQuantity(DemandType.PLANNED));
+        assertEquals(3, snapshot.getSupplyRecords());
+        assertEquals(2, snapshot.getDemandRecords());
+        assertEquals(List.of("loc1", "loc2"), List.copyOf(snapshot.getLocations().keySet()));
+        assertEquals(9.5, snapshot.getItems().get("item1").getPrice());
+        assertSame(snapshot, inventorySnapshotService.current());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getItems().clear());
+    }
+
+    @Test
+    void refreshIfStale_ShouldBuildOnAgeOrAfterEnoughWrites() {
+        inventorySnapshotService.refreshIfStale();
+        assertEquals(1, inventorySnapshotService.current().getEpoch());
+
+        when(availabilityProjection.getVersion()).thenReturn(100L);
+        inventorySnapshotService.refreshIfStale();
+        assertEquals(1, inventorySnapshotService.current().getEpoch()); // 58 writes since the cut, fresh enough
+
+        when(availabilityProjection.getVersion()).thenReturn(542L);
+        inventorySnapshotService.refreshIfStale();
+        assertEquals(2, inventorySnapshotService.current().getEpoch());
+
+        ReflectionTestUtils.setField(inventorySnapshotService, "maxAgeMs", 0L);
+        inventorySnapshotService.refreshIfStale();
+        assertEquals(3, inventorySnapshotService.current().getEpoch());
+    }
+
+    @Test
+    void refreshIfStale_ShouldWaitForTheProjectionAndHonourTheSwitch() {
+        when(availabilityProjection.isReady()).thenReturn(false);
+        inventorySnapshotService.refreshIfStale();
+        assertNull(inventorySnapshotService.current());
+
+        when(availabilityProjection.isReady()).thenReturn(true);
+        inventorySnapshotService.refreshIfStale();
+        ReflectionTestUtils.setField(inventorySnapshotService, "enabled", false);
+        assertNull(inventorySnapshotService.current());
+    }
+
+    @Test
+    void withSnapshotHeaders_ShouldOnlyTagSnapshotResponses() {
+        ResponseEntity<String> live = ResponseEntity.ok("body");
+        assertSame(live, InventorySnapshotService.withSnapshotHeaders(live, null));
+
+        ResponseEntity<String> tagged = InventorySnapshotService.withSnapshotHeaders(live, inventorySnapshotService.build());
+
+        assertEquals("body", tagged.getBody());
+        assertEquals("1", tagged.getHeaders().getFirst(InventorySnapshotService.EPOCH_HEADER));
+        assertNotNull(tagged.getHeaders().getFirst(InventorySnapshotService.AGE_HEADER));
+    }
+
+    private static Location location(String locationId, String description) {
+        Location location = new Location();
+        location.setLocationId(locationId);
+        location.setLocationDesc(description);
+        return location;
+    }
+}
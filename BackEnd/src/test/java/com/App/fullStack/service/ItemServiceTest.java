@@ -1,12 +1,16 @@
 package com.App.fullStack.service;
 
+import com.App.fullStack.dto.ItemSearchCriteria;
 import com.App.fullStack.exception.FoundException;
 import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.ItemStatus;
 import com.App.fullStack.repositories.DemandRepository;
 import com.App.fullStack.repositories.ItemRepository;
 import com.App.fullStack.repositories.SupplyRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -14,13 +18,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ItemServiceTest {
@@ -35,6 +46,18 @@ public class ItemServiceTest {
     @Mock
     private DemandRepository demandRepository;
 
+    @Mock
+    private TypeaheadIndex typeaheadIndex;
+
+    @Mock
+    private KeywordIdResolver keywordIdResolver;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private ItemService itemService;
 
@@ -162,6 +185,17 @@ public class ItemServiceTest {
         assertNotNull(result);
     }
 
+    @Test
+    public void testGetItemDescriptions() {
+        when(itemRepository.findDescriptionsByItemIdIn(Set.of("item1", "item2"))).thenReturn(List.of(
+                new Item(null, "item1", "Item name", null, null, null, 0.0, false, false, false)));
+
+        Map<String, String> result = itemService.getItemDescriptions(Set.of("item1", "item2"));
+        assertEquals(Map.of("item1", "Item name"), result);
+        assertTrue(itemService.getItemDescriptions(Set.of()).isEmpty());
+        verify(itemRepository, times(1)).findDescriptionsByItemIdIn(any());
+    }
+
     @Test
     public void testGetItemByItemIdWithOutExceptionNotFound() {
         String itemId = "item1";
@@ -269,6 +303,44 @@ public class ItemServiceTest {
         assertEquals(itemIds, result.getContent());
     }
 
+    @Test
+    public void testSearchItems_CompilesTypedFiltersIntoIndexFriendlyCriteria() {
+        Item item = new Item("id", "item1", "Blue shirt", "Apparel", "Shirt", ItemStatus.ACTIVE, 25.0, true, true, false);
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(List.of(item));
+
+        Page<Item> result = itemService.searchItems(new ItemSearchCriteria("blue", 10.0, 50.0, ItemStatus.ACTIVE,
+                "App.", null, null, true, null), 0, 10);
+
+        assertEquals(1, result.getTotalElements());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Item.class));
+        Document filter = query.getValue().getQueryObject();
+        assertEquals(ItemStatus.ACTIVE, filter.get("status"));
+        assertEquals("^App\\.", filter.get("category").toString());
+        assertEquals(new Document("$gte", 10.0).append("$lte", 50.0), filter.get("price"));
+        assertEquals(true, filter.get("shippingAllowed"));
+        assertFalse(filter.containsKey("pickupAllowed"));
+        assertFalse(filter.get("$or").toString().contains("price"));
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Item.class)); // first page not full
+    }
+
+    @Test
+    public void testSearchItems_RejectsInvertedPriceRange() {
+        ItemSearchCriteria criteria = new ItemSearchCriteria(null, 50.0, 10.0, null, null, null, null, null, null);
+
+        assertThrows(FoundException.class, () -> itemService.searchItems(criteria, 0, 10));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    public void testGetAllItemIdsWithSearch_UsesTypeaheadOnceLoaded() {
+        Page<String> suggestions = new PageImpl<>(List.of("{\"itemId\": \"item1\"}"));
+        when(typeaheadIndex.suggestItems("it", 0, 10)).thenReturn(Optional.of(suggestions));
+
+        assertSame(suggestions, itemService.getAllItemIds(0, 10, "it"));
+        verify(itemRepository, never()).searchItemIdsByKeyword(anyString(), any(Pageable.class));
+    }
+
     /**
      * Test getAllItemIds with a search keyword that returns no item IDs.
      */
@@ -0,0 +1,89 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockFilter;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class KeywordIdResolverTest {
+
+    @InjectMocks
+    private KeywordIdResolver keywordIdResolver;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(List.of(item("SKU-1"), item("SKU-2")));
+        when(mongoTemplate.find(any(Query.class), eq(Location.class))).thenReturn(List.of(location("LOC-1")));
+    }
+
+    @Test
+    void itemIds_ShouldCacheUntilItemsChange() {
+        assertEquals(List.of("SKU-1", "SKU-2"), keywordIdResolver.itemIds("sku"));
+        assertEquals(List.of("SKU-1", "SKU-2"), keywordIdResolver.itemIds("sku"));
+        assertEquals(List.of("LOC-1"), keywordIdResolver.locationIds("loc"));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Item.class));
+
+        keywordIdResolver.onInventoryChange(new InventoryChangeEvent("locations", "insert", new Document()));
+        keywordIdResolver.itemIds("sku");
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Item.class));
+        assertEquals(1, keywordIdResolver.cachedCount());
+
+        keywordIdResolver.invalidateItems();
+        keywordIdResolver.itemIds("sku");
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(Item.class));
+    }
+
+    @Test
+    void itemIds_ShouldRejectKeywordsMatchingMoreThanTheCap() {
+        ReflectionTestUtils.setField(keywordIdResolver, "maxIds", 1);
+
+        FoundException exception = assertThrows(FoundException.class, () -> keywordIdResolver.itemIds("sku"));
+
+        assertEquals("Item keyword sku matches more than 1 records, please refine it.", exception.getMessage());
+        verify(mongoTemplate).find(argThat((Query query) -> query.getLimit() == 2), eq(Item.class));
+        assertEquals(0, keywordIdResolver.cachedCount());
+    }
+
+    @Test
+    void filterCriteria_ShouldCombineIdsAndQuantityRange() {
+        List<Criteria> criteria = keywordIdResolver.filterCriteria(new StockFilter("sku", " loc ", "ONHAND", 2, 9));
+
+        assertEquals(List.of(Criteria.where("itemId").in(List.of("SKU-1", "SKU-2")),
+                Criteria.where("locationId").in(List.of("LOC-1")),
+                Criteria.where("quantity").gte(2).lte(9)), criteria);
+        assertTrue(keywordIdResolver.filterCriteria(new StockFilter(" ", null, null, null, null)).isEmpty());
+        assertThrows(FoundException.class,
+                () -> keywordIdResolver.filterCriteria(new StockFilter(null, null, null, 9, 2)));
+    }
+
+    private static Item item(String itemId) {
+        return new Item(null, itemId, null, null, null, null, 0.0, false, false, false);
+    }
+
+    private static Location location(String locationId) {
+        Location location = new Location();
+        location.setLocationId(locationId);
+        return location;
+    }
+}
@@ -0,0 +1,109 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.Location;
+import com.App.fullStack.pojos.LocationType;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LocationSearchIndexTest {
+
+    @InjectMocks
+    private LocationSearchIndex locationSearchIndex;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.stream(any(Query.class), eq(Location.class))).thenAnswer(invocation -> Stream.of(
+                location("LOC-1", "North Warehouse", "Pune"),
+                location("LOC-2", "Store near Warehouse Road", "Mumbai"),
+                location("WH", "Main hub", "Warehouse City")));
+    }
+
+    @Test
+    void search_ShouldFallBackToMongoUntilLoaded() {
+        assertTrue(locationSearchIndex.search("house", 0, 10).isEmpty());
+        locationSearchIndex.rebuild();
+        assertTrue(locationSearchIndex.isReady());
+        assertTrue(locationSearchIndex.search("ware.*", 0, 10).isEmpty()); // regex syntax stays on Mongo
+    }
+
+    @Test
+    void search_ShouldMatchSubstringsCaseInsensitivelyAndRankByField() {
+        locationSearchIndex.rebuild();
+
+        Page<Location> page = locationSearchIndex.search("WAREHOUSE", 0, 10).orElseThrow();
+
+        assertEquals(3, page.getTotalElements());
+        // Description matches outrank a city match; a word start within the description is as good as the start
+        assertEquals(List.of("LOC-1", "LOC-2", "WH"), page.getContent().stream().map(Location::getLocationId).toList());
+        assertEquals(List.of("LOC-2"), ids(locationSearchIndex.search("near", 0, 10).orElseThrow()));
+        assertEquals(List.of("WH"), ids(locationSearchIndex.search("wh", 0, 10).orElseThrow())); // scanned, no trigram
+        assertEquals(0, locationSearchIndex.search("warehouses", 0, 10).orElseThrow().getTotalElements());
+    }
+
+    @Test
+    void search_ShouldPaginateRankedMatches() {
+        locationSearchIndex.rebuild();
+
+        Page<Location> second = locationSearchIndex.search("warehouse", 1, 2).orElseThrow();
+
+        assertEquals(3, second.getTotalElements());
+        assertEquals(List.of("WH"), ids(second));
+    }
+
+    @Test
+    void putAndRemove_ShouldKeepPostingsCurrent() {
+        locationSearchIndex.rebuild();
+
+        locationSearchIndex.put(location("LOC-1", "South Depot", "Pune"));
+        locationSearchIndex.remove("LOC-2");
+
+        assertEquals(List.of("WH"), ids(locationSearchIndex.search("warehouse", 0, 10).orElseThrow()));
+        assertEquals(List.of("LOC-1"), ids(locationSearchIndex.search("depot", 0, 10).orElseThrow()));
+    }
+
+    @Test
+    void onInventoryChange_ShouldApplyLocationChangesFromOtherNodes() {
+        locationSearchIndex.rebuild();
+        Document inserted = new Document("locationId", "LOC-3");
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(converter.read(Location.class, inserted)).thenReturn(location("LOC-3", "Warehouse", "Pune"));
+
+        locationSearchIndex.onInventoryChange(new InventoryChangeEvent("locations", "insert", inserted));
+        locationSearchIndex.onInventoryChange(new InventoryChangeEvent("locations", "delete", new Document("locationId", "WH")));
+        locationSearchIndex.onInventoryChange(new InventoryChangeEvent("supplies", "delete", new Document("locationId", "LOC-1")));
+
+        assertEquals(List.of("LOC-3", "LOC-1", "LOC-2"), ids(locationSearchIndex.search("warehouse", 0, 10).orElseThrow()));
+    }
+
+    private static List<String> ids(Page<Location> page) {
+        return page.getContent().stream().map(Location::getLocationId).toList();
+    }
+
+    private static Location location(String locationId, String description, String city) {
+        return new Location(null, locationId, description, LocationType.HUB, true, true, true, "1 Main Street",
+                null, null, city, "State", "Country", "411001");
+    }
+}
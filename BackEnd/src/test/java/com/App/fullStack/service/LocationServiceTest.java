@@ -2,11 +2,14 @@ package com.App.fullStack.service;
 
 import com.App.fullStack.dto.LocationData;
 import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.DemandType;
 import com.App.fullStack.pojos.Location;
 import com.App.fullStack.pojos.LocationType;
+import com.App.fullStack.pojos.SupplyType;
 import com.App.fullStack.repositories.DemandRepository;
 import com.App.fullStack.repositories.LocationRepository;
 import com.App.fullStack.repositories.SupplyRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -16,12 +19,24 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
 
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class LocationServiceTest {
@@ -35,6 +50,21 @@ public class LocationServiceTest {
     @Mock
     private DemandRepository demandRepository;
 
+    @Mock
+    private LocationSearchIndex locationSearchIndex;
+
+    @Mock
+    private TypeaheadIndex typeaheadIndex;
+
+    @Mock
+    private KeywordIdResolver keywordIdResolver;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private DashboardService dashboardService;
+
     @InjectMocks
     private LocationService locationService;
 
@@ -74,6 +104,17 @@ public class LocationServiceTest {
         assertEquals(locations, result.getContent());
     }
 
+    @Test
+    public void testGetAllLocationsWithKeyword_UsesSearchIndexOnceLoaded() {
+        Page<Location> ranked = new PageImpl<>(List.of(
+                new Location("www", "loc1", "Location 1", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345")));
+        when(locationSearchIndex.search("Location", 0, 10)).thenReturn(Optional.of(ranked));
+
+        Page<Location> result = locationService.getAllLocations(0, 10, "Location");
+        assertSame(ranked, result);
+        verify(locationRepository, never()).searchLocationsByKeyword(anyString(), any(Pageable.class));
+    }
+
     @Test
     public void testGetLocationByIdFound() {
         String locationId = "loc1";
@@ -107,6 +148,8 @@ public class LocationServiceTest {
         Location result = locationService.addLocation(location);
         assertNotNull(result);
         assertEquals(location.getLocationId(), result.getLocationId());
+        verify(locationSearchIndex).put(location);
+        verify(typeaheadIndex).putLocation(location);
     }
 
     @Test
@@ -158,6 +201,9 @@ public class LocationServiceTest {
         String result = locationService.deleteLocation(locationId);
         assertEquals("Location deleted successfully", result);
         verify(locationRepository, times(1)).delete(location);
+        verify(locationSearchIndex).remove(locationId);
+        verify(typeaheadIndex).removeLocation(locationId);
+        verify(keywordIdResolver).invalidateLocations();
     }
 
     @Test
@@ -191,15 +237,12 @@ public class LocationServiceTest {
         );
 
         when(locationRepository.findAll()).thenReturn(locations);
-        when(supplyRepository.getTotalSupplyByLocationAndType("loc1", "ONHAND")).thenReturn(10);
-        when(supplyRepository.getTotalSupplyByLocationAndType("loc1", "INTRANSIT")).thenReturn(5);
-        when(demandRepository.getTotalDemandByLocationAndType("loc1", "HARD_PROMISED")).thenReturn(3);
-        when(demandRepository.getTotalDemandByLocationAndType("loc1", "PLANNED")).thenReturn(2);
-
-        when(supplyRepository.getTotalSupplyByLocationAndType("loc2", "ONHAND")).thenReturn(20);
-        when(supplyRepository.getTotalSupplyByLocationAndType("loc2", "INTRANSIT")).thenReturn(15);
-        when(demandRepository.getTotalDemandByLocationAndType("loc2", "HARD_PROMISED")).thenReturn(6);
-        when(demandRepository.getTotalDemandByLocationAndType("loc2", "PLANNED")).thenReturn(4);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class))).thenReturn(results(
+                total("loc1", "supplyType", "ONHAND", 10), total("loc1", "supplyType", "INTRANSIT", 5),
+                total("loc2", "supplyType", "ONHAND", 20), total("loc2", "supplyType", "INTRANSIT", 15)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("demands"), eq(Document.class))).thenReturn(results(
+                total("loc1", "demandType", "HARD_PROMISED", 3), total("loc1", "demandType", "PLANNED", 2),
+                total("loc2", "demandType", "HARD_PROMISED", 6), total("loc2", "demandType", "PLANNED", 4)));
 
         List<LocationData> result = locationService.getStackedBarData();
         assertNotNull(result);
@@ -222,6 +265,77 @@ public class LocationServiceTest {
         assertEquals(4, locationData2.getDemandDetails().get("PLANNED"));
     }
 
+    @Test
+    public void testGetStackedBarDataTopByVolume() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class))).thenReturn(results(
+                total("loc1", "supplyType", "ONHAND", 10), total("loc2", "supplyType", "INTRANSIT", 30),
+                total("gone", "supplyType", "ONHAND", 50)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("demands"), eq(Document.class))).thenReturn(results(
+                total("loc3", "demandType", "PLANNED", 12)));
+        when(locationRepository.findDescriptionsByLocationIdIn(List.of("gone", "loc2"))).thenReturn(List.of(
+                new Location("www", "loc2", "Location 2", LocationType.SUPPLIER_LOCATION, false, true, false, "Address2", null, null, "City2", "State2", "Country2", "67890")));
+
+        when(locationRepository.findDescriptionsByLocationIdIn(List.of("loc3", "loc1"))).thenReturn(List.of(
+                new Location("xxx", "loc3", "Location 3", LocationType.SUPPLIER_LOCATION, false, true, false, "Address3", null, null, "City3", "State3", "Country3", "13579")));
+
+        List<LocationData> result = locationService.getStackedBarData(null, null, 2);
+
+        // A deleted location is skipped before the limit, so the next largest existing one fills its place
+        assertEquals(List.of("loc2", "loc3"), result.stream().map(LocationData::getLocationId).toList());
+        assertEquals(Map.of("HARD_PROMISED", 0, "PLANNED", 12), result.get(1).getDemandDetails());
+        assertEquals(Map.of("ONHAND", 0, "INTRANSIT", 30), result.getFirst().getSupplyDetails());
+        assertEquals(Map.of("HARD_PROMISED", 0, "PLANNED", 0), result.getFirst().getDemandDetails());
+        verify(locationRepository, never()).findAll();
+        assertThrows(FoundException.class, () -> locationService.getStackedBarData(null, null, 0));
+    }
+
+    @Test
+    public void testGetStackedBarDataPagedRestrictsAggregationToPage() {
+        Location location = new Location("www", "loc1", "Location 1", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345");
+        when(locationRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(location)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), anyString(), eq(Document.class))).thenReturn(results());
+
+        List<LocationData> result = locationService.getStackedBarData(1, 1, null);
+
+        assertEquals(Map.of("ONHAND", 0, "INTRANSIT", 0), result.getFirst().getSupplyDetails());
+        verify(locationRepository).findAll(PageRequest.of(1, 1, Sort.by("locationId")));
+        verify(mongoTemplate).aggregate(argThat((Aggregation aggregation) -> aggregation.toString().contains("loc1")),
+                eq("supplies"), eq(Document.class));
+    }
+
+    @Test
+    public void testGetStackedBarDataFromSnapshotSkipsMongo() {
+        Map<ItemLocationKey, StockTotals> totals = new HashMap<>();
+        totals.put(new ItemLocationKey("item1", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 10, 1));
+        totals.put(new ItemLocationKey("item2", "loc1"), StockTotals.EMPTY.withDemand(DemandType.PLANNED, 2, 1));
+        totals.put(new ItemLocationKey("item1", "loc2"), StockTotals.EMPTY.withSupply(SupplyType.INTRANSIT, 30, 1));
+        InventorySnapshot snapshot = new InventorySnapshot(1, Instant.now(), 0, totals, Map.of(),
+                new TreeMap<>(Map.of("loc1", "Location 1", "loc2", "Location 2", "loc3", "Location 3")));
+
+        List<LocationData> all = locationService.getStackedBarData(null, null, null, snapshot);
+        List<LocationData> top = locationService.getStackedBarData(null, null, 1, snapshot);
+        List<LocationData> paged = locationService.getStackedBarData(1, 2, null, snapshot);
+
+        assertEquals(List.of("loc1", "loc2", "loc3"), all.stream().map(LocationData::getLocationId).toList());
+        assertEquals(Map.of("ONHAND", 10, "INTRANSIT", 0), all.getFirst().getSupplyDetails());
+        assertEquals(Map.of("HARD_PROMISED", 0, "PLANNED", 2), all.getFirst().getDemandDetails());
+        assertEquals(Map.of("ONHAND", 0, "INTRANSIT", 0), all.get(2).getSupplyDetails());
+        assertEquals("loc2", top.getFirst().getLocationId());
+        assertEquals(1, top.size());
+        assertEquals(List.of("loc3"), paged.stream().map(LocationData::getLocationId).toList());
+        verifyNoInteractions(mongoTemplate);
+        verify(locationRepository, never()).findAll();
+    }
+
+    private static AggregationResults<Document> results(Document... totals) {
+        return new AggregationResults<>(List.of(totals), new Document());
+    }
+
+    private static Document total(String locationId, String typeField, String type, int quantity) {
+        return new Document("_id", new Document("locationId", locationId).append(typeField, type))
+                .append("quantity", quantity);
+    }
+
     @Test
     public void testGetLocationByIdWithoutExceptionLocationFound() {
         String locationId = "loc1";
@@ -234,6 +348,15 @@ public class LocationServiceTest {
         assertEquals(locationId, result.getLocationId());
     }
 
+    @Test
+    public void testGetLocationDescriptions() {
+        Location location = new Location("www", "loc1", "Location 1", LocationType.DISTRIBUTION_CENTER, true, false, true, "Address1", null, null, "City1", "State1", "Country1", "12345");
+        when(locationRepository.findDescriptionsByLocationIdIn(Set.of("loc1"))).thenReturn(List.of(location));
+
+        Map<String, String> result = locationService.getLocationDescriptions(Set.of("loc1"));
+        assertEquals(Map.of("loc1", "Location 1"), result);
+    }
+
     @Test
     public void testGetLocationByIdWithoutExceptionLocationNotFound() {
         String locationId = "loc1";
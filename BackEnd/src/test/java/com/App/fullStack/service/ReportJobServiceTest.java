@@ -0,0 +1,286 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.LowAvailabilityDTO;
+import com.App.fullStack.dto.ReportJobRequest;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.ReportJob;
+import com.App.fullStack.pojos.ReportJobStatus;
+import com.App.fullStack.repositories.ReportJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReportJobServiceTest {
+
+    @InjectMocks
+    private ReportJobService reportJobService;
+
+    @Mock
+    private ReportJobRepository reportJobRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private GridFsOperations gridFsOperations;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    @Mock
+    private LocationService locationService;
+
+    @Mock
+    private AvailabilityReportService availabilityReportService;
+
+    @Mock
+    private InventorySnapshotService inventorySnapshotService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ObjectId fileId = new ObjectId();
+    private volatile String storedJson;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        reportJobService.objectMapper = new ObjectMapper();
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ReportJob.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(gridFsOperations.store(any(InputStream.class), anyString(), anyString(), any(Document.class)))
+                .thenAnswer(invocation -> {
+                    storedJson = new String(((InputStream) invocation.getArgument(0)).readAllBytes(),
+                            StandardCharsets.UTF_8);
+                    return fileId;
+                });
+        // The network-wide export blocks its worker until the test releases it
+        when(availabilityReportService.getAvailabilityExport(null)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        reportJobService.stop();
+    }
+
+    @Test
+    void submit_ShouldRunTheReportAndStoreItsResult() throws InterruptedException {
+        reportJobService.start();
+        when(availabilityReportService.getLowestAvailability("loc1", 5, null))
+                .thenReturn(List.of(new LowAvailabilityDTO("item1", "loc1", -3, null, null, "Unknown")));
+
+        ReportJob job = reportJobService.submit(new ReportJobRequest("lowestAvailability",
+                Map.of("locationId", " loc1 ", "limit", "5", "rankBy", "")));
+        awaitIdle();
+
+        assertEquals(ReportJobStatus.QUEUED, job.getStatus());
+        assertEquals(Map.of("limit", "5", "locationId", "loc1"), job.getParameters());
+        verify(reportJobRepository).save(job);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), updates.capture(), eq(ReportJob.class));
+        Document finished = (Document) updates.getValue().getUpdateObject().get("$set");
+        assertEquals(ReportJobStatus.SUCCEEDED, finished.get("status"));
+        assertEquals(100, finished.get("progress"));
+        assertEquals(fileId.toHexString(), finished.get("resultFileId"));
+        assertNotNull(finished.get("expiresAt"));
+        assertTrue(storedJson.contains("\"itemId\":\"item1\""));
+        verify(gridFsOperations, never()).delete(any(Query.class));
+    }
+
+    @Test
+    void run_ShouldDeleteTheStoredResultOfAJobCancelledWhileWritingIt() throws InterruptedException {
+        reportJobService.start();
+        when(availabilityReportService.getLowestAvailability(null, null, null)).thenReturn(List.of());
+        // Every transition succeeds except the final one to SUCCEEDED
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ReportJob.class))).thenAnswer(invocation -> {
+            Document set = (Document) ((Update) invocation.getArgument(1)).getUpdateObject().get("$set");
+            return UpdateResult.acknowledged(1, set.get("status") == ReportJobStatus.SUCCEEDED ? 0L : 1L, null);
+        });
+
+        reportJobService.submit(new ReportJobRequest("lowestAvailability", null));
+        awaitIdle();
+
+        ArgumentCaptor<Query> deleted = ArgumentCaptor.forClass(Query.class);
+        verify(gridFsOperations).delete(deleted.capture());
+        assertEquals(fileId, deleted.getValue().getQueryObject().get("_id"));
+    }
+
+    @Test
+    void submit_ShouldLeaveExpiryOfActiveJobsToTheMaintenanceTask() {
+        reportJobService.start();
+        ReportJob job = reportJobService.submit(new ReportJobRequest("availabilityExport", null));
+
+        reportJobService.maintain();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(ReportJob.class));
+        assertEquals(List.of(job.getJobId()),
+                List.copyOf((Collection<?>) ((Document) query.getValue().getQueryObject().get("_id")).get("$in")));
+        Instant expiresAt = (Instant) ((Document) update.getValue().getUpdateObject().get("$set")).get("expiresAt");
+        assertTrue(expiresAt.isAfter(job.getExpiresAt().minusMillis(1)));
+        verify(gridFsOperations).delete(any(Query.class));
+    }
+
+    @Test
+    void submit_ShouldReuseTheActiveOrFinishedJobForTheSameParameters() {
+        reportJobService.start();
+        ReportJob first = reportJobService.submit(new ReportJobRequest("availabilityExport", Map.of()));
+        when(reportJobRepository.findById(first.getJobId())).thenReturn(Optional.of(first));
+
+        assertSame(first, reportJobService.submit(new ReportJobRequest("availabilityExport", null)));
+
+        ReportJob finished = new ReportJob("done", "stackedBar", Map.of("top", "5"), "stackedBar{top=5}",
+                ReportJobStatus.SUCCEEDED, 100, Instant.now(), Instant.now(), Instant.now(), null, fileId.toHexString(),
+                Instant.now());
+        when(reportJobRepository.findFirstByParametersKeyAndStatusAndFinishedAtAfterAndExpiresAtAfterOrderByFinishedAtDesc(
+                eq("stackedBar{top=5}"), eq(ReportJobStatus.SUCCEEDED), any(Instant.class), any(Instant.class)))
+                .thenReturn(Optional.of(finished));
+        assertSame(finished, reportJobService.submit(new ReportJobRequest("stackedBar", Map.of("top", "5"))));
+        assertEquals(0, finished.getResultAgeSeconds());
+
+        verify(reportJobRepository, times(1)).save(any(ReportJob.class));
+        verifyNoInteractions(locationService);
+    }
+
+    @Test
+    void submit_ShouldOnlyReuseFinishedJobsWithinTheRequestedAge() {
+        reportJobService.start();
+        ArgumentCaptor<Instant> finishedAfter = ArgumentCaptor.forClass(Instant.class);
+
+        reportJobService.submit(new ReportJobRequest("stackedBar", Map.of("top", "5"), 600L, false));
+        verify(reportJobRepository).findFirstByParametersKeyAndStatusAndFinishedAtAfterAndExpiresAtAfterOrderByFinishedAtDesc(
+                eq("stackedBar{top=5}"), eq(ReportJobStatus.SUCCEEDED), finishedAfter.capture(), any(Instant.class));
+        long age = Duration.between(finishedAfter.getValue(), Instant.now()).getSeconds();
+        assertTrue(age >= 599 && age <= 601);
+
+        clearInvocations(reportJobRepository);
+        reportJobService.submit(new ReportJobRequest("stackedBar", Map.of("top", "6"), null, true));
+        verify(reportJobRepository, never())
+                .findFirstByParametersKeyAndStatusAndFinishedAtAfterAndExpiresAtAfterOrderByFinishedAtDesc(
+                        any(), any(), any(), any());
+        verify(reportJobRepository).save(any(ReportJob.class));
+
+        Exception exception = assertThrows(FoundException.class,
+                () -> reportJobService.submit(new ReportJobRequest("stackedBar", Map.of("top", "7"), -1L, false)));
+        assertEquals("Invalid value for maxAgeSeconds: -1.", exception.getMessage());
+    }
+
+    @Test
+    void submit_ShouldRejectInvalidRequests() {
+        reportJobService.start();
+        assertThrows(FoundException.class, () -> reportJobService.submit(new ReportJobRequest("pdf", null)));
+        assertThrows(FoundException.class,
+                () -> reportJobService.submit(new ReportJobRequest("stackedBar", Map.of("locationId", "loc1"))));
+        assertThrows(FoundException.class,
+                () -> reportJobService.submit(new ReportJobRequest("scatter", Map.of("maxPoints", "100"))));
+        Exception exception = assertThrows(FoundException.class,
+                () -> reportJobService.submit(new ReportJobRequest("stackedBar", Map.of("top", "ten"))));
+        assertEquals("Invalid value for top: ten.", exception.getMessage());
+        verify(reportJobRepository, never()).save(any(ReportJob.class));
+    }
+
+    @Test
+    void submit_ShouldRejectJobsWhenTheQueueIsFull() {
+        ReflectionTestUtils.setField(reportJobService, "workerCount", 1);
+        ReflectionTestUtils.setField(reportJobService, "queueCapacity", 1);
+        reportJobService.start();
+
+        reportJobService.submit(new ReportJobRequest("availabilityExport", null));
+        reportJobService.submit(new ReportJobRequest("availabilityExport", Map.of("locationId", "loc1")));
+        Exception exception = assertThrows(FoundException.class,
+                () -> reportJobService.submit(new ReportJobRequest("availabilityExport", Map.of("locationId", "loc2"))));
+
+        assertEquals("Report queue is full, please retry later.", exception.getMessage());
+        verify(reportJobRepository).deleteById(anyString());
+        assertEquals(2, reportJobService.activeCount());
+    }
+
+    @Test
+    void cancel_ShouldMarkAQueuedJobCancelledAndNeverRunIt() throws InterruptedException {
+        ReflectionTestUtils.setField(reportJobService, "workerCount", 1);
+        reportJobService.start();
+        reportJobService.submit(new ReportJobRequest("availabilityExport", null));
+        ReportJob queued = reportJobService.submit(new ReportJobRequest("availabilityExport", Map.of("locationId", "loc1")));
+        when(reportJobRepository.findById(queued.getJobId())).thenReturn(Optional.of(queued));
+
+        reportJobService.cancel(queued.getJobId());
+        release.countDown();
+        awaitIdle();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), updates.capture(), eq(ReportJob.class));
+        assertTrue(updates.getAllValues().stream().anyMatch(update ->
+                ((Document) update.getUpdateObject().get("$set")).get("status") == ReportJobStatus.CANCELLED));
+        verify(availabilityReportService, never()).getAvailabilityExport("loc1");
+
+        queued.setStatus(ReportJobStatus.CANCELLED);
+        assertThrows(FoundException.class, () -> reportJobService.cancel(queued.getJobId()));
+    }
+
+    @Test
+    void getResult_ShouldOnlyServeSucceededJobs() throws Exception {
+        ReportJob running = new ReportJob("job1", "stackedBar", Map.of(), "stackedBar{}", ReportJobStatus.RUNNING, 0,
+                Instant.now(), Instant.now(), null, null, null, Instant.now());
+        when(reportJobRepository.findById("job1")).thenReturn(Optional.of(running));
+
+        assertThrows(FoundException.class, () -> reportJobService.getResult("job1"));
+        assertThrows(FoundException.class, () -> reportJobService.getResult("missing"));
+
+        running.setStatus(ReportJobStatus.SUCCEEDED);
+        running.setResultFileId(fileId.toHexString());
+        assertThrows(FoundException.class, () -> reportJobService.getResult("job1"));
+
+        GridFSFile file = new GridFSFile(new BsonObjectId(fileId), "report-job1.json", 2, 255, new Date(), null);
+        when(gridFsOperations.findOne(any(Query.class))).thenReturn(file);
+        when(gridFsOperations.getResource(file))
+                .thenReturn(new GridFsResource(file, new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8))));
+        assertEquals("[]", new String(reportJobService.getResult("job1").getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reportJobService.activeCount() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(0, reportJobService.activeCount());
+    }
+}
@@ -0,0 +1,56 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.ScatterBinDTO;
+import com.App.fullStack.dto.ScatterDataDTO;
+import com.App.fullStack.dto.ScatterLocationDataDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScatterBucketerTest {
+
+    @Test
+    void bucket_ShouldReturnAllPointsWhenWithinBudget() {
+        List<ScatterDataDTO> points = List.of(new ScatterDataDTO(10, 5, 1, "a"), new ScatterDataDTO(20, 8, 2, "b"));
+
+        ScatterLocationDataDTO result = ScatterBucketer.bucket(points, "NETWORK", 10);
+
+        assertFalse(result.isBucketed());
+        assertEquals(2, result.getScatterDataDTO().size());
+        assertEquals(2, result.getTotalItems());
+    }
+
+    @Test
+    void bucket_ShouldBoundPayloadAndKeepEveryItemCounted() {
+        List<ScatterDataDTO> points = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+            points.add(new ScatterDataDTO(i % 100, i % 50, i % 7, "item" + i));
+
+        ScatterLocationDataDTO result = ScatterBucketer.bucket(points, "NETWORK", 100);
+
+        assertTrue(result.isBucketed());
+        assertEquals(5000, result.getTotalItems());
+        assertTrue(result.getScatterDataDTO().size() <= 100);
+        assertEquals(5000, result.getBins().stream().mapToInt(ScatterBinDTO::getCount).sum());
+        assertTrue(result.getOutliers().isEmpty());
+    }
+
+    @Test
+    void bucket_ShouldKeepOutliersOutsideTheGrid() {
+        List<ScatterDataDTO> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            points.add(new ScatterDataDTO(10 + i % 10, 20 + i % 5, 0, "item" + i));
+        ScatterDataDTO outlier = new ScatterDataDTO(100000, 20, 0, "luxury");
+        points.add(outlier);
+
+        ScatterLocationDataDTO result = ScatterBucketer.bucket(points, "NETWORK", 50);
+
+        assertEquals(List.of(outlier), result.getOutliers());
+        assertTrue(result.getScatterDataDTO().contains(outlier));
+        assertEquals(1000, result.getBins().stream().mapToInt(ScatterBinDTO::getCount).sum());
+        assertTrue(result.getBins().stream().allMatch(bin -> bin.getMaxPrice() <= 19));
+    }
+}
@@ -0,0 +1,83 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.StockLevelEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockLevelEventDispatcherTest {
+
+    private StockLevelEventDispatcher dispatcher;
+    private final List<List<StockLevelEvent>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new StockLevelEventDispatcher();
+        dispatcher.subscribers = List.of(events -> batches.add(new ArrayList<>(events)));
+    }
+
+    @Test
+    void publish_ShouldIgnoreUnchangedLevel() {
+        dispatcher.publish("item1", "loc1", "Green", "Green", 60);
+
+        assertEquals(0, dispatcher.pendingCount());
+    }
+
+    @Test
+    void publish_ShouldCoalesceChangesOfOnePair() {
+        dispatcher.publish("item1", "loc1", "Green", "Yellow", 40);
+        dispatcher.publish("item1", "loc1", "Yellow", "Red", 5);
+        dispatcher.publish("item2", "loc1", "Red", "Yellow", 20);
+        dispatcher.publish("item2", "loc1", "Yellow", "Red", 5); // back where it started
+
+        dispatcher.flush();
+
+        assertEquals(1, batches.size());
+        StockLevelEvent event = batches.get(0).get(0);
+        assertEquals(1, batches.get(0).size());
+        assertEquals("Green", event.getPreviousLevel());
+        assertEquals("Red", event.getStockLevel());
+        assertEquals(5, event.getAvailableQty());
+    }
+
+    @Test
+    void flush_ShouldSplitIntoBatches() {
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        for (int i = 0; i < 5; i++)
+            dispatcher.publish("item" + i, "loc1", "Green", "Red", 0);
+
+        dispatcher.flush();
+
+        assertEquals(List.of(2, 2, 1), batches.stream().map(List::size).toList());
+        assertEquals(0, dispatcher.pendingCount());
+    }
+
+    @Test
+    void publish_ShouldDropNewPairsPastTheLimit() {
+        ReflectionTestUtils.setField(dispatcher, "maxPending", 1);
+
+        dispatcher.publish("item1", "loc1", "Green", "Red", 0);
+        dispatcher.publish("item2", "loc1", "Green", "Red", 0);
+        dispatcher.publish("item1", "loc1", "Red", "Yellow", 20); // already pending: still accepted
+
+        assertEquals(1, dispatcher.pendingCount());
+        assertEquals(1, dispatcher.getDropped());
+    }
+
+    @Test
+    void flush_ShouldKeepGoingWhenASubscriberFails() {
+        dispatcher.subscribers = List.of(events -> {
+            throw new IllegalStateException("down");
+        }, events -> batches.add(events));
+        dispatcher.publish("item1", "loc1", "Green", "Red", 0);
+
+        dispatcher.flush();
+
+        assertEquals(1, batches.size());
+    }
+}
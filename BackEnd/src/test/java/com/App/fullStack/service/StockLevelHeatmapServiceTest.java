@@ -0,0 +1,146 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.dto.AvailabilityResponseV2V3;
+import com.App.fullStack.dto.StockLevelHeatmapDTO;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.AtpThreshold;
+import com.App.fullStack.pojos.DemandType;
+import com.App.fullStack.pojos.SupplyType;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StockLevelHeatmapServiceTest {
+
+    @InjectMocks
+    private StockLevelHeatmapService stockLevelHeatmapService;
+
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(availabilityService.calculateStockLevel(any(), anyInt())).thenCallRealMethod();
+    }
+
+    @Test
+    void getHeatmap_ShouldClassifyProjectionTotalsPerLocation() {
+        mockProjection(Map.of(
+                new ItemLocationKey("item1", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 5, 1),
+                new ItemLocationKey("item2", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 100, 1),
+                new ItemLocationKey("item3", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 30, 1)
+                        .withDemand(DemandType.HARD_PROMISED, 10, 1),
+                new ItemLocationKey("item1", "loc2"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 1, 1),
+                new ItemLocationKey("item4", "loc2"), StockTotals.EMPTY.withSupply(SupplyType.DAMAGED, 9, 1)));
+        AtpThreshold threshold = new AtpThreshold("t", null, null, 10, 50);
+        when(availabilityProjection.findThreshold(anyString(), eq("loc1"))).thenReturn(Optional.of(threshold));
+        when(availabilityProjection.findThreshold(anyString(), eq("loc2"))).thenReturn(Optional.empty());
+
+        List<StockLevelHeatmapDTO> heatmap = stockLevelHeatmapService.getHeatmap();
+
+        assertEquals(2, heatmap.size());
+        StockLevelHeatmapDTO loc1 = heatmap.get(0);
+        assertEquals("loc1", loc1.getLocationId());
+        assertEquals(1, loc1.getRed());
+        assertEquals(1, loc1.getYellow());
+        assertEquals(1, loc1.getGreen());
+        assertEquals(1, heatmap.get(1).getUnknown()); // no threshold at loc2
+        assertEquals(1, heatmap.get(1).getTotal()); // the DAMAGED-only pair has no v2 availability
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void getHeatmap_ShouldUseSingleAggregationWithoutProjection() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("_id", "loc1").append("red", 2).append("yellow", 0)
+                        .append("green", 7).append("unknown", 1)), new Document()));
+
+        List<StockLevelHeatmapDTO> heatmap = stockLevelHeatmapService.getHeatmap();
+
+        assertEquals(10, heatmap.get(0).getTotal());
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(1)).aggregate(aggregation.capture(), eq("supplies"), eq(Document.class));
+        String pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).toString();
+        assertTrue(pipeline.contains("$unionWith"));
+        assertTrue(pipeline.contains("$lookup"));
+        assertTrue(pipeline.contains("$switch"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getLocationDrillDown_ShouldFilterAndPage() {
+        when(availabilityProjection.isReady()).thenReturn(true);
+        doAnswer(invocation -> {
+            Map.of(new ItemLocationKey("item1", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 5, 1),
+                    new ItemLocationKey("item2", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 6, 1),
+                    new ItemLocationKey("item3", "loc1"), StockTotals.EMPTY.withSupply(SupplyType.ONHAND, 100, 1))
+                    .forEach((BiConsumer<ItemLocationKey, StockTotals>) invocation.getArgument(1));
+            return null;
+        }).when(availabilityProjection).forEachTotalsAt(eq("loc1"), any());
+        when(availabilityProjection.findThreshold(anyString(), anyString()))
+                .thenReturn(Optional.of(new AtpThreshold("t", null, null, 10, 50)));
+
+        Page<AvailabilityResponseV2V3> page = stockLevelHeatmapService.getLocationDrillDown("loc1", "Red", 0, 1);
+
+        assertEquals(2, page.getTotalElements());
+        assertEquals("item1", page.getContent().get(0).getItemId());
+        assertEquals("Red", page.getContent().get(0).getStockLevel());
+        verify(availabilityProjection, never()).forEachTotals(any());
+    }
+
+    @Test
+    void getLocationDrillDown_ShouldQueryOneLocationWithoutProjection() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("supplies"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("_id", new Document("itemId", "item1")
+                        .append("locationId", "loc1")).append("availableQty", 60).append("stockLevel", "Green")), new Document()));
+
+        Page<AvailabilityResponseV2V3> page = stockLevelHeatmapService.getLocationDrillDown("loc1", "Green", 0, 8);
+
+        assertEquals(1, page.getTotalElements());
+        assertEquals(60, page.getContent().get(0).getAvailableQty());
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq("supplies"), eq(Document.class));
+        assertDoesNotThrow(() -> aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT));
+    }
+
+    @Test
+    void getLocationDrillDown_ShouldRejectUnknownStockLevel() {
+        Exception exception = assertThrows(FoundException.class,
+                () -> stockLevelHeatmapService.getLocationDrillDown("loc1", "Blue", 0, 8));
+        assertEquals("Invalid stock level: Blue. Expected one of [Red, Yellow, Green, Unknown].", exception.getMessage());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockProjection(Map<ItemLocationKey, StockTotals> totals) {
+        when(availabilityProjection.isReady()).thenReturn(true);
+        doAnswer(invocation -> {
+            totals.forEach((BiConsumer<ItemLocationKey, StockTotals>) invocation.getArgument(0));
+            return null;
+        }).when(availabilityProjection).forEachTotals(any());
+    }
+}
@@ -2,8 +2,12 @@ package com.App.fullStack.service;
 
 import static com.App.fullStack.pojos.LocationType.HUB;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.dto.StockFilter;
 import com.App.fullStack.dto.SupplyDetailsResponse;
 import com.App.fullStack.dto.SupplySummaryResponse;
 import com.App.fullStack.exception.FoundException;
@@ -15,15 +19,22 @@ import com.App.fullStack.repositories.ItemRepository;
 import com.App.fullStack.repositories.LocationRepository;
 import com.App.fullStack.repositories.SupplyRepository;
 import com.App.fullStack.dto.SupplyDTO;
+import com.App.fullStack.utility.CursorPager;
 import com.App.fullStack.utility.ItemAndLocationIDChecker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.util.*;
 
@@ -50,6 +61,24 @@ public class SupplyServiceTest {
     @Mock
     private LocationService locationService;
 
+    @Mock
+    private AvailabilityProjection availabilityProjection;
+
+    @Mock
+    private AvailabilityCache availabilityCache;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private CursorPager cursorPager;
+
+    @Mock
+    private KeywordIdResolver keywordIdResolver;
+
+    @Mock
+    private DashboardService dashboardService;
+
     private Supply supply;
     private Item item;
     private Location location;
@@ -141,32 +170,35 @@ public class SupplyServiceTest {
 
     @Test
     public void testAddSupply_Success() {
-        when(supplyRepository.existsByItemIdAndLocationIdAndSupplyType("item1", "location1", SupplyType.ONHAND))
-                .thenReturn(false);
         doNothing().when(itemAndLocationIDChecker).validateItemAndLocationID("item1", "location1");
-        when(supplyRepository.save(supply)).thenReturn(supply);
+        when(supplyRepository.insert(supply)).thenReturn(supply);
 
         Supply result = supplyService.addSupply(supply);
         assertEquals(supply, result);
+        verify(availabilityProjection).applySupply("item1", "location1", SupplyType.ONHAND, 10, 1);
+        verify(availabilityCache).invalidate("item1", "location1");
     }
 
     @Test
     public void testAddSupply_AlreadyExists() {
-        when(supplyRepository.existsByItemIdAndLocationIdAndSupplyType("item1", "location1", SupplyType.ONHAND))
-                .thenReturn(true);
+        when(supplyRepository.insert(supply)).thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
 
         Exception exception = assertThrows(FoundException.class, () -> supplyService.addSupply(supply));
         assertEquals("Supplies with itemId: item1, locationId: location1 and supplyType: ONHAND already exists.", exception.getMessage());
+        verifyNoInteractions(availabilityProjection, availabilityCache);
     }
 
     @Test
     public void testUpdateSupply_Found() {
-        when(supplyRepository.findBySupplyId("1")).thenReturn(Optional.of(supply));
-        when(supplyRepository.save(supply)).thenReturn(supply);
+        when(mongoTemplate.findAndModify(any(Query.class), eq(new Update().set("quantity", 20)),
+                argThat((FindAndModifyOptions options) -> !options.isReturnNew()), eq(Supply.class))).thenReturn(supply);
 
         Supply updatedSupply = new Supply("1", "item1", "location1", SupplyType.ONHAND, 20);
         Supply result = supplyService.updateSupply("1", updatedSupply);
         assertEquals(20, result.getQuantity());
+        verify(availabilityProjection).applySupply("item1", "location1", SupplyType.ONHAND, 10, 0);
+        verify(availabilityCache).invalidate("item1", "location1");
+        verify(supplyRepository, never()).save(any());
     }
 
     @Test
@@ -179,25 +211,28 @@ public class SupplyServiceTest {
 
     @Test
     public void testDeleteSupply_Found() {
-        when(supplyRepository.findBySupplyId("1")).thenReturn(Optional.of(supply));
-        doNothing().when(supplyRepository).delete(supply);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Supply.class))).thenReturn(supply);
         String result = supplyService.deleteSupply("1");
         assertEquals("Supply deleted successfully", result);
+        verify(availabilityProjection).applySupply("item1", "location1", SupplyType.ONHAND, -10, -1);
+        verify(availabilityCache).invalidate("item1", "location1");
+        verify(supplyRepository, never()).delete(any());
     }
 
     @Test
     public void testDeleteSupply_NotFound() {
-        when(supplyRepository.findBySupplyId("2")).thenReturn(Optional.empty());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Supply.class))).thenReturn(null);
 
         Exception exception = assertThrows(FoundException.class, () -> supplyService.deleteSupply("2"));
         assertEquals("Supply with supplyId 2 not found.", exception.getMessage());
+        verifyNoInteractions(availabilityProjection, dashboardService);
     }
 
     @Test
     public void testGetAllSuppliesWithDetails_Success() {
         when(supplyRepository.findAll(PageRequest.of(0, 10))).thenReturn(new PageImpl<>(Collections.singletonList(supply)));
-        when(itemService.getItemByItemIdWithOutException("item1")).thenReturn(item);
-        when(locationService.getLocationByIdWithoutException("location1")).thenReturn(location);
+        when(itemService.getItemDescriptions(Set.of("item1"))).thenReturn(Map.of("item1", "Sample Item"));
+        when(locationService.getLocationDescriptions(Set.of("location1"))).thenReturn(Map.of("location1", "Sample Location"));
 
         Page<SupplyDTO> result = supplyService.getAllSuppliesWithDetails(0, 10, null, null);
         assertFalse(result.isEmpty());
@@ -212,15 +247,58 @@ public class SupplyServiceTest {
         assertEquals("Supplies not found.", exception.getMessage());
     }
 
+    @Test
+    public void testGetSuppliesWithDetailsAfter_FiltersBySearchAndKeepsCursor() {
+        when(itemRepository.searchItemIdsByKeywordGetIds("item")).thenReturn(List.of(item));
+        when(cursorPager.page(any(Criteria.class), eq(Supply.class), any(), eq("abc"), eq(10), eq("exact")))
+                .thenReturn(new CursorPage<>(List.of(supply), "next", 11L, false));
+        when(itemService.getItemDescriptions(Set.of("item1"))).thenReturn(Map.of("item1", "Sample Item"));
+        when(locationService.getLocationDescriptions(Set.of("location1"))).thenReturn(Map.of());
+
+        CursorPage<SupplyDTO> result = supplyService.getSuppliesWithDetailsAfter("abc", 10, "item", "item", "exact");
+
+        assertEquals("Sample Item", result.getContent().getFirst().getItemDescription());
+        assertEquals("next", result.getNextCursor());
+        assertEquals(11L, result.getTotal());
+        verify(cursorPager).page(eq(Criteria.where("itemId").in(List.of("item1"))), eq(Supply.class), any(), eq("abc"),
+                eq(10), eq("exact"));
+        assertThrows(FoundException.class,
+                () -> supplyService.getSuppliesWithDetailsAfter(null, 10, "item", "unknown", null));
+    }
+
+    @Test
+    public void testFilterSuppliesWithDetails_CombinesFiltersInOneQuery() {
+        StockFilter filter = new StockFilter("item", "loc", "onhand", 5, null);
+        when(keywordIdResolver.filterCriteria(filter)).thenAnswer(invocation -> new ArrayList<>(List.of(
+                Criteria.where("itemId").in(List.of("item1")), Criteria.where("locationId").in(List.of("location1")),
+                Criteria.where("quantity").gte(5))));
+        when(mongoTemplate.find(any(Query.class), eq(Supply.class))).thenReturn(List.of(supply));
+        when(itemService.getItemDescriptions(Set.of("item1"))).thenReturn(Map.of("item1", "Sample Item"));
+        when(locationService.getLocationDescriptions(Set.of("location1"))).thenReturn(Map.of());
+
+        Page<SupplyDTO> result = supplyService.filterSuppliesWithDetails(filter, 0, 10);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Sample Item", result.getContent().getFirst().getItemDescription());
+        verify(mongoTemplate).find(argThat((Query query) -> query.getLimit() == 10
+                && query.getQueryObject().toString().contains("supplyType=ONHAND")), eq(Supply.class));
+        // A short first page already tells the total
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Supply.class));
+        assertThrows(FoundException.class, () -> supplyService.filterSuppliesWithDetails(
+                new StockFilter(null, null, "unknown", null, null), 0, 10));
+    }
+
     @Test
     public void testAddAllSuppliesWithDetails() {
         List<Supply> supplies = Collections.singletonList(supply);
-        when(itemService.getItemByItemId("item1")).thenReturn(item);
-        when(locationService.getLocationByIdWithoutException("location1")).thenReturn(location);
+        when(itemService.getItemDescriptions(Set.of("item1"))).thenReturn(Map.of());
+        when(locationService.getLocationDescriptions(Set.of("location1"))).thenReturn(Map.of("location1", "Sample Location"));
 
         List<SupplyDTO> result = supplyService.addAllSuppliesWithDetails(supplies);
         assertEquals(1, result.size());
         assertNull(result.getFirst().getItemDescription());
+        assertEquals("Sample Location", result.getFirst().getLocationDescription());
+        verify(itemService, never()).getItemByItemIdWithOutException(anyString());
     }
 
     @Test
@@ -280,8 +358,8 @@ public class SupplyServiceTest {
                 .thenReturn(Collections.singletonList(location));
         when(supplyRepository.findByLocationIdIn(anyList(), any(PageRequest.class)))
                 .thenReturn(new PageImpl<>(Collections.singletonList(supply)));
-        when(itemService.getItemByItemIdWithOutException("item1")).thenReturn(item);
-        when(locationService.getLocationByIdWithoutException("location1")).thenReturn(location);
+        when(itemService.getItemDescriptions(Set.of("item1"))).thenReturn(Map.of("item1", "Sample Item"));
+        when(locationService.getLocationDescriptions(Set.of("location1"))).thenReturn(Map.of("location1", "Sample Location"));
 
         Page<SupplyDTO> result = supplyService.getAllSuppliesWithDetails(0, 10, "Sample Location", "location");
         assertFalse(result.isEmpty());
@@ -306,5 +384,47 @@ public class SupplyServiceTest {
         assertEquals("Supplies with supplyType DAMAGED and locationId location1 not found.", exception.getMessage());
     }
 
+    @Test
+    public void testAdjustSupply_AppliesDeltaAtomically() {
+        Supply adjusted = new Supply("1", "item1", "location1", SupplyType.ONHAND, 7);
+        when(mongoTemplate.findAndModify(any(Query.class), eq(new Update().inc("quantity", -3)),
+                any(FindAndModifyOptions.class), eq(Supply.class))).thenReturn(adjusted);
+
+        Supply result = supplyService.adjustSupply("1", -3);
+
+        assertEquals(7, result.getQuantity());
+        verify(availabilityProjection).applySupply("item1", "location1", SupplyType.ONHAND, -3, 0);
+        verify(availabilityCache).invalidate("item1", "location1");
+        verify(supplyRepository, never()).save(any());
+    }
+
+    @Test
+    public void testAdjustSupply_RejectsGoingBelowZero() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Supply.class))).thenReturn(null);
+        when(mongoTemplate.exists(any(Query.class), eq(Supply.class))).thenReturn(true);
+
+        FoundException exception = assertThrows(FoundException.class,
+                () -> supplyService.adjustSupply("item1", "location1", SupplyType.ONHAND, -50));
+
+        assertEquals("Insufficient quantity: cannot remove 50.", exception.getMessage());
+        verifyNoInteractions(availabilityProjection, availabilityCache);
+    }
+
+    @Test
+    public void testAdjustSupply_NotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Supply.class))).thenReturn(null);
+
+        FoundException exception = assertThrows(FoundException.class, () -> supplyService.adjustSupply("9", 5));
+
+        assertEquals("Supply with supplyId 9 not found.", exception.getMessage());
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(Supply.class));
+    }
 
+    @Test
+    public void testAdjustSupply_ZeroDelta() {
+        assertThrows(FoundException.class, () -> supplyService.adjustSupply("1", 0));
+        verifyNoInteractions(mongoTemplate);
+    }
 }
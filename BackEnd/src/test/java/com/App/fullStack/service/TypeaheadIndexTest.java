@@ -0,0 +1,121 @@
+package com.App.fullStack.service;
+
+import com.App.fullStack.pojos.Item;
+import com.App.fullStack.pojos.Location;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TypeaheadIndexTest {
+
+    @InjectMocks
+    private TypeaheadIndex typeaheadIndex;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        typeaheadIndex.meterRegistry = meterRegistry;
+        typeaheadIndex.registerMetrics();
+        when(mongoTemplate.stream(any(Query.class), eq(Item.class))).thenAnswer(invocation -> Stream.of(
+                item("SKU-100", "Blue Shirt"),
+                item("SKU-200", "Shirt rack"),
+                item("TS-1", "Sky lantern")));
+        when(mongoTemplate.stream(any(Query.class), eq(Location.class))).thenAnswer(invocation -> Stream.empty());
+    }
+
+    @Test
+    void suggestItems_ShouldBeEmptyUntilLoaded() {
+        assertTrue(typeaheadIndex.suggestItems("sku", 0, 10).isEmpty());
+        typeaheadIndex.rebuildItems();
+        assertTrue(typeaheadIndex.suggestItems("sku", 0, 10).isPresent());
+        assertTrue(typeaheadIndex.suggestLocations("sku", 0, 10).isEmpty());
+    }
+
+    @Test
+    void suggestItems_ShouldRankIdPrefixesBeforeWordPrefixes() {
+        typeaheadIndex.rebuildItems();
+
+        Page<String> page = typeaheadIndex.suggestItems("SK", 0, 10).orElseThrow();
+
+        assertEquals(List.of("SKU-100", "SKU-200", "TS-1"), ids(page));
+        assertEquals(new Document("itemId", "SKU-100").append("itemDescription", "Blue Shirt").toJson(),
+                page.getContent().get(0));
+        assertEquals(List.of("SKU-100", "SKU-200"), ids(typeaheadIndex.suggestItems("shirt", 0, 10).orElseThrow()));
+        assertEquals(List.of("SKU-100"), ids(typeaheadIndex.suggestItems("blue sh", 0, 10).orElseThrow()));
+        assertEquals(List.of(), ids(typeaheadIndex.suggestItems("hirt", 0, 10).orElseThrow()));
+    }
+
+    @Test
+    void suggestItems_ShouldPageAndReportTheExactTotal() {
+        typeaheadIndex.rebuildItems();
+
+        Page<String> first = typeaheadIndex.suggestItems("s", 0, 1).orElseThrow();
+        Page<String> last = typeaheadIndex.suggestItems("s", 2, 1).orElseThrow();
+
+        assertEquals(List.of("SKU-100"), ids(first));
+        assertTrue(first.hasNext());
+        assertEquals(3, first.getTotalElements()); // SKU-200 and TS-1 match through several words each
+        assertEquals(3, first.getTotalPages());
+        assertEquals(List.of("TS-1"), ids(last));
+        assertFalse(last.hasNext());
+        assertEquals(3, last.getTotalElements());
+    }
+
+    @Test
+    void memoryGauge_ShouldTrackWritesWithoutDrifting() {
+        typeaheadIndex.rebuildItems();
+        double loaded = meterRegistry.get("typeahead.memory.bytes").tag("index", "items").gauge().value();
+        assertTrue(loaded > 0);
+
+        typeaheadIndex.putItem(item("SKU-300", "Shirt rack"));
+        typeaheadIndex.putItem(item("SKU-300", "Wool hat"));
+        typeaheadIndex.putItem(item("SKU-100", "Blue Shirt"));
+        typeaheadIndex.removeItem("SKU-300");
+
+        assertEquals(loaded, meterRegistry.get("typeahead.memory.bytes").tag("index", "items").gauge().value());
+    }
+
+    @Test
+    void putAndRemove_ShouldUpdateSuggestionsAndMemoryGauges() {
+        typeaheadIndex.rebuildItems();
+        double bytesBefore = meterRegistry.get("typeahead.memory.bytes").tag("index", "items").gauge().value();
+
+        typeaheadIndex.putItem(item("SKU-100", "Red Scarf"));
+        typeaheadIndex.removeItem("SKU-200");
+        typeaheadIndex.onInventoryChange(new InventoryChangeEvent("items", "delete", new Document("itemId", "TS-1")));
+
+        assertEquals(List.of(), ids(typeaheadIndex.suggestItems("shirt", 0, 10).orElseThrow()));
+        assertEquals(List.of("SKU-100"), ids(typeaheadIndex.suggestItems("scarf", 0, 10).orElseThrow()));
+        assertEquals(1, meterRegistry.get("typeahead.entries").tag("index", "items").gauge().value());
+        assertTrue(meterRegistry.get("typeahead.memory.bytes").tag("index", "items").gauge().value() < bytesBefore);
+    }
+
+    private static List<String> ids(Page<String> page) {
+        return page.getContent().stream().map(json -> Document.parse(json).getString("itemId")).toList();
+    }
+
+    private static Item item(String itemId, String description) {
+        return new Item(null, itemId, description, "Category", "Type", null, 10.0, true, true, true);
+    }
+}
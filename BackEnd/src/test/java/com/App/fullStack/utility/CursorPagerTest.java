@@ -0,0 +1,106 @@
+package com.App.fullStack.utility;
+
+import com.App.fullStack.dto.CursorPage;
+import com.App.fullStack.exception.FoundException;
+import com.App.fullStack.pojos.Supply;
+import com.App.fullStack.pojos.SupplyType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CursorPagerTest {
+
+    @InjectMocks
+    private CursorPager cursorPager;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final String firstId = new ObjectId().toHexString();
+    private final String secondId = new ObjectId().toHexString();
+    private final String thirdId = new ObjectId().toHexString();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void page_ShouldFetchOneExtraDocumentAndReturnCursorOfLastOneKept() {
+        when(mongoTemplate.find(any(Query.class), eq(Supply.class)))
+                .thenReturn(List.of(supply(firstId), supply(secondId), supply(thirdId)));
+
+        CursorPage<Supply> page = cursorPager.page(null, Supply.class, Supply::getSupplyId, null, 2, null);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(secondId, CursorPager.decode(page.getNextCursor()).toString());
+        assertNull(page.getTotal());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Supply.class));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("_id", 1), query.getValue().getSortObject());
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Supply.class));
+    }
+
+    @Test
+    void page_ShouldContinueAfterCursorAndEndWithoutNextCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Supply.class))).thenReturn(List.of(supply(thirdId)));
+
+        CursorPage<Supply> page = cursorPager.page(Criteria.where("supplyType").is(SupplyType.ONHAND), Supply.class,
+                Supply::getSupplyId, CursorPager.encode(secondId), 2, null);
+
+        assertNull(page.getNextCursor());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Supply.class));
+        assertEquals(new Document("$gt", new ObjectId(secondId)), query.getValue().getQueryObject().get("_id"));
+        assertEquals(SupplyType.ONHAND, query.getValue().getQueryObject().get("supplyType"));
+    }
+
+    @Test
+    void page_ShouldCountOnlyWhenTotalRequested() {
+        when(mongoTemplate.find(any(Query.class), eq(Supply.class))).thenReturn(List.of(supply(firstId)));
+        when(mongoTemplate.estimatedCount(Supply.class)).thenReturn(42L);
+        when(mongoTemplate.count(any(Query.class), eq(Supply.class))).thenReturn(10000L);
+
+        CursorPage<Supply> estimated = cursorPager.page(null, Supply.class, Supply::getSupplyId, null, 2, "estimated");
+        CursorPage<Supply> capped = cursorPager.page(Criteria.where("itemId").is("item1"), Supply.class,
+                Supply::getSupplyId, null, 2, "estimated");
+
+        assertEquals(42L, estimated.getTotal());
+        assertTrue(estimated.isTotalEstimated());
+        assertEquals(10000L, capped.getTotal());
+        assertTrue(capped.isTotalEstimated());
+        ArgumentCaptor<Query> countQuery = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).count(countQuery.capture(), eq(Supply.class));
+        assertEquals(10000, countQuery.getValue().getLimit());
+    }
+
+    @Test
+    void page_ShouldRejectInvalidArguments() {
+        assertThrows(FoundException.class,
+                () -> cursorPager.page(null, Supply.class, Supply::getSupplyId, null, 0, null));
+        assertThrows(FoundException.class,
+                () -> cursorPager.page(null, Supply.class, Supply::getSupplyId, "not base64!", 2, null));
+        assertThrows(FoundException.class,
+                () -> cursorPager.page(null, Supply.class, Supply::getSupplyId, null, 2, "approximate"));
+    }
+
+    private static Supply supply(String id) {
+        return new Supply(id, "item1", "location1", SupplyType.ONHAND, 5);
+    }
+}